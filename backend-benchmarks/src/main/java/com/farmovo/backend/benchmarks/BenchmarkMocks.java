@@ -0,0 +1,23 @@
+package com.farmovo.backend.benchmarks;
+
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+/**
+ * Spy dùng trong benchmark: gọi phương thức thật nhưng không ghi lại lần gọi (stubOnly), để hàng triệu lần
+ * lặp của JMH không tích lũy invocation trong bộ nhớ. Gán sẵn vào field @Spy thì Mockito giữ nguyên
+ * instance này và @InjectMocks vẫn tiêm được vào service.
+ */
+final class BenchmarkMocks {
+
+    private BenchmarkMocks() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T stubOnlySpy(T instance) {
+        return (T) Mockito.mock(instance.getClass(), Mockito.withSettings()
+                .stubOnly()
+                .spiedInstance(instance)
+                .defaultAnswer(Answers.CALLS_REAL_METHODS));
+    }
+}
@@ -0,0 +1,86 @@
+package com.farmovo.backend.benchmarks;
+
+import com.farmovo.backend.utils.PdfRenderer;
+import com.lowagie.text.pdf.BaseFont;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Số PDF phiếu/giây của PdfRenderer.
+ * perCallFont: cách cũ của exportPdf/exportImportPdf - mỗi lần xuất ghi font ra file tạm, tạo BaseFont
+ * và Font mới, đệm cả file trong ByteArrayOutputStream.
+ * sharedRenderer: font nạp một lần, style dùng chung, ghi thẳng ra stream (ở đây là stream bỏ dữ liệu).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx6g"})
+public class PdfRenderBenchmark {
+
+    @Param({"10", "100"})
+    public int lines;
+
+    private PdfRenderer sharedRenderer;
+    private PdfRenderer.Voucher voucher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sharedRenderer = new PdfRenderer();
+        List<PdfRenderer.Line> items = new ArrayList<>(lines);
+        for (int i = 1; i <= lines; i++) {
+            items.add(new PdfRenderer.Line("Trứng gà " + i, "SP" + String.format("%06d", i),
+                    BigDecimal.valueOf(3_000 + i), 1 + i % 5));
+        }
+        voucher = new PdfRenderer.Voucher(
+                "CHI TIẾT PHIẾU BÁN HÀNG PB000001",
+                LocalDateTime.now(),
+                "✔ Phiếu hoàn thành",
+                "Thông tin cửa hàng",
+                List.of("Tên cửa hàng: Kho 1", "Người tạo: Nguyễn Văn A", "Địa chỉ: Hà Nội"),
+                "Thông tin khách hàng",
+                List.of("Tên khách hàng: Khách lẻ", "Số điện thoại: 0900000000", "Địa chỉ: Hà Nội"),
+                "Đơn giá",
+                items,
+                BigDecimal.valueOf(1_000_000),
+                BigDecimal.valueOf(400_000),
+                "Giao buổi sáng");
+    }
+
+    @Benchmark
+    public byte[] perCallFont() throws IOException {
+        ClassPathResource fontResource = new ClassPathResource("fonts/Roboto-Regular.ttf");
+        File tempFontFile = File.createTempFile("roboto", ".ttf");
+        try {
+            try (InputStream in = fontResource.getInputStream(); OutputStream os = new FileOutputStream(tempFontFile)) {
+                in.transferTo(os);
+            }
+            // cached=false: cách cũ cũng không trúng cache vì mỗi lần một đường dẫn file tạm
+            BaseFont baseFont = BaseFont.createFont(tempFontFile.getAbsolutePath(), BaseFont.IDENTITY_H,
+                    BaseFont.EMBEDDED, false, null, null);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new PdfRenderer(baseFont).render(voucher, out);
+            return out.toByteArray();
+        } finally {
+            tempFontFile.delete();
+        }
+    }
+
+    @Benchmark
+    public void sharedRenderer() throws IOException {
+        sharedRenderer.render(voucher, OutputStream.nullOutputStream());
+    }
+}
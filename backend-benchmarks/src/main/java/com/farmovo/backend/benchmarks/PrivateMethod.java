@@ -0,0 +1,34 @@
+package com.farmovo.backend.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Gọi phương thức private của service (vd. parseTransactionDetail, deductStockFromBatch)
+ * để đo riêng từng bước mà không phải dựng cả luồng public.
+ */
+final class PrivateMethod {
+
+    private final Object target;
+    private final Method method;
+
+    PrivateMethod(Object target, String name, Class<?>... parameterTypes) {
+        try {
+            this.target = target;
+            this.method = target.getClass().getDeclaredMethod(name, parameterTypes);
+            this.method.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Benchmark target changed: " + name, e);
+        }
+    }
+
+    Object invoke(Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
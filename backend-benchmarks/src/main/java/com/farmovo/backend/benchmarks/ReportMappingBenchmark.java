@@ -0,0 +1,130 @@
+package com.farmovo.backend.benchmarks;
+
+import com.farmovo.backend.dto.response.CategoryRemainSummaryDto;
+import com.farmovo.backend.dto.response.InOutSummaryDto;
+import com.farmovo.backend.dto.response.TopProductDto;
+import com.farmovo.backend.models.ImportTransactionStatus;
+import com.farmovo.backend.models.Zone;
+import com.farmovo.backend.repositories.CategoryRepository;
+import com.farmovo.backend.repositories.DailyStoreRollupRepository;
+import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
+import com.farmovo.backend.repositories.ImportTransactionRepository;
+import com.farmovo.backend.repositories.ProductRepository;
+import com.farmovo.backend.repositories.SaleTransactionLineRepository;
+import com.farmovo.backend.repositories.SaleTransactionRepository;
+import com.farmovo.backend.repositories.StocktakeRepository;
+import com.farmovo.backend.repositories.UserRepository;
+import com.farmovo.backend.repositories.ZoneRepository;
+import com.farmovo.backend.services.ZoneService;
+import com.farmovo.backend.services.impl.ReportServiceImpl;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Phần Java của ReportServiceImpl.getTopProducts, getInOutSummary, getRemainSummary trên dữ liệu repository
+ * trả về sẵn (mock). Top sản phẩm và nhập/xuất theo ngày đã được DB gom nhóm, nên hai benchmark đầu chỉ đo
+ * việc chuyển dòng kết quả (10 dòng, 365 ngày) sang DTO, không phụ thuộc số phiếu; getRemainSummary gom
+ * REMAINING_LOTS lô còn hàng theo danh mục/sản phẩm/zone trong Java. Thời gian truy vấn DB không được tính.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ReportMappingBenchmark {
+
+    private static final int IN_OUT_DAYS = 365;
+    private static final int REMAINING_LOTS = 100_000;
+
+    // stubOnly: mock không ghi lại từng lần gọi, bộ nhớ không tăng theo số lần lặp của benchmark
+    @Mock(stubOnly = true)
+    ImportTransactionDetailRepository importTransactionDetailRepository;
+    @Mock(stubOnly = true)
+    StocktakeRepository stocktakeRepository;
+    @Mock(stubOnly = true)
+    SaleTransactionRepository saleTransactionRepository;
+    @Mock(stubOnly = true)
+    ProductRepository productRepository;
+    @Mock(stubOnly = true)
+    ZoneRepository zoneRepository;
+    @Mock(stubOnly = true)
+    CategoryRepository categoryRepository;
+    @Mock(stubOnly = true)
+    ImportTransactionRepository importTransactionRepository;
+    @Mock(stubOnly = true)
+    UserRepository userRepository;
+    @Mock(stubOnly = true)
+    SaleTransactionLineRepository saleTransactionLineRepository;
+    @Mock(stubOnly = true)
+    DailyStoreRollupRepository dailyStoreRollupRepository;
+    @Mock(stubOnly = true)
+    ZoneService zoneService;
+
+    @InjectMocks
+    ReportServiceImpl reportService;
+
+    private AutoCloseable mocks;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        SyntheticData data = new SyntheticData(REMAINING_LOTS, 42L);
+        LocalDate firstDay = LocalDate.now().minusDays(IN_OUT_DAYS - 1);
+        from = firstDay.atStartOfDay();
+        to = LocalDate.now().atTime(23, 59, 59);
+
+        when(importTransactionDetailRepository.findByRemainQuantityGreaterThanAndImportTransactionStatus(0, ImportTransactionStatus.COMPLETE))
+                .thenReturn(data.lots());
+        when(importTransactionDetailRepository.findZoneIdsOfRemainingLots(ImportTransactionStatus.COMPLETE))
+                .thenReturn(data.lotZoneRows());
+        when(productRepository.findAll()).thenReturn(data.products());
+        when(zoneRepository.findAll()).thenReturn(data.zones());
+        // Tên zone lấy từ cache tham chiếu; mock trả sẵn map như khi cache hit
+        when(zoneService.getZoneNamesById()).thenReturn(data.zones().stream()
+                .collect(Collectors.toMap(Zone::getId, Zone::getZoneName)));
+
+        when(importTransactionDetailRepository.sumRemainCompletedBefore(any())).thenReturn((long) REMAINING_LOTS * 50);
+        when(importTransactionRepository.sumImportQuantityByDay(any(), any()))
+                .thenReturn(data.quantityByDayRows(firstDay, IN_OUT_DAYS, REMAINING_LOTS));
+        when(saleTransactionLineRepository.sumExportQuantityByDay(any(), any()))
+                .thenReturn(data.quantityByDayRows(firstDay, IN_OUT_DAYS, REMAINING_LOTS));
+
+        when(saleTransactionLineRepository.sumQuantityByProduct(any(), any(), any(Pageable.class)))
+                .thenReturn(data.topProductRows(10));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Benchmark
+    public List<TopProductDto> mapTopProductRows() {
+        return reportService.getTopProducts(from, to, 10);
+    }
+
+    @Benchmark
+    public List<InOutSummaryDto> mapInOutDailyRows() {
+        return reportService.getInOutSummary(from, to, null);
+    }
+
+    @Benchmark
+    public List<CategoryRemainSummaryDto> groupRemainingLots() {
+        return reportService.getRemainSummary();
+    }
+}
@@ -0,0 +1,92 @@
+package com.farmovo.backend.benchmarks;
+
+import com.farmovo.backend.dto.response.ProductSaleResponseDto;
+import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
+import com.farmovo.backend.repositories.ProductRepository;
+import com.farmovo.backend.repositories.SaleTransactionRepository;
+import com.farmovo.backend.services.impl.SaleTransactionServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * SaleTransactionServiceImpl: parse JSON detail của phiếu và trừ tồn theo lô khi hoàn thành phiếu.
+ * Mỗi lần gọi xử lý một phiếu có `lines` dòng, chọn lô ngẫu nhiên trong kho LOTS lô. Repository là mock nên
+ * số lô trong kho không ảnh hưởng thời gian đo; chỉ số dòng của phiếu thay đổi khối lượng việc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class SaleTransactionBenchmark {
+
+    private static final int LOTS = 10_000;
+
+    @Param({"10", "100", "1000"})
+    public int lines;
+
+    // stubOnly: mock không ghi lại từng lần gọi, bộ nhớ không tăng theo số lần lặp của benchmark
+    @Mock(stubOnly = true)
+    ImportTransactionDetailRepository importTransactionDetailRepository;
+    @Mock(stubOnly = true)
+    SaleTransactionRepository saleTransactionRepository;
+    @Mock(stubOnly = true)
+    ProductRepository productRepository;
+    @Spy
+    ObjectMapper objectMapper = BenchmarkMocks.stubOnlySpy(new ObjectMapper());
+
+    @InjectMocks
+    SaleTransactionServiceImpl saleTransactionService;
+
+    private AutoCloseable mocks;
+    private PrivateMethod parseTransactionDetail;
+    private PrivateMethod deductStockFromBatch;
+    private String detailJson;
+    private List<ProductSaleResponseDto> items;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        SyntheticData data = new SyntheticData(LOTS, 42L);
+        detailJson = data.saleDetailJson(lines);
+        items = data.saleItems(lines);
+
+        when(importTransactionDetailRepository.findExistingIds(any()))
+                .thenAnswer(inv -> new ArrayList<>((Collection<Long>) inv.getArgument(0)));
+        when(importTransactionDetailRepository.decrementRemainQuantity(anyLong(), anyLong(), anyInt())).thenReturn(1);
+
+        parseTransactionDetail = new PrivateMethod(saleTransactionService, "parseTransactionDetail", String.class);
+        deductStockFromBatch = new PrivateMethod(saleTransactionService, "deductStockFromBatch", List.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Benchmark
+    public Object parseTransactionDetail() {
+        return parseTransactionDetail.invoke(detailJson);
+    }
+
+    @Benchmark
+    public void deductStockFromBatch() {
+        deductStockFromBatch.invoke(items);
+    }
+}
@@ -0,0 +1,95 @@
+package com.farmovo.backend.benchmarks;
+
+import com.farmovo.backend.dto.response.StocktakeDetailDto;
+import com.farmovo.backend.models.ImportTransactionDetail;
+import com.farmovo.backend.models.Product;
+import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
+import com.farmovo.backend.repositories.ProductRepository;
+import com.farmovo.backend.services.impl.StocktakeServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * StocktakeServiceImpl: enrich chi tiết phiếu kiểm kê (nạp sản phẩm và lô còn tồn một lần cho cả phiếu rồi khớp từng dòng).
+ * Kho cố định LOTS lô (khoảng 100 lô mỗi sản phẩm); repository là mock nên chỉ số dòng `lines` thay đổi khối lượng việc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class StocktakeEnrichmentBenchmark {
+
+    private static final int LOTS = 100_000;
+
+    @Param({"100", "1000"})
+    public int lines;
+
+    // stubOnly: mock không ghi lại từng lần gọi, bộ nhớ không tăng theo số lần lặp của benchmark
+    @Mock(stubOnly = true)
+    ImportTransactionDetailRepository importTransactionDetailRepository;
+    @Mock(stubOnly = true)
+    ProductRepository productRepository;
+    @Spy
+    ObjectMapper objectMapper = BenchmarkMocks.stubOnlySpy(new ObjectMapper());
+
+    @InjectMocks
+    StocktakeServiceImpl stocktakeService;
+
+    private AutoCloseable mocks;
+    private PrivateMethod enrichStocktakeDetails;
+    private List<StocktakeDetailDto> details;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        SyntheticData data = new SyntheticData(LOTS, 42L);
+        details = data.stocktakeDetails(lines);
+
+        Map<Long, Product> productsById = data.products().stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<Long, List<ImportTransactionDetail>> lotsByProduct = data.remainingLotsByProduct();
+        when(productRepository.findAllById(anyIterable()))
+                .thenAnswer(inv -> toStream(inv.<Iterable<Long>>getArgument(0))
+                        .map(productsById::get).filter(Objects::nonNull).toList());
+        when(importTransactionDetailRepository.findByProductIdInAndRemainQuantityGreaterThan(anyCollection(), eq(0)))
+                .thenAnswer(inv -> inv.<Collection<Long>>getArgument(0).stream()
+                        .flatMap(id -> lotsByProduct.getOrDefault(id, List.of()).stream()).toList());
+
+        enrichStocktakeDetails = new PrivateMethod(stocktakeService, "enrichStocktakeDetails", List.class);
+    }
+
+    private static <T> Stream<T> toStream(Iterable<T> values) {
+        return StreamSupport.stream(values.spliterator(), false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Benchmark
+    public Object enrichStocktakeDetails() {
+        return enrichStocktakeDetails.invoke(details);
+    }
+}
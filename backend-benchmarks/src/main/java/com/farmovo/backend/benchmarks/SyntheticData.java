@@ -0,0 +1,198 @@
+package com.farmovo.backend.benchmarks;
+
+import com.farmovo.backend.dto.response.ProductSaleResponseDto;
+import com.farmovo.backend.dto.response.StocktakeDetailDto;
+import com.farmovo.backend.models.Category;
+import com.farmovo.backend.models.ImportTransactionDetail;
+import com.farmovo.backend.models.Product;
+import com.farmovo.backend.models.Store;
+import com.farmovo.backend.models.Zone;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sinh dữ liệu giả lập có seed cố định cho benchmark.
+ * Quy mô theo số phiếu nhập hoàn thành: mỗi phiếu tạo một lô, khoảng 100 lô cho mỗi sản phẩm.
+ */
+public final class SyntheticData {
+
+    public static final int STORES = 5;
+    public static final int CATEGORIES = 8;
+    public static final int ZONES = 40;
+
+    private final Random random;
+    private final List<Store> stores = new ArrayList<>();
+    private final List<Category> categories = new ArrayList<>();
+    private final List<Zone> zones = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+    private final List<ImportTransactionDetail> lots = new ArrayList<>();
+
+    public SyntheticData(int transactions, long seed) {
+        this.random = new Random(seed);
+        for (long i = 1; i <= STORES; i++) {
+            Store store = new Store();
+            store.setId(i);
+            store.setStoreName("Kho " + i);
+            stores.add(store);
+        }
+        for (long i = 1; i <= CATEGORIES; i++) {
+            Category category = new Category();
+            category.setId(i);
+            category.setCategoryName("Loại " + i);
+            categories.add(category);
+        }
+        for (long i = 1; i <= ZONES; i++) {
+            Zone zone = new Zone();
+            zone.setId(i);
+            zone.setZoneName("Z" + i);
+            zone.setStore(stores.get((int) ((i - 1) % STORES)));
+            zones.add(zone);
+        }
+        int productCount = Math.max(50, transactions / 100);
+        for (long i = 1; i <= productCount; i++) {
+            Product product = new Product();
+            product.setId(i);
+            product.setProductCode("SP" + String.format("%06d", i));
+            product.setProductName("Trứng " + i);
+            product.setProductQuantity(1_000_000);
+            product.setCategory(categories.get(random.nextInt(CATEGORIES)));
+            product.setStore(stores.get(random.nextInt(STORES)));
+            products.add(product);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (long i = 1; i <= transactions; i++) {
+            ImportTransactionDetail lot = new ImportTransactionDetail();
+            lot.setId(i);
+            lot.setName("LH" + String.format("%06d", i));
+            lot.setProduct(products.get(random.nextInt(productCount)));
+            int imported = 10 + random.nextInt(500);
+            lot.setImportQuantity(imported);
+            lot.setRemainQuantity(random.nextInt(imported + 1));
+            lot.setUnitImportPrice(BigDecimal.valueOf(2_000 + random.nextInt(1_000)));
+            lot.setUnitSalePrice(BigDecimal.valueOf(3_000 + random.nextInt(1_500)));
+            lot.setExpireDate(now.plusDays(random.nextInt(60) - 10));
+            lot.setZones_id(randomZones());
+            lot.setIsCheck(Boolean.FALSE);
+            lots.add(lot);
+        }
+    }
+
+    private String randomZones() {
+        long first = 1 + random.nextInt(ZONES);
+        if (random.nextInt(4) == 0) {
+            long second = 1 + random.nextInt(ZONES);
+            return first + "," + second;
+        }
+        return String.valueOf(first);
+    }
+
+    public List<Zone> zones() {
+        return zones;
+    }
+
+    public List<Product> products() {
+        return products;
+    }
+
+    public List<ImportTransactionDetail> lots() {
+        return lots;
+    }
+
+    // Lô còn tồn theo sản phẩm như findByProductIdInAndRemainQuantityGreaterThan(productIds, 0)
+    public Map<Long, List<ImportTransactionDetail>> remainingLotsByProduct() {
+        Map<Long, List<ImportTransactionDetail>> result = new HashMap<>();
+        for (ImportTransactionDetail lot : lots) {
+            if (lot.getRemainQuantity() > 0) {
+                result.computeIfAbsent(lot.getProduct().getId(), k -> new ArrayList<>()).add(lot);
+            }
+        }
+        return result;
+    }
+
+    // Dòng [lotId, zoneId] như ImportTransactionDetailRepository.findZoneIdsOfRemainingLots
+    public List<Object[]> lotZoneRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (ImportTransactionDetail lot : lots) {
+            for (Long zoneId : ImportTransactionDetail.parseZoneIds(lot.getZones_id())) {
+                rows.add(new Object[]{lot.getId(), zoneId});
+            }
+        }
+        return rows;
+    }
+
+    // Dòng [day, total] như các truy vấn sum*QuantityByDay; phân bổ số phiếu đều trên `days` ngày
+    public List<Object[]> quantityByDayRows(LocalDate from, int days, int transactions) {
+        List<Object[]> rows = new ArrayList<>();
+        int perDay = Math.max(1, transactions / days);
+        for (int d = 0; d < days; d++) {
+            rows.add(new Object[]{java.sql.Date.valueOf(from.plusDays(d)), (long) perDay * (5 + random.nextInt(20))});
+        }
+        return rows;
+    }
+
+    // Dòng [productId, productName, categoryName, quantity] như sumQuantityByProduct
+    public List<Object[]> topProductRows(int limit) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, products.size()); i++) {
+            Product p = products.get(i);
+            rows.add(new Object[]{p.getId(), p.getProductName(), p.getCategory().getCategoryName(), (long) (1_000 - i)});
+        }
+        return rows;
+    }
+
+    public List<ProductSaleResponseDto> saleItems(int lines) {
+        List<ProductSaleResponseDto> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            ImportTransactionDetail lot = lots.get(random.nextInt(lots.size()));
+            ProductSaleResponseDto dto = new ProductSaleResponseDto();
+            dto.setId(lot.getId());
+            dto.setProId(lot.getProduct().getId());
+            dto.setProductName(lot.getProduct().getProductName());
+            dto.setProductCode(lot.getProduct().getProductCode());
+            dto.setRemainQuantity(lot.getRemainQuantity());
+            dto.setQuantity(1 + random.nextInt(5));
+            dto.setUnitSalePrice(lot.getUnitSalePrice());
+            dto.setName(lot.getName());
+            dto.setBatchCode(lot.getName());
+            dto.setCreateAt(LocalDateTime.now());
+            dto.setExpireDate(lot.getExpireDate());
+            items.add(dto);
+        }
+        return items;
+    }
+
+    public String saleDetailJson(int lines) {
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.registerModule(new JavaTimeModule());
+            return mapper.writeValueAsString(saleItems(lines));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<StocktakeDetailDto> stocktakeDetails(int lines) {
+        List<StocktakeDetailDto> details = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            ImportTransactionDetail lot = lots.get(random.nextInt(lots.size()));
+            StocktakeDetailDto dto = new StocktakeDetailDto();
+            dto.setId(lot.getId());
+            dto.setBatchCode(lot.getName());
+            dto.setProductId(lot.getProduct().getId());
+            dto.setReal(lot.getRemainQuantity() + random.nextInt(3) - 1);
+            dto.setZoneReal(String.valueOf(1 + random.nextInt(ZONES)));
+            dto.setIsCheck(Boolean.TRUE);
+            details.add(dto);
+        }
+        return details;
+    }
+}
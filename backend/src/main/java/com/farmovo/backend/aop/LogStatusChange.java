@@ -1,8 +0,0 @@
-package com.farmovo.backend.aop;
-
-import java.lang.annotation.*;
-
-@Target(ElementType.METHOD)
-@Retention(RetentionPolicy.RUNTIME)
-public @interface LogStatusChange {
-} 
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.farmovo.backend.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    // Dữ liệu tham chiếu (zone, danh mục, kho), bị xóa bởi các hàm create/update/delete của service.
+    // Sản phẩm không cache: số lượng tồn thay đổi qua các câu UPDATE trực tiếp khi bán/nhập/kiểm kê
+    public static final String ZONES = "zones";
+    public static final String ZONE_DTOS = "zoneDtos";
+    public static final String ZONES_BY_STORE = "zonesByStore";
+    public static final String ZONE_NAMES = "zoneNames";
+    public static final String CATEGORIES = "categories";
+    public static final String STORE_DTOS = "storeDtos";
+    public static final String STORE_RESPONSE_DTOS = "storeResponseDtos";
+    public static final String SOURCE_ENTITY_INFO = "sourceEntityInfo";
+
+    // Khai báo sẵn tên cache để actuator đăng ký metrics cache.gets{result=hit|miss} lúc khởi động
+    @Bean
+    public CacheManager cacheManager(@Value("${app.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${app.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+                ZONES, ZONE_DTOS, ZONES_BY_STORE, ZONE_NAMES,
+                CATEGORIES,
+                STORE_DTOS, STORE_RESPONSE_DTOS,
+                SOURCE_ENTITY_INFO);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,10 @@
+package com.farmovo.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Bật @Scheduled (NotificationRetentionJob)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -3,6 +3,7 @@ package com.farmovo.backend.config;
 import com.farmovo.backend.jwt.AuthEntryPointJwt;
 import com.farmovo.backend.jwt.AuthTokenFilter;
 import com.farmovo.backend.services.impl.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,6 +51,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Dispatch async (SSE, StreamingResponseBody) đã được xác thực ở request gốc
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints
                         .requestMatchers("/").permitAll()
                         .requestMatchers("/favicon.ico").permitAll()
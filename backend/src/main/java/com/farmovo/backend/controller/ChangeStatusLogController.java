@@ -2,6 +2,7 @@ package com.farmovo.backend.controller;
 
 import com.farmovo.backend.dto.request.ChangeStatusLogFilterRequestDTO;
 import com.farmovo.backend.dto.request.ChangeStatusLogByModelRequestDTO;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.request.PageResponse;
 import com.farmovo.backend.dto.response.ChangeStatusLogResponseDTO;
 import com.farmovo.backend.dto.response.SourceEntityInfo;
@@ -9,6 +10,7 @@ import com.farmovo.backend.mapper.ChangeStatusLogMapper;
 import com.farmovo.backend.models.ChangeStatusLog;
 import com.farmovo.backend.services.ChangeStatusLogService;
 import com.farmovo.backend.services.SourceEntityResolverService;
+import com.farmovo.backend.utils.KeysetPagination;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -28,9 +30,17 @@ public class ChangeStatusLogController {
 
     @PostMapping("/list-all")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN','ADMIN')")
-    public ResponseEntity<PageResponse<ChangeStatusLogResponseDTO>> searchLogs(
+    public ResponseEntity<?> searchLogs(
             @RequestBody ChangeStatusLogFilterRequestDTO filterRequest,
+            @RequestParam(name = KeysetPagination.MODE_PARAM, required = false) String pagination,
+            @RequestParam(required = false) String cursor,
             Pageable pageable) {
+        // pagination=cursor: trang theo cursor, bỏ qua page/sort và không đếm tổng
+        if (KeysetPagination.isCursorMode(pagination)) {
+            CursorPageResponse<ChangeStatusLog> entityPage =
+                    changeStatusLogService.getAllLogsByCursor(filterRequest, cursor, pageable.getPageSize());
+            return ResponseEntity.ok(entityPage.map(logs -> logs.stream().map(mapper::toDto).toList()));
+        }
         Page<ChangeStatusLog> entityPage = changeStatusLogService.getAllLogs(filterRequest, pageable);
         Page<ChangeStatusLogResponseDTO> dtoPage = entityPage.map(mapper::toDto);
         return ResponseEntity.ok(PageResponse.fromPage(dtoPage));
@@ -1,9 +1,8 @@
 package com.farmovo.backend.controller;
 
 import com.farmovo.backend.dto.response.DashboardSummaryDto;
-import com.farmovo.backend.models.User;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.services.DashboardService;
-import com.farmovo.backend.services.impl.JwtAuthenticationService;
 import com.farmovo.backend.utils.RoleUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -18,17 +17,15 @@ public class DashboardController {
     private DashboardService dashboardService;
 
     @Autowired
-    private JwtAuthenticationService jwtAuthenticationService;
+    private AuthContext authContext;
 
     @GetMapping("/summary")
     public DashboardSummaryDto getSummary(HttpServletRequest request) {
         try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-
             // Nếu là Staff, chỉ lấy dữ liệu của kho được phân công
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                return dashboardService.getSummaryByStore(user.getStore().getId());
+            Long staffStoreId = authContext.getStoreIdIfStaff();
+            if (staffStoreId != null) {
+                return dashboardService.getSummaryByStore(staffStoreId);
             }
 
             // Owner/Admin xem tổng quan tất cả
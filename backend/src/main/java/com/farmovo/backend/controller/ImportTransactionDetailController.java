@@ -10,8 +10,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
-import com.farmovo.backend.services.impl.JwtAuthenticationService;
-import com.farmovo.backend.models.User;
+import com.farmovo.backend.jwt.AuthContext;
 import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
@@ -28,7 +27,7 @@ public class ImportTransactionDetailController {
     private ProductService productService;
 
     @Autowired
-    private JwtAuthenticationService jwtAuthenticationService;
+    private AuthContext authContext;
 
     // API lấy danh sách Zone có sản phẩm tồn kho
     @GetMapping("/zones-with-products")
@@ -74,13 +73,9 @@ public class ImportTransactionDetailController {
             @RequestParam(required = false) String search,
             HttpServletRequest request
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                store = String.valueOf(user.getStore().getId());
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            store = String.valueOf(staffStoreId);
         }
         List<ImportDetailLotDto> result = importTransactionDetailService.findForStocktakeLot(store, zone, product, isCheck, batchCode, search);
         return ResponseEntity.ok(result);
@@ -102,7 +97,9 @@ public class ImportTransactionDetailController {
     @PatchMapping("/{id}/remain")
     public ResponseEntity<ImportDetailLotDto> updateRemainQuantity(@PathVariable Long id, @RequestBody(required = true) java.util.Map<String, Integer> body) {
         Integer remainQuantity = body.get("remainQuantity");
-        ImportDetailLotDto updated = importTransactionDetailService.updateRemainQuantityAndReturnDto(id, remainQuantity);
+        // Không bắt buộc: khi có thì backend chỉ cộng phần chênh lệch so với giá trị client đã đọc
+        Integer previousRemainQuantity = body.get("previousRemainQuantity");
+        ImportDetailLotDto updated = importTransactionDetailService.updateRemainQuantityAndReturnDto(id, remainQuantity, previousRemainQuantity);
         return ResponseEntity.ok(updated);
     }
 
@@ -6,12 +6,14 @@ import com.farmovo.backend.dto.response.ImportTransactionResponseDto;
 import com.farmovo.backend.dto.response.ZoneResponseDto;
 import com.farmovo.backend.exceptions.BadRequestException;
 import com.farmovo.backend.exceptions.ImportTransactionNotFoundException;
-import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.mapper.StoreMapper;
 import com.farmovo.backend.models.ImportTransactionStatus;
+import com.farmovo.backend.models.Store;
 import com.farmovo.backend.models.User;
 import com.farmovo.backend.services.*;
-import com.farmovo.backend.services.impl.JwtAuthenticationService;
+import com.farmovo.backend.utils.KeysetPagination;
+import com.farmovo.backend.utils.PdfBulkExporter;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
@@ -22,6 +24,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -45,9 +48,8 @@ public class ImportTransationController {
     private final ZoneService zoneService;
     private final StoreService storeService;
     private final ImportTransactionService importTransactionService;
-    private final JwtUtils jwtUtils;
     private final StoreMapper storeMapper;
-    private final JwtAuthenticationService jwtAuthenticationService;
+    private final AuthContext authContext;
     private final ImportTransactionRepository importTransactionRepository;
 
     @GetMapping("/create-form-data")
@@ -55,8 +57,8 @@ public class ImportTransationController {
         log.info("Getting create form data for import transaction");
 
         // Lấy thông tin người dùng từ JWT
-        User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-        List<String> roles = jwtAuthenticationService.getUserRoles(user);
+        User user = authContext.getUser();
+        List<String> roles = authContext.getRoles();
         List<CustomerDto> customers = customerService.getAllCustomerDto();
         List<ProductDto> products = productService.getAllProductDto();
         ////sửa từ ZoneDto thành ZoneResponseDto
@@ -72,7 +74,7 @@ public class ImportTransationController {
             if (user.getStore() == null) {
                 throw new BadRequestException("Nhân viên chưa được phân công cửa hàng");
             }
-            stores = List.of(storeMapper.toDto(user.getStore()));
+            stores = List.of(storeMapper.toDto(loadStore(user.getStore().getId())));
             zones = zoneService.getZonesByStoreId(user.getStore().getId());
         } else {
             throw new BadRequestException("Người dùng không có quyền truy cập");
@@ -90,6 +92,12 @@ public class ImportTransationController {
         return ResponseEntity.ok(formData);
     }
 
+    // Token chỉ mang store id; tải đủ thông tin kho để trả về form
+    private Store loadStore(Long storeId) {
+        return storeService.getStoreById(storeId)
+                .orElseThrow(() -> new BadRequestException("Nhân viên chưa được phân công cửa hàng"));
+    }
+
     @PutMapping("/{id}/cancel")
     public ResponseEntity<?> cancelImportTransaction(@PathVariable Long id) {
         log.info("Cancelling import transaction with ID: {}", id);
@@ -159,7 +167,7 @@ public class ImportTransationController {
     }
 
     @GetMapping("/list-all")
-    public ResponseEntity<PageResponse<ImportTransactionResponseDto>> listAllImportTransaction(
+    public ResponseEntity<?> listAllImportTransaction(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String supplierName,
             @RequestParam(required = false) Long storeId,
@@ -172,8 +180,16 @@ public class ImportTransationController {
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
             @RequestParam(required = false) BigDecimal minTotalAmount,
             @RequestParam(required = false) BigDecimal maxTotalAmount,
+            @RequestParam(name = KeysetPagination.MODE_PARAM, required = false) String pagination,
+            @RequestParam(required = false) String cursor,
             Pageable pageable
     ) {
+        // pagination=cursor: trang theo cursor, bỏ qua page/sort và không đếm tổng
+        if (KeysetPagination.isCursorMode(pagination)) {
+            return ResponseEntity.ok(importTransactionService.listAllImportTransactionByCursor(
+                    name, supplierName, storeId, staffId, createdBy, status,
+                    fromDate, toDate, minTotalAmount, maxTotalAmount, cursor, pageable.getPageSize()));
+        }
         Page<ImportTransactionResponseDto> result = importTransactionService.listAllImportTransaction(
                 name, supplierName, storeId, staffId, createdBy, status,
                 fromDate, toDate, minTotalAmount, maxTotalAmount, pageable
@@ -203,9 +219,8 @@ public class ImportTransationController {
         log.info("Creating new import transaction for supplierId={}, storeId={}, staffId={}",
                 dto.getSupplierId(), dto.getStoreId(), dto.getStaffId());
 
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Long userId = authContext.getUserId();
+        if (userId != null) {
             log.debug("User ID from token: {}", userId);
 
             try {
@@ -246,9 +261,8 @@ public class ImportTransationController {
     public ResponseEntity<String> saveFromBalance(@RequestBody CreateImportTransactionRequestDto dto, HttpServletRequest request) {
         log.info("Creating BALANCE import transaction");
 
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Long userId = authContext.getUserId();
+        if (userId != null) {
             log.debug("User ID from token: {}", userId);
 
             try {
@@ -267,9 +281,8 @@ public class ImportTransationController {
 
     @DeleteMapping("/sort-delete/{id}")
     public ResponseEntity<String> softDeleteImportTransaction(@PathVariable Long id, HttpServletRequest request) {
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Long userId = authContext.getUserId();
+        if (userId != null) {
             importTransactionService.softDeleteImportTransaction(id, userId);
             return ResponseEntity.ok("Xóa mềm thành công");
         }
@@ -296,8 +309,8 @@ public class ImportTransationController {
     }
 
     @GetMapping("/{id}/export")
-    public ResponseEntity<byte[]> exportImportTransactionPdf(@PathVariable Long id) {
-        byte[] pdfBytes = importTransactionService.exportImportPdf(id);
+    public ResponseEntity<StreamingResponseBody> exportImportTransactionPdf(@PathVariable Long id) {
+        StreamingResponseBody pdf = importTransactionService.exportImportPdf(id);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
@@ -305,7 +318,31 @@ public class ImportTransationController {
                 .filename("phieu_nhap_" + id + ".pdf")
                 .build());
 
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        return new ResponseEntity<>(pdf, headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/export-bulk")
+    public ResponseEntity<StreamingResponseBody> exportImportTransactionPdfBulk(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String supplierName,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) Long staffId,
+            @RequestParam(required = false) Long createdBy,
+            @RequestParam(required = false) ImportTransactionStatus status,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
+            @RequestParam(required = false) BigDecimal minTotalAmount,
+            @RequestParam(required = false) BigDecimal maxTotalAmount,
+            @RequestParam(defaultValue = "pdf") String format
+    ) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
+        }
+        return importTransactionService.exportImportPdfBulk(name, supplierName, storeId, staffId, createdBy, status,
+                fromDate, toDate, minTotalAmount, maxTotalAmount, PdfBulkExporter.Format.of(format));
     }
 
     @GetMapping("/recent")
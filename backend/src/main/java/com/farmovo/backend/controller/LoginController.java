@@ -1,11 +1,14 @@
 package com.farmovo.backend.controller;
 
 import com.farmovo.backend.exceptions.ResourceNotFoundException;
+import com.farmovo.backend.jwt.JwtDenylist;
 import com.farmovo.backend.jwt.JwtUtils;
 import com.farmovo.backend.dto.request.LoginRequest;
 import com.farmovo.backend.dto.response.LoginResponse;
 import com.farmovo.backend.models.User;
 import com.farmovo.backend.repositories.UserRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
@@ -35,6 +38,9 @@ public class LoginController {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    JwtDenylist jwtDenylist;
+
     @PostMapping("/signin")
     public ResponseEntity<?> authenticationUser(@RequestBody LoginRequest loginRequest) {
 
@@ -55,7 +61,8 @@ public class LoginController {
             7L * 24 * 60 * 60 * 1000 : // 7 ngày nếu Remember Me
             24L * 60 * 60 * 1000;       // 1 ngày nếu không Remember Me
 
-        String jwtToken = jwtUtils.generateTokenWithUserId(userDetails, user.getId(), jwtExpirationMs);
+        Long storeId = user.getStore() != null ? user.getStore().getId() : null;
+        String jwtToken = jwtUtils.generateTokenWithUserId(userDetails, user.getId(), storeId, jwtExpirationMs);
         ////////////////
 
         List<String> roles = userDetails.getAuthorities().stream()
@@ -82,7 +89,14 @@ public class LoginController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
+    public ResponseEntity<?> logoutUser(HttpServletRequest request) {
+        // Thu hồi token hiện tại để không dùng lại được cho tới khi hết hạn
+        String token = jwtUtils.getJwtFromRequest(request);
+        Claims claims = token != null ? jwtUtils.parseClaims(token) : null;
+        if (claims != null) {
+            jwtDenylist.revoke(token, claims);
+        }
+
         ResponseCookie cookie = ResponseCookie.from("jwt", "")
                 .httpOnly(true)
                 .secure(true)
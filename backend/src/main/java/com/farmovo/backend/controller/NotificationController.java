@@ -2,20 +2,25 @@ package com.farmovo.backend.controller;
 
 import com.farmovo.backend.dto.CreateNotificationDto;
 import com.farmovo.backend.dto.NotificationDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.models.Notification;
 import com.farmovo.backend.models.User;
 import com.farmovo.backend.repositories.UserRepository;
 import com.farmovo.backend.services.NotificationService;
+import com.farmovo.backend.services.impl.NotificationStreamHub;
+import com.farmovo.backend.utils.KeysetPagination;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -29,13 +34,16 @@ public class NotificationController {
     
     private final NotificationService notificationService;
     private final UserRepository userRepository;
+    private final NotificationStreamHub notificationStreamHub;
     
     // Lấy tất cả notification của user hiện tại
     @GetMapping
     public ResponseEntity<Map<String, Object>> getUserNotifications(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(required = false) Long storeId) {
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(name = KeysetPagination.MODE_PARAM, required = false) String pagination,
+            @RequestParam(required = false) String cursor) {
         
         try {
             log.info("Getting notifications for page: {}, size: {}, storeId: {}", page, size, storeId);
@@ -43,6 +51,18 @@ public class NotificationController {
             Long userId = getCurrentUserId();
             log.info("Current user ID: {}", userId);
             
+            // pagination=cursor: trang theo cursor, không đếm tổng (không có totalItems/totalPages)
+            if (KeysetPagination.isCursorMode(pagination)) {
+                CursorPageResponse<NotificationDto> notifications =
+                        notificationService.getUserNotificationsByCursor(userId, storeId, cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("notifications", notifications.getContent());
+                response.put("size", notifications.getSize());
+                response.put("nextCursor", notifications.getNextCursor());
+                response.put("hasNext", notifications.isHasNext());
+                return ResponseEntity.ok(response);
+            }
+            
             Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
             
             Page<NotificationDto> notifications = notificationService.getUserNotifications(userId, storeId, pageable);
@@ -119,6 +139,17 @@ public class NotificationController {
         }
     }
     
+    // Kênh SSE: đẩy notification mới (event "notification") và số chưa đọc (event "unread-count")
+    // thay cho việc poll các endpoint unread-count bên dưới
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(@RequestParam(required = false) Long storeId) {
+        Long userId = getCurrentUserId();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()) || "ADMIN".equals(a.getAuthority()));
+        return notificationStreamHub.subscribe(userId, storeId, admin);
+    }
+    
     // Lấy số notification chưa đọc của user
     @GetMapping("/unread-count")
     public ResponseEntity<Map<String, Object>> getUnreadCount(@RequestParam(required = false) Long storeId) {
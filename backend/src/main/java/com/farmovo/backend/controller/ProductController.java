@@ -21,6 +21,14 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProductDto());
     }
 
+    // Ô tìm kiếm sản phẩm: khớp tên hoặc mã, không phân biệt dấu
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductDto>> searchProducts(@RequestParam String keyword,
+                                                           @RequestParam(required = false) Long storeId,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.searchProducts(keyword, storeId, Math.min(Math.max(limit, 1), 100)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDto> getProductById(@PathVariable Long id) {
         return ResponseEntity.ok(productService.getProductNameById(id));
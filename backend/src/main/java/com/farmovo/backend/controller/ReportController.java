@@ -6,14 +6,19 @@ import com.farmovo.backend.dto.response.ExpiringLotDto;
 import com.farmovo.backend.models.ImportTransactionDetail;
 import com.farmovo.backend.services.ReportService;
 import com.farmovo.backend.services.BalanceStockService;
+import com.farmovo.backend.services.DailyStoreRollupService;
+import com.farmovo.backend.services.ReportExportService;
 
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -22,8 +27,7 @@ import java.time.LocalTime;
 
 import java.util.List;
 
-import com.farmovo.backend.services.impl.JwtAuthenticationService;
-import com.farmovo.backend.models.User;
+import com.farmovo.backend.jwt.AuthContext;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -33,17 +37,17 @@ public class ReportController {
     @Autowired
     private BalanceStockService balanceStockService;
     @Autowired
-    private JwtAuthenticationService jwtAuthenticationService;
+    private AuthContext authContext;
+    @Autowired
+    private DailyStoreRollupService dailyStoreRollupService;
+    @Autowired
+    private ReportExportService reportExportService;
 
     @GetMapping("/remain-by-product")
     public List<ProductRemainDto> getRemainByProduct(@RequestParam(required = false) Long storeId) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getRemainByProduct(storeId);
     }
@@ -73,13 +77,9 @@ public class ReportController {
     @GetMapping("/expiring-lots")
     public List<ExpiringLotDto> getExpiringLots(@RequestParam(defaultValue = "7") int days,
                                                 @RequestParam(required = false) Long storeId) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getExpiringLots(days, storeId);
     }
@@ -92,13 +92,9 @@ public class ReportController {
             @RequestParam(required = false) Long storeId,
             HttpServletRequest request
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
 
         LocalDateTime fromDateTime = from.atStartOfDay();
@@ -111,13 +107,9 @@ public class ReportController {
             @RequestParam(required = false) Long storeId,
             HttpServletRequest request
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
 
         return reportService.getStockByCategory(storeId);
@@ -131,13 +123,9 @@ public class ReportController {
             @RequestParam(required = false) Long storeId,
             HttpServletRequest request
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
 
         LocalDateTime fromDateTime = from.atStartOfDay();
@@ -153,13 +141,9 @@ public class ReportController {
             @RequestParam(required = false) Long storeId,
             HttpServletRequest request
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
 
         LocalDateTime fromDateTime = from.atStartOfDay();
@@ -185,13 +169,9 @@ public class ReportController {
     ) {
         LocalDateTime fromDateTime = from.atStartOfDay();
         LocalDateTime toDateTime = to.atTime(LocalTime.MAX);
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getInOutSummary(fromDateTime, toDateTime, storeId);
     }
@@ -207,14 +187,11 @@ public class ReportController {
         }
 
         // Nếu có storeId parameter, kiểm tra quyền trước
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                // Staff chỉ được xem kho của mình
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {}
+        // Staff chỉ được xem kho của mình
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
+        }
 
         return reportService.getRemainSummary(storeId);
     }
@@ -228,13 +205,9 @@ public class ReportController {
     ) {
         LocalDateTime fromDateTime = from.atStartOfDay();
         LocalDateTime toDateTime = to.atTime(LocalTime.MAX);
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getDailyRevenue(fromDateTime, toDateTime, storeId);
     }
@@ -247,13 +220,9 @@ public class ReportController {
             @RequestParam(required = false) Long storeId,
             @RequestParam(required = false) Long cashierId
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getSalesTotal(from, to, groupBy, storeId, cashierId);
     }
@@ -268,13 +237,9 @@ public class ReportController {
     ) {
         LocalDateTime fromDateTime = from.atStartOfDay();
         LocalDateTime toDateTime = to.atTime(LocalTime.MAX);
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getImportsTotal(fromDateTime, toDateTime, groupBy, storeId, supplierId);
     }
@@ -287,14 +252,49 @@ public class ReportController {
             @RequestParam(required = false) Long productId,
             @RequestParam(required = false, defaultValue = "false") Boolean includeZeroRemain
     ) {
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            var roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
         }
         return reportService.getExpiringLotsAdvanced(days, storeId, categoryId, productId, includeZeroRemain);
     }
-} 
\ No newline at end of file
+
+    // --- Xuất Excel: dùng lại đúng logic (kể cả phân quyền STAFF) của các endpoint JSON ---
+    @GetMapping("/inout-summary/export-excel")
+    public ResponseEntity<StreamingResponseBody> exportInOutSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long storeId
+    ) {
+        List<InOutSummaryDto> rows = getInOutSummary(from, to, storeId);
+        return reportExportService.exportInOutSummary(rows, "inout_summary_" + from + "_" + to + ".xlsx");
+    }
+
+    @GetMapping("/remain-summary/export-excel")
+    public ResponseEntity<StreamingResponseBody> exportRemainSummary(
+            @RequestParam(required = false) Long storeId,
+            HttpServletRequest request
+    ) {
+        List<CategoryRemainSummaryDto> categories = getRemainSummary(storeId, request);
+        return reportExportService.exportRemainSummary(categories, "remain_summary.xlsx");
+    }
+
+    @GetMapping("/expiring-lots-advanced/export-excel")
+    public ResponseEntity<StreamingResponseBody> exportExpiringLotsAdvanced(
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false, defaultValue = "false") Boolean includeZeroRemain
+    ) {
+        List<ExpiringLotExtendedDto> lots = getExpiringLotsAdvanced(days, storeId, categoryId, productId, includeZeroRemain);
+        return reportExportService.exportExpiringLots(lots, "expiring_lots_" + days + "d.xlsx");
+    }
+
+    // Tính lại bảng tổng hợp daily_store_rollup từ dữ liệu phiếu gốc
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN','ADMIN')")
+    public void rebuildDailyRollup() {
+        dailyStoreRollupService.rebuild();
+    }
+}
@@ -5,14 +5,15 @@ import com.farmovo.backend.dto.response.ProductSaleResponseDto;
 import com.farmovo.backend.dto.response.SaleTransactionResponseDto;
 import com.farmovo.backend.dto.response.StoreResponseDto;
 import com.farmovo.backend.exceptions.*;
-import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.mapper.ProductMapper;
 import com.farmovo.backend.mapper.StoreMapper;
 import com.farmovo.backend.models.*;
 import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
 import com.farmovo.backend.repositories.ProductRepository;
 import com.farmovo.backend.services.*;
-import com.farmovo.backend.services.impl.JwtAuthenticationService;
+import com.farmovo.backend.utils.KeysetPagination;
+import com.farmovo.backend.utils.PdfBulkExporter;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
@@ -40,6 +41,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.farmovo.backend.repositories.SaleTransactionRepository;
 
 @RestController
@@ -56,8 +58,7 @@ public class SaleTransactionController {
     private final ProductService productService;
     private final StoreService storeService;
     private final ProductRepository productRepository;
-    private final JwtUtils jwtUtils;
-    private final JwtAuthenticationService jwtAuthenticationService;
+    private final AuthContext authContext;
     private final StoreMapper storeMapper;
     private final ImportTransactionDetailService importTransactionDetailService;
     private final SaleTransactionRepository saleTransactionRepository;
@@ -67,8 +68,8 @@ public class SaleTransactionController {
     public ResponseEntity<SaleTransactionCreateFormDataDto> getCreateFormData(HttpServletRequest request) {
         log.info("Getting create form data for sale transaction");
 
-        User user = jwtAuthenticationService.extractAuthenticatedUser(request);
-        List<String> roles = jwtAuthenticationService.getUserRoles(user);
+        User user = authContext.getUser();
+        List<String> roles = authContext.getRoles();
         List<CustomerDto> customers = customerService.getAllCustomerDto();
         List<StoreResponseDto> stores;
 
@@ -80,7 +81,7 @@ public class SaleTransactionController {
             if (user.getStore() == null) {
                 throw new BadRequestException("Nhân viên chưa được phân công cửa hàng");
             }
-            stores = List.of(storeMapper.toResponseDto(user.getStore()));
+            stores = List.of(storeMapper.toResponseDto(loadStore(user.getStore().getId())));
         } else {
             throw new BadRequestException("Người dùng không có quyền truy cập");
         }
@@ -101,6 +102,12 @@ public class SaleTransactionController {
         return ResponseEntity.ok(formData);
     }
 
+    // Token chỉ mang store id; tải đủ thông tin kho để trả về form
+    private Store loadStore(Long storeId) {
+        return storeService.getStoreById(storeId)
+                .orElseThrow(() -> new BadRequestException("Nhân viên chưa được phân công cửa hàng"));
+    }
+
     @GetMapping("/product-response/{productId}")
     public ResponseEntity<List<ProductSaleResponseDto>> listAllProductResponseDtoByIdPro(@PathVariable Long productId) {
         log.info("Getting product response details for product ID: {}", productId);
@@ -126,9 +133,8 @@ public class SaleTransactionController {
         log.info("Creating new sale transaction for customerId={}, storeId={}, totalAmount={}",
                 dto.getCustomerId(), dto.getStoreId(), dto.getTotalAmount());
 
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Long userId = authContext.getUserId();
+        if (userId != null) {
             log.debug("User ID from token: {}", userId);
 
             saleTransactionService.save(dto, userId);
@@ -145,9 +151,8 @@ public class SaleTransactionController {
     public ResponseEntity<String> saveFromBalance(@RequestBody CreateSaleTransactionRequestDto dto, HttpServletRequest request) {
         log.info("Creating BALANCE sale transaction");
 
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Long userId = authContext.getUserId();
+        if (userId != null) {
             saleTransactionService.save(dto, userId); // Giữ nguyên service hiện tại
             return ResponseEntity.ok("Sale transaction (balance) saved successfully.");
         } else {
@@ -156,7 +161,7 @@ public class SaleTransactionController {
     }
 
     @GetMapping("/list-all")
-    public ResponseEntity<PageResponse<SaleTransactionResponseDto>> listAllSaleTransactions(
+    public ResponseEntity<?> listAllSaleTransactions(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String customerName,
             @RequestParam(required = false) String storeName,
@@ -172,16 +177,23 @@ public class SaleTransactionController {
             @RequestParam(required = false) Long createdBy,
             @RequestParam(required = false) String sort,
             @RequestParam(required = false) String direction,
+            @RequestParam(name = KeysetPagination.MODE_PARAM, required = false) String pagination,
+            @RequestParam(required = false) String cursor,
             @PageableDefault(page = 0, size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
     ) {
         // Enforce staff-only store scoping
-        try {
-            User user = jwtAuthenticationService.extractAuthenticatedUser(null);
-            List<String> roles = jwtAuthenticationService.getUserRoles(user);
-            if (roles.contains("STAFF") && user != null && user.getStore().getId() != null) {
-                storeId = user.getStore().getId();
-            }
-        } catch (Exception ignored) {}
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
+        }
+
+        // pagination=cursor: trang theo cursor, bỏ qua page/sort và không đếm tổng
+        if (KeysetPagination.isCursorMode(pagination)) {
+            return ResponseEntity.ok(saleTransactionService.getAllByCursor(
+                    name, customerName, storeName, storeId, status, fromDate,
+                    toDate, minTotalAmount, maxTotalAmount, minPaidAmount,
+                    maxPaidAmount, note, createdBy, cursor, pageable.getPageSize()));
+        }
 
         // Xử lý sắp xếp tùy chỉnh từ frontend
         Pageable customPageable = pageable;
@@ -316,9 +328,8 @@ public class SaleTransactionController {
 
     @DeleteMapping("/sort-delete/{id}")
     public ResponseEntity<String> softDeleteSaleTransaction(@PathVariable Long id, HttpServletRequest request) {
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Long userId = authContext.getUserId();
+        if (userId != null) {
             saleTransactionService.softDeleteSaleTransaction(id, userId);
             return ResponseEntity.ok("Soft delete successful");
         }
@@ -326,14 +337,41 @@ public class SaleTransactionController {
     }
 
     @GetMapping("/{id}/export-pdf")
-    public ResponseEntity<byte[]> exportSaleTransactionPdf(@PathVariable Long id) {
-        byte[] pdfBytes = saleTransactionService.exportPdf(id);
+    public ResponseEntity<StreamingResponseBody> exportSaleTransactionPdf(@PathVariable Long id) {
+        StreamingResponseBody pdf = saleTransactionService.exportPdf(id);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", "sale-transaction-" + id + ".pdf");
 
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        return new ResponseEntity<>(pdf, headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/export-pdf-bulk")
+    public ResponseEntity<StreamingResponseBody> exportSaleTransactionPdfBulk(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) String storeName,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) SaleTransactionStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
+            @RequestParam(required = false) BigDecimal minTotalAmount,
+            @RequestParam(required = false) BigDecimal maxTotalAmount,
+            @RequestParam(required = false) BigDecimal minPaidAmount,
+            @RequestParam(required = false) BigDecimal maxPaidAmount,
+            @RequestParam(required = false) String note,
+            @RequestParam(required = false) Long createdBy,
+            @RequestParam(defaultValue = "pdf") String format
+    ) {
+        // Enforce staff-only store scoping
+        Long staffStoreId = authContext.getStoreIdIfStaff();
+        if (staffStoreId != null) {
+            storeId = staffStoreId;
+        }
+        return saleTransactionService.exportPdfBulk(name, customerName, storeName, storeId, status, fromDate, toDate,
+                minTotalAmount, maxTotalAmount, minPaidAmount, maxPaidAmount, note, createdBy,
+                PdfBulkExporter.Format.of(format));
     }
 
     @GetMapping("/recent")
@@ -8,15 +8,14 @@ import com.farmovo.backend.dto.response.ProductResponseDto;
 import com.farmovo.backend.dto.response.StocktakeDetailDto;
 import com.farmovo.backend.dto.response.StocktakeResponseDto;
 import com.farmovo.backend.dto.response.ZoneResponseDto;
-import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.services.ImportTransactionDetailService;
 import com.farmovo.backend.services.StocktakeService;
 import com.farmovo.backend.services.BalanceStockService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -33,13 +32,12 @@ public class StocktakeController {
     private final StocktakeService stocktakeService;
     private final ImportTransactionDetailService importTransactionDetailService;
     private final BalanceStockService balanceStockService;
-    private final JwtUtils jwtUtils;
+    private final AuthContext authContext;
 
     @PostMapping
     public ResponseEntity<StocktakeResponseDto> createStocktake(
-            @Valid @RequestBody StocktakeRequestDto requestDto,
-            HttpServletRequest request) {
-        Long userId = extractUserIdFromRequest(request);
+            @Valid @RequestBody StocktakeRequestDto requestDto) {
+        Long userId = currentUserId();
         return ResponseEntity.ok(stocktakeService.createStocktake(requestDto, userId));
     }
 
@@ -49,9 +47,8 @@ public class StocktakeController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String note,
             @RequestParam(required = false) String fromDate,
-            @RequestParam(required = false) String toDate,
-            HttpServletRequest request) {
-        Long userId = extractUserIdFromRequest(request);
+            @RequestParam(required = false) String toDate) {
+        Long userId = currentUserId();
         return ResponseEntity.ok(stocktakeService.getAllStocktakes(storeId, status, note, fromDate, toDate, userId));
     }
 
@@ -63,9 +60,8 @@ public class StocktakeController {
             @RequestParam(required = false) String fromDate,
             @RequestParam(required = false) String toDate,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
-            HttpServletRequest request) {
-        Long userId = extractUserIdFromRequest(request);
+            @RequestParam(defaultValue = "10") int size) {
+        Long userId = currentUserId();
         Pageable pageable = PageRequest.of(page, size, Sort.by("stocktakeDate").descending());
         Page<StocktakeResponseDto> result = stocktakeService.searchStocktakes(storeId, status, note, fromDate, toDate, userId, pageable);
         return ResponseEntity.ok(result);
@@ -77,16 +73,15 @@ public class StocktakeController {
     }
 
     @GetMapping("/{id}/export-excel")
-    public ResponseEntity<ByteArrayResource> exportStocktakeToExcel(@PathVariable Long id) throws Exception {
+    public ResponseEntity<StreamingResponseBody> exportStocktakeToExcel(@PathVariable Long id) throws Exception {
         return stocktakeService.exportStocktakeToExcel(id);
     }
 
     @PutMapping("/{id}/status")
     public ResponseEntity<StocktakeResponseDto> updateStocktakeStatus(
             @PathVariable Long id,
-            @RequestParam String status,
-            HttpServletRequest request) {
-        Long userId = extractUserIdFromRequest(request);
+            @RequestParam String status) {
+        Long userId = currentUserId();
         return ResponseEntity.ok(stocktakeService.updateStocktakeStatus(id, status, userId));
     }
 
@@ -134,13 +129,13 @@ public class StocktakeController {
         return ResponseEntity.ok(importBalanceData);
     }
 
-    private Long extractUserIdFromRequest(HttpServletRequest request) {
-        String token = jwtUtils.getJwtFromRequest(request);
-        if (token == null || !jwtUtils.validateJwtToken(token)) {
+    private Long currentUserId() {
+        Long userId = authContext.getUserId();
+        if (userId == null) {
             throw new org.springframework.web.server.ResponseStatusException(
                     org.springframework.http.HttpStatus.UNAUTHORIZED,
                     "JWT token is missing or invalid");
         }
-        return jwtUtils.getUserIdFromJwtToken(token);
+        return userId;
     }
 }
\ No newline at end of file
@@ -4,7 +4,7 @@ import com.farmovo.backend.dto.request.ZoneRequestDto;
 import com.farmovo.backend.dto.response.ZoneResponseDto;
 import com.farmovo.backend.services.ZoneService;
 import com.farmovo.backend.services.UserService;
-import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.models.User;
 import com.farmovo.backend.utils.RoleUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -28,7 +28,7 @@ public class ZoneController {
     @Autowired
     private UserService userService;
     @Autowired
-    private JwtUtils jwtUtils;
+    private AuthContext authContext;
 
     @GetMapping
     public ResponseEntity<List<ZoneResponseDto>> getAllZones(HttpServletRequest request) {
@@ -44,12 +44,7 @@ public class ZoneController {
     @PostMapping
     public ResponseEntity<ZoneResponseDto> createZone(@Valid @RequestBody ZoneRequestDto request, HttpServletRequest httpRequest) {
         try {
-            String token = jwtUtils.getJwtFromRequest(httpRequest);
-            if (token == null) {
-                return ResponseEntity.status(401).build(); // Unauthorized
-            }
-            
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+            Long userId = authContext.getUserId();
             if (userId == null) {
                 return ResponseEntity.status(401).build(); // Unauthorized
             }
@@ -65,12 +60,7 @@ public class ZoneController {
     @PutMapping("/{id}")
     public ResponseEntity<ZoneResponseDto> updateZone(@PathVariable Long id, @Valid @RequestBody ZoneRequestDto request, HttpServletRequest httpRequest) {
         try {
-            String token = jwtUtils.getJwtFromRequest(httpRequest);
-            if (token == null) {
-                return ResponseEntity.status(401).build(); // Unauthorized
-            }
-            
-            Long userId = jwtUtils.getUserIdFromJwtToken(token);
+            Long userId = authContext.getUserId();
             if (userId == null) {
                 return ResponseEntity.status(401).build(); // Unauthorized
             }
@@ -0,0 +1,37 @@
+package com.farmovo.backend.dto;
+
+import com.farmovo.backend.models.Notification;
+
+/**
+ * Thông báo chờ ghi bởi NotificationDispatcher.
+ * userId null nghĩa là gửi cho mọi user của storeId. Nếu actorId khác null, ACTOR_TOKEN trong message
+ * được thay bằng tên người thao tác khi ghi (tên được tra một lần cho cả lô).
+ */
+public record PendingNotification(Long userId,
+                                  Long storeId,
+                                  Long actorId,
+                                  String title,
+                                  String message,
+                                  Notification.NotificationType type,
+                                  Notification.NotificationCategory category,
+                                  String actionUrl,
+                                  Long entityId,
+                                  String entityType) {
+
+    public static final String ACTOR_TOKEN = "{actor}";
+
+    public static PendingNotification forUser(CreateNotificationDto dto, Long userId, Long actorId) {
+        return new PendingNotification(userId, dto.getStoreId(), actorId, dto.getTitle(), dto.getMessage(),
+                dto.getType(), dto.getCategory(), dto.getActionUrl(), dto.getEntityId(), dto.getEntityType());
+    }
+
+    public static PendingNotification forStore(CreateNotificationDto dto, Long storeId) {
+        return new PendingNotification(null, storeId, null, dto.getTitle(), dto.getMessage(),
+                dto.getType(), dto.getCategory(), dto.getActionUrl(), dto.getEntityId(), dto.getEntityType());
+    }
+
+    public PendingNotification withRecipient(Long recipientId, String resolvedMessage) {
+        return new PendingNotification(recipientId, storeId, actorId, title, resolvedMessage,
+                type, category, actionUrl, entityId, entityType);
+    }
+}
@@ -0,0 +1,37 @@
+package com.farmovo.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện đổi trạng thái do service phát ra khi đã biết trạng thái cũ và mới,
+ * không cần đọc lại entity. Được ghi vào changestatuslogs sau khi transaction commit.
+ *
+ * @param actorId người thao tác; null nếu không chạy trong request (job, hệ thống)
+ */
+public record StatusChangeEvent(String modelName,
+                                Long modelId,
+                                String previousStatus,
+                                String nextStatus,
+                                Long actorId,
+                                LocalDateTime occurredAt) {
+
+    public static StatusChangeEvent of(String modelName, Long modelId, Enum<?> previousStatus, Enum<?> nextStatus) {
+        return new StatusChangeEvent(modelName, modelId, name(previousStatus), name(nextStatus), null, LocalDateTime.now());
+    }
+
+    public StatusChangeEvent withActor(Long actorId) {
+        return new StatusChangeEvent(modelName, modelId, previousStatus, nextStatus, actorId, occurredAt);
+    }
+
+    public boolean isChange() {
+        return !previousStatus.equals(nextStatus);
+    }
+
+    public String description() {
+        return String.format("[%s] Đã chuyển trạng thái từ %s sang %s", modelName, previousStatus, nextStatus);
+    }
+
+    private static String name(Enum<?> status) {
+        return status != null ? status.name() : "null";
+    }
+}
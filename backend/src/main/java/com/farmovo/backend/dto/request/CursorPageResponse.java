@@ -0,0 +1,23 @@
+package com.farmovo.backend.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Trang kết quả phân trang theo cursor (pagination=cursor): không có tổng số bản ghi/số trang
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public <R> CursorPageResponse<R> map(Function<List<T>, List<R>> mapper) {
+        return new CursorPageResponse<>(mapper.apply(content), size, nextCursor, hasNext);
+    }
+}
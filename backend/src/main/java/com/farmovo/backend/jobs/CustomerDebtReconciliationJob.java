@@ -0,0 +1,76 @@
+package com.farmovo.backend.jobs;
+
+import com.farmovo.backend.repositories.CustomerDebtLedgerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đối soát công nợ: tính lại số dư của mọi khách hàng từ debt_notes và báo các khách có
+ * total_debt_amount lệch (log + gauge customers.debt.drift).
+ * Mặc định chỉ báo cáo, vì total_debt_amount còn có thể được sửa tay khi cập nhật khách hàng;
+ * bật app.debt.reconciliation.fix=true để ghi đè bằng số dư từ debt_notes.
+ */
+@Component
+public class CustomerDebtReconciliationJob {
+
+    private static final Logger log = LogManager.getLogger(CustomerDebtReconciliationJob.class);
+    private static final int MAX_LOGGED = 20;
+
+    public record Result(int driftCount, BigDecimal totalDifference, int corrected) {
+    }
+
+    private final CustomerDebtLedgerRepository customerDebtLedgerRepository;
+    private final AtomicLong driftGauge = new AtomicLong();
+
+    @Value("${app.debt.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.debt.reconciliation.fix:false}")
+    private boolean fix;
+
+    public CustomerDebtReconciliationJob(CustomerDebtLedgerRepository customerDebtLedgerRepository,
+                                         MeterRegistry meterRegistry) {
+        this.customerDebtLedgerRepository = customerDebtLedgerRepository;
+        meterRegistry.gauge("customers.debt.drift", driftGauge);
+    }
+
+    @Scheduled(cron = "${app.debt.reconciliation.cron:0 30 3 * * ?}") // Mặc định 3h30 sáng mỗi ngày
+    public void onSchedule() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public Result run() {
+        List<CustomerDebtLedgerRepository.Drift> drifts = customerDebtLedgerRepository.findDrift();
+        driftGauge.set(drifts.size());
+        if (drifts.isEmpty()) {
+            log.info("Debt reconciliation: no drift");
+            return new Result(0, BigDecimal.ZERO, 0);
+        }
+
+        BigDecimal totalDifference = BigDecimal.ZERO;
+        for (CustomerDebtLedgerRepository.Drift drift : drifts) {
+            totalDifference = totalDifference.add(drift.difference());
+        }
+        log.warn("Debt reconciliation: {} customers drift from debt_notes, total difference {}",
+                drifts.size(), totalDifference);
+        drifts.stream().limit(MAX_LOGGED).forEach(d ->
+                log.warn("Customer ID: {} recorded={} ledger={}", d.customerId(), d.recorded(), d.ledger()));
+
+        int corrected = 0;
+        if (fix) {
+            corrected = customerDebtLedgerRepository.applyLedgerBalances();
+            log.info("Debt reconciliation: corrected {} customers", corrected);
+        }
+        return new Result(drifts.size(), totalDifference, corrected);
+    }
+}
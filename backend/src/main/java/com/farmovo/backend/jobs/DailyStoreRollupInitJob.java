@@ -0,0 +1,40 @@
+package com.farmovo.backend.jobs;
+
+import com.farmovo.backend.services.DailyStoreRollupService;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dựng bảng daily_store_rollup lần đầu khi ứng dụng khởi động và bảng còn trống.
+ * Có thể dựng lại thủ công qua POST /api/reports/rollup/rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+public class DailyStoreRollupInitJob {
+
+    private static final Logger log = LogManager.getLogger(DailyStoreRollupInitJob.class);
+
+    private final DailyStoreRollupService dailyStoreRollupService;
+
+    @Value("${app.daily-rollup.init.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (dailyStoreRollupService.isEmpty()) {
+                dailyStoreRollupService.rebuild();
+            }
+        } catch (Exception e) {
+            log.error("Initial daily rollup build failed", e);
+        }
+    }
+}
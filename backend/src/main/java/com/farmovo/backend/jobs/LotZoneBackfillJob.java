@@ -0,0 +1,40 @@
+package com.farmovo.backend.jobs;
+
+import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfill bảng lot_zone từ cột zones_id cho các lô được tạo trước khi có bảng này.
+ * Chỉ xử lý lô chưa có dòng lot_zone nên chạy lại nhiều lần vẫn an toàn.
+ */
+@Component
+@RequiredArgsConstructor
+public class LotZoneBackfillJob {
+
+    private static final Logger log = LogManager.getLogger(LotZoneBackfillJob.class);
+
+    private final ImportTransactionDetailRepository importTransactionDetailRepository;
+
+    @Value("${app.lot-zone.backfill.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int inserted = importTransactionDetailRepository.backfillLotZones();
+            log.info("Lot zone backfill finished: {} rows in {} ms", inserted, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Lot zone backfill failed", e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.farmovo.backend.jobs;
+
+import com.farmovo.backend.models.Notification;
+import com.farmovo.backend.repositories.NotificationRetentionRepository;
+import com.farmovo.backend.services.impl.NotificationStreamHub;
+import com.farmovo.backend.services.impl.NotificationUnreadCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Xóa thông báo hết hạn theo từng khoảng id (chunk-size id mỗi câu DELETE, nghỉ pause-ms giữa các khoảng)
+ * thay cho một câu DELETE lớn trong một transaction.
+ * Số ngày giữ mặc định là app.notification.retention.default-days, có thể đặt riêng cho từng danh mục bằng
+ * app.notification.retention.days.&lt;CATEGORY&gt; (ví dụ app.notification.retention.days.DEBT_NOTE=90).
+ */
+@Component
+public class NotificationRetentionJob {
+
+    private static final Logger log = LogManager.getLogger(NotificationRetentionJob.class);
+
+    public record Result(int rowsDeleted, int chunks, Duration duration) {
+    }
+
+    private final NotificationRetentionRepository notificationRetentionRepository;
+    private final NotificationUnreadCounter unreadCounter;
+    private final NotificationStreamHub notificationStreamHub;
+    private final Environment environment;
+    private final Counter deletedCounter;
+    private final Timer durationTimer;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.notification.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notification.retention.default-days:30}")
+    private int defaultDays;
+
+    @Value("${app.notification.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.notification.retention.pause-ms:100}")
+    private long pauseMs;
+
+    public NotificationRetentionJob(NotificationRetentionRepository notificationRetentionRepository,
+                                    NotificationUnreadCounter unreadCounter,
+                                    NotificationStreamHub notificationStreamHub,
+                                    Environment environment,
+                                    MeterRegistry meterRegistry) {
+        this.notificationRetentionRepository = notificationRetentionRepository;
+        this.unreadCounter = unreadCounter;
+        this.notificationStreamHub = notificationStreamHub;
+        this.environment = environment;
+        this.deletedCounter = meterRegistry.counter("notifications.retention.deleted");
+        this.durationTimer = meterRegistry.timer("notifications.retention.duration");
+    }
+
+    @Scheduled(cron = "${app.notification.retention.cron:0 0 2 * * ?}") // Mặc định 2h sáng mỗi ngày
+    public void onSchedule() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    // Trả về số dòng đã xóa; nếu đang có lần chạy khác thì bỏ qua và trả về kết quả rỗng
+    public Result run() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Notification retention already running, skipped");
+            return new Result(0, 0, Duration.ZERO);
+        }
+        long start = System.nanoTime();
+        int deleted = 0;
+        int chunks = 0;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime defaultCutoff = now.minusDays(defaultDays);
+            Map<Notification.NotificationCategory, LocalDateTime> cutoffs = categoryCutoffs(now);
+            // Cutoff muộn nhất quyết định id cuối cùng cần quét
+            LocalDateTime latestCutoff = defaultCutoff;
+            for (LocalDateTime cutoff : cutoffs.values()) {
+                if (cutoff.isAfter(latestCutoff)) {
+                    latestCutoff = cutoff;
+                }
+            }
+
+            Long minId = notificationRetentionRepository.findMinId();
+            Long lastId = notificationRetentionRepository.findLastIdCreatedBefore(latestCutoff);
+            if (minId != null && lastId != null) {
+                for (long from = minId; from <= lastId; from += chunkSize) {
+                    deleted += notificationRetentionRepository.deleteRange(from, Math.min(from + chunkSize, lastId + 1),
+                            cutoffs, defaultCutoff);
+                    chunks++;
+                    if (pauseMs > 0 && from + chunkSize <= lastId) {
+                        Thread.sleep(pauseMs);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Notification retention interrupted after {} chunks", chunks);
+        } catch (Exception e) {
+            log.error("Notification retention failed after {} chunks", chunks, e);
+        } finally {
+            running.set(false);
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        deletedCounter.increment(deleted);
+        durationTimer.record(duration);
+        if (deleted > 0) {
+            // Có thể đã xóa thông báo chưa đọc
+            unreadCounter.invalidateAll();
+            notificationStreamHub.allCountsChanged();
+        }
+        log.info("Notification retention finished: {} rows in {} chunks, {} ms", deleted, chunks, duration.toMillis());
+        return new Result(deleted, chunks, duration);
+    }
+
+    private Map<Notification.NotificationCategory, LocalDateTime> categoryCutoffs(LocalDateTime now) {
+        Map<Notification.NotificationCategory, LocalDateTime> cutoffs = new EnumMap<>(Notification.NotificationCategory.class);
+        for (Notification.NotificationCategory category : Notification.NotificationCategory.values()) {
+            Integer days = environment.getProperty("app.notification.retention.days." + category.name(), Integer.class);
+            if (days != null && days != defaultDays) {
+                cutoffs.put(category, now.minusDays(days));
+            }
+        }
+        return cutoffs;
+    }
+}
@@ -0,0 +1,54 @@
+package com.farmovo.backend.jobs;
+
+import com.farmovo.backend.services.SaleTransactionLineService;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfill bảng sale_transaction_lines cho các phiếu bán được tạo trước khi có bảng này.
+ * Chạy một lần khi ứng dụng khởi động, mỗi lô là một transaction riêng.
+ */
+@Component
+@RequiredArgsConstructor
+public class SaleTransactionLineBackfillJob {
+
+    private static final Logger log = LogManager.getLogger(SaleTransactionLineBackfillJob.class);
+
+    private final SaleTransactionLineService saleTransactionLineService;
+
+    @Value("${app.sale-lines.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.sale-lines.backfill.batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        run();
+    }
+
+    public void run() {
+        long start = System.currentTimeMillis();
+        int batches = 0;
+        Long cursor = 0L;
+        try {
+            while (cursor != null) {
+                cursor = saleTransactionLineService.backfillBatch(cursor, batchSize);
+                if (cursor != null) {
+                    batches++;
+                }
+            }
+            log.info("Sale line backfill finished: {} batches in {} ms", batches, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Sale line backfill stopped after {} batches", batches, e);
+        }
+    }
+}
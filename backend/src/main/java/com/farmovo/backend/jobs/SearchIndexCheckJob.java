@@ -0,0 +1,50 @@
+package com.farmovo.backend.jobs;
+
+import com.farmovo.backend.specification.SearchPredicates;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bật tìm kiếm không dấu (SearchPredicates) khi DB đã có hàm f_unaccent từ R__trigram_search.sql.
+ * Flyway đã chạy xong trước khi JPA khởi tạo; nếu extension pg_trgm/unaccent chưa cài được thì giữ cách tìm cũ.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexCheckJob {
+
+    private static final Logger log = LogManager.getLogger(SearchIndexCheckJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.search.trigram.enabled:true}")
+    private boolean enabled;
+
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Boolean available = jdbcTemplate.queryForObject(
+                    "SELECT to_regprocedure('f_unaccent(text)') IS NOT NULL " +
+                            "AND EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class);
+            SearchPredicates.setAccentInsensitive(Boolean.TRUE.equals(available));
+            if (Boolean.TRUE.equals(available)) {
+                log.info("Accent-insensitive trigram search enabled");
+            } else {
+                log.warn("f_unaccent/pg_trgm not installed, search falls back to lower() LIKE");
+            }
+        } catch (Exception e) {
+            log.error("Search index check failed, search falls back to lower() LIKE", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.farmovo.backend.jwt;
+
+import com.farmovo.backend.exceptions.BadRequestException;
+import com.farmovo.backend.models.User;
+import com.farmovo.backend.services.impl.JwtAuthenticationService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.List;
+
+/**
+ * Thông tin xác thực của request hiện tại: token chỉ được xác thực chữ ký một lần,
+ * User chỉ được tải tối đa một lần, các lần gọi sau trong cùng request dùng lại kết quả.
+ */
+@Component
+@RequestScope
+public class AuthContext {
+
+    @Autowired
+    private HttpServletRequest request;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private JwtAuthenticationService jwtAuthenticationService;
+
+    private boolean claimsResolved;
+    private Claims claims;
+    private User user;
+    private List<String> roles;
+
+    // Claims đã xác thực; null nếu request không có token hợp lệ
+    public Claims getClaims() {
+        if (!claimsResolved) {
+            claimsResolved = true;
+            Object cached = request.getAttribute(JwtAuthenticationService.CLAIMS_ATTRIBUTE);
+            if (cached instanceof Claims c) {
+                claims = c;
+            } else {
+                String token = jwtUtils.getJwtFromRequest(request);
+                claims = token != null ? jwtUtils.parseClaims(token) : null;
+                if (claims != null) {
+                    request.setAttribute(JwtAuthenticationService.CLAIMS_ATTRIBUTE, claims);
+                }
+            }
+        }
+        return claims;
+    }
+
+    public Long getUserId() {
+        Claims current = getClaims();
+        return current != null ? jwtUtils.getUserId(current) : null;
+    }
+
+    public User getUser() {
+        if (user == null) {
+            if (getClaims() == null) {
+                throw new BadRequestException("Token không hợp lệ hoặc đã hết hạn");
+            }
+            user = jwtAuthenticationService.extractAuthenticatedUser(request);
+        }
+        return user;
+    }
+
+    public List<String> getRoles() {
+        if (roles == null) {
+            roles = jwtAuthenticationService.getUserRoles(getUser());
+        }
+        return roles;
+    }
+
+    public boolean hasRole(String role) {
+        return getRoles().contains(role);
+    }
+
+    // Store id nếu user là STAFF (chỉ được xem kho của mình), ngược lại null
+    public Long getStoreIdIfStaff() {
+        try {
+            User current = getUser();
+            if (hasRole("STAFF") && current.getStore() != null) {
+                return current.getStore().getId();
+            }
+        } catch (Exception ignored) {
+        }
+        return null;
+    }
+}
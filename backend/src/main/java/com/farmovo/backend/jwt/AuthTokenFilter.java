@@ -1,6 +1,7 @@
 package com.farmovo.backend.jwt;
 
 import com.farmovo.backend.services.impl.JwtAuthenticationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -22,6 +23,8 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
     @Autowired
     private JwtAuthenticationService jwtAuthenticationService;
+    @Autowired
+    private JwtDenylist jwtDenylist;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
@@ -29,8 +32,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         authTokenlogger.debug("AuthTokenFilter called for URI: {}", request.getRequestURL());
         try {
             String jwt = extractJwtFromRequest(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                jwtAuthenticationService.setAuthenticationFromToken(jwt, request);
+            // Parse token một lần; claims được giữ trong request cho extractAuthenticatedUser
+            Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+            if (claims != null && jwtDenylist.isRevoked(jwt, claims)) {
+                authTokenlogger.debug("Rejected revoked JWT for subject {}", claims.getSubject());
+            } else if (claims != null) {
+                request.setAttribute(JwtAuthenticationService.CLAIMS_ATTRIBUTE, claims);
+                jwtAuthenticationService.setAuthenticationFromClaims(claims, request);
             }
         } catch (Exception e) {
             authTokenlogger.error("Cannot set user authentication", e);
@@ -0,0 +1,66 @@
+package com.farmovo.backend.jwt;
+
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách token đã thu hồi (logout), giữ trong bộ nhớ đến khi token hết hạn.
+ * Khóa là jti; token cũ không có jti thì dùng chính chuỗi token.
+ */
+@Component
+public class JwtDenylist {
+    private static final Logger logger = LoggerFactory.getLogger(JwtDenylist.class);
+
+    // Dọn các mục đã hết hạn khi danh sách vượt ngưỡng này
+    private static final int PURGE_THRESHOLD = 1_000;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public void revoke(String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(keyOf(token, claims), expiresAt);
+        if (revoked.size() > PURGE_THRESHOLD) {
+            purgeExpired();
+        }
+        logger.debug("Revoked JWT for subject {}, denylist size {}", claims.getSubject(), revoked.size());
+    }
+
+    public boolean isRevoked(String token, Claims claims) {
+        if (revoked.isEmpty()) {
+            return false;
+        }
+        Long expiresAt = revoked.get(keyOf(token, claims));
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            revoked.remove(keyOf(token, claims));
+            return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private static String keyOf(String token, Claims claims) {
+        String jti = claims.getId();
+        return jti != null ? jti : token;
+    }
+}
@@ -8,16 +8,24 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_STORE_ID = "storeId";
+    public static final String CLAIM_ROLES = "roles";
+
     @Value("${spring.app.jwtSecret}")
     private String jwtSecret;
 
@@ -46,10 +54,11 @@ public class JwtUtils {
         return null;
     }
 
+    private volatile JwtParser parser;
+
     // Lấy username từ token
     public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser().verifyWith(key())
-                .build()
+        return parser()
                 .parseSignedClaims(token)
                 .getPayload()
                 .getSubject();
@@ -57,16 +66,32 @@ public class JwtUtils {
 
     // ✅ Chỉ giữ 1 method getUserIdFromJwtToken
     public Long getUserIdFromJwtToken(String token) {
-        Object userIdObj = Jwts.parser().verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .get("userId");
-        if (userIdObj != null) {
+        return getUserId(parser().parseSignedClaims(token).getPayload());
+    }
+
+    public Long getUserId(Claims claims) {
+        return toLong(claims.get(CLAIM_USER_ID), CLAIM_USER_ID);
+    }
+
+    public Long getStoreId(Claims claims) {
+        return toLong(claims.get(CLAIM_STORE_ID), CLAIM_STORE_ID);
+    }
+
+    // Null nếu token được cấp trước khi có claim roles
+    public List<String> getRoles(Claims claims) {
+        Object roles = claims.get(CLAIM_ROLES);
+        if (!(roles instanceof Collection<?> values)) {
+            return null;
+        }
+        return values.stream().map(String::valueOf).toList();
+    }
+
+    private Long toLong(Object value, String claim) {
+        if (value != null) {
             try {
-                return Long.valueOf(userIdObj.toString());
+                return Long.valueOf(value.toString());
             } catch (NumberFormatException e) {
-                logger.warn("userId in JWT is not a valid Long: {}", userIdObj);
+                logger.warn("{} in JWT is not a valid Long: {}", claim, value);
             }
         }
         return null;
@@ -79,10 +104,21 @@ public class JwtUtils {
 
     // ✅ Method với expiry time tùy chỉnh (cho Remember Me)
     public String generateTokenWithUserId(UserDetails userDetails, Long userId, long expirationMs) {
+        return generateTokenWithUserId(userDetails, userId, null, expirationMs);
+    }
+
+    // Token mang sẵn userId, storeId, roles để filter dựng Authentication mà không cần truy vấn DB
+    public String generateTokenWithUserId(UserDetails userDetails, Long userId, Long storeId, long expirationMs) {
         String username = userDetails.getUsername();
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
-                .claim("userId", userId)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_STORE_ID, storeId)
+                .claim(CLAIM_ROLES, roles)
                 .issuedAt(new Date())
                 .expiration(new Date((new Date()).getTime() + expirationMs))
                 .signWith(key())
@@ -94,11 +130,24 @@ public class JwtUtils {
         return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
     }
 
+    private JwtParser parser() {
+        JwtParser result = parser;
+        if (result == null) {
+            result = Jwts.parser().verifyWith(key()).build();
+            parser = result;
+        }
+        return result;
+    }
+
     // Kiểm tra token hợp lệ
     public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    // Xác thực chữ ký và trả về claims; null nếu token không hợp lệ
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parser().verifyWith(key()).build().parseSignedClaims(authToken);
-            return true;
+            return parser().parseSignedClaims(authToken).getPayload();
         } catch (io.jsonwebtoken.security.SecurityException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -110,7 +159,7 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             logger.error("Empty JWT claims string: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 
     // Ưu tiên lấy token từ cookie, nếu không có thì lấy từ header
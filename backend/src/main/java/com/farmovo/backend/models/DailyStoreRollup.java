@@ -0,0 +1,61 @@
+package com.farmovo.backend.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số liệu tổng hợp theo kho và ngày, chỉ tính các phiếu bán/nhập đã hoàn thành (COMPLETE) và chưa xóa.
+ * Được cộng dồn khi hoàn thành/hủy/xóa phiếu và có thể dựng lại từ bảng gốc.
+ * store_id = 0 dùng cho phiếu không gắn kho.
+ */
+@Entity
+@Table(
+        name = "daily_store_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "ux_daily_store_rollup_store_day", columnNames = {"store_id", "day"})
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyStoreRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "store_id", nullable = false)
+    private Long storeId;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "revenue", nullable = false)
+    private BigDecimal revenue;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    @Column(name = "sale_paid", nullable = false)
+    private BigDecimal salePaid;
+
+    // Công nợ khách hàng phát sinh trong ngày (tổng tiền bán - đã trả)
+    @Column(name = "sale_debt_delta", nullable = false)
+    private BigDecimal saleDebtDelta;
+
+    @Column(name = "import_cost", nullable = false)
+    private BigDecimal importCost;
+
+    @Column(name = "import_count", nullable = false)
+    private Long importCount;
+
+    @Column(name = "import_paid", nullable = false)
+    private BigDecimal importPaid;
+
+    // Công nợ nhà cung cấp phát sinh trong ngày (tổng tiền nhập - đã trả)
+    @Column(name = "import_debt_delta", nullable = false)
+    private BigDecimal importDebtDelta;
+}
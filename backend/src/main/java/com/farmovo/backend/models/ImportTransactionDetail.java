@@ -1,19 +1,23 @@
 package com.farmovo.backend.models;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Entity
 @Table(name = "import_transaction_details")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class ImportTransactionDetail extends Base {
     @Id
@@ -27,6 +31,12 @@ public class ImportTransactionDetail extends Base {
     @Column(name = "remain_quantity")
     private Integer remainQuantity;
 
+    // Khóa lạc quan cho cập nhật số lượng tồn đồng thời
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "expire_date")
     private LocalDateTime expireDate;
 
@@ -39,6 +49,21 @@ public class ImportTransactionDetail extends Base {
     @Column(name = "zones_id")
     private String zones_id;
 
+    // Bản chuẩn hóa của zones_id (bảng lot_zone) để tra cứu theo zone bằng index.
+    // Chỉ thay đổi qua setZones_id (không có constructor đủ tham số để tránh bỏ qua bước đồng bộ này).
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(
+            name = "lot_zone",
+            joinColumns = @JoinColumn(name = "lot_id"),
+            uniqueConstraints = @UniqueConstraint(name = "ux_lot_zone_lot_zone", columnNames = {"lot_id", "zone_id"}),
+            indexes = @Index(name = "idx_lot_zone_zone_lot", columnList = "zone_id, lot_id")
+    )
+    @Column(name = "zone_id", nullable = false)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Set<Long> zoneIds = new LinkedHashSet<>();
+
     @Column(name = "is_check")
     private Boolean isCheck;
 
@@ -52,4 +77,25 @@ public class ImportTransactionDetail extends Base {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
-}
\ No newline at end of file
+
+    public void setZones_id(String zones_id) {
+        this.zones_id = zones_id;
+        Set<Long> parsed = parseZoneIds(zones_id);
+        zoneIds.retainAll(parsed);
+        zoneIds.addAll(parsed);
+    }
+
+    // zones_id có thể là "1,2", "[1, 2]" hoặc "1;2"; bỏ qua phần không phải số
+    public static Set<Long> parseZoneIds(String zonesId) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (zonesId == null || zonesId.isBlank()) {
+            return ids;
+        }
+        for (String part : zonesId.replaceAll("[\\[\\]\"]", "").split("[;,|\\s]+")) {
+            if (part.matches("\\d+")) {
+                ids.add(Long.valueOf(part));
+            }
+        }
+        return ids;
+    }
+}
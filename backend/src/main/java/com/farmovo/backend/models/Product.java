@@ -1,6 +1,7 @@
 package com.farmovo.backend.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -33,6 +34,12 @@ public class Product extends Base {
     @Column(name = "product_quantity", nullable = false)
     private Integer productQuantity;
 
+    // Khóa lạc quan cho cập nhật số lượng tồn đồng thời
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     private List<ImportTransactionDetail> importTransactionDetails;
 
@@ -0,0 +1,47 @@
+package com.farmovo.backend.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Dòng chi tiết phiếu bán đã chuẩn hóa (một dòng cho mỗi lô trong {@link SaleTransaction#getDetail()}).
+ * Báo cáo tổng hợp trực tiếp trên bảng này bằng SQL thay vì parse JSON.
+ */
+@Entity
+@Table(
+        name = "sale_transaction_lines",
+        indexes = {
+                @Index(name = "ix_sale_line_sale", columnList = "sale_transaction_id"),
+                @Index(name = "ix_sale_line_product", columnList = "product_id")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleTransactionLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sale_transaction_id", nullable = false)
+    private SaleTransaction saleTransaction;
+
+    // Id lô (ImportTransactionDetail); không đặt FK vì detail cũ có thể chứa id 0 (phiếu cân bằng)
+    @Column(name = "lot_id")
+    private Long lotId;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "unit_sale_price")
+    private BigDecimal unitSalePrice;
+}
@@ -0,0 +1,66 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.dto.StatusChangeEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Bảng outbox status_change_outbox của nhật ký đổi trạng thái: ghi bằng JDBC batch trong transaction nghiệp vụ,
+ * rồi chuyển sang changestatuslogs theo lô.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChangeStatusLogBatchRepository {
+
+    private static final String COLUMNS =
+            "model_name, model_id, previous_status, next_status, description, created_by, created_at, updated_at";
+
+    private static final String INSERT_OUTBOX_SQL =
+            "INSERT INTO status_change_outbox (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Chuyển một lô từ outbox sang changestatuslogs trong một câu lệnh: dòng chỉ bị xóa khỏi outbox khi đã
+    // được chèn; SKIP LOCKED để nhiều instance chạy song song không lấy trùng
+    private static final String DRAIN_OUTBOX_SQL =
+            "WITH moved AS (DELETE FROM status_change_outbox WHERE id IN (" +
+            "SELECT id FROM status_change_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING " + COLUMNS + ") " +
+            "INSERT INTO changestatuslogs (" + COLUMNS + ") SELECT " + COLUMNS + " FROM moved";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // REQUIRED: tham gia transaction của service phát sự kiện để dòng outbox commit/rollback cùng nghiệp vụ
+    @Transactional
+    public void insertOutbox(List<StatusChangeEvent> events, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, events, batchSize, ChangeStatusLogBatchRepository::bind);
+    }
+
+    // Trả về số dòng đã chuyển; 0 khi outbox rỗng
+    @Transactional
+    public int drainOutbox(int limit) {
+        return jdbcTemplate.update(DRAIN_OUTBOX_SQL, limit);
+    }
+
+    private static void bind(PreparedStatement ps, StatusChangeEvent e) throws SQLException {
+        Timestamp occurredAt = Timestamp.valueOf(e.occurredAt());
+        ps.setString(1, e.modelName());
+        ps.setLong(2, e.modelId());
+        ps.setString(3, e.previousStatus());
+        ps.setString(4, e.nextStatus());
+        ps.setString(5, e.description());
+        if (e.actorId() == null) {
+            ps.setNull(6, Types.BIGINT);
+        } else {
+            ps.setLong(6, e.actorId());
+        }
+        ps.setTimestamp(7, occurredAt);
+        ps.setTimestamp(8, occurredAt);
+    }
+}
@@ -10,13 +10,25 @@ public interface ChangeStatusLogRepository extends JpaRepository<ChangeStatusLog
         JpaSpecificationExecutor<ChangeStatusLog> {
     List<ChangeStatusLog> findByModelNameIgnoreCaseAndModelIDOrderByCreatedAtDesc(String modelName, Long modelID);
     
-    // Lấy bản ghi mới nhất cho mỗi mã nguồn
-    @Query("SELECT csl FROM ChangeStatusLog csl WHERE csl.id IN (" +
-           "SELECT MAX(csl2.id) FROM ChangeStatusLog csl2 GROUP BY csl2.modelName, csl2.modelID)")
+    // Lấy bản ghi mới nhất cho mỗi mã nguồn (bảng change_status_latest do trigger cập nhật, xem V5 migration)
+    @Query(value = "SELECT csl.* FROM change_status_latest l " +
+           "JOIN changestatuslogs csl ON csl.id = l.log_id", nativeQuery = true)
     List<ChangeStatusLog> findLatestLogsForEachSource();
-    
+
     // Lấy bản ghi mới nhất cho mỗi mã nguồn theo modelName
+    @Query(value = "SELECT csl.* FROM change_status_latest l " +
+           "JOIN changestatuslogs csl ON csl.id = l.log_id WHERE l.model_name = ?1", nativeQuery = true)
+    List<ChangeStatusLog> findLatestLogsForEachSourceByModel(String modelName);
+
+    // Cách cũ quét toàn bảng nhật ký, dùng khi DB chưa có change_status_latest
+    @Query("SELECT csl FROM ChangeStatusLog csl WHERE csl.id IN (" +
+           "SELECT MAX(csl2.id) FROM ChangeStatusLog csl2 GROUP BY csl2.modelName, csl2.modelID)")
+    List<ChangeStatusLog> findLatestLogsForEachSourceByScan();
+
     @Query("SELECT csl FROM ChangeStatusLog csl WHERE csl.modelName = ?1 AND csl.id IN (" +
            "SELECT MAX(csl2.id) FROM ChangeStatusLog csl2 WHERE csl2.modelName = ?1 GROUP BY csl2.modelID)")
-    List<ChangeStatusLog> findLatestLogsForEachSourceByModel(String modelName);
-} 
\ No newline at end of file
+    List<ChangeStatusLog> findLatestLogsForEachSourceByModelByScan(String modelName);
+
+    @Query(value = "SELECT to_regclass('change_status_latest') IS NOT NULL", nativeQuery = true)
+    boolean existsLatestTable();
+}
@@ -0,0 +1,43 @@
+package com.farmovo.backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * So sánh customers.total_debt_amount với số dư tính lại từ debt_notes ('+' cộng, '-' trừ)
+ * cho toàn bộ khách hàng trong một truy vấn.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CustomerDebtLedgerRepository {
+
+    private static final String DRIFT_SQL =
+            "SELECT c.id, COALESCE(c.total_debt_amount, 0) AS recorded, COALESCE(l.balance, 0) AS ledger " +
+            "FROM customers c LEFT JOIN (" +
+            "SELECT customer_id, SUM(CASE debt_type WHEN '+' THEN debt_amount WHEN '-' THEN -debt_amount ELSE 0 END) AS balance " +
+            "FROM debt_notes WHERE deleted_at IS NULL GROUP BY customer_id) l ON l.customer_id = c.id " +
+            "WHERE c.deleted_at IS NULL AND COALESCE(c.total_debt_amount, 0) <> COALESCE(l.balance, 0)";
+
+    public record Drift(Long customerId, BigDecimal recorded, BigDecimal ledger) {
+        public BigDecimal difference() {
+            return recorded.subtract(ledger);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<Drift> findDrift() {
+        return jdbcTemplate.query(DRIFT_SQL + " ORDER BY c.id", (rs, i) ->
+                new Drift(rs.getLong("id"), rs.getBigDecimal("recorded"), rs.getBigDecimal("ledger")));
+    }
+
+    // Ghi đè total_debt_amount bằng số dư từ debt_notes cho các khách bị lệch; trả về số khách đã sửa
+    public int applyLedgerBalances() {
+        return jdbcTemplate.update("UPDATE customers c SET total_debt_amount = d.ledger " +
+                "FROM (" + DRIFT_SQL + ") d WHERE c.id = d.id");
+    }
+}
@@ -4,10 +4,11 @@ import com.farmovo.backend.models.Customer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
@@ -22,12 +23,13 @@ public interface CustomerRepository extends JpaRepository<Customer, Long>, org.s
     @Query("SELECT c FROM Customer c WHERE c.id = :id AND c.deletedAt IS NULL")
     Customer findByIdAndActive(Long id);
 
-    @Query("SELECT c FROM Customer c WHERE c.name LIKE %:name% AND c.deletedAt IS NULL")
-    List<Customer> findByNameContainingIgnoreCaseAndActive(String name);
-
-    @Query("SELECT c FROM Customer c WHERE c.name LIKE %:name% AND c.deletedAt IS NULL")
-    Page<Customer> findByNameContainingIgnoreCaseAndActive(@Param("name") String name, Pageable pageable);
-
     @Query("SELECT COUNT(c) FROM Customer c WHERE c.isSupplier = true AND c.deletedAt IS NULL")
     long countSuppliers();
+
+    // Cộng nợ ngay trong câu UPDATE (khóa dòng), không đọc rồi ghi lại từ Java nên không mất cập nhật khi
+    // nhiều phiếu của cùng khách hoàn thành đồng thời. Customer dùng @DynamicUpdate nên entity đang được
+    // quản lý (giá trị totalDebt cũ) không ghi đè cột này khi flush.
+    @Modifying
+    @Query("UPDATE Customer c SET c.totalDebt = COALESCE(c.totalDebt, 0) + :delta WHERE c.id = :id")
+    int incrementTotalDebt(Long id, BigDecimal delta);
 }
\ No newline at end of file
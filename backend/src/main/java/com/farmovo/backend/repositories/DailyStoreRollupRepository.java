@@ -0,0 +1,136 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.models.DailyStoreRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyStoreRollupRepository extends JpaRepository<DailyStoreRollup, Long> {
+
+    // Cộng dồn (có thể âm khi hủy/xóa) số liệu phiếu bán vào dòng (kho, ngày), tạo mới nếu chưa có
+    @Modifying
+    @Query(value = "INSERT INTO daily_store_rollup (store_id, day, revenue, sale_count, sale_paid, sale_debt_delta, " +
+            "import_cost, import_count, import_paid, import_debt_delta) " +
+            "VALUES (:storeId, :day, :revenue, :saleCount, :paid, :debtDelta, 0, 0, 0, 0) " +
+            "ON CONFLICT (store_id, day) DO UPDATE SET " +
+            "revenue = daily_store_rollup.revenue + EXCLUDED.revenue, " +
+            "sale_count = daily_store_rollup.sale_count + EXCLUDED.sale_count, " +
+            "sale_paid = daily_store_rollup.sale_paid + EXCLUDED.sale_paid, " +
+            "sale_debt_delta = daily_store_rollup.sale_debt_delta + EXCLUDED.sale_debt_delta", nativeQuery = true)
+    int addSale(@Param("storeId") Long storeId, @Param("day") LocalDate day, @Param("revenue") BigDecimal revenue,
+                @Param("saleCount") long saleCount, @Param("paid") BigDecimal paid, @Param("debtDelta") BigDecimal debtDelta);
+
+    // Cộng dồn số liệu phiếu nhập vào dòng (kho, ngày), tạo mới nếu chưa có
+    @Modifying
+    @Query(value = "INSERT INTO daily_store_rollup (store_id, day, revenue, sale_count, sale_paid, sale_debt_delta, " +
+            "import_cost, import_count, import_paid, import_debt_delta) " +
+            "VALUES (:storeId, :day, 0, 0, 0, 0, :cost, :importCount, :paid, :debtDelta) " +
+            "ON CONFLICT (store_id, day) DO UPDATE SET " +
+            "import_cost = daily_store_rollup.import_cost + EXCLUDED.import_cost, " +
+            "import_count = daily_store_rollup.import_count + EXCLUDED.import_count, " +
+            "import_paid = daily_store_rollup.import_paid + EXCLUDED.import_paid, " +
+            "import_debt_delta = daily_store_rollup.import_debt_delta + EXCLUDED.import_debt_delta", nativeQuery = true)
+    int addImport(@Param("storeId") Long storeId, @Param("day") LocalDate day, @Param("cost") BigDecimal cost,
+                  @Param("importCount") long importCount, @Param("paid") BigDecimal paid, @Param("debtDelta") BigDecimal debtDelta);
+
+    // Chặn addSale/addImport (ROW EXCLUSIVE) tới hết transaction dựng lại, nhưng vẫn cho đọc báo cáo.
+    // Chờ các transaction đang upsert commit trước, nên các câu dựng lại sau đó thấy đủ phiếu đã hoàn thành
+    @Modifying
+    @Query(value = "LOCK TABLE daily_store_rollup IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM daily_store_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    // Dựng lại phần bán hàng từ sale_transactions (chạy sau deleteAllRows)
+    @Modifying
+    @Query(value = "INSERT INTO daily_store_rollup (store_id, day, revenue, sale_count, sale_paid, sale_debt_delta, " +
+            "import_cost, import_count, import_paid, import_debt_delta) " +
+            "SELECT COALESCE(s.store_id, 0), DATE(s.sale_date), SUM(COALESCE(s.total_amount, 0)), COUNT(*), " +
+            "SUM(COALESCE(s.paid_amount, 0)), SUM(COALESCE(s.total_amount, 0) - COALESCE(s.paid_amount, 0)), 0, 0, 0, 0 " +
+            "FROM sale_transactions s " +
+            "WHERE s.deleted_at IS NULL AND s.deleted_by IS NULL AND s.status = 'COMPLETE' AND s.sale_date IS NOT NULL " +
+            "GROUP BY COALESCE(s.store_id, 0), DATE(s.sale_date)", nativeQuery = true)
+    int rebuildSales();
+
+    // Dựng lại phần nhập hàng từ import_transactions, gộp vào dòng bán hàng cùng (kho, ngày)
+    @Modifying
+    @Query(value = "INSERT INTO daily_store_rollup (store_id, day, revenue, sale_count, sale_paid, sale_debt_delta, " +
+            "import_cost, import_count, import_paid, import_debt_delta) " +
+            "SELECT COALESCE(i.store_id, 0), DATE(i.import_date), 0, 0, 0, 0, SUM(COALESCE(i.total_amount, 0)), COUNT(*), " +
+            "SUM(COALESCE(i.paid_amount, 0)), SUM(COALESCE(i.total_amount, 0) - COALESCE(i.paid_amount, 0)) " +
+            "FROM import_transactions i " +
+            "WHERE i.deleted_at IS NULL AND i.deleted_by IS NULL AND i.status = 'COMPLETE' AND i.import_date IS NOT NULL " +
+            "GROUP BY COALESCE(i.store_id, 0), DATE(i.import_date) " +
+            "ON CONFLICT (store_id, day) DO UPDATE SET " +
+            "import_cost = EXCLUDED.import_cost, import_count = EXCLUDED.import_count, " +
+            "import_paid = EXCLUDED.import_paid, import_debt_delta = EXCLUDED.import_debt_delta", nativeQuery = true)
+    int rebuildImports();
+
+    // Tổng toàn thời gian cho dashboard
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyStoreRollup r")
+    BigDecimal sumRevenue();
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyStoreRollup r WHERE r.storeId = :storeId")
+    BigDecimal sumRevenueByStore(@Param("storeId") Long storeId);
+
+    @Query("SELECT COALESCE(SUM(r.saleCount), 0) FROM DailyStoreRollup r")
+    long sumSaleCount();
+
+    @Query("SELECT COALESCE(SUM(r.saleCount), 0) FROM DailyStoreRollup r WHERE r.storeId = :storeId")
+    long sumSaleCountByStore(@Param("storeId") Long storeId);
+
+    @Query("SELECT COALESCE(SUM(r.importCount), 0) FROM DailyStoreRollup r")
+    long sumImportCount();
+
+    @Query("SELECT COALESCE(SUM(r.importCount), 0) FROM DailyStoreRollup r WHERE r.storeId = :storeId")
+    long sumImportCountByStore(@Param("storeId") Long storeId);
+
+    // Tổng theo khoảng ngày (bao gồm cả hai đầu)
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyStoreRollup r WHERE r.day BETWEEN :from AND :to")
+    BigDecimal sumRevenueBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailyStoreRollup r WHERE r.day BETWEEN :from AND :to AND r.storeId = :storeId")
+    BigDecimal sumRevenueBetweenByStore(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("storeId") Long storeId);
+
+    @Query("SELECT COALESCE(SUM(r.importCost), 0) FROM DailyStoreRollup r WHERE r.day BETWEEN :from AND :to")
+    BigDecimal sumImportCostBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(r.importCost), 0) FROM DailyStoreRollup r WHERE r.day BETWEEN :from AND :to AND r.storeId = :storeId")
+    BigDecimal sumImportCostBetweenByStore(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("storeId") Long storeId);
+
+    // Xu hướng doanh thu, cùng định dạng cột với SaleTransactionRepository.getRevenueBy*
+    @Query(value = "SELECT day AS date, COALESCE(SUM(revenue), 0) AS total FROM daily_store_rollup " +
+            "WHERE day BETWEEN :from AND :to AND sale_count <> 0 GROUP BY day ORDER BY day", nativeQuery = true)
+    List<Object[]> getRevenueByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(value = "SELECT EXTRACT(YEAR FROM day) AS year, EXTRACT(MONTH FROM day) AS month, COALESCE(SUM(revenue), 0) AS total " +
+            "FROM daily_store_rollup WHERE day BETWEEN :from AND :to AND sale_count <> 0 " +
+            "GROUP BY year, month ORDER BY year, month", nativeQuery = true)
+    List<Object[]> getRevenueByMonth(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(value = "SELECT EXTRACT(YEAR FROM day) AS year, COALESCE(SUM(revenue), 0) AS total " +
+            "FROM daily_store_rollup WHERE day BETWEEN :from AND :to AND sale_count <> 0 " +
+            "GROUP BY year ORDER BY year", nativeQuery = true)
+    List<Object[]> getRevenueByYear(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(value = "SELECT day AS date, COALESCE(SUM(revenue), 0) AS total FROM daily_store_rollup " +
+            "WHERE day BETWEEN :from AND :to AND store_id = :storeId AND sale_count <> 0 GROUP BY day ORDER BY day", nativeQuery = true)
+    List<Object[]> getRevenueByDayAndStore(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("storeId") Long storeId);
+
+    @Query(value = "SELECT EXTRACT(YEAR FROM day) AS year, EXTRACT(MONTH FROM day) AS month, COALESCE(SUM(revenue), 0) AS total " +
+            "FROM daily_store_rollup WHERE day BETWEEN :from AND :to AND store_id = :storeId AND sale_count <> 0 " +
+            "GROUP BY year, month ORDER BY year, month", nativeQuery = true)
+    List<Object[]> getRevenueByMonthAndStore(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("storeId") Long storeId);
+
+    @Query(value = "SELECT EXTRACT(YEAR FROM day) AS year, COALESCE(SUM(revenue), 0) AS total " +
+            "FROM daily_store_rollup WHERE day BETWEEN :from AND :to AND store_id = :storeId AND sale_count <> 0 " +
+            "GROUP BY year ORDER BY year", nativeQuery = true)
+    List<Object[]> getRevenueByYearAndStore(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("storeId") Long storeId);
+}
@@ -2,13 +2,16 @@ package com.farmovo.backend.repositories;
 
 import com.farmovo.backend.models.ImportTransactionDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import com.farmovo.backend.models.ImportTransactionStatus;
@@ -64,6 +67,9 @@ public interface ImportTransactionDetailRepository extends JpaRepository<ImportT
     // Lấy ImportTransactionDetail theo productId và có remainQuantity > 0
     List<ImportTransactionDetail> findByProductIdAndRemainQuantityGreaterThan(Long productId, Integer remainQuantity);
 
+    // Như trên cho nhiều sản phẩm cùng lúc
+    List<ImportTransactionDetail> findByProductIdInAndRemainQuantityGreaterThan(Collection<Long> productIds, Integer remainQuantity);
+
     // Lấy ImportTransactionDetail theo productId và có remainQuantity > 0 chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
     @Query("SELECT i FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.product.id = :productId AND i.remainQuantity > :remainQuantity AND t.status = :status")
     List<ImportTransactionDetail> findByProductIdAndRemainQuantityGreaterThanCompleted(@Param("productId") Long productId, @Param("remainQuantity") Integer remainQuantity, @Param("status") ImportTransactionStatus status);
@@ -74,59 +80,121 @@ public interface ImportTransactionDetailRepository extends JpaRepository<ImportT
     // Tìm nhiều lô theo danh sách tên
     List<ImportTransactionDetail> findByNameIn(List<String> names);
 
+    // Tra id lô theo tên, trả về [name, id] (không nạp entity)
+    @Query("SELECT i.name, i.id FROM ImportTransactionDetail i WHERE i.name IN :names")
+    List<Object[]> findIdsByNameIn(@Param("names") java.util.Collection<String> names);
+
+    // Lọc ra các id lô thực sự tồn tại (không nạp entity)
+    @Query("SELECT i.id FROM ImportTransactionDetail i WHERE i.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") java.util.Collection<Long> ids);
+
+    // Trừ tồn lô nguyên tử: chỉ cập nhật khi đúng sản phẩm và còn đủ số lượng. Trả về 0 nếu không đủ/không khớp
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE import_transaction_details SET remain_quantity = remain_quantity - :quantity, version = version + 1 " +
+            "WHERE id = :id AND product_id = :productId AND remain_quantity >= :quantity", nativeQuery = true)
+    int decrementRemainQuantity(@Param("id") Long id, @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    // Cộng/trừ tồn lô nguyên tử theo delta (không đọc rồi ghi lại giá trị cũ). Trả về 0 nếu không có lô hoặc tồn sẽ âm
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE import_transaction_details SET remain_quantity = COALESCE(remain_quantity, 0) + :delta, version = version + 1 " +
+            "WHERE id = :id AND COALESCE(remain_quantity, 0) + :delta >= 0", nativeQuery = true)
+    int incrementRemainQuantity(@Param("id") Long id, @Param("delta") int delta);
+
+    // Ghi đè tồn lô bằng một giá trị tuyệt đối (khi người dùng chủ động đặt lại số lượng). Trả về 0 nếu không có lô
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE import_transaction_details SET remain_quantity = :remainQuantity, version = version + 1 " +
+            "WHERE id = :id", nativeQuery = true)
+    int overwriteRemainQuantity(@Param("id") Long id, @Param("remainQuantity") int remainQuantity);
+
+    // Tồn đầu kỳ: tổng remain của lô còn tồn thuộc phiếu nhập hoàn thành trước mốc (updated_at, fallback import_date)
+    @Query(value = "SELECT COALESCE(SUM(d.remain_quantity), 0) FROM import_transaction_details d " +
+            "JOIN import_transactions t ON t.id = d.import_transaction_id " +
+            "WHERE d.remain_quantity > 0 AND t.status = 'COMPLETE' AND COALESCE(t.updated_at, t.import_date) < :before", nativeQuery = true)
+    long sumRemainCompletedBefore(@Param("before") java.time.LocalDateTime before);
+
+    // Lọc kho theo kho của sản phẩm
+    @Query(value = "SELECT COALESCE(SUM(d.remain_quantity), 0) FROM import_transaction_details d " +
+            "JOIN import_transactions t ON t.id = d.import_transaction_id " +
+            "JOIN products p ON p.id = d.product_id " +
+            "WHERE d.remain_quantity > 0 AND t.status = 'COMPLETE' AND p.store_id = :storeId " +
+            "AND COALESCE(t.updated_at, t.import_date) < :before", nativeQuery = true)
+    long sumRemainCompletedBeforeByStore(@Param("before") java.time.LocalDateTime before, @Param("storeId") Long storeId);
+
     // === CÁC QUERY MỚI CHO STOCKTAKE ===
 
-    // Lấy tất cả zones_id có sản phẩm còn tồn kho (remainQuantity > 0)
-    @Query("SELECT DISTINCT i.zones_id FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 AND i.zones_id IS NOT NULL AND i.zones_id != ''")
-    List<String> findAllZoneIdsWithProducts();
+    // Tra cứu theo zone đi qua bảng lot_zone (index zone_id, lot_id) thay vì LIKE trên chuỗi zones_id
+
+    // Lấy tất cả zoneId có sản phẩm còn tồn kho (remainQuantity > 0)
+    @Query("SELECT DISTINCT z FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.remainQuantity > 0")
+    List<Long> findAllZoneIdsWithProducts();
 
-    @Query("SELECT DISTINCT i.zones_id FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 AND i.product.store.id = :storeId AND i.zones_id IS NOT NULL AND i.zones_id != ''")
-    List<String> findAllZoneIdsWithProductsByStore(@Param("storeId") Long storeId);
+    @Query("SELECT DISTINCT z FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND i.product.store.id = :storeId")
+    List<Long> findAllZoneIdsWithProductsByStore(@Param("storeId") Long storeId);
 
-    // Lấy tất cả zones_id có sản phẩm còn tồn kho chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
-    @Query("SELECT DISTINCT i.zones_id FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.remainQuantity > 0 AND t.status = :status AND i.zones_id IS NOT NULL AND i.zones_id != ''")
-    List<String> findAllZoneIdsWithProductsCompleted(@Param("status") ImportTransactionStatus status);
+    // Lấy tất cả zoneId có sản phẩm còn tồn kho chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
+    @Query("SELECT DISTINCT z FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status")
+    List<Long> findAllZoneIdsWithProductsCompleted(@Param("status") ImportTransactionStatus status);
 
-    @Query("SELECT DISTINCT i.zones_id FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.remainQuantity > 0 AND t.status = :status AND i.product.store.id = :storeId AND i.zones_id IS NOT NULL AND i.zones_id != ''")
-    List<String> findAllZoneIdsWithProductsCompletedByStore(@Param("status") ImportTransactionStatus status, @Param("storeId") Long storeId);
+    @Query("SELECT DISTINCT z FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status AND i.product.store.id = :storeId")
+    List<Long> findAllZoneIdsWithProductsCompletedByStore(@Param("status") ImportTransactionStatus status, @Param("storeId") Long storeId);
 
-    // Lấy tất cả ImportTransactionDetail theo zoneId (tìm trong JSON zones_id)
-    @Query("SELECT i FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<ImportTransactionDetail> findByZoneId(@Param("zoneId") String zoneId);
+    // Lấy tất cả ImportTransactionDetail theo zoneId
+    @Query("SELECT i FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND z = :zoneId")
+    List<ImportTransactionDetail> findByZoneId(@Param("zoneId") Long zoneId);
 
-    @Query("SELECT i FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 AND i.product.store.id = :storeId AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<ImportTransactionDetail> findByZoneIdAndStore(@Param("zoneId") String zoneId, @Param("storeId") Long storeId);
+    @Query("SELECT i FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND i.product.store.id = :storeId AND z = :zoneId")
+    List<ImportTransactionDetail> findByZoneIdAndStore(@Param("zoneId") Long zoneId, @Param("storeId") Long storeId);
 
     // Lấy theo zoneId chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
-    @Query("SELECT i FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.remainQuantity > 0 AND t.status = :status AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<ImportTransactionDetail> findByZoneIdCompleted(@Param("zoneId") String zoneId, @Param("status") ImportTransactionStatus status);
+    @Query("SELECT i FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status AND z = :zoneId")
+    List<ImportTransactionDetail> findByZoneIdCompleted(@Param("zoneId") Long zoneId, @Param("status") ImportTransactionStatus status);
 
-    @Query("SELECT i FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.remainQuantity > 0 AND t.status = :status AND i.product.store.id = :storeId AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<ImportTransactionDetail> findByZoneIdCompletedByStore(@Param("zoneId") String zoneId, @Param("status") ImportTransactionStatus status, @Param("storeId") Long storeId);
+    @Query("SELECT i FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status AND i.product.store.id = :storeId AND z = :zoneId")
+    List<ImportTransactionDetail> findByZoneIdCompletedByStore(@Param("zoneId") Long zoneId, @Param("status") ImportTransactionStatus status, @Param("storeId") Long storeId);
 
-    // Lấy tất cả zones_id của một sản phẩm cụ thể
-    @Query("SELECT DISTINCT i.zones_id FROM ImportTransactionDetail i WHERE i.product.id = :productId AND i.remainQuantity > 0 AND i.zones_id IS NOT NULL AND i.zones_id != ''")
-    List<String> findZoneIdsByProductId(@Param("productId") Long productId);
+    // Lấy tất cả zoneId của một sản phẩm cụ thể
+    @Query("SELECT DISTINCT z FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.product.id = :productId AND i.remainQuantity > 0")
+    List<Long> findZoneIdsByProductId(@Param("productId") Long productId);
 
-    // Lấy tất cả zones_id của một sản phẩm cụ thể chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
-    @Query("SELECT DISTINCT i.zones_id FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.product.id = :productId AND i.remainQuantity > 0 AND t.status = :status AND i.zones_id IS NOT NULL AND i.zones_id != ''")
-    List<String> findZoneIdsByProductIdCompleted(@Param("productId") Long productId, @Param("status") ImportTransactionStatus status);
+    // Lấy tất cả zoneId của một sản phẩm cụ thể chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
+    @Query("SELECT DISTINCT z FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.product.id = :productId AND i.remainQuantity > 0 AND t.status = :status")
+    List<Long> findZoneIdsByProductIdCompleted(@Param("productId") Long productId, @Param("status") ImportTransactionStatus status);
 
     // Lấy tất cả sản phẩm có trong một zone cụ thể
-    @Query("SELECT DISTINCT i.product.id FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<Long> findProductIdsByZoneId(@Param("zoneId") String zoneId);
+    @Query("SELECT DISTINCT i.product.id FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND z = :zoneId")
+    List<Long> findProductIdsByZoneId(@Param("zoneId") Long zoneId);
 
     // Lấy tất cả sản phẩm có trong một zone cụ thể chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
-    @Query("SELECT DISTINCT i.product.id FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.remainQuantity > 0 AND t.status = :status AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<Long> findProductIdsByZoneIdCompleted(@Param("zoneId") String zoneId, @Param("status") ImportTransactionStatus status);
+    @Query("SELECT DISTINCT i.product.id FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status AND z = :zoneId")
+    List<Long> findProductIdsByZoneIdCompleted(@Param("zoneId") Long zoneId, @Param("status") ImportTransactionStatus status);
 
     // Lấy chi tiết ImportTransactionDetail theo zoneId
-    @Query("SELECT i.id, i.product.id, i.product.productName, i.remainQuantity, i.zones_id, i.expireDate FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<Object[]> findDetailsByZoneId(@Param("zoneId") String zoneId);
+    @Query("SELECT i.id, i.product.id, i.product.productName, i.remainQuantity, i.zones_id, i.expireDate FROM ImportTransactionDetail i JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND z = :zoneId")
+    List<Object[]> findDetailsByZoneId(@Param("zoneId") Long zoneId);
 
     // Lấy chi tiết theo zoneId chỉ từ các phiếu nhập đã hoàn thành (COMPLETE status)
-    @Query("SELECT i.id, i.product.id, i.product.productName, i.remainQuantity, i.zones_id, i.expireDate FROM ImportTransactionDetail i JOIN i.importTransaction t WHERE i.remainQuantity > 0 AND t.status = :status AND CONCAT(',', i.zones_id, ',') LIKE CONCAT('%,', :zoneId, ',%')")
-    List<Object[]> findDetailsByZoneIdCompleted(@Param("zoneId") String zoneId, @Param("status") ImportTransactionStatus status);
+    @Query("SELECT i.id, i.product.id, i.product.productName, i.remainQuantity, i.zones_id, i.expireDate FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status AND z = :zoneId")
+    List<Object[]> findDetailsByZoneIdCompleted(@Param("zoneId") Long zoneId, @Param("status") ImportTransactionStatus status);
+
+    // Cặp (lotId, zoneId) của các lô cho trước, dùng cho báo cáo
+    @Query(value = "SELECT lz.lot_id, lz.zone_id FROM lot_zone lz WHERE lz.lot_id IN (:lotIds) ORDER BY lz.lot_id, lz.zone_id", nativeQuery = true)
+    List<Object[]> findZoneIdsByLotIds(@Param("lotIds") java.util.Collection<Long> lotIds);
+
+    // Cặp (lotId, zoneId) của các lô còn tồn từ phiếu nhập đã hoàn thành
+    @Query("SELECT i.id, z FROM ImportTransactionDetail i JOIN i.importTransaction t JOIN i.zoneIds z WHERE i.remainQuantity > 0 AND t.status = :status ORDER BY i.id, z")
+    List<Object[]> findZoneIdsOfRemainingLots(@Param("status") ImportTransactionStatus status);
+
+    // Tách zones_id của các lô chưa có dòng lot_zone (dữ liệu tạo trước khi có bảng này)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO lot_zone (lot_id, zone_id) " +
+            "SELECT DISTINCT d.id, CAST(p.part AS BIGINT) " +
+            "FROM import_transaction_details d " +
+            "CROSS JOIN LATERAL regexp_split_to_table(regexp_replace(d.zones_id, '[\\[\\]\"]', '', 'g'), '[;,|\\s]+') AS p(part) " +
+            "WHERE d.zones_id IS NOT NULL AND p.part ~ '^[0-9]+$' " +
+            "AND NOT EXISTS (SELECT 1 FROM lot_zone lz WHERE lz.lot_id = d.id) " +
+            "ON CONFLICT (lot_id, zone_id) DO NOTHING", nativeQuery = true)
+    int backfillLotZones();
 
     @Query("SELECT i.product.category.categoryName, SUM(i.remainQuantity) FROM ImportTransactionDetail i WHERE i.remainQuantity > 0 GROUP BY i.product.category.categoryName")
     List<Object[]> getStockByCategory();
@@ -2,6 +2,8 @@ package com.farmovo.backend.repositories;
 
 
 import com.farmovo.backend.models.ImportTransaction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
@@ -21,6 +23,10 @@ public interface ImportTransactionRepository extends JpaRepository<ImportTransac
     })
     Optional<ImportTransaction> findById(Long id);
 
+    // Xuất PDF hàng loạt: nạp phiếu cùng chi tiết, sản phẩm, nhà cung cấp và kho trong một truy vấn
+    @EntityGraph(attributePaths = {"details", "details.product", "supplier", "store"})
+    List<ImportTransaction> findAll(Specification<ImportTransaction> spec, Sort sort);
+
     Optional<ImportTransaction> findTopByOrderByIdDesc();
 
     @Query("SELECT i FROM ImportTransaction i WHERE i.deletedAt IS NULL AND i.deletedBy IS NULL")
@@ -29,15 +35,85 @@ public interface ImportTransactionRepository extends JpaRepository<ImportTransac
     @Query("SELECT i FROM ImportTransaction i WHERE i.deletedAt IS NULL AND i.deletedBy IS NULL AND i.store.id = :storeId")
     List<ImportTransaction> findAllImportActiveByStore(@org.springframework.data.repository.query.Param("storeId") Long storeId);
 
+    // Tổng tiền phiếu nhập COMPLETE theo khoảng giờ bất kỳ (daily_store_rollup chỉ dùng được cho khoảng trọn ngày)
+    @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM ImportTransaction i WHERE i.deletedAt IS NULL AND i.deletedBy IS NULL " +
+            "AND i.status = 'COMPLETE' AND i.importDate BETWEEN :from AND :to")
+    java.math.BigDecimal sumTotalAmountBetween(@org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                                               @org.springframework.data.repository.query.Param("to") java.time.LocalDateTime to);
+
+    @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM ImportTransaction i WHERE i.deletedAt IS NULL AND i.deletedBy IS NULL " +
+            "AND i.store.id = :storeId AND i.status = 'COMPLETE' AND i.importDate BETWEEN :from AND :to")
+    java.math.BigDecimal sumTotalAmountBetweenByStore(@org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                                                      @org.springframework.data.repository.query.Param("to") java.time.LocalDateTime to,
+                                                      @org.springframework.data.repository.query.Param("storeId") Long storeId);
+
+    // Tổng tiền nhập theo nhóm (day/week/month), chỉ phiếu COMPLETE: [bucket, supplierId, supplierName, totalAmount, count]
+    @Query(value = "SELECT g.bucket, MAX(g.supplier_id) AS supplier_id, " +
+            "(SELECT c.customer_name FROM customers c WHERE c.id = MAX(g.supplier_id)) AS supplier_name, " +
+            "SUM(g.total_amount) AS total_amount, COUNT(*) AS import_count FROM (" +
+            "SELECT CASE :groupBy " +
+            "WHEN 'week' THEN CAST(CAST(EXTRACT(YEAR FROM i.import_date) AS INTEGER) AS VARCHAR) || '-W' || CAST(CAST(EXTRACT(WEEK FROM i.import_date) AS INTEGER) AS VARCHAR) " +
+            "WHEN 'month' THEN TO_CHAR(i.import_date, 'YYYY-MM') " +
+            "ELSE TO_CHAR(i.import_date, 'YYYY-MM-DD') END AS bucket, i.supplier_id, i.total_amount " +
+            "FROM import_transactions i " +
+            "WHERE i.deleted_at IS NULL AND i.deleted_by IS NULL AND i.status = 'COMPLETE' " +
+            "AND i.total_amount IS NOT NULL AND i.import_date BETWEEN :from AND :to " +
+            "AND (CAST(:supplierId AS BIGINT) IS NULL OR i.supplier_id = :supplierId)" +
+            ") g GROUP BY g.bucket", nativeQuery = true)
+    List<Object[]> sumImportsGrouped(@org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                                     @org.springframework.data.repository.query.Param("to") java.time.LocalDateTime to,
+                                     @org.springframework.data.repository.query.Param("groupBy") String groupBy,
+                                     @org.springframework.data.repository.query.Param("supplierId") Long supplierId);
+
+    @Query(value = "SELECT g.bucket, MAX(g.supplier_id) AS supplier_id, " +
+            "(SELECT c.customer_name FROM customers c WHERE c.id = MAX(g.supplier_id)) AS supplier_name, " +
+            "SUM(g.total_amount) AS total_amount, COUNT(*) AS import_count FROM (" +
+            "SELECT CASE :groupBy " +
+            "WHEN 'week' THEN CAST(CAST(EXTRACT(YEAR FROM i.import_date) AS INTEGER) AS VARCHAR) || '-W' || CAST(CAST(EXTRACT(WEEK FROM i.import_date) AS INTEGER) AS VARCHAR) " +
+            "WHEN 'month' THEN TO_CHAR(i.import_date, 'YYYY-MM') " +
+            "ELSE TO_CHAR(i.import_date, 'YYYY-MM-DD') END AS bucket, i.supplier_id, i.total_amount " +
+            "FROM import_transactions i " +
+            "WHERE i.deleted_at IS NULL AND i.deleted_by IS NULL AND i.status = 'COMPLETE' AND i.store_id = :storeId " +
+            "AND i.total_amount IS NOT NULL AND i.import_date BETWEEN :from AND :to " +
+            "AND (CAST(:supplierId AS BIGINT) IS NULL OR i.supplier_id = :supplierId)" +
+            ") g GROUP BY g.bucket", nativeQuery = true)
+    List<Object[]> sumImportsGroupedByStore(@org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                                            @org.springframework.data.repository.query.Param("to") java.time.LocalDateTime to,
+                                            @org.springframework.data.repository.query.Param("groupBy") String groupBy,
+                                            @org.springframework.data.repository.query.Param("supplierId") Long supplierId,
+                                            @org.springframework.data.repository.query.Param("storeId") Long storeId);
+
     @Query("SELECT i FROM ImportTransaction i WHERE i.deletedAt IS NULL AND i.deletedBy IS NULL ORDER BY i.importDate DESC")
     List<ImportTransaction> findRecentImports(org.springframework.data.domain.Pageable pageable);
 
     long countByStocktakeId(Long stocktakeId);
 
+    // Đếm phiếu nhập điều chỉnh theo nhiều phiếu kiểm kê trong một lần: [stocktakeId, count]
+    @Query("SELECT i.stocktakeId, COUNT(i) FROM ImportTransaction i WHERE i.stocktakeId IN :stocktakeIds GROUP BY i.stocktakeId")
+    List<Object[]> countByStocktakeIds(@org.springframework.data.repository.query.Param("stocktakeIds") java.util.Collection<Long> stocktakeIds);
+
     // Truy vấn max số thứ tự hiện có cho mã PCBNxxxxxx
     @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(name, 5) AS BIGINT)), 0) FROM import_transactions WHERE name LIKE 'PCBN%'", nativeQuery = true)
     Long getMaxPcbnSequence();
 
     @Query("SELECT COUNT(i) FROM ImportTransaction i WHERE i.deletedAt IS NULL AND i.store.id = :storeId")
     long countByStoreId(@org.springframework.data.repository.query.Param("storeId") Long storeId);
+
+    // Tổng số lượng nhập theo ngày (ngày = updated_at, fallback import_date), to là mốc loại trừ
+    @Query(value = "SELECT DATE(COALESCE(i.updated_at, i.import_date)) AS day, COALESCE(SUM(d.import_quantity), 0) AS total " +
+            "FROM import_transactions i JOIN import_transaction_details d ON d.import_transaction_id = i.id " +
+            "WHERE i.deleted_at IS NULL AND i.deleted_by IS NULL AND i.status = 'COMPLETE' " +
+            "AND COALESCE(i.updated_at, i.import_date) >= :from AND COALESCE(i.updated_at, i.import_date) < :to " +
+            "GROUP BY day ORDER BY day", nativeQuery = true)
+    List<Object[]> sumImportQuantityByDay(@org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                                          @org.springframework.data.repository.query.Param("to") java.time.LocalDateTime to);
+
+    @Query(value = "SELECT DATE(COALESCE(i.updated_at, i.import_date)) AS day, COALESCE(SUM(d.import_quantity), 0) AS total " +
+            "FROM import_transactions i JOIN import_transaction_details d ON d.import_transaction_id = i.id " +
+            "WHERE i.deleted_at IS NULL AND i.deleted_by IS NULL AND i.status = 'COMPLETE' AND i.store_id = :storeId " +
+            "AND COALESCE(i.updated_at, i.import_date) >= :from AND COALESCE(i.updated_at, i.import_date) < :to " +
+            "GROUP BY day ORDER BY day", nativeQuery = true)
+    List<Object[]> sumImportQuantityByDayAndStore(@org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                                                  @org.springframework.data.repository.query.Param("to") java.time.LocalDateTime to,
+                                                  @org.springframework.data.repository.query.Param("storeId") Long storeId);
 }
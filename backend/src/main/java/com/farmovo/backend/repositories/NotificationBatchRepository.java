@@ -0,0 +1,61 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.dto.PendingNotification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi thông báo hàng loạt bằng JDBC batch. Notification dùng id IDENTITY nên Hibernate không gom
+ * INSERT thành batch được; ở đây id do cột identity tự sinh, không cần đọc lại.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO notifications " +
+            "(title, message, type, category, is_read, action_url, entity_id, entity_type, user_id, store_id, " +
+            "created_by, created_at, updated_at) VALUES (?, ?, ?, ?, FALSE, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Mỗi PendingNotification phải có userId (đã tách theo người nhận).
+    // REQUIRES_NEW: khi queue đầy NotificationDispatcher ghi ngay trong afterCommit của transaction nghiệp vụ;
+    // transaction đó đã commit nên tham gia vào nó thì INSERT không bao giờ được commit
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int insertAll(List<PendingNotification> notifications, int batchSize) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, notifications, batchSize, (ps, n) -> {
+            ps.setString(1, n.title());
+            ps.setString(2, n.message());
+            ps.setString(3, n.type().name());
+            ps.setString(4, n.category().name());
+            ps.setString(5, n.actionUrl());
+            setLong(ps, 6, n.entityId());
+            ps.setString(7, n.entityType());
+            ps.setLong(8, n.userId());
+            setLong(ps, 9, n.storeId());
+            ps.setLong(10, n.userId());
+            ps.setTimestamp(11, now);
+            ps.setTimestamp(12, now);
+        });
+        return notifications.size();
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+}
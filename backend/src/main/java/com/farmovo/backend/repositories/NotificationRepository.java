@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,7 +16,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
+public interface NotificationRepository extends JpaRepository<Notification, Long>, JpaSpecificationExecutor<Notification> {
     
     // Lấy tất cả notification của user theo store
     @EntityGraph(attributePaths = {"user", "store"})
@@ -81,8 +82,12 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Query("SELECT n FROM Notification n WHERE n.id = :id")
     Notification findByIdWithUserAndStore(@Param("id") Long id);
     
-    // Xóa notification cũ hơn 30 ngày
+    // Xóa hàng loạt bằng một câu DELETE (không tải entity); xóa thông báo cũ xem NotificationRetentionRepository
     @Modifying
-    @Query("DELETE FROM Notification n WHERE n.createdAt < :cutoffDate")
-    void deleteOldNotifications(@Param("cutoffDate") LocalDateTime cutoffDate);
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.store.id = :storeId")
+    int bulkDeleteByUserIdAndStoreId(@Param("userId") Long userId, @Param("storeId") Long storeId);
+    
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId")
+    int bulkDeleteByUserId(@Param("userId") Long userId);
 }
@@ -0,0 +1,61 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.models.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Xóa thông báo hết hạn theo từng khoảng id. Không mở transaction: mỗi câu DELETE tự commit,
+ * nên mỗi lần chỉ khóa và sinh WAL cho một khoảng id nhỏ.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationRetentionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Long findMinId() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM notifications", Long.class);
+    }
+
+    // id lớn nhất (xấp xỉ) của các thông báo tạo trước cutoff; đi theo ix_notifications_created
+    public Long findLastIdCreatedBefore(LocalDateTime cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM notifications WHERE created_at < ? ORDER BY created_at DESC LIMIT 1",
+                Long.class, Timestamp.valueOf(cutoff));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * Xóa các thông báo có id trong [fromId, toId) và created_at trước cutoff của danh mục
+     * (danh mục không có trong cutoffs dùng defaultCutoff).
+     */
+    public int deleteRange(long fromId, long toId,
+                           Map<Notification.NotificationCategory, LocalDateTime> cutoffs,
+                           LocalDateTime defaultCutoff) {
+        StringBuilder sql = new StringBuilder("DELETE FROM notifications WHERE id >= ? AND id < ? AND created_at < ");
+        List<Object> args = new ArrayList<>();
+        args.add(fromId);
+        args.add(toId);
+        if (cutoffs.isEmpty()) {
+            sql.append('?');
+        } else {
+            sql.append("CASE category");
+            for (Map.Entry<Notification.NotificationCategory, LocalDateTime> entry : cutoffs.entrySet()) {
+                sql.append(" WHEN ? THEN ?");
+                args.add(entry.getKey().name());
+                args.add(Timestamp.valueOf(entry.getValue()));
+            }
+            sql.append(" ELSE ? END");
+        }
+        args.add(Timestamp.valueOf(defaultCutoff));
+        return jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+}
@@ -1,15 +1,24 @@
 package com.farmovo.backend.repositories;
 
 import com.farmovo.backend.models.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+
+    // Tìm kiếm sản phẩm (ProductSpecification): nạp kèm danh mục và kho cho ProductMapper
+    @EntityGraph(attributePaths = {"category", "store"})
+    Page<Product> findAll(Specification<Product> spec, Pageable pageable);
 
     @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.store ORDER BY p.createdAt DESC, p.updatedAt DESC")
     List<Product> findAllWithCategoryAndStore();
@@ -20,6 +29,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT COUNT(p) FROM Product p WHERE p.store.id = :storeId")
     long countByStoreId(@Param("storeId") Long storeId);
 
+    // Trừ tồn sản phẩm nguyên tử, trả về 0 nếu không tồn tại hoặc không đủ số lượng
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET product_quantity = product_quantity - :quantity, version = version + 1 " +
+            "WHERE id = :id AND product_quantity >= :quantity", nativeQuery = true)
+    int decrementProductQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Cộng/trừ tồn sản phẩm nguyên tử theo delta, trả về 0 nếu không tồn tại hoặc tồn sẽ âm
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET product_quantity = product_quantity + :delta, version = version + 1 " +
+            "WHERE id = :id AND product_quantity + :delta >= 0", nativeQuery = true)
+    int incrementProductQuantity(@Param("id") Long id, @Param("delta") int delta);
+
     // Kiểm tra tên sản phẩm tồn tại (không phân biệt hoa thường) trong cùng store và category
     @Query("SELECT p FROM Product p WHERE LOWER(p.productName) = LOWER(:productName) AND p.store.id = :storeId AND p.category.id = :categoryId")
     Optional<Product> findByProductNameAndStoreAndCategoryIgnoreCase(
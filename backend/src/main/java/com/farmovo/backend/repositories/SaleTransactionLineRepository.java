@@ -0,0 +1,60 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.models.SaleTransaction;
+import com.farmovo.backend.models.SaleTransactionLine;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SaleTransactionLineRepository extends JpaRepository<SaleTransactionLine, Long> {
+
+    boolean existsBySaleTransactionId(Long saleTransactionId);
+
+    @Modifying
+    @Query("DELETE FROM SaleTransactionLine l WHERE l.saleTransaction.id = :saleTransactionId")
+    int deleteBySaleTransactionId(@Param("saleTransactionId") Long saleTransactionId);
+
+    // Phiếu bán chưa có dòng chuẩn hóa (dùng cho backfill), duyệt theo id tăng dần.
+    // Phiếu có detail rỗng/lỗi được ghi một dòng đánh dấu (quantity 0, không sản phẩm) nên không bị trả về lại
+    @Query("SELECT s FROM SaleTransaction s WHERE s.id > :afterId AND s.detail IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM SaleTransactionLine l WHERE l.saleTransaction.id = s.id) ORDER BY s.id")
+    List<SaleTransaction> findSalesWithoutLines(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Top sản phẩm bán chạy: [productId, productName, categoryName, SUM(quantity)]
+    @Query("SELECT p.id, p.productName, c.categoryName, SUM(l.quantity) AS totalQty " +
+            "FROM SaleTransactionLine l JOIN l.saleTransaction s JOIN Product p ON p.id = l.productId LEFT JOIN p.category c " +
+            "WHERE s.deletedAt IS NULL AND s.deletedBy IS NULL AND s.status = 'COMPLETE' AND s.saleDate BETWEEN :from AND :to " +
+            "AND p.productName IS NOT NULL AND TRIM(p.productName) <> '' " +
+            "GROUP BY p.id, p.productName, c.categoryName ORDER BY totalQty DESC")
+    List<Object[]> sumQuantityByProduct(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT p.id, p.productName, c.categoryName, SUM(l.quantity) AS totalQty " +
+            "FROM SaleTransactionLine l JOIN l.saleTransaction s JOIN Product p ON p.id = l.productId LEFT JOIN p.category c " +
+            "WHERE s.deletedAt IS NULL AND s.deletedBy IS NULL AND s.store.id = :storeId AND s.status = 'COMPLETE' " +
+            "AND s.saleDate BETWEEN :from AND :to " +
+            "AND p.productName IS NOT NULL AND TRIM(p.productName) <> '' " +
+            "GROUP BY p.id, p.productName, c.categoryName ORDER BY totalQty DESC")
+    List<Object[]> sumQuantityByProductAndStore(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                @Param("storeId") Long storeId, Pageable pageable);
+
+    // Tổng số lượng xuất theo ngày (ngày = updated_at, fallback created_at), to là mốc loại trừ
+    @Query(value = "SELECT DATE(COALESCE(s.updated_at, s.created_at)) AS day, COALESCE(SUM(l.quantity), 0) AS total " +
+            "FROM sale_transaction_lines l JOIN sale_transactions s ON s.id = l.sale_transaction_id " +
+            "WHERE s.deleted_at IS NULL AND s.deleted_by IS NULL AND s.status = 'COMPLETE' AND l.quantity > 0 " +
+            "AND COALESCE(s.updated_at, s.created_at) >= :from AND COALESCE(s.updated_at, s.created_at) < :to " +
+            "GROUP BY day ORDER BY day", nativeQuery = true)
+    List<Object[]> sumExportQuantityByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query(value = "SELECT DATE(COALESCE(s.updated_at, s.created_at)) AS day, COALESCE(SUM(l.quantity), 0) AS total " +
+            "FROM sale_transaction_lines l JOIN sale_transactions s ON s.id = l.sale_transaction_id " +
+            "WHERE s.deleted_at IS NULL AND s.deleted_by IS NULL AND s.status = 'COMPLETE' AND s.store_id = :storeId AND l.quantity > 0 " +
+            "AND COALESCE(s.updated_at, s.created_at) >= :from AND COALESCE(s.updated_at, s.created_at) < :to " +
+            "GROUP BY day ORDER BY day", nativeQuery = true)
+    List<Object[]> sumExportQuantityByDayAndStore(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                  @Param("storeId") Long storeId);
+}
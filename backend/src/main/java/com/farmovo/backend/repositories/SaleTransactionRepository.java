@@ -2,6 +2,9 @@ package com.farmovo.backend.repositories;
 
 import com.farmovo.backend.models.SaleTransaction;
 import com.farmovo.backend.models.SaleTransactionStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -14,6 +17,10 @@ import java.math.BigDecimal;
 public interface SaleTransactionRepository extends JpaRepository<SaleTransaction, Long>, JpaSpecificationExecutor<SaleTransaction> {
     Optional<SaleTransaction> findTopByOrderByIdDesc();
 
+    // Xuất PDF hàng loạt: nạp phiếu cùng khách hàng và kho trong một truy vấn (chi tiết nằm trong cột JSON)
+    @EntityGraph(attributePaths = {"customer", "store"})
+    List<SaleTransaction> findAll(Specification<SaleTransaction> spec, Sort sort);
+
     @Query("SELECT s FROM SaleTransaction s WHERE s.deletedAt IS NULL AND s.deletedBy IS NULL AND s.status = 'COMPLETE'")
     List<SaleTransaction> findAllSaleActive();
 
@@ -29,6 +36,16 @@ public interface SaleTransactionRepository extends JpaRepository<SaleTransaction
     @Query("SELECT COUNT(s) FROM SaleTransaction s WHERE s.deletedAt IS NULL AND s.store.id = :storeId AND s.status = 'COMPLETE'")
     long countByStoreId(@Param("storeId") Long storeId);
 
+    // Tổng doanh thu phiếu COMPLETE theo khoảng giờ bất kỳ (daily_store_rollup chỉ dùng được cho khoảng trọn ngày)
+    @Query("SELECT COALESCE(SUM(s.totalAmount), 0) FROM SaleTransaction s WHERE s.deletedAt IS NULL AND s.deletedBy IS NULL " +
+            "AND s.status = 'COMPLETE' AND s.saleDate BETWEEN :from AND :to")
+    BigDecimal sumTotalAmountBetween(@Param("from") java.time.LocalDateTime from, @Param("to") java.time.LocalDateTime to);
+
+    @Query("SELECT COALESCE(SUM(s.totalAmount), 0) FROM SaleTransaction s WHERE s.deletedAt IS NULL AND s.deletedBy IS NULL " +
+            "AND s.store.id = :storeId AND s.status = 'COMPLETE' AND s.saleDate BETWEEN :from AND :to")
+    BigDecimal sumTotalAmountBetweenByStore(@Param("from") java.time.LocalDateTime from, @Param("to") java.time.LocalDateTime to,
+                                            @Param("storeId") Long storeId);
+
     // Use native Postgres DATE() to group by day
     @Query(value = "SELECT DATE(sale_date) AS date, COALESCE(SUM(total_amount), 0) AS total " +
             "FROM sale_transactions " +
@@ -69,6 +86,40 @@ public interface SaleTransactionRepository extends JpaRepository<SaleTransaction
             "GROUP BY year ORDER BY year", nativeQuery = true)
     List<Object[]> getRevenueByYearAndStore(@Param("from") java.time.LocalDateTime from, @Param("to") java.time.LocalDateTime to, @Param("storeId") Long storeId);
 
+    // Tổng doanh thu theo nhóm (hour/cashier/shift) tính trên created_at (fallback sale_date): [bucket, cashierId, totalAmount, orderCount]
+    @Query(value = "SELECT g.bucket, MIN(g.created_by) AS cashier_id, SUM(g.total_amount) AS total_amount, COUNT(*) AS order_count FROM (" +
+            "SELECT CASE :groupBy " +
+            "WHEN 'hour' THEN TO_CHAR(DATE_TRUNC('hour', COALESCE(s.created_at, s.sale_date)), 'YYYY-MM-DD\"T\"HH24:MI') " +
+            "WHEN 'cashier' THEN 'cashier-' || COALESCE(CAST(s.created_by AS VARCHAR), 'unknown') " +
+            "ELSE CASE WHEN EXTRACT(HOUR FROM COALESCE(s.created_at, s.sale_date)) BETWEEN 6 AND 11 THEN 'Ca sáng (06:00-12:00)' " +
+            "WHEN EXTRACT(HOUR FROM COALESCE(s.created_at, s.sale_date)) BETWEEN 12 AND 17 THEN 'Ca chiều (12:00-18:00)' " +
+            "ELSE 'Ca tối (18:00-06:00)' END END AS bucket, s.created_by, s.total_amount " +
+            "FROM sale_transactions s " +
+            "WHERE s.deleted_at IS NULL AND s.deleted_by IS NULL AND s.status = 'COMPLETE' " +
+            "AND s.sale_date IS NOT NULL AND s.total_amount IS NOT NULL " +
+            "AND COALESCE(s.created_at, s.sale_date) BETWEEN :from AND :to " +
+            "AND (CAST(:cashierId AS BIGINT) IS NULL OR s.created_by = :cashierId)" +
+            ") g GROUP BY g.bucket", nativeQuery = true)
+    List<Object[]> sumSalesGrouped(@Param("from") java.time.LocalDateTime from, @Param("to") java.time.LocalDateTime to,
+                                   @Param("groupBy") String groupBy, @Param("cashierId") Long cashierId);
+
+    @Query(value = "SELECT g.bucket, MIN(g.created_by) AS cashier_id, SUM(g.total_amount) AS total_amount, COUNT(*) AS order_count FROM (" +
+            "SELECT CASE :groupBy " +
+            "WHEN 'hour' THEN TO_CHAR(DATE_TRUNC('hour', COALESCE(s.created_at, s.sale_date)), 'YYYY-MM-DD\"T\"HH24:MI') " +
+            "WHEN 'cashier' THEN 'cashier-' || COALESCE(CAST(s.created_by AS VARCHAR), 'unknown') " +
+            "ELSE CASE WHEN EXTRACT(HOUR FROM COALESCE(s.created_at, s.sale_date)) BETWEEN 6 AND 11 THEN 'Ca sáng (06:00-12:00)' " +
+            "WHEN EXTRACT(HOUR FROM COALESCE(s.created_at, s.sale_date)) BETWEEN 12 AND 17 THEN 'Ca chiều (12:00-18:00)' " +
+            "ELSE 'Ca tối (18:00-06:00)' END END AS bucket, s.created_by, s.total_amount " +
+            "FROM sale_transactions s " +
+            "WHERE s.deleted_at IS NULL AND s.deleted_by IS NULL AND s.status = 'COMPLETE' AND s.store_id = :storeId " +
+            "AND s.sale_date IS NOT NULL AND s.total_amount IS NOT NULL " +
+            "AND COALESCE(s.created_at, s.sale_date) BETWEEN :from AND :to " +
+            "AND (CAST(:cashierId AS BIGINT) IS NULL OR s.created_by = :cashierId)" +
+            ") g GROUP BY g.bucket", nativeQuery = true)
+    List<Object[]> sumSalesGroupedByStore(@Param("from") java.time.LocalDateTime from, @Param("to") java.time.LocalDateTime to,
+                                          @Param("groupBy") String groupBy, @Param("cashierId") Long cashierId,
+                                          @Param("storeId") Long storeId);
+
     // Thống kê khách hàng top theo doanh thu
     @Query("SELECT s.customer.name, SUM(s.totalAmount) as totalAmount, COUNT(s.id) as orderCount FROM SaleTransaction s WHERE s.deletedAt IS NULL AND s.saleDate BETWEEN :from AND :to AND s.status = 'COMPLETE' GROUP BY s.customer.id, s.customer.name ORDER BY totalAmount DESC")
     List<Object[]> getTopCustomers(@Param("from") java.time.LocalDateTime from, @Param("to") java.time.LocalDateTime to, org.springframework.data.domain.Pageable pageable);
@@ -87,6 +138,11 @@ public interface SaleTransactionRepository extends JpaRepository<SaleTransaction
     boolean existsByStocktakeId(Long stocktakeId);
     long countByStocktakeId(Long stocktakeId);
     long countByStocktakeIdAndStatus(Long stocktakeId, SaleTransactionStatus status);
+
+    // Đếm PCB theo nhiều phiếu kiểm kê trong một lần: [stocktakeId, count]
+    @Query("SELECT s.stocktakeId, COUNT(s) FROM SaleTransaction s WHERE s.stocktakeId IN :stocktakeIds AND s.status = :status GROUP BY s.stocktakeId")
+    List<Object[]> countByStocktakeIdsAndStatus(@Param("stocktakeIds") java.util.Collection<Long> stocktakeIds,
+                                                @Param("status") SaleTransactionStatus status);
     
     // Thêm method để lấy PCB theo stocktakeId
     List<SaleTransaction> findByStocktakeIdAndStatus(Long stocktakeId, SaleTransactionStatus status);
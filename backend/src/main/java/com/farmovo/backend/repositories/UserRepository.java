@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,4 +41,11 @@ public interface UserRepository extends JpaRepository<User, Long>, org.springfra
     // Thêm method để tìm user theo store
     List<User> findByStoreId(Long storeId);
 
+    @Query("SELECT u.id FROM User u WHERE u.store.id = :storeId")
+    List<Long> findIdsByStoreId(@Param("storeId") Long storeId);
+
+    // Tên hiển thị theo id: [id, fullName, username]
+    @Query("SELECT u.id, u.fullName, u.username FROM User u WHERE u.id IN :ids")
+    List<Object[]> findDisplayNamesByIds(@Param("ids") Collection<Long> ids);
+
 }
@@ -1,6 +1,7 @@
 package com.farmovo.backend.services;
 
 import com.farmovo.backend.dto.request.ChangeStatusLogFilterRequestDTO;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.response.ChangeStatusLogResponseDTO;
 import com.farmovo.backend.models.ChangeStatusLog;
 import org.springframework.data.domain.Page;
@@ -12,6 +13,9 @@ public interface ChangeStatusLogService {
                          String nextStatus, String description);
     Page<ChangeStatusLog> getAllLogs(ChangeStatusLogFilterRequestDTO filterRequest, Pageable pageable);
 
+    // Giống getAllLogs nhưng phân trang theo cursor (created_at, id), không đếm tổng
+    CursorPageResponse<ChangeStatusLog> getAllLogsByCursor(ChangeStatusLogFilterRequestDTO filterRequest, String cursor, Integer size);
+
     ChangeStatusLogResponseDTO getChangeStatusLogById(Long id);
 
     List<ChangeStatusLogResponseDTO> getLogsByModel(String modelName, Long modelId);
@@ -0,0 +1,22 @@
+package com.farmovo.backend.services;
+
+import com.farmovo.backend.models.ImportTransaction;
+import com.farmovo.backend.models.SaleTransaction;
+
+public interface DailyStoreRollupService {
+
+    // Cộng phiếu bán vừa hoàn thành vào bảng tổng hợp
+    void recordSaleCompleted(SaleTransaction transaction);
+
+    // Trừ phiếu bán đã hoàn thành khi bị hủy hoặc xóa
+    void revertSale(SaleTransaction transaction);
+
+    void recordImportCompleted(ImportTransaction transaction);
+
+    void revertImport(ImportTransaction transaction);
+
+    // Tính lại toàn bộ bảng tổng hợp từ sale_transactions/import_transactions
+    void rebuild();
+
+    boolean isEmpty();
+}
@@ -33,7 +33,8 @@ public interface ImportTransactionDetailService {
 
     void updateRemainQuantity(Long id, Integer remainQuantity);
 
-    ImportDetailLotDto updateRemainQuantityAndReturnDto(Long id, Integer remainQuantity);
+    // previousRemainQuantity: giá trị client đã đọc; có thì chỉ áp dụng phần chênh lệch, null thì ghi đè
+    ImportDetailLotDto updateRemainQuantityAndReturnDto(Long id, Integer remainQuantity, Integer previousRemainQuantity);
 
     void completeImportDetail(Long id);
 
@@ -1,13 +1,17 @@
 package com.farmovo.backend.services;
 
 import com.farmovo.backend.dto.request.CreateImportTransactionRequestDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.response.ImportTransactionResponseDto;
 import com.farmovo.backend.models.ImportTransaction;
 import com.farmovo.backend.models.ImportTransactionStatus;
+import com.farmovo.backend.utils.PdfBulkExporter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -40,6 +44,22 @@ public interface ImportTransactionService {
             Pageable pageable
     );
 
+    // Giống listAllImportTransaction nhưng phân trang theo cursor (created_at, id), không đếm tổng
+    CursorPageResponse<ImportTransactionResponseDto> listAllImportTransactionByCursor(
+            String name,
+            String supplierName,
+            Long storeId,
+            Long staffId,
+            Long createdBy,
+            ImportTransactionStatus status,
+            LocalDateTime fromDate,
+            LocalDateTime toDate,
+            BigDecimal minTotalAmount,
+            BigDecimal maxTotalAmount,
+            String cursor,
+            Integer size
+    );
+
     CreateImportTransactionRequestDto getImportTransactionById(Long id);
 
     void cancel(Long id);
@@ -57,5 +77,13 @@ public interface ImportTransactionService {
 
     void softDeleteImportTransaction(Long id, Long userId);
 
-    byte[] exportImportPdf(Long id);
+    StreamingResponseBody exportImportPdf(Long id);
+
+    // Xuất tất cả phiếu khớp bộ lọc (cùng tiêu chí với list-all) thành một PDF gộp hoặc ZIP
+    ResponseEntity<StreamingResponseBody> exportImportPdfBulk(String name, String supplierName, Long storeId,
+                                                              Long staffId, Long createdBy,
+                                                              ImportTransactionStatus status,
+                                                              LocalDateTime fromDate, LocalDateTime toDate,
+                                                              BigDecimal minTotalAmount, BigDecimal maxTotalAmount,
+                                                              PdfBulkExporter.Format format);
 }
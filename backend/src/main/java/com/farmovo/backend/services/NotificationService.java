@@ -2,6 +2,7 @@ package com.farmovo.backend.services;
 
 import com.farmovo.backend.dto.CreateNotificationDto;
 import com.farmovo.backend.dto.NotificationDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -16,6 +17,9 @@ public interface NotificationService {
     // Lấy tất cả notification của user
     Page<NotificationDto> getUserNotifications(Long userId, Long storeId, Pageable pageable);
     
+    // Lấy notification của user theo cursor (created_at, id), không đếm tổng
+    CursorPageResponse<NotificationDto> getUserNotificationsByCursor(Long userId, Long storeId, String cursor, Integer size);
+    
     // Lấy tất cả notification của store (cho Staff xem)
     Page<NotificationDto> getStoreNotifications(Long storeId, Pageable pageable);
     
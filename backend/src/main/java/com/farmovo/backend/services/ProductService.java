@@ -11,6 +11,9 @@ import java.util.List;
 public interface ProductService {
     List<ProductDto> getAllProductDto();
 
+    // Tìm theo tên/mã (không dấu), tối đa limit kết quả, giống nhất trước
+    List<ProductDto> searchProducts(String keyword, Long storeId, int limit);
+
     ProductDto getProductNameById(Long id);
 
     List<ProductSaleResponseDto> getAllProductSaleDto();
@@ -0,0 +1,17 @@
+package com.farmovo.backend.services;
+
+import com.farmovo.backend.dto.response.CategoryRemainSummaryDto;
+import com.farmovo.backend.dto.response.ExpiringLotExtendedDto;
+import com.farmovo.backend.dto.response.InOutSummaryDto;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+public interface ReportExportService {
+    ResponseEntity<StreamingResponseBody> exportInOutSummary(List<InOutSummaryDto> rows, String filename);
+
+    ResponseEntity<StreamingResponseBody> exportRemainSummary(List<CategoryRemainSummaryDto> categories, String filename);
+
+    ResponseEntity<StreamingResponseBody> exportExpiringLots(List<ExpiringLotExtendedDto> lots, String filename);
+}
@@ -0,0 +1,18 @@
+package com.farmovo.backend.services;
+
+import com.farmovo.backend.dto.response.ProductSaleResponseDto;
+import com.farmovo.backend.models.SaleTransaction;
+
+import java.util.List;
+
+public interface SaleTransactionLineService {
+
+    // Ghi lại toàn bộ dòng chi tiết của phiếu bán (xóa dòng cũ nếu có)
+    void replaceLines(SaleTransaction transaction, List<ProductSaleResponseDto> detail);
+
+    // Chỉ ghi nếu phiếu chưa có dòng chi tiết (phiếu tạo trước khi có bảng lines)
+    void ensureLines(SaleTransaction transaction, List<ProductSaleResponseDto> detail);
+
+    // Backfill một lô phiếu bán chưa có dòng chi tiết, trả về id phiếu cuối cùng đã xử lý (null nếu hết)
+    Long backfillBatch(Long afterId, int batchSize);
+}
@@ -1,14 +1,18 @@
 package com.farmovo.backend.services;
 
 import com.farmovo.backend.dto.request.CreateSaleTransactionRequestDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.response.ProductSaleResponseDto;
 import com.farmovo.backend.dto.response.SaleTransactionResponseDto;
 import com.farmovo.backend.models.SaleTransaction;
 import com.farmovo.backend.models.SaleTransactionStatus;
+import com.farmovo.backend.utils.PdfBulkExporter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -38,6 +42,23 @@ public interface SaleTransactionService {
                                             Long createdBy,
                                             Pageable pageable);
 
+    // Giống getAll nhưng phân trang theo cursor (created_at, id), không đếm tổng
+    CursorPageResponse<SaleTransactionResponseDto> getAllByCursor(String name,
+                                                                  String customerName,
+                                                                  String storeName,
+                                                                  Long storeId,
+                                                                  SaleTransactionStatus status,
+                                                                  LocalDateTime fromDate,
+                                                                  LocalDateTime toDate,
+                                                                  BigDecimal minTotalAmount,
+                                                                  BigDecimal maxTotalAmount,
+                                                                  BigDecimal minPaidAmount,
+                                                                  BigDecimal maxPaidAmount,
+                                                                  String note,
+                                                                  Long createdBy,
+                                                                  String cursor,
+                                                                  Integer size);
+
 
     void cancel(Long id);
 
@@ -52,7 +73,16 @@ public interface SaleTransactionService {
 
     void complete(Long id);
 
-    byte[] exportPdf(Long id);
+    StreamingResponseBody exportPdf(Long id);
+
+    // Xuất tất cả phiếu khớp bộ lọc (cùng tiêu chí với list-all) thành một PDF gộp hoặc ZIP
+    ResponseEntity<StreamingResponseBody> exportPdfBulk(String name, String customerName, String storeName,
+                                                        Long storeId, SaleTransactionStatus status,
+                                                        LocalDateTime fromDate, LocalDateTime toDate,
+                                                        BigDecimal minTotalAmount, BigDecimal maxTotalAmount,
+                                                        BigDecimal minPaidAmount, BigDecimal maxPaidAmount,
+                                                        String note, Long createdBy,
+                                                        PdfBulkExporter.Format format);
 
     List<SaleTransaction> findRecentSales(PageRequest pageRequest);
 
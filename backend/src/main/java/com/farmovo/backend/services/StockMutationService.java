@@ -0,0 +1,22 @@
+package com.farmovo.backend.services;
+
+import java.util.function.Supplier;
+
+public interface StockMutationService {
+
+    // Chạy thao tác thay đổi tồn kho trong một transaction riêng, thử lại khi xung đột khóa lạc quan (@Version).
+    // Nếu đã đang ở trong transaction thì chạy trực tiếp một lần (không thể thử lại giữa chừng).
+    <T> T execute(String operation, Supplier<T> mutation);
+
+    // Các hàm dưới cập nhật tồn bằng một câu UPDATE có điều kiện trên DB (không đọc entity rồi ghi lại),
+    // nên không mất cập nhật đồng thời và không gây xung đột @Version; chạy trong transaction của caller nếu có.
+
+    // Cộng delta (có thể âm) vào tồn lô; ném IllegalArgumentException nếu không có lô hoặc tồn sẽ âm
+    void addLotRemainQuantity(Long lotId, int delta);
+
+    // Ghi đè tồn lô bằng giá trị tuyệt đối, chỉ dùng khi người dùng chủ động đặt lại số lượng
+    void setLotRemainQuantity(Long lotId, int remainQuantity);
+
+    // Trả về false nếu không tìm thấy sản phẩm hoặc tồn sẽ âm
+    boolean addProductQuantity(Long productId, int delta);
+}
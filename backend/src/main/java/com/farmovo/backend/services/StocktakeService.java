@@ -2,8 +2,8 @@ package com.farmovo.backend.services;
 
 import com.farmovo.backend.dto.request.StocktakeRequestDto;
 import com.farmovo.backend.dto.response.StocktakeResponseDto;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -20,7 +20,7 @@ public interface StocktakeService {
 
     StocktakeResponseDto updateStocktake(Long id, StocktakeRequestDto requestDto);
 
-    ResponseEntity<ByteArrayResource> exportStocktakeToExcel(Long id) throws Exception;
+    ResponseEntity<StreamingResponseBody> exportStocktakeToExcel(Long id) throws Exception;
 
     void deleteStocktakeById(Long id);
 
@@ -6,6 +6,7 @@ import com.farmovo.backend.dto.response.ZoneResponseDto;
 import com.farmovo.backend.models.Zone;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ZoneService {
     List<ZoneDto> getAllZoneDtos();
@@ -21,4 +22,7 @@ public interface ZoneService {
     List<Zone> getAllZoneEntities();
 
     List<ZoneResponseDto> getZonesByStoreId(Long storeId);
+
+    // zoneId -> zoneName, dùng để hiển thị tên zone trong báo cáo
+    Map<Long, String> getZoneNamesById();
 }
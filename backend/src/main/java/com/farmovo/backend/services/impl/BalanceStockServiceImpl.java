@@ -9,6 +9,10 @@ import com.farmovo.backend.services.BalanceStockService;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import com.farmovo.backend.repositories.StocktakeRepository;
 import com.farmovo.backend.models.Stocktake;
 import com.farmovo.backend.models.SaleTransactionStatus;
@@ -284,6 +288,8 @@ public class BalanceStockServiceImpl implements BalanceStockService {
         log.info("Converting {} stocktake details to import balance data", stocktakeDetails.size());
 
         List<ImportBalanceDataDto> result = new ArrayList<>();
+        // Id lô tương ứng với từng dòng của result (null nếu không tìm thấy lô)
+        List<Long> lotIdByRow = new ArrayList<>();
 
         for (StocktakeDetailDto stocktakeDetail : stocktakeDetails) {
             try {
@@ -320,7 +326,6 @@ public class BalanceStockServiceImpl implements BalanceStockService {
                 BigDecimal unitImportPrice = new BigDecimal("1000"); // Giá mặc định
                 BigDecimal unitSalePrice = new BigDecimal("1500");
                 String batchCode = stocktakeDetail.getBatchCode() != null ? stocktakeDetail.getBatchCode() : "Lô mới";
-                List<Long> zoneIds = new ArrayList<>();
 
                 // Tìm lô theo batchCode cụ thể trước
                 if (stocktakeDetail.getBatchCode() != null) {
@@ -359,30 +364,15 @@ public class BalanceStockServiceImpl implements BalanceStockService {
                     unitImportPrice = targetLot.getUnitImportPrice() != null ? targetLot.getUnitImportPrice() : new BigDecimal("1000");
                     unitSalePrice = targetLot.getUnitSalePrice() != null ? targetLot.getUnitSalePrice() : new BigDecimal("1500");
 
-                    // Lấy zones_id
-                    if (targetLot.getZones_id() != null && !targetLot.getZones_id().isEmpty()) {
-                        try {
-                            // Parse zones_id từ string JSON thành List<Long>
-                            String zonesStr = targetLot.getZones_id().replaceAll("[\\[\\]\\s]", "");
-                            if (!zonesStr.isEmpty()) {
-                                for (String zoneId : zonesStr.split(",")) {
-                                    zoneIds.add(Long.parseLong(zoneId.trim()));
-                                }
-                            }
-                        } catch (Exception e) {
-                            log.warn("Error parsing zones_id: {}", targetLot.getZones_id());
-                        }
-                    }
-
                     balanceData.setExpireDate(targetLot.getExpireDate());
                 }
 
                 balanceData.setBatchCode(batchCode);
                 balanceData.setUnitImportPrice(unitImportPrice);
                 balanceData.setUnitSalePrice(unitSalePrice);
-                balanceData.setZones_id(zoneIds);
 
                 result.add(balanceData);
+                lotIdByRow.add(targetLot != null ? targetLot.getId() : null);
 
             } catch (Exception e) {
                 log.error("Error converting stocktake detail to import balance data: {}", e.getMessage(), e);
@@ -390,6 +380,19 @@ public class BalanceStockServiceImpl implements BalanceStockService {
             }
         }
 
+        // Zone của các lô lấy từ bảng lot_zone bằng một truy vấn cho tất cả dòng
+        Set<Long> lotIds = lotIdByRow.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, List<Long>> zonesByLot = new HashMap<>();
+        if (!lotIds.isEmpty()) {
+            for (Object[] row : importTransactionDetailRepository.findZoneIdsByLotIds(lotIds)) {
+                zonesByLot.computeIfAbsent(((Number) row[0]).longValue(), k -> new ArrayList<>())
+                        .add(((Number) row[1]).longValue());
+            }
+        }
+        for (int i = 0; i < result.size(); i++) {
+            result.get(i).setZones_id(new ArrayList<>(zonesByLot.getOrDefault(lotIdByRow.get(i), List.of())));
+        }
+
         log.info("Successfully converted {} stocktake details to {} import balance data",
             stocktakeDetails.size(), result.size());
         return result;
@@ -1,5 +1,6 @@
 package com.farmovo.backend.services.impl;
 
+import com.farmovo.backend.config.CacheConfig;
 import com.farmovo.backend.dto.request.CategoryRequestDto;
 import com.farmovo.backend.dto.response.CategoryResponseDto;
 import com.farmovo.backend.exceptions.BadRequestException;
@@ -12,6 +13,8 @@ import com.farmovo.backend.repositories.ProductRepository;
 import com.farmovo.backend.services.CategoryService;
 import com.farmovo.backend.validator.CategoryValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -36,6 +39,7 @@ public class CategoryServiceImpl implements CategoryService {
 	private ProductRepository productRepository;
 
 	@Override
+	@Cacheable(CacheConfig.CATEGORIES)
 	public List<CategoryResponseDto> getAllActiveCategories() {
 		return categoryRepository.findAll()
 				.stream()
@@ -44,6 +48,7 @@ public class CategoryServiceImpl implements CategoryService {
 	}
 
 	@Override
+	@CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
 	public CategoryResponseDto createCategory(CategoryRequestDto request) {
 		categoryValidator.validate(request);
 		// Kiểm tra trùng tên
@@ -56,6 +61,7 @@ public class CategoryServiceImpl implements CategoryService {
 	}
 
 	@Override
+	@CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
 	public CategoryResponseDto updateCategory(Long id, CategoryRequestDto request) {
 		categoryValidator.validate(request);
 		Category category = categoryRepository.findById(id)
@@ -73,6 +79,7 @@ public class CategoryServiceImpl implements CategoryService {
 	}
 
 	@Override
+	@CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
 	public void deleteCategory(Long id, boolean force) {
 		Category category = categoryRepository.findById(id)
 				.orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + id));
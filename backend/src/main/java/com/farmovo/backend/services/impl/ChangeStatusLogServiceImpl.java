@@ -1,15 +1,16 @@
 package com.farmovo.backend.services.impl;
 
 import com.farmovo.backend.dto.request.ChangeStatusLogFilterRequestDTO;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.response.ChangeStatusLogResponseDTO;
 import com.farmovo.backend.exceptions.ResourceNotFoundException;
 import com.farmovo.backend.mapper.ChangeStatusLogMapper;
 import com.farmovo.backend.models.ChangeStatusLog;
 import com.farmovo.backend.repositories.ChangeStatusLogRepository;
 import com.farmovo.backend.services.ChangeStatusLogService;
-import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.specification.ChangeStatusLogSpecification;
-import jakarta.servlet.http.HttpServletRequest;
+import com.farmovo.backend.utils.KeysetPagination;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,8 +28,10 @@ public class ChangeStatusLogServiceImpl implements ChangeStatusLogService {
     private static final Logger log = LogManager.getLogger(ChangeStatusLogServiceImpl.class);
     private final ChangeStatusLogRepository repository;
     private final ChangeStatusLogMapper changeStatusLogMapper;
-    private final JwtUtils jwtUtils;
-    private final HttpServletRequest request;
+    private final AuthContext authContext;
+
+    // null: chưa kiểm tra; kiểm tra một lần khi đọc lần đầu
+    private volatile Boolean latestTableAvailable;
 
     @Override
     public void logStatusChange(String modelName, Long modelId, String previousStatus, String nextStatus, String description) {
@@ -41,15 +44,7 @@ public class ChangeStatusLogServiceImpl implements ChangeStatusLogService {
         logEntity.setNextStatus(nextStatus);
         logEntity.setDescription(description);
 
-        String token = jwtUtils.getJwtFromHeader(request);
-        if (token == null) {
-            token = jwtUtils.getJwtFromCookies(request);
-        }
-
-        Long userId = null;
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            userId = jwtUtils.getUserIdFromJwtToken(token);
-        }
+        Long userId = authContext.getUserId();
 
         logEntity.setCreatedBy(userId);
         log.info("User ID performing the change: {}", userId);
@@ -67,6 +62,13 @@ public class ChangeStatusLogServiceImpl implements ChangeStatusLogService {
         return result;
     }
 
+    @Override
+    public CursorPageResponse<ChangeStatusLog> getAllLogsByCursor(ChangeStatusLogFilterRequestDTO filterRequest, String cursor, Integer size) {
+        log.info("Fetching ChangeStatusLogs by cursor with filters: {}", filterRequest);
+        Specification<ChangeStatusLog> spec = ChangeStatusLogSpecification.build(filterRequest);
+        return KeysetPagination.fetch(repository, spec, cursor, size, ChangeStatusLog::getId);
+    }
+
     @Override
     public ChangeStatusLogResponseDTO getChangeStatusLogById(Long id) {
         log.info("Fetching ChangeStatusLog by ID: {}", id);
@@ -89,7 +91,9 @@ public class ChangeStatusLogServiceImpl implements ChangeStatusLogService {
     @Override
     public List<ChangeStatusLogResponseDTO> getLatestLogsForEachSource() {
         log.info("Fetching latest ChangeStatusLogs for each source");
-        List<ChangeStatusLog> logs = repository.findLatestLogsForEachSource();
+        List<ChangeStatusLog> logs = isLatestTableAvailable()
+                ? repository.findLatestLogsForEachSource()
+                : repository.findLatestLogsForEachSourceByScan();
         log.info("Found {} latest logs", logs.size());
         return changeStatusLogMapper.toDtoList(logs);
     }
@@ -97,8 +101,29 @@ public class ChangeStatusLogServiceImpl implements ChangeStatusLogService {
     @Override
     public List<ChangeStatusLogResponseDTO> getLatestLogsForEachSourceByModel(String modelName) {
         log.info("Fetching latest ChangeStatusLogs for each source by modelName={}", modelName);
-        List<ChangeStatusLog> logs = repository.findLatestLogsForEachSourceByModel(modelName);
+        List<ChangeStatusLog> logs = isLatestTableAvailable()
+                ? repository.findLatestLogsForEachSourceByModel(modelName)
+                : repository.findLatestLogsForEachSourceByModelByScan(modelName);
         log.info("Found {} latest logs for model {}", logs.size(), modelName);
         return changeStatusLogMapper.toDtoList(logs);
     }
-} 
\ No newline at end of file
+
+    // change_status_latest do V5 migration tạo; DB chưa chạy migration (Flyway tắt) thì quét bảng nhật ký như cũ
+    private boolean isLatestTableAvailable() {
+        Boolean available = latestTableAvailable;
+        if (available == null) {
+            try {
+                available = repository.existsLatestTable();
+            } catch (Exception e) {
+                // Không nhớ kết quả, lần sau kiểm tra lại
+                log.warn("Could not check change_status_latest, using full scan: {}", e.getMessage());
+                return false;
+            }
+            if (!available) {
+                log.warn("change_status_latest not found, latest status logs use full scan");
+            }
+            latestTableAvailable = available;
+        }
+        return available;
+    }
+}
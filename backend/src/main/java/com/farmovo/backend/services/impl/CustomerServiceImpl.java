@@ -7,6 +7,7 @@ import com.farmovo.backend.mapper.CustomerMapper;
 import com.farmovo.backend.models.Customer;
 import com.farmovo.backend.repositories.CustomerRepository;
 import com.farmovo.backend.services.CustomerService;
+import com.farmovo.backend.specification.CustomerSpecification;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -75,7 +76,8 @@ public class CustomerServiceImpl implements CustomerService {
 
         Page<Customer> page;
         if (search != null && !search.trim().isEmpty()) {
-            page = customerRepository.findByNameContainingIgnoreCaseAndActive(search.trim(), pageable);
+            page = customerRepository.findAll(Specification.where(CustomerSpecification.isNotDeleted())
+                    .and(CustomerSpecification.hasName(search.trim())), pageable);
         } else {
             page = customerRepository.findAllActive(pageable);
         }
@@ -100,7 +102,8 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     public List<CustomerResponseDto> searchCustomersByName(String name) {
         logger.info("Searching customers by name: {}", name);
-        return customerRepository.findByNameContainingIgnoreCaseAndActive(name).stream()
+        return customerRepository.findAll(Specification.where(CustomerSpecification.isNotDeleted())
+                        .and(CustomerSpecification.hasName(name))).stream()
                 .map(this::mapToResponseDto)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,101 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.models.ImportTransaction;
+import com.farmovo.backend.models.SaleTransaction;
+import com.farmovo.backend.repositories.DailyStoreRollupRepository;
+import com.farmovo.backend.services.DailyStoreRollupService;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+@Service
+@RequiredArgsConstructor
+public class DailyStoreRollupServiceImpl implements DailyStoreRollupService {
+
+    private static final Logger log = LogManager.getLogger(DailyStoreRollupServiceImpl.class);
+
+    // Phiếu không gắn kho được gom vào store_id = 0
+    private static final Long NO_STORE = 0L;
+
+    private final DailyStoreRollupRepository rollupRepository;
+
+    @Override
+    @Transactional
+    public void recordSaleCompleted(SaleTransaction transaction) {
+        applySale(transaction, 1);
+    }
+
+    @Override
+    @Transactional
+    public void revertSale(SaleTransaction transaction) {
+        applySale(transaction, -1);
+    }
+
+    @Override
+    @Transactional
+    public void recordImportCompleted(ImportTransaction transaction) {
+        applyImport(transaction, 1);
+    }
+
+    @Override
+    @Transactional
+    public void revertImport(ImportTransaction transaction) {
+        applyImport(transaction, -1);
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        // Không cho upsert của phiếu hoàn thành/hủy chen vào giữa lúc xóa và dựng lại
+        rollupRepository.lockForRebuild();
+        rollupRepository.deleteAllRows();
+        int saleRows = rollupRepository.rebuildSales();
+        int importRows = rollupRepository.rebuildImports();
+        log.info("Rebuilt daily_store_rollup: {} sale rows, {} import rows in {} ms",
+                saleRows, importRows, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return rollupRepository.count() == 0;
+    }
+
+    private void applySale(SaleTransaction transaction, int sign) {
+        if (transaction == null || transaction.getSaleDate() == null) {
+            return;
+        }
+        BigDecimal total = nvl(transaction.getTotalAmount());
+        BigDecimal paid = nvl(transaction.getPaidAmount());
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        rollupRepository.addSale(storeIdOf(transaction.getStore() != null ? transaction.getStore().getId() : null),
+                transaction.getSaleDate().toLocalDate(),
+                total.multiply(factor), sign, paid.multiply(factor), total.subtract(paid).multiply(factor));
+        log.debug("Applied sale transaction ID: {} to daily rollup (sign {})", transaction.getId(), sign);
+    }
+
+    private void applyImport(ImportTransaction transaction, int sign) {
+        if (transaction == null || transaction.getImportDate() == null) {
+            return;
+        }
+        BigDecimal total = nvl(transaction.getTotalAmount());
+        BigDecimal paid = nvl(transaction.getPaidAmount());
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        rollupRepository.addImport(storeIdOf(transaction.getStore() != null ? transaction.getStore().getId() : null),
+                transaction.getImportDate().toLocalDate(),
+                total.multiply(factor), sign, paid.multiply(factor), total.subtract(paid).multiply(factor));
+        log.debug("Applied import transaction ID: {} to daily rollup (sign {})", transaction.getId(), sign);
+    }
+
+    private Long storeIdOf(Long storeId) {
+        return storeId != null ? storeId : NO_STORE;
+    }
+
+    private BigDecimal nvl(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
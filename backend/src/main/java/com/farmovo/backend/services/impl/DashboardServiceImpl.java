@@ -21,6 +21,8 @@ public class DashboardServiceImpl implements DashboardService {
     private SaleTransactionRepository saleTransactionRepository;
     @Autowired
     private ReportService reportService;
+    @Autowired
+    private DailyStoreRollupRepository dailyStoreRollupRepository;
 
     @Override
     public DashboardSummaryDto getSummary() {
@@ -28,9 +30,10 @@ public class DashboardServiceImpl implements DashboardService {
         dto.setTotalProducts(productRepository.count());
         dto.setTotalCustomers(customerRepository.count());
         dto.setTotalSuppliers(customerRepository.countSuppliers());
-        dto.setTotalImportOrders(importTransactionRepository.count());
-        dto.setTotalExportOrders(saleTransactionRepository.count());
-        dto.setTotalRevenue(saleTransactionRepository.sumTotalAmount());
+        // Số phiếu và doanh thu lấy từ bảng tổng hợp daily_store_rollup (phiếu COMPLETE)
+        dto.setTotalImportOrders(dailyStoreRollupRepository.sumImportCount());
+        dto.setTotalExportOrders(dailyStoreRollupRepository.sumSaleCount());
+        dto.setTotalRevenue(dailyStoreRollupRepository.sumRevenue());
         dto.setExpiringLots(reportService.getExpiringLots(7, null).size()); // null = all stores
         return dto;
     }
@@ -43,11 +46,11 @@ public class DashboardServiceImpl implements DashboardService {
         dto.setTotalProducts(productRepository.countByStoreId(storeId));
         dto.setTotalCustomers(customerRepository.count()); // Khách hàng chung cho tất cả kho
         dto.setTotalSuppliers(customerRepository.countSuppliers()); // Nhà cung cấp chung
-        dto.setTotalImportOrders(importTransactionRepository.countByStoreId(storeId));
-        dto.setTotalExportOrders(saleTransactionRepository.countByStoreId(storeId));
+        dto.setTotalImportOrders(dailyStoreRollupRepository.sumImportCountByStore(storeId));
+        dto.setTotalExportOrders(dailyStoreRollupRepository.sumSaleCountByStore(storeId));
 
         // Tính tổng doanh thu theo kho
-        BigDecimal storeRevenue = saleTransactionRepository.sumTotalAmountByStoreId(storeId);
+        BigDecimal storeRevenue = dailyStoreRollupRepository.sumRevenueByStore(storeId);
         dto.setTotalRevenue(storeRevenue != null ? storeRevenue : BigDecimal.ZERO);
 
         dto.setExpiringLots(reportService.getExpiringLots(7, storeId).size());
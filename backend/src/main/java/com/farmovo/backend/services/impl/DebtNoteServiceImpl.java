@@ -182,34 +182,27 @@ public class DebtNoteServiceImpl implements DebtNoteService {
 
 
     /**
-     * Cập nhật totalDebt bằng cách cộng thêm debtAmount mới (hiệu suất cao hơn)
+     * Cộng debtAmount vào totalDebt bằng một câu UPDATE nguyên tử ('+' tăng nợ, '-' giảm nợ)
      * @param customerId ID của customer
      * @param debtAmount Số tiền nợ mới
      * @param debtType Loại nợ ('+' hoặc '-')
      */
     private void updateCustomerTotalDebtIncremental(Long customerId, BigDecimal debtAmount, String debtType) {
-        Customer customer = getCustomerOrThrow(customerId);
-        BigDecimal currentTotalDebt = customer.getTotalDebt() != null ? customer.getTotalDebt() : BigDecimal.ZERO;
-        
-        // Tính toán số tiền cần cộng vào totalDebt
-        BigDecimal amountToAdd;
+        BigDecimal delta;
         if ("+".equals(debtType)) {
             // Import debt: cộng thêm (tăng nợ)
-            amountToAdd = debtAmount;
+            delta = debtAmount;
         } else if ("-".equals(debtType)) {
             // Sale debt: trừ đi (giảm nợ)
-            amountToAdd = debtAmount.negate();
+            delta = debtAmount.negate();
         } else {
-            // Trường hợp khác: giữ nguyên
-            amountToAdd = BigDecimal.ZERO;
+            return;
         }
-        
-        BigDecimal newTotalDebt = currentTotalDebt.add(amountToAdd);
-        customer.setTotalDebt(newTotalDebt);
-        customerRepository.save(customer);
-        
-        logger.debug("Updated total debt incrementally for customer ID: {}: current={}, added={}, new={}", 
-                    customerId, currentTotalDebt, amountToAdd, newTotalDebt);
+        int updated = customerRepository.incrementTotalDebt(customerId, delta);
+        if (updated == 0) {
+            logger.warn("Customer ID: {} not updated when adding debt {}", customerId, delta);
+        }
+        logger.debug("Updated total debt incrementally for customer ID: {}: added={}", customerId, delta);
     }
 
 
@@ -11,6 +11,7 @@ import com.farmovo.backend.models.Zone;
 import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
 import com.farmovo.backend.services.ImportTransactionDetailService;
 import com.farmovo.backend.services.ProductService;
+import com.farmovo.backend.services.StockMutationService;
 import com.farmovo.backend.services.ZoneService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,6 +35,7 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     private final ProductService productService;
     private final ImportTransactionDetailLotMapper importDetailLotMapper;
     private final ObjectMapper objectMapper;
+    private final StockMutationService stockMutationService;
 
     @Override
     public List<ImportTransactionDetail> findByProductId(Long productId) {
@@ -49,10 +51,7 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     public List<ZoneResponseDto> getZonesWithProducts() {
         log.debug("Fetching zones with products");
         // Chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status)
-        Set<Long> zoneIds = detailRepository.findAllZoneIdsWithProductsCompleted(ImportTransactionStatus.COMPLETE).stream()
-                .filter(Objects::nonNull)
-                .flatMap(zoneIdStr -> parseZonesId(zoneIdStr).stream())
-                .collect(Collectors.toSet());
+        Set<Long> zoneIds = new HashSet<>(detailRepository.findAllZoneIdsWithProductsCompleted(ImportTransactionStatus.COMPLETE));
         // Lấy thông tin Zone từ ZoneService
         return zoneService.getAllZones().stream()
                 .filter(zone -> zoneIds.contains(zone.getId()))
@@ -63,12 +62,18 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     public List<ProductResponseDto> getProductsByZone(String zoneId) {
         log.debug("Fetching products for zoneId: {}", zoneId);
         // Chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status)
-        List<Long> productIds = detailRepository.findProductIdsByZoneIdCompleted(zoneId, ImportTransactionStatus.COMPLETE);
+        Long id = toZoneId(zoneId);
+        if (id == null) {
+            return new ArrayList<>();
+        }
+        Set<Long> productIds = new HashSet<>(detailRepository.findProductIdsByZoneIdCompleted(id, ImportTransactionStatus.COMPLETE));
+        // Lấy lô của zone một lần cho tất cả sản phẩm
+        List<ImportTransactionDetail> zoneDetails = detailRepository.findByZoneIdCompleted(id, ImportTransactionStatus.COMPLETE);
         List<ProductResponseDto> allProducts = productService.getAllProducts();
         // Lọc sản phẩm theo productIds và enrich thông tin từ ImportTransactionDetail
         return allProducts.stream()
                 .filter(product -> productIds.contains(product.getProId()))
-                .map(product -> enrichProductWithDetails(product, zoneId))
+                .map(product -> enrichProductWithDetails(product, zoneDetails))
                 .collect(Collectors.toList());
     }
 
@@ -76,10 +81,7 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     public List<ZoneResponseDto> getZonesByProduct(Long productId) {
         log.debug("Fetching zones for productId: {}", productId);
         // Chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status)
-        Set<Long> zoneIds = detailRepository.findZoneIdsByProductIdCompleted(productId, ImportTransactionStatus.COMPLETE).stream()
-                .filter(Objects::nonNull)
-                .flatMap(zoneIdStr -> parseZonesId(zoneIdStr).stream())
-                .collect(Collectors.toSet());
+        Set<Long> zoneIds = new HashSet<>(detailRepository.findZoneIdsByProductIdCompleted(productId, ImportTransactionStatus.COMPLETE));
         // Lấy thông tin Zone từ ZoneService
         return zoneService.getAllZones().stream()
                 .filter(zone -> zoneIds.contains(zone.getId()))
@@ -90,7 +92,11 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     public List<ZoneProductDetailDto> getDetailsByZone(String zoneId) {
         log.debug("Fetching details for zoneId: {}", zoneId);
         // Parse từng dòng kết quả từ repository - chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status)
-        return detailRepository.findDetailsByZoneIdCompleted(zoneId, ImportTransactionStatus.COMPLETE).stream()
+        Long id = toZoneId(zoneId);
+        if (id == null) {
+            return new ArrayList<>();
+        }
+        return detailRepository.findDetailsByZoneIdCompleted(id, ImportTransactionStatus.COMPLETE).stream()
                 .map(row -> new ZoneProductDetailDto(
                         (Long) row[0],          // importDetailId
                         (Long) row[1],          // productId
@@ -113,10 +119,7 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
                     .map(zones -> zones.stream().map(Long::parseLong).collect(Collectors.toSet()))
                     .orElse(new HashSet<>());
             // Lấy tất cả zoneId thực tế của sản phẩm từ ImportTransactionDetail (chỉ từ các phiếu nhập đã hoàn thành)
-            Set<Long> actualZoneIds = detailRepository.findZoneIdsByProductIdCompleted(productId, ImportTransactionStatus.COMPLETE).stream()
-                    .filter(Objects::nonNull)
-                    .flatMap(zoneIdStr -> parseZonesId(zoneIdStr).stream())
-                    .collect(Collectors.toSet());
+            Set<Long> actualZoneIds = new HashSet<>(detailRepository.findZoneIdsByProductIdCompleted(productId, ImportTransactionStatus.COMPLETE));
             // Tìm zones còn thiếu
             Set<Long> missingZoneIds = new HashSet<>(actualZoneIds);
             missingZoneIds.removeAll(checkedZoneIds);
@@ -148,21 +151,33 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     @Override
     public List<ImportDetailLotDto> findForStocktakeLot(String store, String zone, String product, Boolean isCheck, String batchCode, String search) {
         log.debug("Finding stocktake lots with filters: store={}, zone={}, product={}, search={}", store, zone, product, search);
-        // Chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status)
-        return detailRepository.findByRemainQuantityGreaterThanAndImportTransactionStatus(0, ImportTransactionStatus.COMPLETE).stream()
-                .filter(row -> filterStocktakeLot(row, store, zone, product, isCheck, batchCode, search))
+        // Chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status); lọc zone bằng join lot_zone
+        List<ImportTransactionDetail> lots;
+        if (zone != null && !zone.isEmpty()) {
+            Long zoneId = toZoneId(zone);
+            if (zoneId == null) {
+                return new ArrayList<>();
+            }
+            lots = detailRepository.findByZoneIdCompleted(zoneId, ImportTransactionStatus.COMPLETE);
+        } else {
+            lots = detailRepository.findByRemainQuantityGreaterThanAndImportTransactionStatus(0, ImportTransactionStatus.COMPLETE);
+        }
+        return lots.stream()
+                .filter(row -> filterStocktakeLot(row, store, product, isCheck, batchCode, search))
                 .map(this::mapToImportDetailLotDto)
                 .collect(Collectors.toList());
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void updateIsCheck(Long id, boolean isCheck) {
         log.debug("Updating isCheck for ImportTransactionDetail id: {}", id);
-        ImportTransactionDetail detail = detailRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
-        detail.setIsCheck(isCheck);
-        detailRepository.save(detail);
+        // Ghi qua entity (@Version): transaction riêng, đọc lại lô và thử lại khi bị cập nhật đồng thời
+        stockMutationService.execute("lot.is-check", () -> {
+            ImportTransactionDetail detail = detailRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
+            detail.setIsCheck(isCheck);
+            return detailRepository.saveAndFlush(detail);
+        });
         log.info("Updated isCheck={} for ImportTransactionDetail id={}", isCheck, id);
     }
 
@@ -170,28 +185,25 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     @Transactional(rollbackFor = Exception.class)
     public void updateRemainQuantity(Long id, Integer remainQuantity) {
         log.debug("Updating remainQuantity for ImportTransactionDetail id: {}", id);
-        ImportTransactionDetail detail = detailRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
-        // Log giá trị trước khi thay đổi
-        log.info("Changing remainQuantity for id={}: {} -> {}", id, detail.getRemainQuantity(), remainQuantity);
-        detail.setRemainQuantity(remainQuantity);
-        ImportTransactionDetail saved = detailRepository.saveAndFlush(detail); // Đảm bảo flush ngay lập tức
-        // Log xác nhận sau khi lưu
-        log.info("Confirmed update remainQuantity for id={}: new value={}", saved.getId(), saved.getRemainQuantity());
+        stockMutationService.setLotRemainQuantity(id, remainQuantity);
+        log.info("Confirmed update remainQuantity for id={}: new value={}", id, remainQuantity);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    public ImportDetailLotDto updateRemainQuantityAndReturnDto(Long id, Integer remainQuantity) {
+    public ImportDetailLotDto updateRemainQuantityAndReturnDto(Long id, Integer remainQuantity, Integer previousRemainQuantity) {
         log.debug("Updating remainQuantity and returning DTO for id: {}", id);
-        ImportTransactionDetail detail = detailRepository.findById(id)
+        if (previousRemainQuantity != null) {
+            // Client gửi kèm giá trị đã đọc: chỉ cộng phần chênh lệch, không ghi đè thay đổi đồng thời
+            stockMutationService.addLotRemainQuantity(id, remainQuantity - previousRemainQuantity);
+        } else {
+            stockMutationService.setLotRemainQuantity(id, remainQuantity);
+        }
+        // Đọc sau câu UPDATE native (lô chưa nằm trong persistence context) để trả về giá trị thực trên DB
+        ImportTransactionDetail saved = detailRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
-        // Log giá trị trước khi thay đổi
-        log.info("Changing remainQuantity for id={}: {} -> {}", id, detail.getRemainQuantity(), remainQuantity);
-        detail.setRemainQuantity(remainQuantity);
-        ImportTransactionDetail saved = detailRepository.saveAndFlush(detail); // Đảm bảo flush ngay lập tức
-        // Log xác nhận sau khi lưu
         log.info("Confirmed update remainQuantity for id={}: new value={}", saved.getId(), saved.getRemainQuantity());
+        // Map sang DTO trong cùng transaction (tránh lazy loading sau khi commit)
         return importDetailLotMapper.toDto(saved);
     }
 
@@ -199,23 +211,22 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     @Transactional(rollbackFor = Exception.class)
     public void completeImportDetail(Long id) {
         log.debug("Completing ImportTransactionDetail id: {}", id);
-        ImportTransactionDetail detail = detailRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
-        detail.setRemainQuantity(-1); // Đánh dấu đã complete, ẩn khỏi bảng
-        detailRepository.saveAndFlush(detail); // Đảm bảo flush ngay lập tức
+        stockMutationService.setLotRemainQuantity(id, -1); // Đánh dấu đã complete, ẩn khỏi bảng
         log.info("Completed ImportTransactionDetail id={}", id);
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void updateZonesId(Long id, String zonesId) {
         log.debug("Updating zonesId for ImportTransactionDetail id: {}", id);
-        ImportTransactionDetail detail = detailRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
-        // Log giá trị trước khi thay đổi
-        log.info("Changing zonesId for id={}: {} -> {}", id, detail.getZones_id(), zonesId);
-        detail.setZones_id(zonesId);
-        ImportTransactionDetail saved = detailRepository.saveAndFlush(detail); // Đảm bảo flush ngay lập tức
+        // lot_zone đồng bộ qua entity nên không dùng UPDATE native; thử lại cả lần đọc-ghi khi xung đột @Version
+        ImportTransactionDetail saved = stockMutationService.execute("lot.zones", () -> {
+            ImportTransactionDetail detail = detailRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("ImportTransactionDetail not found"));
+            // Log giá trị trước khi thay đổi
+            log.info("Changing zonesId for id={}: {} -> {}", id, detail.getZones_id(), zonesId);
+            detail.setZones_id(zonesId);
+            return detailRepository.saveAndFlush(detail); // Đảm bảo flush ngay lập tức
+        });
         // Log xác nhận sau khi lưu
         log.info("Confirmed update zonesId for id={}: new value={}", saved.getId(), saved.getZones_id());
     }
@@ -235,10 +246,8 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
 
 
     // Hàm enrich thông tin sản phẩm từ ImportTransactionDetail
-    private ProductResponseDto enrichProductWithDetails(ProductResponseDto product, String zoneId) {
-        // Chỉ lấy từ các phiếu nhập đã hoàn thành (COMPLETE status)
-        List<ImportTransactionDetail> details = detailRepository.findByZoneIdCompleted(zoneId, ImportTransactionStatus.COMPLETE);
-        ImportTransactionDetail detail = details.stream()
+    private ProductResponseDto enrichProductWithDetails(ProductResponseDto product, List<ImportTransactionDetail> zoneDetails) {
+        ImportTransactionDetail detail = zoneDetails.stream()
                 .filter(d -> d.getProduct().getId().equals(product.getProId()))
                 .findFirst()
                 .orElse(null);
@@ -251,6 +260,15 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
         return product;
     }
 
+    // zoneId từ request là chuỗi; không phải số thì không khớp zone nào
+    private Long toZoneId(String zoneId) {
+        try {
+            return Long.valueOf(zoneId.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            return null;
+        }
+    }
+
     // Hàm parse zones_id từ String (ưu tiên JSON, fallback split chuỗi)
     private List<Long> parseZonesId(String zonesIdStr) {
         if (zonesIdStr == null || zonesIdStr.isEmpty()) {
@@ -270,7 +288,7 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
     }
 
     // Hàm filter logic cho stocktake lot
-    private boolean filterStocktakeLot(ImportTransactionDetail row, String store, String zone, String product,
+    private boolean filterStocktakeLot(ImportTransactionDetail row, String store, String product,
                                        Boolean isCheck, String batchCode, String search) {
         if (row.getRemainQuantity() != null && row.getRemainQuantity() == 0 && row.getIsCheck() != null && row.getIsCheck()) {
             return false;
@@ -284,20 +302,6 @@ public class ImportTransactionDetailServiceImpl implements ImportTransactionDeta
                 if (!s.getStoreName().equalsIgnoreCase(store)) return false;
             }
         }
-        if (zone != null && !zone.isEmpty()) {
-            List<Long> zones = parseZonesId(row.getZones_id());
-            if (zones.isEmpty()) {
-                return false;
-            }
-            try {
-                Long zoneId = Long.valueOf(zone);
-                if (!zones.contains(zoneId)) {
-                    return false;
-                }
-            } catch (NumberFormatException e) {
-                return false;
-            }
-        }
         if (product != null && !product.isEmpty()) {
             Product prod = row.getProduct();
             if (product.matches("\\d+")) { // Nếu là số, so sánh theo id
@@ -1,6 +1,8 @@
 package com.farmovo.backend.services.impl;
 
+import com.farmovo.backend.dto.StatusChangeEvent;
 import com.farmovo.backend.dto.request.CreateImportTransactionRequestDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.response.ImportTransactionResponseDto;
 import com.farmovo.backend.exceptions.BadRequestException;
 import com.farmovo.backend.exceptions.ResourceNotFoundException;
@@ -11,41 +13,41 @@ import com.farmovo.backend.exceptions.StoreNotFoundException;
 import com.farmovo.backend.mapper.ImportTransactionMapper;
 import com.farmovo.backend.models.*;
 import com.farmovo.backend.repositories.*;
+import com.farmovo.backend.services.DailyStoreRollupService;
 import com.farmovo.backend.services.DebtNoteService;
 import com.farmovo.backend.services.ImportTransactionService;
+import com.farmovo.backend.services.StockMutationService;
 import com.farmovo.backend.specification.ImportTransactionSpecification;
+import com.farmovo.backend.utils.KeysetPagination;
+import com.farmovo.backend.utils.PdfBulkExporter;
+import com.farmovo.backend.utils.PdfRenderer;
 import com.farmovo.backend.validator.ImportTransactionDetailValidator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.BaseFont;
-import com.lowagie.text.pdf.PdfPCell;
-import com.lowagie.text.pdf.PdfPTable;
-import com.lowagie.text.pdf.PdfWriter;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.*;
 import java.math.BigDecimal;
-import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
-import com.farmovo.backend.aop.LogStatusChange;
 
 
 @Service
@@ -62,6 +64,14 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
     private final ImportTransactionDetailValidator detailValidator;
     private final DebtNoteService debtNoteService;
     private final ImportTransactionDetailRepository importTransactionDetailRepository;
+    private final DailyStoreRollupService dailyStoreRollupService;
+    private final StockMutationService stockMutationService;
+    private final PdfRenderer pdfRenderer;
+    private final PdfBulkExporter pdfBulkExporter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.export.bulk-max-documents:500}")
+    private int bulkExportMaxDocuments;
 
 
     @Override
@@ -91,6 +101,9 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         transaction.setName(newName);
 
         ImportTransaction savedTransaction = importTransactionRepository.save(transaction);
+        if (savedTransaction.getStatus() == ImportTransactionStatus.COMPLETE) {
+            dailyStoreRollupService.recordImportCompleted(savedTransaction);
+        }
 
         log.info("Import transaction created successfully. ID: {}, Code: {}, Total: {}, Paid: {}",
                 savedTransaction.getId(), savedTransaction.getName(), transaction.getTotalAmount(), transaction.getPaidAmount());
@@ -118,57 +131,28 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         log.info("Bắt đầu cập nhật lô cũ cho phiếu cân bằng nhập, số lượng sản phẩm: {}", details.size());
         
         for (CreateImportTransactionRequestDto.DetailDto detail : details) {
-            try {
-                // Bước 1: Tìm lô cũ của sản phẩm này
-                List<ImportTransactionDetail> existingLots = importTransactionDetailRepository.findByProductId(detail.getProductId());
-                
-                if (existingLots.isEmpty()) {
-                    log.warn("Không tìm thấy lô nào cho sản phẩm ID: {}", detail.getProductId());
-                    continue;
-                }
-                
-                // Bước 2: Chọn lô đầu tiên để cập nhật (có thể cải thiện logic này sau)
-                ImportTransactionDetail selectedLot = existingLots.get(0);
-                
-                // Bước 3: Cộng thêm số lượng vào lô cũ
-                int currentQuantity = selectedLot.getRemainQuantity() != null ? selectedLot.getRemainQuantity() : 0;
-                int addQuantity = detail.getImportQuantity() != null ? detail.getImportQuantity() : 0;
-                int newQuantity = currentQuantity + addQuantity;
-                
-                selectedLot.setRemainQuantity(newQuantity);
-                
-                // Bước 4: Lưu lô đã cập nhật
-                importTransactionDetailRepository.save(selectedLot);
-                
-                // Bước 5: Cập nhật tổng số lượng sản phẩm
-                updateProductTotalQuantity(detail.getProductId(), addQuantity);
-                
-                log.info("Đã cập nhật lô: Sản phẩm {}, Lô {}, Số lượng cũ: {} + Thêm: {} = Mới: {}",
-                        detail.getProductName(), selectedLot.getName(), currentQuantity, addQuantity, newQuantity);
-                
-            } catch (Exception e) {
-                log.error("Lỗi khi cập nhật lô cho sản phẩm ID: {}", detail.getProductId(), e);
-            }
-        }
-        
-        log.info("Hoàn thành cập nhật lô cũ cho phiếu cân bằng nhập");
-    }
+            // Bước 1: Tìm lô cũ của sản phẩm này
+            List<ImportTransactionDetail> existingLots = importTransactionDetailRepository.findByProductId(detail.getProductId());
 
-    private void updateProductTotalQuantity(Long productId, int addQuantity) {
-        try {
-            Product product = productRepository.findById(productId).orElse(null);
-            if (product != null) {
-                int currentTotal = product.getProductQuantity() != null ? product.getProductQuantity() : 0;
-                int newTotal = currentTotal + addQuantity;
-                product.setProductQuantity(newTotal);
-                productRepository.save(product);
-                
-                log.info("Đã cập nhật tổng số lượng sản phẩm: {} - Cũ: {} + Thêm: {} = Mới: {}",
-                        product.getProductName(), currentTotal, addQuantity, newTotal);
+            if (existingLots.isEmpty()) {
+                log.warn("Không tìm thấy lô nào cho sản phẩm ID: {}", detail.getProductId());
+                continue;
             }
-        } catch (Exception e) {
-            log.error("Lỗi khi cập nhật tổng số lượng sản phẩm ID: {}", productId, e);
+
+            // Bước 2: Chọn lô đầu tiên để cập nhật (có thể cải thiện logic này sau)
+            ImportTransactionDetail selectedLot = existingLots.get(0);
+
+            // Bước 3-5: Cộng thêm số lượng vào lô cũ và tổng số lượng sản phẩm bằng UPDATE theo delta trên DB,
+            // trong cùng transaction của cả phiếu: lỗi ở một sản phẩm thì rollback toàn bộ
+            int addQuantity = detail.getImportQuantity() != null ? detail.getImportQuantity() : 0;
+            stockMutationService.addLotRemainQuantity(selectedLot.getId(), addQuantity);
+            stockMutationService.addProductQuantity(detail.getProductId(), addQuantity);
+
+            log.info("Đã cập nhật lô: Sản phẩm {}, Lô {}, Thêm: {}",
+                    detail.getProductName(), selectedLot.getName(), addQuantity);
         }
+
+        log.info("Hoàn thành cập nhật lô cũ cho phiếu cân bằng nhập");
     }
 
     @Override
@@ -227,6 +211,9 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         // Save the transaction
         ImportTransaction savedTransaction = importTransactionRepository.save(transaction);
         log.info("Import transaction updated successfully with ID: {}", id);
+        if (savedTransaction.getStatus() == ImportTransactionStatus.COMPLETE) {
+            dailyStoreRollupService.recordImportCompleted(savedTransaction);
+        }
 
         // Sinh mã LH000000 cho từng detail (nếu cần)
         generateDetailCodes(savedTransaction);
@@ -234,7 +221,6 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @LogStatusChange
     public void cancel(Long id) {
         log.info("Cancelling import transaction with ID: {}", id);
 
@@ -245,6 +231,10 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         transaction.setStatus(ImportTransactionStatus.CANCEL);
         // updatedAt sẽ tự động cập nhật nhờ @UpdateTimestamp
         importTransactionRepository.save(transaction);
+        if (oldStatus == ImportTransactionStatus.COMPLETE && transaction.getDeletedAt() == null) {
+            dailyStoreRollupService.revertImport(transaction);
+        }
+        eventPublisher.publishEvent(StatusChangeEvent.of("ImportTransaction", id, oldStatus, transaction.getStatus()));
 
         log.info("Import transaction cancelled successfully. ID: {}, Old status: {}, New status: {}",
                 id, oldStatus, transaction.getStatus());
@@ -252,7 +242,6 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @LogStatusChange
     public void open(Long id) {
         log.info("Opening import transaction with ID: {}", id);
 
@@ -268,6 +257,7 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         ImportTransactionStatus oldStatus = transaction.getStatus();
         transaction.setStatus(ImportTransactionStatus.WAITING_FOR_APPROVE);
         importTransactionRepository.save(transaction);
+        eventPublisher.publishEvent(StatusChangeEvent.of("ImportTransaction", id, oldStatus, transaction.getStatus()));
 
         log.info("Import transaction opened successfully. ID: {}, Old status: {}, New status: {}",
                 id, oldStatus, transaction.getStatus());
@@ -276,7 +266,6 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @LogStatusChange
     public void complete(Long id) {
         log.info("Completing import transaction with ID: {}", id);
         ImportTransaction transaction = importTransactionRepository.findById(id)
@@ -290,10 +279,12 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         ImportTransactionStatus oldStatus = transaction.getStatus();
         transaction.setStatus(ImportTransactionStatus.COMPLETE);
         importTransactionRepository.save(transaction);
+        dailyStoreRollupService.recordImportCompleted(transaction);
         //tạo công nợ
         handleCompleteStatus(transaction);
         // Cập nhật số lượng sản phẩm khi hoàn thành phiếu nhập
         updateProductStockIfComplete(transaction);
+        eventPublisher.publishEvent(StatusChangeEvent.of("ImportTransaction", id, oldStatus, transaction.getStatus()));
 
         log.info("Import transaction completed successfully. ID: {}, Old status: {}, New status: {}",
                 id, oldStatus, transaction.getStatus());
@@ -302,7 +293,6 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @LogStatusChange
     public void close(Long id) {
         log.info("Closing import transaction with ID: {}", id);
 
@@ -318,6 +308,7 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         ImportTransactionStatus oldStatus = transaction.getStatus();
         transaction.setStatus(ImportTransactionStatus.DRAFT);
         importTransactionRepository.save(transaction);
+        eventPublisher.publishEvent(StatusChangeEvent.of("ImportTransaction", id, oldStatus, transaction.getStatus()));
 
         log.info("Import transaction closed successfully. ID: {}, Old status: {}, New status: {}",
                 id, oldStatus, transaction.getStatus());
@@ -369,6 +360,32 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
         return new PageImpl<>(dtoList, pageable, entityPage.getTotalElements());
     }
 
+    @Override
+    public CursorPageResponse<ImportTransactionResponseDto> listAllImportTransactionByCursor(
+            String name,
+            String supplierName,
+            Long storeId,
+            Long staffId,
+            Long createdBy,
+            ImportTransactionStatus status,
+            LocalDateTime fromDate,
+            LocalDateTime toDate,
+            BigDecimal minTotalAmount,
+            BigDecimal maxTotalAmount,
+            String cursor,
+            Integer size) {
+
+        Specification<ImportTransaction> spec =
+                ImportTransactionSpecification.buildSpecification(name, supplierName, storeId, staffId, createdBy,
+                        status, fromDate, toDate,
+                        minTotalAmount, maxTotalAmount);
+
+        return KeysetPagination.fetch(importTransactionRepository, spec, cursor, size, ImportTransaction::getId, "supplier")
+                .map(transactions -> transactions.stream()
+                        .map(importTransactionMapper::toResponseDto)
+                        .collect(Collectors.toList()));
+    }
+
     @Override
     public CreateImportTransactionRequestDto getImportTransactionById(Long id) {
         log.debug("Getting import transaction by ID: {}", id);
@@ -404,220 +421,119 @@ public class ImportTransactionServiceImpl implements ImportTransactionService {
 
     @Override
     @Transactional
-    @LogStatusChange
     public void softDeleteImportTransaction(Long id, Long userId) {
         ImportTransaction transaction = importTransactionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy phiếu nhập với ID: " + id));
 
+        boolean countedInRollup = transaction.getStatus() == ImportTransactionStatus.COMPLETE && transaction.getDeletedAt() == null;
         transaction.setDeletedAt(LocalDateTime.now());
         transaction.setDeletedBy(userId);
         importTransactionRepository.save(transaction);
+        if (countedInRollup) {
+            dailyStoreRollupService.revertImport(transaction);
+        }
     }
 
     @Override
-    public byte[] exportImportPdf(Long id) {
+    public StreamingResponseBody exportImportPdf(Long id) {
         ImportTransaction transaction = importTransactionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Import transaction not found"));
 
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, out);
-            document.open();
-
-            // Font Roboto hỗ trợ Unicode tiếng Việt
-            ClassPathResource fontResource = new ClassPathResource("fonts/Roboto-Regular.ttf");
-            File tempFontFile = File.createTempFile("roboto", ".ttf");
-            tempFontFile.deleteOnExit();
-            try (InputStream in = fontResource.getInputStream(); OutputStream os = new FileOutputStream(tempFontFile)) {
-                in.transferTo(os);
-            }
-
-            BaseFont baseFont = BaseFont.createFont(tempFontFile.getAbsolutePath(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
-            Font normalFont = new Font(baseFont, 12);
-            Font boldFont = new Font(baseFont, 12, Font.BOLD);
-            Font redFont = new Font(baseFont, 12, Font.BOLD);
-            Font blueFont = new Font(baseFont, 12, Font.BOLD);
-
-            // Ngày giờ tạo
-            LocalDateTime createdAt = transaction.getCreatedAt();
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            String formattedTime = createdAt != null ? createdAt.format(timeFormatter) : "";
-            String formattedDate = createdAt != null ? createdAt.format(dateFormatter) : "";
-
-            // ===== Tiêu đề & ngày giờ =====
-            PdfPTable headerTable = new PdfPTable(2);
-            headerTable.setWidthPercentage(100);
-            headerTable.setWidths(new float[]{2f, 1f});
-            headerTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
-
-            PdfPCell titleCell = new PdfPCell(new Phrase("CHI TIẾT PHIẾU NHẬP HÀNG " + safe(transaction.getName()), new Font(baseFont, 14, Font.BOLD)));
-            titleCell.setBorder(Rectangle.NO_BORDER);
-            titleCell.setHorizontalAlignment(Element.ALIGN_LEFT);
-
-            PdfPCell dateCell = new PdfPCell();
-            dateCell.setBorder(Rectangle.NO_BORDER);
-            dateCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            dateCell.addElement(new Paragraph("Ngày lập: " + formattedDate, normalFont));
-            dateCell.addElement(new Paragraph("Giờ lập: " + formattedTime, normalFont));
-
-            headerTable.addCell(titleCell);
-            headerTable.addCell(dateCell);
-            document.add(headerTable);
-
-            // ===== Trạng thái =====
-            if (transaction.getStatus() == ImportTransactionStatus.COMPLETE) {
-                document.add(new Paragraph("✔ Phiếu đã hoàn thành", normalFont));
-            }
-
-            // ===== Thông tin cửa hàng & nhà cung cấp =====
-            PdfPTable infoTable = new PdfPTable(2);
-            infoTable.setWidthPercentage(100);
-            infoTable.setSpacingBefore(10f);
-            infoTable.setSpacingAfter(10f);
-            infoTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
-
-            PdfPCell storeCell = new PdfPCell();
-            storeCell.setBorder(Rectangle.NO_BORDER);
-            storeCell.addElement(new Paragraph("Kho nhập", boldFont));
-            storeCell.addElement(new Paragraph("Tên kho: " + safe(transaction.getStore() != null ? transaction.getStore().getStoreName() : null), normalFont));
-            // Người tạo
-            String nguoiTao = "Chưa có";
-            try {
-                if (transaction.getCreatedBy() != null) {
-                    User staff = userRepository.findById(transaction.getCreatedBy()).orElse(null);
-                    nguoiTao = staff != null && staff.getFullName() != null ? staff.getFullName() : "Chưa có";
-                }
-            } catch (Exception e) {
-                nguoiTao = "Chưa có";
-            }
-            storeCell.addElement(new Paragraph("Người tạo: " + nguoiTao, normalFont));
-            storeCell.addElement(new Paragraph("Địa chỉ kho: " + safe(transaction.getStore() != null ? transaction.getStore().getStoreAddress() : null), normalFont));
-
-            PdfPCell supplierCell = new PdfPCell();
-            supplierCell.setBorder(Rectangle.NO_BORDER);
-            supplierCell.addElement(new Paragraph("Thông tin nhà cung cấp", boldFont));
-            supplierCell.addElement(new Paragraph("Tên: " + safe(transaction.getSupplier() != null ? transaction.getSupplier().getName() : null), normalFont));
-            supplierCell.addElement(new Paragraph("SĐT: " + safe(transaction.getSupplier() != null ? transaction.getSupplier().getPhone() : null), normalFont));
-            supplierCell.addElement(new Paragraph("Địa chỉ: " + safe(transaction.getSupplier() != null ? transaction.getSupplier().getAddress() : null), normalFont));
-
-            infoTable.addCell(storeCell);
-            infoTable.addCell(supplierCell);
-            document.add(infoTable);
-
-            // ===== Bảng sản phẩm =====
-            PdfPTable productTable = new PdfPTable(6);
-            productTable.setWidthPercentage(100);
-            productTable.setSpacingBefore(10);
-            productTable.setWidths(new float[]{0.8f, 3f, 1.5f, 2f, 1.2f, 2.5f});
-
-            productTable.addCell(getCell("STT", boldFont));
-            productTable.addCell(getCell("Tên sản phẩm", boldFont));
-            productTable.addCell(getCell("Mã", boldFont));
-            productTable.addCell(getCell("Đơn giá nhập", boldFont));
-            productTable.addCell(getCell("Số lượng", boldFont));
-            productTable.addCell(getCell("Thành tiền", boldFont));
-
-            List<ImportTransactionDetail> detailList = transaction.getDetails() != null ? transaction.getDetails() : new ArrayList<>();
-            int index = 1;
-            for (ImportTransactionDetail d : detailList) {
-                BigDecimal unitPrice = d.getUnitImportPrice() != null ? d.getUnitImportPrice() : BigDecimal.ZERO;
-                int quantity = d.getImportQuantity();
-                BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
-                productTable.addCell(getCell(String.valueOf(index++), normalFont));
-                productTable.addCell(getCell(safe(d.getProduct() != null ? d.getProduct().getProductName() : null), normalFont)); // Tên sản phẩm
-                productTable.addCell(getCell(safe(d.getProduct() != null ? String.valueOf(d.getProduct().getId()) : null), normalFont)); // Mã
-                productTable.addCell(getCell(formatCurrency(unitPrice), normalFont));
-                productTable.addCell(getCell(String.valueOf(quantity), normalFont));
-                productTable.addCell(getCell(formatCurrency(lineTotal), normalFont));
-            }
-            document.add(productTable);
-
-            // ===== Tổng tiền & Ghi chú =====
-            PdfPTable summaryTable = new PdfPTable(2);
-            summaryTable.setWidthPercentage(100);
-            summaryTable.setSpacingBefore(10);
-            summaryTable.setWidths(new float[]{1f, 1f});
-
-            // Cột bên trái: Tổng tiền
-            PdfPCell totalCell = new PdfPCell();
-            totalCell.setBorder(Rectangle.NO_BORDER);
-            BigDecimal totalAmount = transaction.getTotalAmount() != null ? transaction.getTotalAmount() : BigDecimal.ZERO;
-            BigDecimal paidAmount = transaction.getPaidAmount() != null ? transaction.getPaidAmount() : BigDecimal.ZERO;
-            BigDecimal remainAmount = totalAmount.subtract(paidAmount);
-            totalCell.addElement(new Paragraph("Tổng tiền hàng: " + formatCurrency(totalAmount), normalFont));
-            totalCell.addElement(new Paragraph("Số tiền đã trả: " + formatCurrency(paidAmount), blueFont));
-            totalCell.addElement(new Paragraph("Còn lại: " + formatCurrency(remainAmount), redFont));
-
-            // Cột bên phải: Ghi chú
-            PdfPCell noteCell = new PdfPCell();
-            noteCell.setBorder(Rectangle.NO_BORDER);
-            if (transaction.getImportTransactionNote() != null && !transaction.getImportTransactionNote().isEmpty()) {
-                noteCell.addElement(new Paragraph("Ghi chú:", boldFont));
-                noteCell.addElement(new Paragraph(transaction.getImportTransactionNote(), normalFont));
+        // Người tạo
+        String nguoiTao = "Chưa có";
+        try {
+            if (transaction.getCreatedBy() != null) {
+                User staff = userRepository.findById(transaction.getCreatedBy()).orElse(null);
+                nguoiTao = staff != null && staff.getFullName() != null ? staff.getFullName() : "Chưa có";
             }
+        } catch (Exception e) {
+            nguoiTao = "Chưa có";
+        }
 
-            summaryTable.addCell(totalCell);
-            summaryTable.addCell(noteCell);
-            document.add(summaryTable);
-
-            // ===== Chữ ký =====
-            document.add(new Paragraph(" ")); // khoảng trắng
-            PdfPTable signTable = new PdfPTable(2);
-            signTable.setWidthPercentage(100);
-            signTable.setWidths(new float[]{1f, 1f});
-            signTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
-
-            // Cột trống bên trái
-            PdfPCell leftEmptyCell = new PdfPCell(new Phrase(""));
-            leftEmptyCell.setBorder(Rectangle.NO_BORDER);
+        PdfRenderer.Voucher voucher = toPdfVoucher(transaction, nguoiTao);
+        return out -> pdfRenderer.render(voucher, out);
+    }
 
-            // Cột bên phải là phần chữ ký
-            PdfPCell rightSignCell = new PdfPCell();
-            rightSignCell.setBorder(Rectangle.NO_BORDER);
-            rightSignCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            rightSignCell.addElement(new Paragraph("Người lập phiếu", boldFont));
-            rightSignCell.addElement(new Paragraph("(Ký, ghi rõ họ tên)", normalFont));
+    @Override
+    @Transactional(readOnly = true)
+    public ResponseEntity<StreamingResponseBody> exportImportPdfBulk(String name, String supplierName, Long storeId,
+                                                                     Long staffId, Long createdBy,
+                                                                     ImportTransactionStatus status,
+                                                                     LocalDateTime fromDate, LocalDateTime toDate,
+                                                                     BigDecimal minTotalAmount, BigDecimal maxTotalAmount,
+                                                                     PdfBulkExporter.Format format) {
+        Specification<ImportTransaction> spec = ImportTransactionSpecification.buildSpecification(name, supplierName,
+                storeId, staffId, createdBy, status, fromDate, toDate, minTotalAmount, maxTotalAmount);
+        long matched = importTransactionRepository.count(spec);
+        if (matched > bulkExportMaxDocuments) {
+            throw new BadRequestException("Quá nhiều phiếu (" + matched + "), tối đa " + bulkExportMaxDocuments
+                    + " phiếu mỗi lần xuất. Vui lòng thu hẹp bộ lọc.");
+        }
 
-            signTable.addCell(leftEmptyCell);
-            signTable.addCell(rightSignCell);
+        List<ImportTransaction> transactions = importTransactionRepository.findAll(spec, Sort.by("importDate", "id"));
+        Map<Long, String> creatorNames = userRepository.findAllById(transactions.stream()
+                        .map(ImportTransaction::getCreatedBy)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet())).stream()
+                .filter(u -> u.getFullName() != null)
+                .collect(Collectors.toMap(User::getId, User::getFullName));
+
+        List<PdfBulkExporter.Entry> entries = new ArrayList<>(transactions.size());
+        for (ImportTransaction transaction : transactions) {
+            String nguoiTao = creatorNames.getOrDefault(transaction.getCreatedBy(), "Chưa có");
+            entries.add(new PdfBulkExporter.Entry("phieu_nhap_" + PdfRenderer.safe(transaction.getName()) + "_" + transaction.getId() + ".pdf",
+                    toPdfVoucher(transaction, nguoiTao)));
+        }
+        log.info("Bulk exporting {} import transactions as {}", entries.size(), format);
+        return pdfBulkExporter.export(entries, format, "phieu_nhap");
+    }
 
-            document.add(signTable);
+    // Dựng nội dung PDF từ phiếu đã nạp sẵn chi tiết, nhà cung cấp và kho
+    private PdfRenderer.Voucher toPdfVoucher(ImportTransaction transaction, String nguoiTao) {
+        Store store = transaction.getStore();
+        Customer supplier = transaction.getSupplier();
+        List<PdfRenderer.Line> lines = new ArrayList<>();
+        if (transaction.getDetails() != null) {
+            for (ImportTransactionDetail d : transaction.getDetails()) {
+                lines.add(new PdfRenderer.Line(
+                        d.getProduct() != null ? d.getProduct().getProductName() : null,
+                        d.getProduct() != null ? String.valueOf(d.getProduct().getId()) : null,
+                        d.getUnitImportPrice(),
+                        d.getImportQuantity()));
+            }
+        }
 
-            document.close();
-            return out.toByteArray();
+        return new PdfRenderer.Voucher(
+                "CHI TIẾT PHIẾU NHẬP HÀNG " + PdfRenderer.safe(transaction.getName()),
+                transaction.getCreatedAt(),
+                transaction.getStatus() == ImportTransactionStatus.COMPLETE ? "✔ Phiếu đã hoàn thành" : null,
+                "Kho nhập",
+                List.of("Tên kho: " + PdfRenderer.safe(store != null ? store.getStoreName() : null),
+                        "Người tạo: " + nguoiTao,
+                        "Địa chỉ kho: " + PdfRenderer.safe(store != null ? store.getStoreAddress() : null)),
+                "Thông tin nhà cung cấp",
+                List.of("Tên: " + PdfRenderer.safe(supplier != null ? supplier.getName() : null),
+                        "SĐT: " + PdfRenderer.safe(supplier != null ? supplier.getPhone() : null),
+                        "Địa chỉ: " + PdfRenderer.safe(supplier != null ? supplier.getAddress() : null)),
+                "Đơn giá nhập",
+                lines,
+                transaction.getTotalAmount(),
+                transaction.getPaidAmount(),
+                transaction.getImportTransactionNote());
 
-        } catch (Exception e) {
-            throw new RuntimeException("Lỗi khi tạo PDF phiếu nhập: " + e.getMessage(), e);
-        }
     }
 
     private void updateProductStockIfComplete(ImportTransaction transaction) {
         if (transaction.getStatus() == ImportTransactionStatus.COMPLETE && transaction.getDetails() != null) {
             for (ImportTransactionDetail detail : transaction.getDetails()) {
                 Product product = detail.getProduct();
-                int updatedQuantity = product.getProductQuantity() + detail.getImportQuantity();
-                product.setProductQuantity(updatedQuantity);
-                productRepository.save(product); // Lưu lại thay đổi số lượng
-                log.info("Updated product quantity. productId={}, newQuantity={}", product.getId(), updatedQuantity);
+                // Cộng theo delta trên DB để không ghi đè số lượng mà giao dịch khác vừa cập nhật
+                stockMutationService.addProductQuantity(product.getId(), detail.getImportQuantity());
+                log.info("Updated product quantity. productId={}, added={}", product.getId(), detail.getImportQuantity());
             }
         }
     }
 
-    private PdfPCell getCell(String text, Font font) {
-        PdfPCell cell = new PdfPCell(new Phrase(text, font));
-        cell.setPadding(5);
-        return cell;
-    }
-
-    private String formatCurrency(BigDecimal amount) {
-        NumberFormat format = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
-        return format.format(amount).replace("₫", "VND");
-    }
-
-    private String safe(String input) {
-        return input == null ? "Chưa có" : input;
-    }
     // --- Helper methods ---
 
     private Customer getSupplier(Long id) {
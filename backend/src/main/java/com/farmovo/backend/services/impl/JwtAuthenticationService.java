@@ -2,12 +2,17 @@ package com.farmovo.backend.services.impl;
 
 import com.farmovo.backend.exceptions.BadRequestException;
 import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.models.Authority;
+import com.farmovo.backend.models.Store;
 import com.farmovo.backend.models.User;
 import com.farmovo.backend.services.UserService;
 import com.farmovo.backend.utils.RoleUtils;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,6 +26,9 @@ import java.util.List;
 @Service
 public class JwtAuthenticationService {
 
+    // Claims đã xác thực của request hiện tại, do AuthTokenFilter đặt để không phải parse lại token
+    public static final String CLAIMS_ATTRIBUTE = JwtAuthenticationService.class.getName() + ".claims";
+
     @Autowired
     private JwtUtils jwtUtils;
 
@@ -30,11 +38,23 @@ public class JwtAuthenticationService {
     @Autowired
     private UserService userService;
 
+    // Dựng Authentication từ roles/userId/storeId đã ký trong token thay vì tải user từ DB mỗi request
+    @Value("${app.jwt.stateless-claims.enabled:false}")
+    private boolean statelessClaims;
+
     public void setAuthenticationFromToken(String jwt, HttpServletRequest request) {
-        String username = jwtUtils.getUsernameFromJwtToken(jwt);
+        setAuthentication(userDetailsService.loadUserByUsername(jwtUtils.getUsernameFromJwtToken(jwt)), request);
+    }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    public void setAuthenticationFromClaims(Claims claims, HttpServletRequest request) {
+        UserDetails userDetails = statelessClaims ? userFromClaims(claims) : null;
+        if (userDetails == null) {
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        setAuthentication(userDetails, request);
+    }
 
+    private void setAuthentication(UserDetails userDetails, HttpServletRequest request) {
         UsernamePasswordAuthenticationToken authentication =
                 new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
@@ -44,17 +64,50 @@ public class JwtAuthenticationService {
     }
 
     public User extractAuthenticatedUser(HttpServletRequest request) {
-        String token = jwtUtils.getJwtFromCookies(request);
-        if (token == null) token = jwtUtils.getJwtFromHeader(request);
-        if (token == null || !jwtUtils.validateJwtToken(token)) {
-            throw new BadRequestException("Token không hợp lệ hoặc đã hết hạn");
+        if (statelessClaims) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof User user && user.getId() != null) {
+                return user;
+            }
         }
 
-        Long userId = jwtUtils.getUserIdFromJwtToken(token);
+        Object cached = request != null ? request.getAttribute(CLAIMS_ATTRIBUTE) : null;
+        Long userId;
+        if (cached instanceof Claims claims) {
+            userId = jwtUtils.getUserId(claims);
+        } else {
+            String token = jwtUtils.getJwtFromCookies(request);
+            if (token == null) token = jwtUtils.getJwtFromHeader(request);
+            if (token == null || !jwtUtils.validateJwtToken(token)) {
+                throw new BadRequestException("Token không hợp lệ hoặc đã hết hạn");
+            }
+            userId = jwtUtils.getUserIdFromJwtToken(token);
+        }
         return userService.getUserById(userId)
                 .orElseThrow(() -> new BadRequestException("Không tìm thấy thông tin người dùng"));
     }
 
+    // User tách rời (không managed) chỉ gồm id, username, store id và quyền; null nếu token thiếu claim
+    private User userFromClaims(Claims claims) {
+        List<String> roles = jwtUtils.getRoles(claims);
+        Long userId = jwtUtils.getUserId(claims);
+        if (roles == null || userId == null || claims.getSubject() == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(claims.getSubject());
+        user.setStatus(Boolean.TRUE);
+        Long storeId = jwtUtils.getStoreId(claims);
+        if (storeId != null) {
+            Store store = new Store();
+            store.setId(storeId);
+            user.setStore(store);
+        }
+        user.setAuthorities(roles.stream().map(Authority::new).toList());
+        return user;
+    }
+
     public List<String> getUserRoles(User user) {
         Collection<? extends GrantedAuthority> authorities = user.getAuthorities();
         if (authorities == null || authorities.isEmpty()) {
@@ -0,0 +1,222 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.PendingNotification;
+import com.farmovo.backend.repositories.NotificationBatchRepository;
+import com.farmovo.backend.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi có giới hạn cho thông báo: nghiệp vụ chỉ đẩy PendingNotification vào queue, một worker
+ * gom theo lô, tách thông báo theo cửa hàng thành từng người nhận, tra tên người thao tác một lần
+ * cho cả lô và ghi bằng JDBC batch.
+ * Khi queue đầy quá enqueue-timeout-ms, thread gọi tự ghi (back-pressure, không bỏ thông báo).
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final UserRepository userRepository;
+    private final NotificationStreamHub notificationStreamHub;
+    private final BlockingQueue<PendingNotification> queue;
+    private final int batchSize;
+    private final long enqueueTimeoutMs;
+
+    private final Counter insertedCounter;
+    private final Counter failedCounter;
+    private final Counter callerRunsCounter;
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public NotificationDispatcher(NotificationBatchRepository notificationBatchRepository,
+                                  UserRepository userRepository,
+                                  NotificationStreamHub notificationStreamHub,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notification.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.notification.batch-size:200}") int batchSize,
+                                  @Value("${app.notification.enqueue-timeout-ms:200}") long enqueueTimeoutMs) {
+        this.notificationBatchRepository = notificationBatchRepository;
+        this.userRepository = userRepository;
+        this.notificationStreamHub = notificationStreamHub;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        meterRegistry.gauge("notifications.queue.depth", queue, BlockingQueue::size);
+        this.insertedCounter = meterRegistry.counter("notifications.fanout.inserted");
+        this.failedCounter = meterRegistry.counter("notifications.fanout.failed");
+        this.callerRunsCounter = meterRegistry.counter("notifications.fanout.caller_runs");
+    }
+
+    @PostConstruct
+    void start() {
+        worker = new Thread(this::runWorker, "notification-fanout");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        // Ghi nốt những gì còn trong queue trước khi tắt
+        List<PendingNotification> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    /**
+     * Đưa thông báo vào queue. Nếu đang trong transaction thì chỉ đẩy sau khi commit,
+     * để không gửi thông báo cho dữ liệu bị rollback.
+     */
+    public void enqueue(PendingNotification notification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(notification);
+                }
+            });
+        } else {
+            offer(notification);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void offer(PendingNotification notification) {
+        boolean accepted;
+        try {
+            accepted = queue.offer(notification, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            callerRunsCounter.increment();
+            logger.warn("Notification queue full ({}), writing on caller thread", queue.size());
+            write(List.of(notification));
+        }
+    }
+
+    private void runWorker() {
+        List<PendingNotification> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingNotification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingNotification> pending) {
+        List<PendingNotification> rows;
+        try {
+            rows = expand(pending);
+        } catch (Exception e) {
+            failedCounter.increment(pending.size());
+            logger.error("Failed to resolve recipients for {} notifications: {}", pending.size(), e.getMessage(), e);
+            return;
+        }
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            insert(rows.subList(from, Math.min(rows.size(), from + batchSize)));
+        }
+    }
+
+    // insertAll chạy trong một transaction nên lỗi là cả lô không được ghi: chia đôi lô và thử lại
+    // tới khi cô lập được những dòng thực sự lỗi, chỉ các dòng đó bị bỏ và tính vào failed
+    private void insert(List<PendingNotification> chunk) {
+        try {
+            notificationBatchRepository.insertAll(chunk, batchSize);
+            insertedCounter.increment(chunk.size());
+            notificationStreamHub.notificationsCreated(chunk);
+        } catch (Exception e) {
+            if (chunk.size() == 1) {
+                PendingNotification n = chunk.get(0);
+                failedCounter.increment();
+                logger.error("Failed to write notification '{}' for user {}: {}", n.title(), n.userId(), e.getMessage(), e);
+                return;
+            }
+            logger.warn("Batch insert of {} notifications failed ({}), retrying in smaller chunks", chunk.size(), e.getMessage());
+            int half = chunk.size() / 2;
+            insert(chunk.subList(0, half));
+            insert(chunk.subList(half, chunk.size()));
+        }
+    }
+
+    // Tách thông báo cửa hàng thành từng người nhận và thay ACTOR_TOKEN bằng tên người thao tác
+    private List<PendingNotification> expand(List<PendingNotification> pending) {
+        Set<Long> actorIds = new HashSet<>();
+        for (PendingNotification n : pending) {
+            if (n.actorId() != null) {
+                actorIds.add(n.actorId());
+            }
+        }
+        Map<Long, String> actorNames = new HashMap<>();
+        if (!actorIds.isEmpty()) {
+            for (Object[] row : userRepository.findDisplayNamesByIds(actorIds)) {
+                String fullName = (String) row[1];
+                actorNames.put((Long) row[0], fullName != null ? fullName : (String) row[2]);
+            }
+        }
+
+        Map<Long, List<Long>> storeUsers = new HashMap<>();
+        List<PendingNotification> rows = new ArrayList<>(pending.size());
+        for (PendingNotification n : pending) {
+            String message = n.message();
+            if (n.actorId() != null) {
+                String actorName = actorNames.get(n.actorId());
+                if (actorName == null) {
+                    logger.warn("Dropping notification '{}': user {} not found", n.title(), n.actorId());
+                    continue;
+                }
+                message = message.replace(PendingNotification.ACTOR_TOKEN, actorName);
+            }
+            if (n.userId() != null) {
+                rows.add(n.withRecipient(n.userId(), message));
+            } else {
+                List<Long> recipients = storeUsers.computeIfAbsent(n.storeId(), userRepository::findIdsByStoreId);
+                for (Long recipientId : recipients) {
+                    rows.add(n.withRecipient(recipientId, message));
+                }
+            }
+        }
+        return rows;
+    }
+}
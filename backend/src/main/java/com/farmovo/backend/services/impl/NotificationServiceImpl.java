@@ -2,6 +2,9 @@ package com.farmovo.backend.services.impl;
 
 import com.farmovo.backend.dto.CreateNotificationDto;
 import com.farmovo.backend.dto.NotificationDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
+import com.farmovo.backend.dto.PendingNotification;
+import com.farmovo.backend.jobs.NotificationRetentionJob;
 import com.farmovo.backend.models.Notification;
 import com.farmovo.backend.models.Store;
 import com.farmovo.backend.models.User;
@@ -9,14 +12,18 @@ import com.farmovo.backend.repositories.NotificationRepository;
 import com.farmovo.backend.repositories.StoreRepository;
 import com.farmovo.backend.repositories.UserRepository;
 import com.farmovo.backend.services.NotificationService;
+import com.farmovo.backend.specification.NotificationSpecification;
+import com.farmovo.backend.utils.KeysetPagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -35,6 +42,18 @@ public class NotificationServiceImpl implements NotificationService {
     @Autowired
     private StoreRepository storeRepository;
     
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    
+    @Autowired
+    private NotificationUnreadCounter unreadCounter;
+    
+    @Autowired
+    private NotificationStreamHub notificationStreamHub;
+    
+    @Autowired
+    private NotificationRetentionJob notificationRetentionJob;
+    
     @Override
     @Transactional
     public NotificationDto createNotification(CreateNotificationDto dto, Long userId) {
@@ -66,6 +85,11 @@ public class NotificationServiceImpl implements NotificationService {
             Notification savedNotification = notificationRepository.save(notification);
             logger.info("Created notification: {} for user: {}", dto.getTitle(), userId);
             
+            PendingNotification created = new PendingNotification(userId, store != null ? store.getId() : null, null,
+                    dto.getTitle(), dto.getMessage(), dto.getType(), dto.getCategory(),
+                    dto.getActionUrl(), dto.getEntityId(), dto.getEntityType());
+            afterCommit(() -> notificationStreamHub.notificationsCreated(List.of(created)));
+            
             return NotificationDto.fromEntity(savedNotification);
         } catch (Exception e) {
             logger.error("Error creating notification: {}", e.getMessage(), e);
@@ -77,28 +101,14 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional
     public void createNotificationForAllUsersInStore(CreateNotificationDto dto, Long storeId) {
         try {
-            Store store = storeRepository.findById(storeId)
-                .orElseThrow(() -> new RuntimeException("Store not found"));
-            
-            // Lấy tất cả user trong store
-            List<User> users = userRepository.findByStoreId(storeId);
-            
-            for (User user : users) {
-                CreateNotificationDto userDto = new CreateNotificationDto();
-                userDto.setTitle(dto.getTitle());
-                userDto.setMessage(dto.getMessage());
-                userDto.setType(dto.getType());
-                userDto.setCategory(dto.getCategory());
-
-                userDto.setActionUrl(dto.getActionUrl());
-                userDto.setEntityId(dto.getEntityId());
-                userDto.setEntityType(dto.getEntityType());
-                userDto.setStoreId(storeId);
-                
-                createNotification(userDto, user.getId());
+            if (!storeRepository.existsById(storeId)) {
+                throw new RuntimeException("Store not found");
             }
             
-            logger.info("Created notifications for {} users in store: {}", users.size(), storeId);
+            // Danh sách user của store được tách và ghi theo lô trên worker của NotificationDispatcher
+            notificationDispatcher.enqueue(PendingNotification.forStore(dto, storeId));
+            
+            logger.info("Queued notification for all users in store: {}", storeId);
         } catch (Exception e) {
             logger.error("Error creating notifications for store: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to create notifications for store", e);
@@ -123,6 +133,15 @@ public class NotificationServiceImpl implements NotificationService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<NotificationDto> getUserNotificationsByCursor(Long userId, Long storeId, String cursor, Integer size) {
+        Specification<Notification> spec = Specification.where(NotificationSpecification.forUser(userId))
+                .and(NotificationSpecification.inStore(storeId));
+        return KeysetPagination.fetch(notificationRepository, spec, cursor, size, Notification::getId, "user", "store")
+                .map(notifications -> notifications.stream().map(NotificationDto::fromEntity).toList());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<NotificationDto> getStoreNotifications(Long storeId, Pageable pageable) {
@@ -151,11 +170,7 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional(readOnly = true)
     public Long getUnreadCount(Long userId, Long storeId) {
         try {
-            if (storeId != null) {
-                return notificationRepository.countByUserIdAndStoreIdAndIsReadFalse(userId, storeId);
-            } else {
-                return notificationRepository.countByUserIdAndIsReadFalse(userId);
-            }
+            return unreadCounter.getUserCount(userId, storeId);
         } catch (Exception e) {
             logger.error("Error getting unread count: {}", e.getMessage(), e);
             return 0L;
@@ -166,7 +181,7 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional(readOnly = true)
     public Long getStoreUnreadCount(Long storeId) {
         try {
-            return notificationRepository.countByStoreIdAndIsReadFalse(storeId);
+            return unreadCounter.getStoreCount(storeId);
         } catch (Exception e) {
             logger.error("Error getting store unread count: {}", e.getMessage(), e);
             return 0L;
@@ -177,7 +192,7 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional(readOnly = true)
     public Long getAllStoreUnreadCount() {
         try {
-            return notificationRepository.countByIsReadFalse();
+            return unreadCounter.getAllStoresCount();
         } catch (Exception e) {
             logger.error("Error getting all store unread count: {}", e.getMessage(), e);
             return 0L;
@@ -197,10 +212,20 @@ public class NotificationServiceImpl implements NotificationService {
                 throw new RuntimeException("Unauthorized access to notification");
             }
             
+            boolean wasUnread = !Boolean.TRUE.equals(notification.getIsRead());
+            Long storeId = notification.getStore() != null ? notification.getStore().getId() : null;
+            
             notification.setIsRead(true);
             notification.setReadAt(LocalDateTime.now());
             notificationRepository.save(notification);
             
+            if (wasUnread) {
+                afterCommit(() -> {
+                    unreadCounter.decrement(userId, storeId);
+                    notificationStreamHub.countsChanged(userId, storeId);
+                });
+            }
+            
             logger.info("Marked notification as read: {}", notificationId);
         } catch (Exception e) {
             logger.error("Error marking notification as read: {}", e.getMessage(), e);
@@ -218,6 +243,10 @@ public class NotificationServiceImpl implements NotificationService {
             } else {
                 notificationRepository.markAllAsReadByUserId(userId, now);
             }
+            afterCommit(() -> {
+                unreadCounter.invalidateUser(userId);
+                notificationStreamHub.countsChanged(userId, storeId);
+            });
             
             logger.info("Marked all notifications as read for user: {}", userId);
         } catch (Exception e) {
@@ -232,6 +261,10 @@ public class NotificationServiceImpl implements NotificationService {
         try {
             LocalDateTime now = LocalDateTime.now();
             notificationRepository.markAllNotificationsAsRead(now);
+            afterCommit(() -> {
+                unreadCounter.invalidateAll();
+                notificationStreamHub.allCountsChanged();
+            });
             
             logger.info("Marked all notifications as read for all stores");
         } catch (Exception e) {
@@ -253,7 +286,16 @@ public class NotificationServiceImpl implements NotificationService {
                 throw new RuntimeException("Unauthorized access to notification");
             }
             
+            boolean wasUnread = !Boolean.TRUE.equals(notification.getIsRead());
+            Long storeId = notification.getStore() != null ? notification.getStore().getId() : null;
+            
             notificationRepository.delete(notification);
+            if (wasUnread) {
+                afterCommit(() -> {
+                    unreadCounter.decrement(userId, storeId);
+                    notificationStreamHub.countsChanged(userId, storeId);
+                });
+            }
             logger.info("Deleted notification: {}", notificationId);
         } catch (Exception e) {
             logger.error("Error deleting notification: {}", e.getMessage(), e);
@@ -265,32 +307,28 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional
     public void deleteAllUserNotifications(Long userId, Long storeId) {
         try {
+            int deleted;
             if (storeId != null) {
-                List<Notification> notifications = notificationRepository.findByUserIdAndStoreIdOrderByCreatedAtDesc(userId, storeId, Pageable.unpaged()).getContent();
-                notificationRepository.deleteAll(notifications);
+                deleted = notificationRepository.bulkDeleteByUserIdAndStoreId(userId, storeId);
             } else {
-                List<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, Pageable.unpaged()).getContent();
-                notificationRepository.deleteAll(notifications);
+                deleted = notificationRepository.bulkDeleteByUserId(userId);
             }
+            afterCommit(() -> {
+                unreadCounter.invalidateUser(userId);
+                notificationStreamHub.countsChanged(userId, storeId);
+            });
             
-            logger.info("Deleted all notifications for user: {}", userId);
+            logger.info("Deleted {} notifications for user: {}", deleted, userId);
         } catch (Exception e) {
             logger.error("Error deleting all notifications: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to delete all notifications", e);
         }
     }
     
+    // Xóa theo từng khoảng id, không chạy trong transaction (xem NotificationRetentionJob, chạy theo lịch lúc 2h sáng)
     @Override
-    @Scheduled(cron = "0 0 2 * * ?") // Chạy lúc 2h sáng mỗi ngày
-    @Transactional
     public void cleanupOldNotifications() {
-        try {
-            LocalDateTime cutoffDate = LocalDateTime.now().minusDays(30);
-            notificationRepository.deleteOldNotifications(cutoffDate);
-            logger.info("Cleaned up old notifications older than 30 days");
-        } catch (Exception e) {
-            logger.error("Error cleaning up old notifications: {}", e.getMessage(), e);
-        }
+        notificationRetentionJob.run();
     }
     
     @Override
@@ -301,9 +339,6 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void createImportTransactionNotification(String action, String transactionName, Long storeId, Long userId, String newStatus) {
         try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Phiếu nhập hàng";
             
             // Xác định message dựa trên action
@@ -378,7 +413,7 @@ public class NotificationServiceImpl implements NotificationService {
                 notificationType = Notification.NotificationType.WARNING;
             }
             
-            String message = String.format("Đã %s phiếu nhập hàng: %s bởi %s", actionText, transactionName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+            String message = String.format("Đã %s phiếu nhập hàng: %s bởi %s", actionText, transactionName, PendingNotification.ACTOR_TOKEN);
             
             CreateNotificationDto dto = new CreateNotificationDto();
             dto.setTitle(title);
@@ -387,7 +422,8 @@ public class NotificationServiceImpl implements NotificationService {
             dto.setCategory(Notification.NotificationCategory.IMPORT_TRANSACTION);
             dto.setStoreId(storeId);
             
-            createNotification(dto, userId);
+            // Tên người thao tác được điền khi worker ghi thông báo
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating import transaction notification: {}", e.getMessage(), e);
         }
@@ -401,9 +437,6 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void createSaleTransactionNotification(String action, String transactionName, Long storeId, Long userId, String newStatus) {
         try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Phiếu bán hàng";
             
             // Xác định message dựa trên action
@@ -478,7 +511,7 @@ public class NotificationServiceImpl implements NotificationService {
                 notificationType = Notification.NotificationType.WARNING;
             }
             
-            String message = String.format("Đã %s phiếu bán hàng: %s bởi %s", actionText, transactionName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+            String message = String.format("Đã %s phiếu bán hàng: %s bởi %s", actionText, transactionName, PendingNotification.ACTOR_TOKEN);
             
             CreateNotificationDto dto = new CreateNotificationDto();
             dto.setTitle(title);
@@ -487,7 +520,7 @@ public class NotificationServiceImpl implements NotificationService {
             dto.setCategory(Notification.NotificationCategory.SALE_TRANSACTION);
             dto.setStoreId(storeId);
             
-            createNotification(dto, userId);
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating sale transaction notification: {}", e.getMessage(), e);
         }
@@ -496,9 +529,6 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void createProductNotification(String action, String productName, Long storeId, Long userId) {
         try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Sản phẩm";
             
             // Xác định message dựa trên action
@@ -522,7 +552,7 @@ public class NotificationServiceImpl implements NotificationService {
                 notificationType = Notification.NotificationType.WARNING;
             }
             
-            String message = String.format("Đã %s sản phẩm: %s bởi %s", actionText, productName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+            String message = String.format("Đã %s sản phẩm: %s bởi %s", actionText, productName, PendingNotification.ACTOR_TOKEN);
             
             CreateNotificationDto dto = new CreateNotificationDto();
             dto.setTitle(title);
@@ -531,7 +561,7 @@ public class NotificationServiceImpl implements NotificationService {
             dto.setCategory(Notification.NotificationCategory.PRODUCT);
             dto.setStoreId(storeId);
             
-            createNotification(dto, userId);
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating product notification: {}", e.getMessage(), e);
         }
@@ -540,9 +570,6 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void createCustomerNotification(String action, String customerName, Long storeId, Long userId) {
         try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Khách hàng";
             
             // Xác định message dựa trên action
@@ -560,7 +587,7 @@ public class NotificationServiceImpl implements NotificationService {
                 notificationType = Notification.NotificationType.INFO;
             }
             
-            String message = String.format("Đã %s khách hàng: %s bởi %s", actionText, customerName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+            String message = String.format("Đã %s khách hàng: %s bởi %s", actionText, customerName, PendingNotification.ACTOR_TOKEN);
             
             CreateNotificationDto dto = new CreateNotificationDto();
             dto.setTitle(title);
@@ -569,7 +596,7 @@ public class NotificationServiceImpl implements NotificationService {
             dto.setCategory(Notification.NotificationCategory.CUSTOMER);
             dto.setStoreId(storeId);
             
-            createNotification(dto, userId);
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating customer notification: {}", e.getMessage(), e);
         }
@@ -587,9 +614,6 @@ public class NotificationServiceImpl implements NotificationService {
             logger.info("Creating stocktake notification - action: {}, stocktakeName: {}, storeId: {}, userId: {}, newStatus: {}", 
                 action, stocktakeName, storeId, userId, newStatus);
             
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Kiểm kê";
             
             // Xác định message dựa trên action và trạng thái
@@ -639,10 +663,10 @@ public class NotificationServiceImpl implements NotificationService {
             
             String message;
             if (action.equals("balance_required")) {
-                message = String.format("⚠️ Phiếu kiểm kê %s có chênh lệch số lượng, cần cân bằng kho bởi %s", stocktakeName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+                message = String.format("⚠️ Phiếu kiểm kê %s có chênh lệch số lượng, cần cân bằng kho bởi %s", stocktakeName, PendingNotification.ACTOR_TOKEN);
                 logger.info("Generated balance_required message: {}", message);
             } else {
-                message = String.format("Đã %s phiếu kiểm kê: %s bởi %s", actionText, stocktakeName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+                message = String.format("Đã %s phiếu kiểm kê: %s bởi %s", actionText, stocktakeName, PendingNotification.ACTOR_TOKEN);
             }
             
             CreateNotificationDto dto = new CreateNotificationDto();
@@ -655,7 +679,7 @@ public class NotificationServiceImpl implements NotificationService {
             logger.info("About to create notification with DTO: title={}, message={}, type={}, category={}, storeId={}", 
                 dto.getTitle(), dto.getMessage(), dto.getType(), dto.getCategory(), dto.getStoreId());
             
-            createNotification(dto, userId);
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating stocktake notification: {}", e.getMessage(), e);
         }
@@ -664,9 +688,6 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void createCategoryNotification(String action, String categoryName, Long storeId, Long userId) {
         try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Danh mục";
             
             // Xác định message dựa trên action
@@ -684,7 +705,7 @@ public class NotificationServiceImpl implements NotificationService {
                 notificationType = Notification.NotificationType.INFO;
             }
             
-            String message = String.format("Đã %s danh mục: %s bởi %s", actionText, categoryName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+            String message = String.format("Đã %s danh mục: %s bởi %s", actionText, categoryName, PendingNotification.ACTOR_TOKEN);
             
             CreateNotificationDto dto = new CreateNotificationDto();
             dto.setTitle(title);
@@ -693,7 +714,7 @@ public class NotificationServiceImpl implements NotificationService {
             dto.setCategory(Notification.NotificationCategory.CATEGORY);
             dto.setStoreId(storeId);
             
-            createNotification(dto, userId);
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating category notification: {}", e.getMessage(), e);
         }
@@ -702,9 +723,6 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void createZoneNotification(String action, String zoneName, Long storeId, Long userId) {
         try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
             String title = "Khu vực";
             
             // Xác định message dựa trên action
@@ -722,7 +740,7 @@ public class NotificationServiceImpl implements NotificationService {
                 notificationType = Notification.NotificationType.INFO;
             }
             
-            String message = String.format("Đã %s khu vực: %s bởi %s", actionText, zoneName, user.getFullName() != null ? user.getFullName() : user.getUsername());
+            String message = String.format("Đã %s khu vực: %s bởi %s", actionText, zoneName, PendingNotification.ACTOR_TOKEN);
             
             CreateNotificationDto dto = new CreateNotificationDto();
             dto.setTitle(title);
@@ -731,9 +749,23 @@ public class NotificationServiceImpl implements NotificationService {
             dto.setCategory(Notification.NotificationCategory.ZONE);
             dto.setStoreId(storeId);
             
-            createNotification(dto, userId);
+            notificationDispatcher.enqueue(PendingNotification.forUser(dto, userId, userId));
         } catch (Exception e) {
             logger.error("Error creating zone notification: {}", e.getMessage(), e);
         }
     }
+    
+    // Bộ đếm chưa đọc và kênh SSE chỉ cập nhật khi transaction đã commit
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
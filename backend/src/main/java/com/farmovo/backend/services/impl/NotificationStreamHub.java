@@ -0,0 +1,209 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.PendingNotification;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kênh SSE đẩy thông báo mới và số chưa đọc cho client, thay cho việc poll các endpoint unread-count.
+ * Kết nối đang chờ không giữ thread của container (SseEmitter chạy async); việc ghi ra từng kết nối
+ * chạy trên virtual thread nên client chậm không chặn thread gọi (request hoặc worker của NotificationDispatcher).
+ * Số chưa đọc lấy từ NotificationUnreadCounter, không truy vấn DB cho mỗi lần đẩy.
+ */
+@Component
+public class NotificationStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamHub.class);
+
+    static final String EVENT_NOTIFICATION = "notification";
+    static final String EVENT_UNREAD_COUNT = "unread-count";
+
+    // Một kết nối SSE: storeId là cửa hàng client đang xem (có thể null), admin nhận thêm tổng mọi cửa hàng
+    private record Subscription(Long userId, Long storeId, boolean admin, SseEmitter emitter) {
+    }
+
+    private final NotificationUnreadCounter unreadCounter;
+    private final long timeoutMs;
+    private final Map<Long, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "notification-sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NotificationStreamHub(NotificationUnreadCounter unreadCounter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.notification.sse.timeout:30m}") Duration timeout,
+                                 @Value("${app.notification.sse.heartbeat:25s}") Duration heartbeatInterval) {
+        this.unreadCounter = unreadCounter;
+        this.timeoutMs = timeout.toMillis();
+        meterRegistry.gauge("notifications.sse.connections", subscriptions, Set::size);
+        // Comment định kỳ giữ kết nối qua proxy và phát hiện client đã ngắt
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(Long userId, Long storeId, boolean admin) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(userId, storeId, admin, emitter);
+        subscriptions.add(subscription);
+        subscriptionsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(e -> remove(subscription));
+        // Giá trị ban đầu gửi ngay để client không cần gọi unread-count khi mở kết nối
+        sender.execute(() -> send(subscription, EVENT_UNREAD_COUNT, snapshot(subscription)));
+        return emitter;
+    }
+
+    /**
+     * Thông báo chưa đọc mới đã được commit: cập nhật bộ đếm và đẩy tới người nhận,
+     * kèm số chưa đọc mới cho các kết nối bị ảnh hưởng. Mỗi phần tử phải có userId.
+     */
+    public void notificationsCreated(Collection<PendingNotification> notifications) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> storeIds = new HashSet<>();
+        for (PendingNotification n : notifications) {
+            unreadCounter.increment(n.userId(), n.storeId());
+            userIds.add(n.userId());
+            if (n.storeId() != null) {
+                storeIds.add(n.storeId());
+            }
+        }
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (PendingNotification n : notifications) {
+            Set<Subscription> userSubscriptions = subscriptionsByUser.get(n.userId());
+            if (userSubscriptions == null) {
+                continue;
+            }
+            Map<String, Object> payload = toPayload(n, now);
+            for (Subscription subscription : userSubscriptions) {
+                sender.execute(() -> send(subscription, EVENT_NOTIFICATION, payload));
+            }
+        }
+        pushCounts(userIds, storeIds);
+    }
+
+    // Số chưa đọc của user (và cửa hàng) đã thay đổi do đánh dấu đã đọc hoặc xóa
+    public void countsChanged(Long userId, Long storeId) {
+        if (!subscriptions.isEmpty()) {
+            pushCounts(Set.of(userId), storeId != null ? Set.of(storeId) : Set.of());
+        }
+    }
+
+    // Thay đổi không gắn với user cụ thể (đánh dấu tất cả, dọn dẹp): gửi lại số chưa đọc cho mọi kết nối
+    public void allCountsChanged() {
+        for (Subscription subscription : subscriptions) {
+            sender.execute(() -> send(subscription, EVENT_UNREAD_COUNT, snapshot(subscription)));
+        }
+    }
+
+    public int getConnectionCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        for (Subscription subscription : new ArrayList<>(subscriptions)) {
+            subscription.emitter().complete();
+        }
+        sender.shutdown();
+    }
+
+    private void pushCounts(Set<Long> userIds, Set<Long> storeIds) {
+        for (Subscription subscription : subscriptions) {
+            boolean affected = userIds.contains(subscription.userId())
+                    || (subscription.storeId() != null && storeIds.contains(subscription.storeId()))
+                    || subscription.admin();
+            if (affected) {
+                sender.execute(() -> send(subscription, EVENT_UNREAD_COUNT, snapshot(subscription)));
+            }
+        }
+    }
+
+    private Map<String, Object> snapshot(Subscription subscription) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("unreadCount", unreadCounter.getUserCount(subscription.userId(), subscription.storeId()));
+        if (subscription.storeId() != null) {
+            counts.put("storeId", subscription.storeId());
+            counts.put("storeUnreadCount", unreadCounter.getStoreCount(subscription.storeId()));
+        }
+        if (subscription.admin()) {
+            counts.put("allStoresUnreadCount", unreadCounter.getAllStoresCount());
+        }
+        return counts;
+    }
+
+    private static Map<String, Object> toPayload(PendingNotification n, LocalDateTime createdAt) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("title", n.title());
+        payload.put("message", n.message());
+        payload.put("type", n.type());
+        payload.put("category", n.category());
+        payload.put("actionUrl", n.actionUrl());
+        payload.put("entityId", n.entityId());
+        payload.put("entityType", n.entityType());
+        payload.put("storeId", n.storeId());
+        payload.put("createdAt", createdAt);
+        return payload;
+    }
+
+    private void send(Subscription subscription, String eventName, Object data) {
+        try {
+            subscription.emitter().send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client đã ngắt hoặc emitter đã đóng
+            remove(subscription);
+        } catch (Exception e) {
+            logger.warn("Failed to push {} to user {}: {}", eventName, subscription.userId(), e.getMessage());
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (Subscription subscription : subscriptions) {
+            sender.execute(() -> {
+                try {
+                    subscription.emitter().send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    remove(subscription);
+                }
+            });
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            subscriptionsByUser.computeIfPresent(subscription.userId(), (id, set) -> {
+                set.remove(subscription);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
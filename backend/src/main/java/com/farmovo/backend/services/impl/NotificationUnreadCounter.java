@@ -0,0 +1,92 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.repositories.NotificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số thông báo chưa đọc giữ trong bộ nhớ, thay cho các truy vấn countBy...IsReadFalse mỗi lần poll.
+ * Mỗi bộ đếm được nạp từ DB ở lần đọc đầu tiên, sau đó được cộng/trừ bởi các luồng tạo và đánh dấu đã đọc.
+ * Bộ đếm hết hạn sau expire-after-write nên sai lệch (nếu có, do ghi song song lúc đang nạp) tự được sửa.
+ */
+@Component
+public class NotificationUnreadCounter {
+
+    private static final Object ALL_STORES = new Object();
+
+    // storeId null = tổng của user trên mọi cửa hàng
+    private record UserKey(Long userId, Long storeId) {
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final Cache<UserKey, AtomicLong> userCounts;
+    private final Cache<Long, AtomicLong> storeCounts;
+    private final Cache<Object, AtomicLong> allStoresCount;
+
+    public NotificationUnreadCounter(NotificationRepository notificationRepository,
+                                     @Value("${app.notification.unread-count.maximum-size:50000}") long maximumSize,
+                                     @Value("${app.notification.unread-count.expire-after-write:15m}") Duration expireAfterWrite) {
+        this.notificationRepository = notificationRepository;
+        this.userCounts = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite).build();
+        this.storeCounts = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite).build();
+        this.allStoresCount = Caffeine.newBuilder().expireAfterWrite(expireAfterWrite).build();
+    }
+
+    public long getUserCount(Long userId, Long storeId) {
+        return userCounts.get(new UserKey(userId, storeId), key -> new AtomicLong(key.storeId() != null
+                ? notificationRepository.countByUserIdAndStoreIdAndIsReadFalse(key.userId(), key.storeId())
+                : notificationRepository.countByUserIdAndIsReadFalse(key.userId()))).get();
+    }
+
+    public long getStoreCount(Long storeId) {
+        return storeCounts.get(storeId, id -> new AtomicLong(notificationRepository.countByStoreIdAndIsReadFalse(id))).get();
+    }
+
+    public long getAllStoresCount() {
+        return allStoresCount.get(ALL_STORES, key -> new AtomicLong(notificationRepository.countByIsReadFalse())).get();
+    }
+
+    // Gọi sau khi commit một thông báo chưa đọc mới
+    public void increment(Long userId, Long storeId) {
+        add(userId, storeId, 1);
+    }
+
+    // Gọi sau khi commit một thông báo chưa đọc chuyển sang đã đọc (hoặc bị xóa)
+    public void decrement(Long userId, Long storeId) {
+        add(userId, storeId, -1);
+    }
+
+    // Đánh dấu/xóa hàng loạt của một user: không biết từng cửa hàng bị ảnh hưởng nên nạp lại từ DB
+    public void invalidateUser(Long userId) {
+        userCounts.asMap().keySet().removeIf(key -> key.userId().equals(userId));
+        storeCounts.invalidateAll();
+        allStoresCount.invalidateAll();
+    }
+
+    public void invalidateAll() {
+        userCounts.invalidateAll();
+        storeCounts.invalidateAll();
+        allStoresCount.invalidateAll();
+    }
+
+    // Chỉ cập nhật bộ đếm đã được nạp; bộ đếm chưa nạp sẽ đọc giá trị mới từ DB
+    private void add(Long userId, Long storeId, long delta) {
+        adjust(userCounts.getIfPresent(new UserKey(userId, null)), delta);
+        if (storeId != null) {
+            adjust(userCounts.getIfPresent(new UserKey(userId, storeId)), delta);
+            adjust(storeCounts.getIfPresent(storeId), delta);
+        }
+        adjust(allStoresCount.getIfPresent(ALL_STORES), delta);
+    }
+
+    private static void adjust(AtomicLong counter, long delta) {
+        if (counter != null) {
+            counter.updateAndGet(value -> Math.max(0, value + delta));
+        }
+    }
+}
@@ -14,9 +14,12 @@ import com.farmovo.backend.repositories.CategoryRepository;
 import com.farmovo.backend.repositories.ProductRepository;
 import com.farmovo.backend.repositories.StoreRepository;
 import com.farmovo.backend.services.ProductService;
+import com.farmovo.backend.specification.ProductSpecification;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -68,6 +71,14 @@ public class ProductServiceImpl implements ProductService {
         return productMapper.toDtoList(products);
     }
 
+    @Override
+    public List<ProductDto> searchProducts(String keyword, Long storeId, int limit) {
+        Specification<Product> spec = Specification.where(ProductSpecification.isNotDeleted())
+                .and(ProductSpecification.matchesKeyword(keyword))
+                .and(ProductSpecification.hasStore(storeId));
+        return productMapper.toDtoList(productRepository.findAll(spec, PageRequest.of(0, limit)).getContent());
+    }
+
     @Override
     public ProductDto getProductNameById(Long id) {
         logger.info("Retrieving product with id: {}", id);
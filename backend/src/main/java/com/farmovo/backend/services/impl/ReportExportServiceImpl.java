@@ -0,0 +1,105 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.response.CategoryRemainSummaryDto;
+import com.farmovo.backend.dto.response.ExpiringLotExtendedDto;
+import com.farmovo.backend.dto.response.InOutSummaryDto;
+import com.farmovo.backend.dto.response.ProductRemainSummaryDto;
+import com.farmovo.backend.dto.response.ZoneRemainSummaryDto;
+import com.farmovo.backend.services.ReportExportService;
+import com.farmovo.backend.utils.ExcelExportUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Service
+public class ReportExportServiceImpl implements ReportExportService {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private static final String[] INOUT_COLUMNS = {"Ngày", "Nhập", "Xuất", "Tồn"};
+    private static final int[] INOUT_WIDTHS = {14, 12, 12, 12};
+
+    private static final String[] REMAIN_COLUMNS = {"Danh mục", "Sản phẩm", "Khu vực", "Tồn"};
+    private static final int[] REMAIN_WIDTHS = {24, 32, 20, 12};
+
+    private static final String[] EXPIRING_COLUMNS = {"Mã SP", "Tên hàng", "Mã lô", "Khu vực", "Hạn dùng",
+            "Còn (ngày)", "Danh mục", "Kho", "Tồn"};
+    private static final int[] EXPIRING_WIDTHS = {14, 32, 16, 18, 18, 10, 20, 20, 10};
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportInOutSummary(List<InOutSummaryDto> rows, String filename) {
+        return ExcelExportUtils.streamXlsx(filename, workbook -> {
+            Sheet sheet = ExcelExportUtils.createSheet(workbook, "Nhập xuất tồn", INOUT_COLUMNS, INOUT_WIDTHS);
+            int rowIdx = 1;
+            for (InOutSummaryDto dto : rows) {
+                Row row = sheet.createRow(rowIdx++);
+                row.createCell(0).setCellValue(dto.getDate() != null ? dto.getDate().format(DATE_FORMAT) : "");
+                row.createCell(1).setCellValue(dto.getImportQuantity());
+                row.createCell(2).setCellValue(dto.getExportQuantity());
+                row.createCell(3).setCellValue(dto.getRemainQuantity());
+            }
+        });
+    }
+
+    // Mỗi dòng là một cặp sản phẩm - khu vực; sản phẩm không có khu vực vẫn ra một dòng
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportRemainSummary(List<CategoryRemainSummaryDto> categories, String filename) {
+        return ExcelExportUtils.streamXlsx(filename, workbook -> {
+            Sheet sheet = ExcelExportUtils.createSheet(workbook, "Tồn kho", REMAIN_COLUMNS, REMAIN_WIDTHS);
+            int rowIdx = 1;
+            for (CategoryRemainSummaryDto category : categories) {
+                if (category.getProducts() == null) {
+                    continue;
+                }
+                for (ProductRemainSummaryDto product : category.getProducts()) {
+                    if (product.getZones() == null || product.getZones().isEmpty()) {
+                        writeRemainRow(sheet.createRow(rowIdx++), category, product, "", product.getTotalRemain());
+                        continue;
+                    }
+                    for (ZoneRemainSummaryDto zone : product.getZones()) {
+                        writeRemainRow(sheet.createRow(rowIdx++), category, product,
+                                zone.getZoneName() != null ? zone.getZoneName() : "", zone.getTotalRemain());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportExpiringLots(List<ExpiringLotExtendedDto> lots, String filename) {
+        return ExcelExportUtils.streamXlsx(filename, workbook -> {
+            Sheet sheet = ExcelExportUtils.createSheet(workbook, "Lô sắp hết hạn", EXPIRING_COLUMNS, EXPIRING_WIDTHS);
+            int rowIdx = 1;
+            for (ExpiringLotExtendedDto lot : lots) {
+                Row row = sheet.createRow(rowIdx++);
+                row.createCell(0).setCellValue(nullToEmpty(lot.getProductCode()));
+                row.createCell(1).setCellValue(nullToEmpty(lot.getProductName()));
+                row.createCell(2).setCellValue(nullToEmpty(lot.getLotCode()));
+                row.createCell(3).setCellValue(nullToEmpty(lot.getZoneName()));
+                row.createCell(4).setCellValue(lot.getExpireDate() != null ? lot.getExpireDate().format(DATE_TIME_FORMAT) : "");
+                row.createCell(5).setCellValue(lot.getDaysLeft() != null ? lot.getDaysLeft() : 0);
+                row.createCell(6).setCellValue(nullToEmpty(lot.getCategoryName()));
+                row.createCell(7).setCellValue(nullToEmpty(lot.getStoreName()));
+                row.createCell(8).setCellValue(lot.getRemainQuantity() != null ? lot.getRemainQuantity() : 0);
+            }
+        });
+    }
+
+    private static void writeRemainRow(Row row, CategoryRemainSummaryDto category, ProductRemainSummaryDto product,
+                                       String zoneName, Integer remain) {
+        row.createCell(0).setCellValue(nullToEmpty(category.getCategory()));
+        row.createCell(1).setCellValue(nullToEmpty(product.getProductName()));
+        row.createCell(2).setCellValue(zoneName);
+        row.createCell(3).setCellValue(remain != null ? remain : 0);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
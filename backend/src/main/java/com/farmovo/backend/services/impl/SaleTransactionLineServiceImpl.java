@@ -0,0 +1,128 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.response.ProductSaleResponseDto;
+import com.farmovo.backend.models.SaleTransaction;
+import com.farmovo.backend.models.SaleTransactionLine;
+import com.farmovo.backend.repositories.SaleTransactionLineRepository;
+import com.farmovo.backend.services.SaleTransactionLineService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class SaleTransactionLineServiceImpl implements SaleTransactionLineService {
+
+    private static final Logger log = LogManager.getLogger(SaleTransactionLineServiceImpl.class);
+
+    // Mapper riêng cho detail JSON cũ (không phụ thuộc cấu hình ObjectMapper của Spring)
+    private static final ObjectMapper DETAIL_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final SaleTransactionLineRepository lineRepository;
+
+    @Override
+    @Transactional
+    public void replaceLines(SaleTransaction transaction, List<ProductSaleResponseDto> detail) {
+        if (transaction == null || transaction.getId() == null) {
+            return;
+        }
+        lineRepository.deleteBySaleTransactionId(transaction.getId());
+        List<SaleTransactionLine> lines = buildLines(transaction, detail);
+        if (!lines.isEmpty()) {
+            lineRepository.saveAll(lines);
+        }
+        log.debug("Wrote {} sale lines for sale transaction ID: {}", lines.size(), transaction.getId());
+    }
+
+    @Override
+    @Transactional
+    public void ensureLines(SaleTransaction transaction, List<ProductSaleResponseDto> detail) {
+        if (transaction == null || transaction.getId() == null) {
+            return;
+        }
+        if (lineRepository.existsBySaleTransactionId(transaction.getId())) {
+            return;
+        }
+        List<SaleTransactionLine> lines = buildLines(transaction, detail);
+        if (!lines.isEmpty()) {
+            lineRepository.saveAll(lines);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Long backfillBatch(Long afterId, int batchSize) {
+        List<SaleTransaction> sales = lineRepository.findSalesWithoutLines(afterId, PageRequest.of(0, batchSize));
+        if (sales.isEmpty()) {
+            return null;
+        }
+        List<SaleTransactionLine> lines = new ArrayList<>();
+        int skipped = 0;
+        for (SaleTransaction sale : sales) {
+            List<SaleTransactionLine> saleLines;
+            try {
+                List<ProductSaleResponseDto> detail = DETAIL_MAPPER.readValue(
+                        sale.getDetail(), new TypeReference<List<ProductSaleResponseDto>>() {});
+                saleLines = buildLines(sale, detail);
+            } catch (Exception e) {
+                log.warn("Skipping sale line backfill for sale transaction ID: {} - invalid detail JSON: {}",
+                        sale.getId(), e.getMessage());
+                saleLines = List.of();
+            }
+            if (saleLines.isEmpty()) {
+                // Detail rỗng/lỗi: ghi một dòng đánh dấu để lần backfill sau không quét lại phiếu này
+                saleLines = List.of(processedMarker(sale));
+                skipped++;
+            }
+            lines.addAll(saleLines);
+        }
+        if (!lines.isEmpty()) {
+            lineRepository.saveAll(lines);
+        }
+        Long lastId = sales.get(sales.size() - 1).getId();
+        log.info("Backfilled {} sale lines for {} sale transactions, {} without valid lines (up to ID: {})",
+                lines.size() - skipped, sales.size(), skipped, lastId);
+        return lastId;
+    }
+
+    // Dòng không có sản phẩm/lô và số lượng 0: báo cáo bỏ qua (JOIN Product, quantity > 0)
+    // nhưng findSalesWithoutLines coi phiếu là đã xử lý
+    private SaleTransactionLine processedMarker(SaleTransaction sale) {
+        SaleTransactionLine marker = new SaleTransactionLine();
+        marker.setSaleTransaction(sale);
+        marker.setQuantity(0);
+        return marker;
+    }
+
+    private List<SaleTransactionLine> buildLines(SaleTransaction transaction, List<ProductSaleResponseDto> detail) {
+        List<SaleTransactionLine> lines = new ArrayList<>();
+        if (detail == null) {
+            return lines;
+        }
+        for (ProductSaleResponseDto item : detail) {
+            if (item == null || item.getProId() == null) {
+                continue;
+            }
+            SaleTransactionLine line = new SaleTransactionLine();
+            line.setSaleTransaction(transaction);
+            line.setLotId(item.getId());
+            line.setProductId(item.getProId());
+            line.setQuantity(item.getQuantity() != null ? item.getQuantity() : 0);
+            line.setUnitSalePrice(item.getUnitSalePrice());
+            lines.add(line);
+        }
+        return lines;
+    }
+}
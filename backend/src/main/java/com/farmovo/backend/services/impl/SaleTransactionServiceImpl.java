@@ -1,12 +1,13 @@
 package com.farmovo.backend.services.impl;
 
+import com.farmovo.backend.dto.StatusChangeEvent;
 import com.farmovo.backend.dto.request.CreateSaleTransactionRequestDto;
+import com.farmovo.backend.dto.request.CursorPageResponse;
 import com.farmovo.backend.dto.response.ProductSaleResponseDto;
 import com.farmovo.backend.dto.response.SaleTransactionResponseDto;
 import com.farmovo.backend.exceptions.BadRequestException;
 import com.farmovo.backend.exceptions.SaleTransactionNotFoundException;
 
-import java.io.FileOutputStream;
 
 import com.farmovo.backend.exceptions.TransactionStatusException;
 import com.farmovo.backend.exceptions.CustomerNotFoundException;
@@ -15,45 +16,48 @@ import com.farmovo.backend.mapper.ProductMapper;
 import com.farmovo.backend.mapper.SaleTransactionMapper;
 import com.farmovo.backend.models.*;
 import com.farmovo.backend.repositories.*;
+import com.farmovo.backend.services.DailyStoreRollupService;
 import com.farmovo.backend.services.DebtNoteService;
 import com.farmovo.backend.services.PriceChangeNotificationService;
+import com.farmovo.backend.services.SaleTransactionLineService;
 import com.farmovo.backend.services.SaleTransactionService;
+import com.farmovo.backend.services.StockMutationService;
 import com.farmovo.backend.specification.SaleTransactionSpecification;
+import com.farmovo.backend.utils.KeysetPagination;
+import com.farmovo.backend.utils.PdfBulkExporter;
+import com.farmovo.backend.utils.PdfRenderer;
 import com.farmovo.backend.validator.SaleTransactionValidator;
-import com.farmovo.backend.aop.LogStatusChange;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.BaseFont;
-import com.lowagie.text.pdf.PdfPCell;
-import com.lowagie.text.pdf.PdfPTable;
-import com.lowagie.text.pdf.PdfWriter;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.text.NumberFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.springframework.data.domain.PageRequest;
@@ -78,6 +82,15 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
     private final ProductRepository productRepository;
     private final StocktakeRepository stocktakeRepository;
     private final PriceChangeNotificationService priceChangeNotificationService;
+    private final SaleTransactionLineService saleTransactionLineService;
+    private final DailyStoreRollupService dailyStoreRollupService;
+    private final PdfRenderer pdfRenderer;
+    private final PdfBulkExporter pdfBulkExporter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockMutationService stockMutationService;
+
+    @Value("${app.export.bulk-max-documents:500}")
+    private int bulkExportMaxDocuments;
 
     @Override
     public List<ProductSaleResponseDto> listAllProductResponseDtoByIdPro(Long productId) {
@@ -127,6 +140,7 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         }
 
         SaleTransaction savedTransaction = saleTransactionRepository.save(transaction);
+        saleTransactionLineService.replaceLines(savedTransaction, dto.getDetail());
         log.info("Sale transaction saved successfully with ID: {}", savedTransaction.getId());
 
         // Kiểm tra và thông báo sự thay đổi giá
@@ -141,6 +155,7 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         if (dto.getStatus() == SaleTransactionStatus.COMPLETE) {
             log.info("Handling debt note for completed transaction");
             handleCompleteStatus(savedTransaction);
+            dailyStoreRollupService.recordSaleCompleted(savedTransaction);
         }
     }
 
@@ -173,6 +188,7 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         }
 
         saleTransactionRepository.save(transaction);
+        saleTransactionLineService.replaceLines(transaction, dto.getDetail());
         log.info("Sale transaction with ID: {} updated successfully", id);
 
         // Kiểm tra và thông báo sự thay đổi giá
@@ -187,6 +203,7 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         if (dto.getStatus() == SaleTransactionStatus.COMPLETE) {
             log.info("Handling debt note for completed transaction");
             handleCompleteStatus(transaction);
+            dailyStoreRollupService.recordSaleCompleted(transaction);
         }
     }
 
@@ -212,8 +229,38 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         );
 
         Page<SaleTransaction> entityPage = saleTransactionRepository.findAll(spec, pageable);
+        List<SaleTransactionResponseDto> dtoList = toResponseDtos(entityPage.getContent());
 
-        List<SaleTransactionResponseDto> dtoList = entityPage.getContent().stream()
+        return new PageImpl<>(dtoList, pageable, entityPage.getTotalElements());
+    }
+
+    @Override
+    public CursorPageResponse<SaleTransactionResponseDto> getAllByCursor(String name,
+                                                                         String customerName,
+                                                                         String storeName,
+                                                                         Long storeId,
+                                                                         SaleTransactionStatus status,
+                                                                         LocalDateTime fromDate,
+                                                                         LocalDateTime toDate,
+                                                                         BigDecimal minTotalAmount,
+                                                                         BigDecimal maxTotalAmount,
+                                                                         BigDecimal minPaidAmount,
+                                                                         BigDecimal maxPaidAmount,
+                                                                         String note,
+                                                                         Long createdBy,
+                                                                         String cursor,
+                                                                         Integer size) {
+        Specification<SaleTransaction> spec = SaleTransactionSpecification.buildSpecification(
+                name, customerName, storeName, storeId, status, fromDate, toDate,
+                minTotalAmount, maxTotalAmount, minPaidAmount, maxPaidAmount, note, createdBy
+        );
+        return KeysetPagination.fetch(saleTransactionRepository, spec, cursor, size, SaleTransaction::getId,
+                        "customer", "store")
+                .map(this::toResponseDtos);
+    }
+
+    private List<SaleTransactionResponseDto> toResponseDtos(List<SaleTransaction> transactions) {
+        List<SaleTransactionResponseDto> dtoList = transactions.stream()
                 .map(entity -> saleTransactionMapper.toResponseDto(entity, objectMapper))
                 .collect(Collectors.toList());
 
@@ -235,13 +282,21 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
             }
         } catch (Exception ignore) {}
 
-        return new PageImpl<>(dtoList, pageable, entityPage.getTotalElements());
+        return dtoList;
     }
 
     @Override
-    @Transactional
-    @LogStatusChange
+    @Timed(value = "sale.transaction.complete", description = "Thời gian hoàn thành phiếu bán (gồm trừ tồn kho)")
     public void complete(Long id) {
+        // Cả phiếu là một transaction; phiếu cân bằng ghi isCheck/zone qua entity lô (@Version),
+        // nên khi lô bị cập nhật đồng thời thì thử lại toàn bộ thay vì báo lỗi cho người dùng
+        stockMutationService.execute("sale.complete", () -> {
+            completeInTransaction(id);
+            return null;
+        });
+    }
+
+    private void completeInTransaction(Long id) {
         var transaction = saleTransactionRepository.findById(id)
                 .orElseThrow(() -> new SaleTransactionNotFoundException("Not found"));
 
@@ -251,6 +306,7 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
                     id, transaction.getStatus());
             throw new TransactionStatusException(transaction.getStatus().toString(), "DRAFT hoặc WAITING_FOR_APPROVE", "hoàn thành phiếu");
         }
+        SaleTransactionStatus oldStatus = transaction.getStatus();
 
         // Nếu là DRAFT, tự động chuyển sang WAITING_FOR_APPROVE trước
         if (transaction.getStatus() == SaleTransactionStatus.DRAFT) {
@@ -295,12 +351,15 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         }
         transaction.setStatus(SaleTransactionStatus.COMPLETE);
         saleTransactionRepository.save(transaction);
+        // Phiếu tạo trước khi có bảng sale_transaction_lines: ghi dòng chi tiết khi hoàn thành
+        saleTransactionLineService.ensureLines(transaction, detailList);
         handleCompleteStatus(transaction);
+        dailyStoreRollupService.recordSaleCompleted(transaction);
+        eventPublisher.publishEvent(StatusChangeEvent.of("SaleTransaction", id, oldStatus, transaction.getStatus()));
     }
 
     @Transactional(rollbackFor = Exception.class)
     @Override
-    @LogStatusChange
     public void cancel(Long id) {
         SaleTransaction transaction = saleTransactionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("ImportTransaction not found with id: " + id));
@@ -309,6 +368,10 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
         transaction.setStatus(SaleTransactionStatus.CANCEL);
         // updatedAt sẽ tự động cập nhật nhờ @UpdateTimestamp
         saleTransactionRepository.save(transaction);
+        if (oldStatus == SaleTransactionStatus.COMPLETE && transaction.getDeletedAt() == null) {
+            dailyStoreRollupService.revertSale(transaction);
+        }
+        eventPublisher.publishEvent(StatusChangeEvent.of("SaleTransaction", id, oldStatus, transaction.getStatus()));
 
         log.info("Sale transaction cancelled successfully. ID: {}, Old status: {}, New status: {}",
                 id, oldStatus, transaction.getStatus());
@@ -372,15 +435,18 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
 
     @Override
     @Transactional
-    @LogStatusChange
     public void softDeleteSaleTransaction(Long id, Long userId) {
         SaleTransaction transaction = saleTransactionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy phiếu bán với ID: " + id));
 
+        boolean countedInRollup = transaction.getStatus() == SaleTransactionStatus.COMPLETE && transaction.getDeletedAt() == null;
         transaction.setDeletedAt(LocalDateTime.now());
         transaction.setDeletedBy(userId);
 
         saleTransactionRepository.save(transaction);
+        if (countedInRollup) {
+            dailyStoreRollupService.revertSale(transaction);
+        }
     }
 
     @Override
@@ -408,206 +474,90 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
     }
 
     @Override
-    public byte[] exportPdf(Long id) {
+    public StreamingResponseBody exportPdf(Long id) {
         SaleTransaction transaction = saleTransactionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction not found"));
 
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, out);
-            document.open();
-
-            // Load font Roboto từ file tạm (bắt buộc để dùng IDENTITY_H)
-            ClassPathResource fontResource = new ClassPathResource("fonts/Roboto-Regular.ttf");
-            File tempFontFile = File.createTempFile("roboto", ".ttf");
-            tempFontFile.deleteOnExit();
-            try (InputStream in = fontResource.getInputStream(); OutputStream os = new FileOutputStream(tempFontFile)) {
-                in.transferTo(os);
-            }
-
-            BaseFont baseFont = BaseFont.createFont(
-                    tempFontFile.getAbsolutePath(),
-                    BaseFont.IDENTITY_H,
-                    BaseFont.EMBEDDED
-            );
-
-            Font normalFont = new Font(baseFont, 12);
-            Font boldFont = new Font(baseFont, 12, Font.BOLD);
-            Font redFont = new Font(baseFont, 12, Font.BOLD);
-            Font blueFont = new Font(baseFont, 12, Font.BOLD);
-
-            // ===== Tiêu đề =====
-            LocalDateTime createdAt = transaction.getCreatedAt();
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            String formattedTime = createdAt != null ? createdAt.format(timeFormatter) : "";
-            String formattedDate = createdAt != null ? createdAt.format(dateFormatter) : "";
-
-            PdfPTable headerTable = new PdfPTable(2);
-            headerTable.setWidthPercentage(100);
-            headerTable.setWidths(new float[]{2f, 1f});
-            headerTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
-
-            PdfPCell titleCell = new PdfPCell(new Phrase("CHI TIẾT PHIẾU BÁN HÀNG " + safe(transaction.getName()), new Font(baseFont, 14, Font.BOLD)));
-            titleCell.setBorder(Rectangle.NO_BORDER);
-            titleCell.setHorizontalAlignment(Element.ALIGN_LEFT);
-
-            PdfPCell dateCell = new PdfPCell();
-            dateCell.setBorder(Rectangle.NO_BORDER);
-            dateCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            dateCell.addElement(new Paragraph("Ngày lập: " + formattedDate, normalFont));
-            dateCell.addElement(new Paragraph("Giờ lập: " + formattedTime, normalFont));
-
-            headerTable.addCell(titleCell);
-            headerTable.addCell(dateCell);
-
-            document.add(headerTable);
-
-            // ===== Trạng thái =====
-            if (transaction.getStatus() == SaleTransactionStatus.COMPLETE) {
-                document.add(new Paragraph("✔ Phiếu hoàn thành", normalFont));
-            }
-
-            // ===== Thông tin cửa hàng & khách hàng =====
-            PdfPTable infoTable = new PdfPTable(2);
-            infoTable.setWidthPercentage(100);
-            infoTable.setSpacingBefore(10f);
-            infoTable.setSpacingAfter(10f);
-            infoTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
-
-            PdfPCell storeCell = new PdfPCell();
-            storeCell.setBorder(Rectangle.NO_BORDER);
-            storeCell.addElement(new Paragraph("Thông tin cửa hàng", boldFont));
-            storeCell.addElement(new Paragraph("Tên cửa hàng: " + safe(transaction.getStore() != null ? transaction.getStore().getStoreName() : null), normalFont));
-            // Người tạo
-            String nguoiTao = "Chưa có";
-            try {
-                if (transaction.getCreatedBy() != null) {
-                    User staff = getStaff(transaction.getCreatedBy());
-                    nguoiTao = staff != null && staff.getFullName() != null ? staff.getFullName() : "Chưa có";
-                }
-            } catch (Exception e) {
-                nguoiTao = "Chưa có";
-            }
-            storeCell.addElement(new Paragraph("Người tạo: " + nguoiTao, normalFont));
-            storeCell.addElement(new Paragraph("Địa chỉ: " + safe(transaction.getStore() != null ? transaction.getStore().getStoreAddress() : null), normalFont));
-
-            PdfPCell customerCell = new PdfPCell();
-            customerCell.setBorder(Rectangle.NO_BORDER);
-            customerCell.addElement(new Paragraph("Thông tin khách hàng", boldFont));
-            customerCell.addElement(new Paragraph("Tên khách hàng: " + safe(transaction.getCustomer() != null ? transaction.getCustomer().getName() : null), normalFont));
-            customerCell.addElement(new Paragraph("Số điện thoại: " + safe(transaction.getCustomer() != null ? transaction.getCustomer().getPhone() : null), normalFont));
-            customerCell.addElement(new Paragraph("Địa chỉ: " + safe(transaction.getCustomer() != null ? transaction.getCustomer().getAddress() : null), normalFont));
-
-            infoTable.addCell(storeCell);
-            infoTable.addCell(customerCell);
-
-            document.add(infoTable);
-
-            // ===== Danh sách sản phẩm =====
-            PdfPTable productTable = new PdfPTable(6);
-            productTable.setWidthPercentage(100);
-            productTable.setSpacingBefore(10);
-            productTable.setWidths(new float[]{0.8f, 3f, 1.5f, 2f, 1.2f, 2.5f});
-
-            productTable.addCell(getCell("STT", boldFont));
-            productTable.addCell(getCell("Tên sản phẩm", boldFont));
-            productTable.addCell(getCell("Mã", boldFont));
-            productTable.addCell(getCell("Đơn giá", boldFont));
-            productTable.addCell(getCell("Số lượng", boldFont));
-            productTable.addCell(getCell("Thành tiền", boldFont));
-
-            // Parse detail an toàn
-            List<ProductSaleResponseDto> detailList = parseTransactionDetail(transaction.getDetail());
-
-
-            int index = 1;
-            for (ProductSaleResponseDto d : detailList) {
-                java.math.BigDecimal unitPrice = d.getUnitSalePrice() != null ? d.getUnitSalePrice() : java.math.BigDecimal.ZERO;
-                int quantity = d.getQuantity();
-                java.math.BigDecimal lineTotal = unitPrice.multiply(java.math.BigDecimal.valueOf(quantity));
-                productTable.addCell(getCell(String.valueOf(index++), normalFont));
-                productTable.addCell(getCell(safe(d.getProductName()), normalFont));
-                productTable.addCell(getCell(safe(d.getProductCode()), normalFont));
-                productTable.addCell(getCell(formatCurrency(unitPrice), normalFont));
-                productTable.addCell(getCell(String.valueOf(quantity), normalFont));
-                productTable.addCell(getCell(formatCurrency(lineTotal), normalFont));
-            }
-
-            document.add(productTable);
-
-            // ===== Tổng tiền + Ghi chú =====
-            PdfPTable summaryTable = new PdfPTable(2);
-            summaryTable.setWidthPercentage(100);
-            summaryTable.setSpacingBefore(10);
-            summaryTable.setWidths(new float[]{1f, 1f});
-
-            // ===== Cột trái: Tổng tiền =====
-            PdfPCell totalCell = new PdfPCell();
-            totalCell.setBorder(Rectangle.NO_BORDER);
-            java.math.BigDecimal totalAmount = transaction.getTotalAmount() != null ? transaction.getTotalAmount() : java.math.BigDecimal.ZERO;
-            java.math.BigDecimal paidAmount = transaction.getPaidAmount() != null ? transaction.getPaidAmount() : java.math.BigDecimal.ZERO;
-            java.math.BigDecimal remainAmount = totalAmount.subtract(paidAmount);
-            totalCell.addElement(new Paragraph("Tổng tiền hàng: " + formatCurrency(totalAmount), normalFont));
-            totalCell.addElement(new Paragraph("Số tiền đã trả: " + formatCurrency(paidAmount), blueFont));
-            totalCell.addElement(new Paragraph("Còn lại: " + formatCurrency(remainAmount), redFont));
-
-            // ===== Cột phải: Ghi chú =====
-            PdfPCell noteCell = new PdfPCell();
-            noteCell.setBorder(Rectangle.NO_BORDER);
-            if (transaction.getSaleTransactionNote() != null && !transaction.getSaleTransactionNote().isEmpty()) {
-                noteCell.addElement(new Paragraph("Ghi chú:", boldFont));
-                noteCell.addElement(new Paragraph(transaction.getSaleTransactionNote(), normalFont));
+        // Người tạo
+        String nguoiTao = "Chưa có";
+        try {
+            if (transaction.getCreatedBy() != null) {
+                User staff = getStaff(transaction.getCreatedBy());
+                nguoiTao = staff != null && staff.getFullName() != null ? staff.getFullName() : "Chưa có";
             }
+        } catch (Exception e) {
+            nguoiTao = "Chưa có";
+        }
 
-            summaryTable.addCell(totalCell);
-            summaryTable.addCell(noteCell);
-            document.add(summaryTable);
-
-            // ===== Chữ ký =====
-            document.add(new Paragraph(" ")); // khoảng trắng
-            PdfPTable signTable = new PdfPTable(2);
-            signTable.setWidthPercentage(100);
-            signTable.setWidths(new float[]{1f, 1f});
-            signTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
-
-            // Cột trống bên trái
-            PdfPCell leftEmptyCell = new PdfPCell(new Phrase(""));
-            leftEmptyCell.setBorder(Rectangle.NO_BORDER);
-
-            // Cột bên phải là phần chữ ký
-            PdfPCell rightSignCell = new PdfPCell();
-            rightSignCell.setBorder(Rectangle.NO_BORDER);
-            rightSignCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            rightSignCell.addElement(new Paragraph("Người lập phiếu", boldFont));
-            rightSignCell.addElement(new Paragraph("(Ký, ghi rõ họ tên)", normalFont));
-
-            signTable.addCell(leftEmptyCell);
-            signTable.addCell(rightSignCell);
-
-            document.add(signTable);
+        PdfRenderer.Voucher voucher = toPdfVoucher(transaction, nguoiTao);
+        return out -> pdfRenderer.render(voucher, out);
+    }
 
-            document.close();
-            return out.toByteArray();
+    @Override
+    @Transactional(readOnly = true)
+    public ResponseEntity<StreamingResponseBody> exportPdfBulk(String name, String customerName, String storeName,
+                                                               Long storeId, SaleTransactionStatus status,
+                                                               LocalDateTime fromDate, LocalDateTime toDate,
+                                                               BigDecimal minTotalAmount, BigDecimal maxTotalAmount,
+                                                               BigDecimal minPaidAmount, BigDecimal maxPaidAmount,
+                                                               String note, Long createdBy,
+                                                               PdfBulkExporter.Format format) {
+        Specification<SaleTransaction> spec = SaleTransactionSpecification.buildSpecification(
+                name, customerName, storeName, storeId, status, fromDate, toDate,
+                minTotalAmount, maxTotalAmount, minPaidAmount, maxPaidAmount, note, createdBy
+        );
+        long matched = saleTransactionRepository.count(spec);
+        if (matched > bulkExportMaxDocuments) {
+            throw new BadRequestException("Quá nhiều phiếu (" + matched + "), tối đa " + bulkExportMaxDocuments
+                    + " phiếu mỗi lần xuất. Vui lòng thu hẹp bộ lọc.");
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Lỗi khi tạo PDF: " + e.getMessage(), e);
+        List<SaleTransaction> transactions = saleTransactionRepository.findAll(spec, Sort.by("saleDate", "id"));
+        Map<Long, String> creatorNames = userRepository.findAllById(transactions.stream()
+                        .map(SaleTransaction::getCreatedBy)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet())).stream()
+                .filter(u -> u.getFullName() != null)
+                .collect(Collectors.toMap(User::getId, User::getFullName));
+
+        List<PdfBulkExporter.Entry> entries = new ArrayList<>(transactions.size());
+        for (SaleTransaction transaction : transactions) {
+            String nguoiTao = creatorNames.getOrDefault(transaction.getCreatedBy(), "Chưa có");
+            entries.add(new PdfBulkExporter.Entry("phieu_ban_" + PdfRenderer.safe(transaction.getName()) + "_" + transaction.getId() + ".pdf",
+                    toPdfVoucher(transaction, nguoiTao)));
         }
+        log.info("Bulk exporting {} sale transactions as {}", entries.size(), format);
+        return pdfBulkExporter.export(entries, format, "phieu_ban");
     }
 
-    private PdfPCell getCell(String text, Font font) {
-        PdfPCell cell = new PdfPCell(new Phrase(text, font));
-        cell.setPadding(5);
-        return cell;
-    }
+    // Dựng nội dung PDF từ phiếu đã nạp sẵn khách hàng và kho
+    private PdfRenderer.Voucher toPdfVoucher(SaleTransaction transaction, String nguoiTao) {
+        Store store = transaction.getStore();
+        Customer customer = transaction.getCustomer();
+        // Parse detail an toàn
+        List<PdfRenderer.Line> lines = new ArrayList<>();
+        for (ProductSaleResponseDto d : parseTransactionDetail(transaction.getDetail())) {
+            lines.add(new PdfRenderer.Line(d.getProductName(), d.getProductCode(), d.getUnitSalePrice(), d.getQuantity()));
+        }
 
-    private String formatCurrency(BigDecimal amount) {
-        NumberFormat format = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
-        return format.format(amount).replace("₫", "VND");
-    }
+        return new PdfRenderer.Voucher(
+                "CHI TIẾT PHIẾU BÁN HÀNG " + PdfRenderer.safe(transaction.getName()),
+                transaction.getCreatedAt(),
+                transaction.getStatus() == SaleTransactionStatus.COMPLETE ? "✔ Phiếu hoàn thành" : null,
+                "Thông tin cửa hàng",
+                List.of("Tên cửa hàng: " + PdfRenderer.safe(store != null ? store.getStoreName() : null),
+                        "Người tạo: " + nguoiTao,
+                        "Địa chỉ: " + PdfRenderer.safe(store != null ? store.getStoreAddress() : null)),
+                "Thông tin khách hàng",
+                List.of("Tên khách hàng: " + PdfRenderer.safe(customer != null ? customer.getName() : null),
+                        "Số điện thoại: " + PdfRenderer.safe(customer != null ? customer.getPhone() : null),
+                        "Địa chỉ: " + PdfRenderer.safe(customer != null ? customer.getAddress() : null)),
+                "Đơn giá",
+                lines,
+                transaction.getTotalAmount(),
+                transaction.getPaidAmount(),
+                transaction.getSaleTransactionNote());
 
-    private String safe(String input) {
-        return input == null ? "Chưa có" : input;
     }
 
     private User getStaff(Long id) {
@@ -690,74 +640,112 @@ public class SaleTransactionServiceImpl implements SaleTransactionService {
 
     private void deductStockFromBatch(List<ProductSaleResponseDto> items) {
         log.info("Deducting stock from {} batches", items.size());
+        if (items.isEmpty()) {
+            return;
+        }
 
-        for (ProductSaleResponseDto item : items) {
-            log.debug("Processing batch ID: {}, product ID: {}, quantity: {}",
-                    item.getId(), item.getProId(), item.getQuantity());
-
-            ImportTransactionDetail batch = null;
-
-            if (item.getId() != null && String.valueOf(item.getId()).matches("\\d+")) {
-                batch = importTransactionDetailRepository.findById(item.getId()).orElse(null);
-            }
-
-            if (batch == null && item.getBatchCode() != null) {
-                batch = importTransactionDetailRepository.findByName(item.getBatchCode());
+        // Xác định lô cho từng dòng: id nếu tồn tại, ngược lại tra theo batchCode (2 truy vấn cho cả phiếu)
+        Set<Long> requestedIds = items.stream()
+                .map(ProductSaleResponseDto::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingIds = requestedIds.isEmpty()
+                ? Set.of()
+                : Set.copyOf(importTransactionDetailRepository.findExistingIds(requestedIds));
+        List<String> batchCodes = items.stream()
+                .filter(item -> item.getId() == null || !existingIds.contains(item.getId()))
+                .map(ProductSaleResponseDto::getBatchCode)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, Long> idByBatchCode = new HashMap<>();
+        if (!batchCodes.isEmpty()) {
+            for (Object[] row : importTransactionDetailRepository.findIdsByNameIn(batchCodes)) {
+                idByBatchCode.put((String) row[0], ((Number) row[1]).longValue());
             }
+        }
 
-            if (batch == null) {
+        // Cộng dồn số lượng theo lô; TreeMap để cập nhật theo id tăng dần (thứ tự khóa dòng cố định, tránh deadlock)
+        Map<Long, Integer> quantityByBatch = new TreeMap<>();
+        Map<Long, Long> productByBatch = new HashMap<>();
+        for (ProductSaleResponseDto item : items) {
+            Long batchId = item.getId() != null && existingIds.contains(item.getId())
+                    ? item.getId()
+                    : (item.getBatchCode() != null ? idByBatchCode.get(item.getBatchCode()) : null);
+            if (batchId == null) {
                 throw new ResourceNotFoundException("Batch not found with ID or batchCode: " + item.getId() + " / " + item.getBatchCode());
             }
-
-
-            if (!batch.getProduct().getId().equals(item.getProId())) {
-                log.error("Batch ID: {} does not belong to product ID: {}", item.getId(), item.getProId());
+            Long previousProduct = productByBatch.putIfAbsent(batchId, item.getProId());
+            if (previousProduct != null && !previousProduct.equals(item.getProId())) {
+                log.error("Batch ID: {} does not belong to product ID: {}", batchId, item.getProId());
                 throw new BadRequestException("Batch does not belong to selected product (productId=" + item.getProId() + ")");
             }
+            quantityByBatch.merge(batchId, item.getQuantity() != null ? item.getQuantity() : 0, Integer::sum);
+        }
 
-            if (batch.getRemainQuantity() < item.getQuantity()) {
-                log.error("Insufficient stock in batch ID: {}, available: {}, required: {}",
-                        item.getId(), batch.getRemainQuantity(), item.getQuantity());
-                throw new BadRequestException("Not enough stock in batch ID: " + item.getId() +
-                        " (available=" + batch.getRemainQuantity() + ", required=" + item.getQuantity() + ")");
+        // Một câu UPDATE có điều kiện cho mỗi lô: 0 dòng bị ảnh hưởng = sai sản phẩm hoặc không đủ tồn
+        for (Map.Entry<Long, Integer> entry : quantityByBatch.entrySet()) {
+            Long batchId = entry.getKey();
+            Long productId = productByBatch.get(batchId);
+            int quantity = entry.getValue();
+            int updated = importTransactionDetailRepository.decrementRemainQuantity(batchId, productId, quantity);
+            if (updated == 0) {
+                throw batchDeductionError(batchId, productId, quantity);
             }
+            log.debug("Deducted {} units from batch ID: {}", quantity, batchId);
+        }
+        log.info("Deducted stock from {} batches", quantityByBatch.size());
+    }
 
-            int oldQuantity = batch.getRemainQuantity();
-            batch.setRemainQuantity(batch.getRemainQuantity() - item.getQuantity());
-            importTransactionDetailRepository.save(batch);
-
-            log.info("Deducted {} units from batch ID: {}, remaining: {} (was: {})",
-                    item.getQuantity(), item.getId(), batch.getRemainQuantity(), oldQuantity);
-
+    // Chỉ chạy khi trừ tồn thất bại: đọc lại lô để trả về lỗi cụ thể
+    private RuntimeException batchDeductionError(Long batchId, Long productId, int quantity) {
+        ImportTransactionDetail batch = importTransactionDetailRepository.findById(batchId).orElse(null);
+        if (batch == null) {
+            return new ResourceNotFoundException("Batch not found with ID or batchCode: " + batchId);
+        }
+        if (batch.getProduct() == null || !batch.getProduct().getId().equals(productId)) {
+            log.error("Batch ID: {} does not belong to product ID: {}", batchId, productId);
+            return new BadRequestException("Batch does not belong to selected product (productId=" + productId + ")");
         }
+        log.error("Insufficient stock in batch ID: {}, available: {}, required: {}",
+                batchId, batch.getRemainQuantity(), quantity);
+        return new BadRequestException("Not enough stock in batch ID: " + batchId +
+                " (available=" + batch.getRemainQuantity() + ", required=" + quantity + ")");
     }
 
     private void deductStockFromProduct(List<ProductSaleResponseDto> items) {
         log.info("Deducting stock from {} products", items.size());
+        if (items.isEmpty()) {
+            return;
+        }
 
+        // Cộng dồn theo sản phẩm, cập nhật theo id tăng dần
+        Map<Long, Integer> quantityByProduct = new TreeMap<>();
         for (ProductSaleResponseDto item : items) {
-            log.debug("Processing product ID: {}, quantity: {}", item.getProId(), item.getQuantity());
-
-            Product product = productRepository.findById(item.getProId())
-                    .orElseThrow(() -> {
-                        log.error("Product not found with ID: {}", item.getProId());
-                        return new ResourceNotFoundException("Product not found with ID: " + item.getProId());
-                    });
+            if (item.getProId() == null) {
+                log.error("Product not found with ID: {}", item.getProId());
+                throw new ResourceNotFoundException("Product not found with ID: " + item.getProId());
+            }
+            quantityByProduct.merge(item.getProId(), item.getQuantity() != null ? item.getQuantity() : 0, Integer::sum);
+        }
 
-            if (product.getProductQuantity() < item.getQuantity()) {
+        for (Map.Entry<Long, Integer> entry : quantityByProduct.entrySet()) {
+            Long productId = entry.getKey();
+            int quantity = entry.getValue();
+            if (productRepository.decrementProductQuantity(productId, quantity) == 0) {
+                Product product = productRepository.findById(productId)
+                        .orElseThrow(() -> {
+                            log.error("Product not found with ID: {}", productId);
+                            return new ResourceNotFoundException("Product not found with ID: " + productId);
+                        });
                 log.error("Insufficient stock in product ID: {}, available: {}, required: {}",
-                        item.getProId(), product.getProductQuantity(), item.getQuantity());
-                throw new BadRequestException("Not enough stock in product ID: " + item.getProId() +
-                        " (available=" + product.getProductQuantity() + ", required=" + item.getQuantity() + ")");
+                        productId, product.getProductQuantity(), quantity);
+                throw new BadRequestException("Not enough stock in product ID: " + productId +
+                        " (available=" + product.getProductQuantity() + ", required=" + quantity + ")");
             }
-
-            int oldProductQuantity = product.getProductQuantity();
-            product.setProductQuantity(product.getProductQuantity() - item.getQuantity());
-            productRepository.save(product);
-
-            log.info("Deducted {} units from product ID: {}, remaining: {} (was: {})",
-                    item.getQuantity(), item.getProId(), product.getProductQuantity(), oldProductQuantity);
+            log.debug("Deducted {} units from product ID: {}", quantity, productId);
         }
+        log.info("Deducted stock from {} products", quantityByProduct.size());
     }
 
     private List<ProductSaleResponseDto> parseTransactionDetail(String detailJson) {
@@ -0,0 +1,142 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.StatusChangeEvent;
+import com.farmovo.backend.jwt.AuthContext;
+import com.farmovo.backend.repositories.ChangeStatusLogBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi nhật ký đổi trạng thái (changestatuslogs) từ StatusChangeEvent mà service phát ra.
+ * Sự kiện được ghi ngay vào status_change_outbox trong chính transaction nghiệp vụ (commit hoặc rollback cùng
+ * thay đổi trạng thái), rồi worker chuyển outbox sang changestatuslogs theo lô sau khi commit, hoặc định kỳ
+ * mỗi outbox.delay-ms để nhận cả những dòng instance khác/lần chạy trước để lại (ít nhất một lần).
+ */
+@Component
+public class StatusChangeLogWriter {
+
+    private static final Logger log = LogManager.getLogger(StatusChangeLogWriter.class);
+
+    private final ChangeStatusLogBatchRepository changeStatusLogBatchRepository;
+    private final ObjectProvider<AuthContext> authContextProvider;
+    private final Semaphore wakeup = new Semaphore(0);
+    private final int batchSize;
+    private final long drainIntervalMs;
+
+    private final Counter outboxCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public StatusChangeLogWriter(ChangeStatusLogBatchRepository changeStatusLogBatchRepository,
+                                 ObjectProvider<AuthContext> authContextProvider,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.status-log.outbox.batch-size:1000}") int batchSize,
+                                 @Value("${app.status-log.outbox.delay-ms:60000}") long drainIntervalMs) {
+        this.changeStatusLogBatchRepository = changeStatusLogBatchRepository;
+        this.authContextProvider = authContextProvider;
+        this.batchSize = batchSize;
+        this.drainIntervalMs = drainIntervalMs;
+        this.outboxCounter = meterRegistry.counter("status_log.outbox");
+        this.writtenCounter = meterRegistry.counter("status_log.written");
+        this.failedCounter = meterRegistry.counter("status_log.failed");
+    }
+
+    @PostConstruct
+    void start() {
+        worker = new Thread(this::runWorker, "status-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // Chạy đồng bộ trong transaction của service: lỗi ghi outbox làm rollback cả thay đổi trạng thái,
+    // nên không có trạng thái nào được commit mà thiếu nhật ký
+    @EventListener
+    public void onStatusChange(StatusChangeEvent event) {
+        if (!event.isChange()) {
+            return;
+        }
+        StatusChangeEvent withActor = event.actorId() != null ? event : event.withActor(currentUserId());
+        changeStatusLogBatchRepository.insertOutbox(List.of(withActor), batchSize);
+        outboxCounter.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeup.release();
+                }
+            });
+        } else {
+            wakeup.release();
+        }
+    }
+
+    // Đọc trên thread của request (worker không có request context)
+    private Long currentUserId() {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return null;
+        }
+        try {
+            return authContextProvider.getObject().getUserId();
+        } catch (Exception e) {
+            log.debug("Could not resolve user for status log: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                wakeup.tryAcquire(drainIntervalMs, TimeUnit.MILLISECONDS);
+                // Gom các lần commit dồn lại vào một lượt chuyển
+                wakeup.drainPermits();
+                drain();
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Mỗi lượt chuyển tối đa batchSize dòng cho tới khi outbox rỗng; dòng lỗi vẫn nằm trong outbox
+    // và được thử lại ở lượt sau
+    void drain() {
+        int total = 0;
+        try {
+            int moved;
+            do {
+                moved = changeStatusLogBatchRepository.drainOutbox(batchSize);
+                total += moved;
+            } while (moved == batchSize);
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.warn("Status log outbox drain failed after {} rows: {}", total, e.getMessage());
+        }
+        writtenCounter.increment(total);
+    }
+}
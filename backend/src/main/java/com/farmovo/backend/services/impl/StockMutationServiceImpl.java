@@ -0,0 +1,129 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
+import com.farmovo.backend.repositories.ProductRepository;
+import com.farmovo.backend.services.StockMutationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.StaleObjectStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Service
+@RequiredArgsConstructor
+public class StockMutationServiceImpl implements StockMutationService {
+
+    private static final Logger log = LogManager.getLogger(StockMutationServiceImpl.class);
+
+    private final ImportTransactionDetailRepository importTransactionDetailRepository;
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.stock-mutation.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.stock-mutation.initial-backoff-ms:20}")
+    private long initialBackoffMs;
+
+    @Value("${app.stock-mutation.max-backoff-ms:200}")
+    private long maxBackoffMs;
+
+    @Override
+    public <T> T execute(String operation, Supplier<T> mutation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return mutation.get();
+            } catch (RuntimeException e) {
+                if (isOptimisticConflict(e)) {
+                    meterRegistry.counter("stock.mutation.conflicts", "operation", operation).increment();
+                }
+                throw e;
+            }
+        }
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        long backoffMs = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> mutation.get());
+            } catch (RuntimeException e) {
+                if (!isOptimisticConflict(e)) {
+                    throw e;
+                }
+                meterRegistry.counter("stock.mutation.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("stock.mutation.exhausted", "operation", operation).increment();
+                    log.warn("Stock mutation '{}' still conflicting after {} attempts", operation, attempt);
+                    throw e;
+                }
+                meterRegistry.counter("stock.mutation.retries", "operation", operation).increment();
+                log.debug("Stock mutation '{}' conflicted (attempt {}), retrying in ~{} ms", operation, attempt, backoffMs);
+                sleep(backoffMs + ThreadLocalRandom.current().nextLong(backoffMs + 1));
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void addLotRemainQuantity(Long lotId, int delta) {
+        if (importTransactionDetailRepository.incrementRemainQuantity(lotId, delta) == 0) {
+            throw new IllegalArgumentException("ImportTransactionDetail not found or remain quantity would be negative: " + lotId);
+        }
+        log.info("Added {} to remainQuantity of lot id={}", delta, lotId);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void setLotRemainQuantity(Long lotId, int remainQuantity) {
+        if (importTransactionDetailRepository.overwriteRemainQuantity(lotId, remainQuantity) == 0) {
+            throw new IllegalArgumentException("ImportTransactionDetail not found");
+        }
+        log.info("Set remainQuantity of lot id={} to {}", lotId, remainQuantity);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean addProductQuantity(Long productId, int delta) {
+        if (productRepository.incrementProductQuantity(productId, delta) == 0) {
+            log.warn("Product not found or quantity would be negative, ID: {}, skip quantity change {}", productId, delta);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isOptimisticConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException
+                    || t instanceof OptimisticLockException
+                    || t instanceof StaleObjectStateException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry stock mutation", ie);
+        }
+    }
+}
@@ -18,19 +18,18 @@ import com.farmovo.backend.services.StocktakeService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import com.farmovo.backend.utils.ExcelExportUtils;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.core.io.ByteArrayResource;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
-import java.io.ByteArrayOutputStream;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -80,9 +79,7 @@ public class StocktakeServiceImpl implements StocktakeService {
             effectiveStoreId = String.valueOf(user.getStore().getId());
         }
         Specification<Stocktake> spec = buildStocktakeSpecification(effectiveStoreId, status, note, fromDate, toDate);
-        return stocktakeRepository.findAll(spec).stream()
-                .map(this::buildStocktakeResponseDto)
-                .collect(Collectors.toList());
+        return buildStocktakeResponseDtos(stocktakeRepository.findAll(spec));
     }
 
     @Override
@@ -99,7 +96,8 @@ public class StocktakeServiceImpl implements StocktakeService {
         }
 
         Specification<Stocktake> spec = buildStocktakeSpecification(effectiveStoreId, status, note, fromDate, toDate);
-        return stocktakeRepository.findAll(spec, pageable).map(this::buildStocktakeResponseDto);
+        Page<Stocktake> page = stocktakeRepository.findAll(spec, pageable);
+        return new PageImpl<>(buildStocktakeResponseDtos(page.getContent()), page.getPageable(), page.getTotalElements());
     }
 
     @Override
@@ -153,20 +151,13 @@ public class StocktakeServiceImpl implements StocktakeService {
     }
 
     @Override
-    public ResponseEntity<ByteArrayResource> exportStocktakeToExcel(Long stocktakeId) throws Exception {
+    public ResponseEntity<StreamingResponseBody> exportStocktakeToExcel(Long stocktakeId) throws Exception {
         Stocktake stocktake = stocktakeRepository.findById(stocktakeId)
                 .orElseThrow(() -> new ValidationException("Stocktake not found"));
         List<StocktakeDetailDto> details = objectMapper.readValue(stocktake.getDetail(), new TypeReference<>() {
         });
-        Workbook workbook = createExcelWorkbook(details);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        workbook.write(out);
-        workbook.close();
-        ByteArrayResource resource = new ByteArrayResource(out.toByteArray());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=stocktake_" + stocktakeId + ".xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(resource);
+        return ExcelExportUtils.streamXlsx("stocktake_" + stocktakeId + ".xlsx",
+                workbook -> writeStocktakeSheet(workbook, details));
     }
 
     @Override
@@ -176,39 +167,45 @@ public class StocktakeServiceImpl implements StocktakeService {
     }
 
     // enrich detail utility: enrich từng lô, không group/gộp, chỉ enrich đúng lô theo batchCode + productId (và nếu có zone, ưu tiên match zone)
+    // Sản phẩm và lô còn hàng được nạp một lần cho cả phiếu theo tập productId, không truy vấn theo từng dòng
     private List<StocktakeDetailDto> enrichStocktakeDetails(List<StocktakeDetailDto> details) {
         List<StocktakeDetailDto> enriched = new ArrayList<>();
         log.info("Bắt đầu enrich chi tiết cho {} lô", details.size());
 
-        for (StocktakeDetailDto detail : details) {
-            log.info("Enrich lô: batchCode={}, productId={}", detail.getBatchCode(), detail.getProductId());
+        Set<Long> productIds = details.stream()
+                .map(StocktakeDetailDto::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+        Map<Long, List<ImportTransactionDetail>> lotsByProduct = productIds.isEmpty()
+                ? Collections.emptyMap()
+                : importTransactionDetailRepository.findByProductIdInAndRemainQuantityGreaterThan(productIds, 0).stream()
+                        .collect(Collectors.groupingBy(lot -> lot.getProduct().getId()));
 
+        for (StocktakeDetailDto detail : details) {
             if (detail.getProductId() == null) {
                 log.warn("Bỏ qua lô do thiếu productId: {}", detail.getBatchCode());
                 continue;
             }
 
-            Product product = productRepository.findById(detail.getProductId())
-                    .orElseThrow(() -> new ValidationException("Product not found: " + detail.getProductId()));
+            Product product = productsById.get(detail.getProductId());
+            if (product == null) {
+                throw new ValidationException("Product not found: " + detail.getProductId());
+            }
 
             // Tìm đúng lô theo batchCode + productId (và nếu có zone, ưu tiên match zone)
-            List<ImportTransactionDetail> lots = importTransactionDetailRepository
-                    .findByProductIdAndRemainQuantityGreaterThan(detail.getProductId(), 0);
-
-            log.info("Tìm thấy {} lô có productId={}", lots.size(), detail.getProductId());
+            List<ImportTransactionDetail> lots = lotsByProduct.getOrDefault(detail.getProductId(), Collections.emptyList());
             boolean found = false;
 
             for (ImportTransactionDetail lot : lots) {
-                log.debug("So sánh lô hệ thống: id={}, name={} với lô nhập: batchCode={}",
-                        lot.getId(), lot.getName(), detail.getBatchCode());
-
                 // So sánh cả với và không có dấu gạch ngang
                 boolean exactMatch = lot.getName().equals(detail.getBatchCode());
                 boolean normalizedMatch = lot.getName().replace("-", "").equals(detail.getBatchCode().replace("-", ""));
                 boolean idMatch = (detail.getId() != null && lot.getId().equals(detail.getId()));
 
                 if (exactMatch || normalizedMatch || idMatch) {
-                    log.info("Khớp lô: {} - {} (match: exact={}, normalized={}, id={})",
+                    log.debug("Khớp lô: {} - {} (match: exact={}, normalized={}, id={})",
                             lot.getName(), detail.getBatchCode(), exactMatch, normalizedMatch, idMatch);
                     enriched.add(enrichDetail(lot, product, detail));
                     found = true;
@@ -326,56 +323,106 @@ public class StocktakeServiceImpl implements StocktakeService {
 
     // Build response DTO từ entity
     private StocktakeResponseDto buildStocktakeResponseDto(Stocktake stocktake) {
-        StocktakeResponseDto dto = stocktakeMapper.toResponseDto(stocktake);
-        dto.setStoreName(stocktake.getStore().getStoreName());
-        userRepository.findById(stocktake.getCreatedBy())
-                .ifPresent(u -> dto.setCreatedByName(u.getFullName() != null ? u.getFullName() : u.getUsername()));
-        List<StocktakeDetailDto> details;
-        try {
-            details = objectMapper.readValue(stocktake.getDetail(), new TypeReference<>() {
-            });
+        return buildStocktakeResponseDtos(List.of(stocktake)).get(0);
+    }
 
-            // Enrich productName nếu chưa có
-            details = details.stream().map(detail -> {
+    // Build response DTO cho cả trang: sản phẩm, người tạo và số phiếu liên kết được tải theo lô
+    // (một findAllById / một truy vấn GROUP BY cho cả trang) thay vì từng dòng
+    private List<StocktakeResponseDto> buildStocktakeResponseDtos(List<Stocktake> stocktakes) {
+        if (stocktakes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<StocktakeDetailDto>> detailsByStocktake = new LinkedHashMap<>();
+        Set<Long> missingProductIds = new HashSet<>();
+        for (Stocktake stocktake : stocktakes) {
+            List<StocktakeDetailDto> details;
+            try {
+                details = objectMapper.readValue(stocktake.getDetail(), new TypeReference<>() {
+                });
+            } catch (Exception e) {
+                throw new ValidationException("Failed to deserialize stocktake details: " + e.getMessage());
+            }
+            if (details == null) {
+                details = new ArrayList<>();
+            }
+            for (StocktakeDetailDto detail : details) {
                 if (detail.getProductName() == null && detail.getProductId() != null) {
-                    productRepository.findById(detail.getProductId())
-                            .ifPresent(product -> {
-                                detail.setProductName(product.getProductName());
-                                detail.setProductCode(product.getProductCode());
-                            });
+                    missingProductIds.add(detail.getProductId());
                 }
-                return detail;
-            }).collect(Collectors.toList());
-
-        } catch (Exception e) {
-            throw new ValidationException("Failed to deserialize stocktake details: " + e.getMessage());
+            }
+            detailsByStocktake.put(stocktake.getId(), details);
         }
-        dto.setDetail(details); // trả về nguyên từng lô, KHÔNG gộp
-        dto.setRawDetail(details); // trả về dạng gốc
+
+        Map<Long, Product> productsById = missingProductIds.isEmpty() ? Map.of()
+                : productRepository.findAllById(missingProductIds).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+
+        Set<Long> creatorIds = stocktakes.stream()
+                .map(Stocktake::getCreatedBy)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, User> creatorsById = creatorIds.isEmpty() ? Map.of()
+                : userRepository.findAllById(creatorIds).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+
         // Ánh xạ thông tin liên kết cân bằng để frontend ẩn nút
-        // Các trạng thái cân bằng sẽ được suy ra bằng exists/count sale_transactions theo stocktakeId
-        try {
-            Long stId = stocktake.getId();
-            long count = saleTransactionRepository.countByStocktakeIdAndStatus(stId, SaleTransactionStatus.COMPLETE);
-            dto.setBalanceCount(count);
-            dto.setHasBalance(count > 0);
-            // Kiểm tra phiếu nhập điều chỉnh đã liên kết (nếu có)
+        // Các trạng thái cân bằng sẽ được suy ra bằng count sale_transactions/import_transactions theo stocktakeId
+        List<Long> stocktakeIds = stocktakes.stream().map(Stocktake::getId).filter(Objects::nonNull).toList();
+        Map<Long, Long> balanceCounts = null;
+        Map<Long, Long> importCounts = null;
+        if (!stocktakeIds.isEmpty()) {
             try {
-                long importCount = importTransactionRepository.countByStocktakeId(stId);
-                dto.setImportCount(importCount);
-                dto.setHasImport(importCount > 0);
-            } catch (Exception ignored) {
-                dto.setImportCount(0L);
-                dto.setHasImport(false);
+                balanceCounts = toCountMap(saleTransactionRepository.countByStocktakeIdsAndStatus(stocktakeIds, SaleTransactionStatus.COMPLETE));
+                // Kiểm tra phiếu nhập điều chỉnh đã liên kết (nếu có)
+                try {
+                    importCounts = toCountMap(importTransactionRepository.countByStocktakeIds(stocktakeIds));
+                } catch (Exception ignored) {
+                }
+            } catch (Exception e) {
+                log.warn("Failed to check PCB linkage for stocktakes {}: {}", stocktakeIds, e.getMessage());
             }
-        } catch (Exception e) {
-            log.warn("Failed to check PCB linkage for stocktake {}: {}", stocktake.getId(), e.getMessage());
-            dto.setHasBalance(false);
-            dto.setBalanceCount(0L);
-            dto.setHasImport(false);
-            dto.setImportCount(0L);
         }
-        return dto;
+
+        List<StocktakeResponseDto> result = new ArrayList<>(stocktakes.size());
+        for (Stocktake stocktake : stocktakes) {
+            StocktakeResponseDto dto = stocktakeMapper.toResponseDto(stocktake);
+            dto.setStoreName(stocktake.getStore().getStoreName());
+            User creator = creatorsById.get(stocktake.getCreatedBy());
+            if (creator != null) {
+                dto.setCreatedByName(creator.getFullName() != null ? creator.getFullName() : creator.getUsername());
+            }
+
+            // Enrich productName nếu chưa có
+            List<StocktakeDetailDto> details = detailsByStocktake.get(stocktake.getId());
+            for (StocktakeDetailDto detail : details) {
+                if (detail.getProductName() == null && detail.getProductId() != null) {
+                    Product product = productsById.get(detail.getProductId());
+                    if (product != null) {
+                        detail.setProductName(product.getProductName());
+                        detail.setProductCode(product.getProductCode());
+                    }
+                }
+            }
+            dto.setDetail(details); // trả về nguyên từng lô, KHÔNG gộp
+            dto.setRawDetail(details); // trả về dạng gốc
+
+            long balanceCount = balanceCounts != null ? balanceCounts.getOrDefault(stocktake.getId(), 0L) : 0L;
+            long importCount = importCounts != null ? importCounts.getOrDefault(stocktake.getId(), 0L) : 0L;
+            dto.setBalanceCount(balanceCount);
+            dto.setHasBalance(balanceCount > 0);
+            dto.setImportCount(importCount);
+            dto.setHasImport(importCount > 0);
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private static Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
     }
 
     // Build Specification filter nâng cao
@@ -547,16 +594,13 @@ public class StocktakeServiceImpl implements StocktakeService {
         return details;
     }
 
-    // Tạo file Excel xuất kiểm kê
-    private Workbook createExcelWorkbook(List<StocktakeDetailDto> details) {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Stocktake");
-        Row header = sheet.createRow(0);
-        String[] columns = {"Mã Lô", "Tên hàng", "Khu vực hệ thống", "Tồn kho", "Thực tế",
-                "Khu vực thực tế", "Chênh lệch", "Hạn dùng", "Đã kiểm"};
-        for (int i = 0; i < columns.length; i++) {
-            header.createCell(i).setCellValue(columns[i]);
-        }
+    private static final String[] EXCEL_COLUMNS = {"Mã Lô", "Tên hàng", "Khu vực hệ thống", "Tồn kho", "Thực tế",
+            "Khu vực thực tế", "Chênh lệch", "Hạn dùng", "Đã kiểm"};
+    private static final int[] EXCEL_COLUMN_WIDTHS = {16, 32, 18, 10, 10, 16, 12, 20, 12};
+
+    // Ghi sheet xuất kiểm kê (workbook streaming, độ rộng cột cố định)
+    private void writeStocktakeSheet(SXSSFWorkbook workbook, List<StocktakeDetailDto> details) {
+        Sheet sheet = ExcelExportUtils.createSheet(workbook, "Stocktake", EXCEL_COLUMNS, EXCEL_COLUMN_WIDTHS);
         CellStyle redStyle = workbook.createCellStyle();
         Font font = workbook.createFont();
         font.setColor(IndexedColors.RED.getIndex());
@@ -578,9 +622,5 @@ public class StocktakeServiceImpl implements StocktakeService {
             row.createCell(7).setCellValue(detail.getExpireDate() != null ? detail.getExpireDate() : "");
             row.createCell(8).setCellValue(detail.getIsCheck() != null && detail.getIsCheck() ? "Đã kiểm" : "Chưa kiểm");
         }
-        for (int i = 0; i < columns.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-        return workbook;
     }
 }
\ No newline at end of file
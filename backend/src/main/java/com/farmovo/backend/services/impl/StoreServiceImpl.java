@@ -1,5 +1,6 @@
 package com.farmovo.backend.services.impl;
 
+import com.farmovo.backend.config.CacheConfig;
 import com.farmovo.backend.dto.request.StoreRequestDto;
 import com.farmovo.backend.dto.response.StoreResponseDto;
 import com.farmovo.backend.exceptions.UserManagementException;
@@ -10,6 +11,8 @@ import com.farmovo.backend.services.StoreService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -37,6 +40,7 @@ public class StoreServiceImpl implements StoreService {
         return storeRepository.findById(id);
     }
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.STORE_DTOS, CacheConfig.STORE_RESPONSE_DTOS}, allEntries = true)
     public Store saveStore(Store store) {
         logger.info("Saving new store: {}", store.getStoreName());
         try {
@@ -68,6 +72,8 @@ public class StoreServiceImpl implements StoreService {
         }
     }
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.STORE_DTOS, CacheConfig.STORE_RESPONSE_DTOS,
+            CacheConfig.ZONES, CacheConfig.ZONE_DTOS, CacheConfig.ZONES_BY_STORE}, allEntries = true)
     public Optional<Store> updateStore(Long id, Store store) {
         logger.info("Updating store with id: {}", id);
         if (storeRepository.existsById(id)) {
@@ -105,6 +111,8 @@ public class StoreServiceImpl implements StoreService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.STORE_DTOS, CacheConfig.STORE_RESPONSE_DTOS,
+            CacheConfig.ZONES, CacheConfig.ZONE_DTOS, CacheConfig.ZONES_BY_STORE}, allEntries = true)
     public boolean deleteStore(Long id) {
         logger.info("Attempting to delete store with id: {}", id);
         if (storeRepository.existsById(id)) {
@@ -128,6 +136,7 @@ public class StoreServiceImpl implements StoreService {
     }
 
     @Override
+    @Cacheable(CacheConfig.STORE_DTOS)
     public List<StoreRequestDto> getAllStoreDto() {
         List<Store> stores = storeRepository.findAll();
         return stores.stream()
@@ -136,6 +145,7 @@ public class StoreServiceImpl implements StoreService {
     }
 
     @Override
+    @Cacheable(CacheConfig.STORE_RESPONSE_DTOS)
     public List<StoreResponseDto> getAllStoreResponseDto() {
         return storeRepository.findAll().stream()
                 .map(store -> {
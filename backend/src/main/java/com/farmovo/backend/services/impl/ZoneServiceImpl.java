@@ -1,4 +1,5 @@
 package com.farmovo.backend.services.impl;
+import com.farmovo.backend.config.CacheConfig;
 import com.farmovo.backend.dto.request.ZoneDto;
 import com.farmovo.backend.dto.request.ZoneRequestDto;
 import com.farmovo.backend.dto.response.ZoneResponseDto;
@@ -11,10 +12,13 @@ import com.farmovo.backend.repositories.ZoneRepository;
 import com.farmovo.backend.services.ZoneService;
 import com.farmovo.backend.services.StoreService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static com.farmovo.backend.validator.ZoneValidation.validateZoneDescription;
@@ -33,11 +37,13 @@ public class ZoneServiceImpl implements ZoneService {
     private StoreService storeService;
 
     @Override
+    @Cacheable(CacheConfig.ZONE_DTOS)
     public List<ZoneDto> getAllZoneDtos() {
         return zoneMapper.toDtoList(zoneRepository.findAll());
     }
 
     @Override
+    @Cacheable(CacheConfig.ZONES)
     public List<ZoneResponseDto> getAllZones() {
         return zoneRepository.findAll()
                 .stream()
@@ -51,6 +57,7 @@ public class ZoneServiceImpl implements ZoneService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.ZONES, CacheConfig.ZONE_DTOS, CacheConfig.ZONES_BY_STORE, CacheConfig.ZONE_NAMES}, allEntries = true)
     public ZoneResponseDto createZone(ZoneRequestDto request) {
         Zone zone = zoneMapper.toEntity(request);
         validateZoneName(zone.getZoneName());
@@ -69,6 +76,7 @@ public class ZoneServiceImpl implements ZoneService {
     }
 
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.ZONES, CacheConfig.ZONE_DTOS, CacheConfig.ZONES_BY_STORE, CacheConfig.ZONE_NAMES}, allEntries = true)
     public ZoneResponseDto updateZone(Long id, ZoneRequestDto request) {
         Zone zone = zoneRepository.findById(id)
                 .orElseThrow(() -> new ZoneNotFoundException("Zone not found with id: " + id));
@@ -93,6 +101,7 @@ public class ZoneServiceImpl implements ZoneService {
         return zoneMapper.toResponseDto(zoneRepository.save(zone));
     }
     @Override
+    @CacheEvict(cacheNames = {CacheConfig.ZONES, CacheConfig.ZONE_DTOS, CacheConfig.ZONES_BY_STORE, CacheConfig.ZONE_NAMES}, allEntries = true)
     public void deleteZone(Long id) {
         Zone zone = zoneRepository.findById(id)
                 .orElseThrow(() -> new ZoneNotFoundException("Zone not found with id: " + id));
@@ -100,10 +109,18 @@ public class ZoneServiceImpl implements ZoneService {
     }
 
     @Override
+    @Cacheable(CacheConfig.ZONES_BY_STORE)
     public List<ZoneResponseDto> getZonesByStoreId(Long storeId) {
         return zoneRepository.findAllByStore_Id(storeId)
                 .stream()
                 .map(zoneMapper::toResponseDto)
                 .collect(java.util.stream.Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    @Cacheable(CacheConfig.ZONE_NAMES)
+    public Map<Long, String> getZoneNamesById() {
+        return zoneRepository.findAll().stream()
+                .collect(Collectors.toMap(Zone::getId, z -> z.getZoneName() != null ? z.getZoneName() : String.valueOf(z.getId())));
+    }
+}
@@ -12,12 +12,15 @@ public class CustomerSpecification {
 
     public static Specification<Customer> hasName(String keyword) {
         return (keyword == null || keyword.isBlank()) ? null :
-                (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + keyword.toLowerCase() + "%");
+                (root, query, cb) -> {
+                    SearchPredicates.rankBySimilarity(query, cb, root.get("name"), keyword);
+                    return SearchPredicates.contains(cb, root.get("name"), keyword);
+                };
     }
 
     public static Specification<Customer> hasPhone(String phone) {
         return (phone == null || phone.isBlank()) ? null :
-                (root, query, cb) -> cb.like(root.get("phone"), "%" + phone + "%");
+                (root, query, cb) -> SearchPredicates.contains(cb, root.get("phone"), phone);
     }
 
     public static Specification<Customer> hasEmail(String email) {
@@ -17,14 +17,23 @@ public class ImportTransactionSpecification {
 
     public static Specification<ImportTransaction> hasName(String name) {
         if (name == null || name.isBlank()) return null;
-        return (root, query, cb) ->
-                cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%");
+        return (root, query, cb) -> SearchPredicates.contains(cb, root.get("name"), name);
     }
 
     public static Specification<ImportTransaction> hasSupplierName(String supplierName) {
         if (supplierName == null || supplierName.isBlank()) return null;
-        return (root, query, cb) ->
-                cb.like(cb.lower(root.get("supplier").get("name")), "%" + supplierName.toLowerCase() + "%");
+        return (root, query, cb) -> SearchPredicates.contains(cb, root.get("supplier").get("name"), supplierName);
+    }
+
+    // Xếp theo tổng độ giống của mã phiếu và tên nhà cung cấp (một orderBy cho cả hai từ khóa)
+    public static Specification<ImportTransaction> rankedBySearch(String name, String supplierName) {
+        if ((name == null || name.isBlank()) && (supplierName == null || supplierName.isBlank())) return null;
+        return (root, query, cb) -> {
+            SearchPredicates.rankBySimilarity(query, cb,
+                    new SearchPredicates.RankTerm(root.get("name"), name),
+                    new SearchPredicates.RankTerm(root.get("supplier").get("name"), supplierName));
+            return null;
+        };
     }
 
     public static Specification<ImportTransaction> hasStore(Long storeId) {
@@ -98,6 +107,7 @@ public class ImportTransactionSpecification {
                 isNotDeleted(),
                 hasName(name),
                 hasSupplierName(supplierName),
+                rankedBySearch(name, supplierName),
                 hasStore(storeId),
                 hasStaff(staffId),
                 hasCreatedBy(createdBy),
@@ -0,0 +1,16 @@
+package com.farmovo.backend.specification;
+
+import com.farmovo.backend.models.Notification;
+import org.springframework.data.jpa.domain.Specification;
+
+public class NotificationSpecification {
+
+    public static Specification<Notification> forUser(Long userId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    public static Specification<Notification> inStore(Long storeId) {
+        if (storeId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("store").get("id"), storeId);
+    }
+}
@@ -0,0 +1,27 @@
+package com.farmovo.backend.specification;
+
+import com.farmovo.backend.models.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+public class ProductSpecification {
+
+    public static Specification<Product> isNotDeleted() {
+        return (root, query, cb) -> cb.isNull(root.get("deletedAt"));
+    }
+
+    // Tìm theo tên hoặc mã sản phẩm, tên giống từ khóa nhất xếp trước
+    public static Specification<Product> matchesKeyword(String keyword) {
+        if (keyword == null || keyword.isBlank()) return null;
+        return (root, query, cb) -> {
+            SearchPredicates.rankBySimilarity(query, cb, root.get("productName"), keyword);
+            return cb.or(
+                    SearchPredicates.contains(cb, root.get("productName"), keyword),
+                    SearchPredicates.contains(cb, root.get("productCode"), keyword));
+        };
+    }
+
+    public static Specification<Product> hasStore(Long storeId) {
+        if (storeId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("store").get("id"), storeId);
+    }
+}
@@ -16,21 +16,31 @@ public class SaleTransactionSpecification {
     public static Specification<SaleTransaction> hasName(String name) {
         return (root, query, cb) -> {
             if (name == null || name.isBlank()) return cb.conjunction();
-            return cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%");
+            return SearchPredicates.contains(cb, root.get("name"), name);
         };
     }
 
     public static Specification<SaleTransaction> hasCustomerName(String customerName) {
         return (root, query, cb) -> {
             if (customerName == null || customerName.isBlank()) return cb.conjunction();
-            return cb.like(cb.lower(root.get("customer").get("name")), "%" + customerName.toLowerCase() + "%");
+            return SearchPredicates.contains(cb, root.get("customer").get("name"), customerName);
+        };
+    }
+
+    // Xếp theo tổng độ giống của mã phiếu và tên khách hàng (một orderBy cho cả hai từ khóa)
+    public static Specification<SaleTransaction> rankedBySearch(String name, String customerName) {
+        return (root, query, cb) -> {
+            SearchPredicates.rankBySimilarity(query, cb,
+                    new SearchPredicates.RankTerm(root.get("name"), name),
+                    new SearchPredicates.RankTerm(root.get("customer").get("name"), customerName));
+            return cb.conjunction();
         };
     }
 
     public static Specification<SaleTransaction> hasStoreName(String storeName) {
         return (root, query, cb) -> {
             if (storeName == null || storeName.isBlank()) return cb.conjunction();
-            return cb.like(cb.lower(root.get("store").get("storeName")), "%" + storeName.toLowerCase() + "%");
+            return SearchPredicates.contains(cb, root.get("store").get("storeName"), storeName);
         };
     }
 
@@ -120,6 +130,7 @@ public class SaleTransactionSpecification {
                 isNotDeleted(),
                 hasName(name),
                 hasCustomerName(customerName),
+                rankedBySearch(name, customerName),
                 hasStoreName(storeName),
                 hasStoreId(storeId),
                 hasStatus(status),
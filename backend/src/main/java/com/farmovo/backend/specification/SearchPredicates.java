@@ -0,0 +1,90 @@
+package com.farmovo.backend.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Tìm kiếm chứa chuỗi, không phân biệt hoa thường và dấu tiếng Việt.
+ * Điều kiện có dạng f_unaccent(lower(cột)) LIKE '%từ khóa%' để Postgres dùng được các index GIN pg_trgm
+ * trong db/migration/R__trigram_search.sql. Nếu DB chưa có hàm f_unaccent (extension chưa được cài)
+ * thì quay về lower(cột) LIKE như trước.
+ */
+public final class SearchPredicates {
+    private SearchPredicates() {}
+
+    public static final String UNACCENT_FUNCTION = "f_unaccent";
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Được SearchIndexCheckJob bật sau khi kiểm tra hàm f_unaccent tồn tại
+    private static volatile boolean accentInsensitive;
+
+    public static void setAccentInsensitive(boolean enabled) {
+        accentInsensitive = enabled;
+    }
+
+    public static boolean isAccentInsensitive() {
+        return accentInsensitive;
+    }
+
+    public static Predicate contains(CriteriaBuilder cb, Expression<String> column, String term) {
+        if (!accentInsensitive) {
+            return cb.like(cb.lower(column), "%" + escapeLike(term.toLowerCase()) + "%", '\\');
+        }
+        return cb.like(searchable(cb, column), "%" + escapeLike(normalize(term)) + "%", '\\');
+    }
+
+    // Một cột và từ khóa tham gia xếp hạng trong rankBySimilarity; từ khóa rỗng bị bỏ qua
+    public record RankTerm(Expression<String> column, String term) {
+    }
+
+    /**
+     * Xếp kết quả theo độ giống (pg_trgm similarity) với từ khóa, giống nhất trước.
+     * Chỉ có tác dụng khi request không truyền sort (sort của Pageable ghi đè orderBy của Specification).
+     */
+    public static void rankBySimilarity(CriteriaQuery<?> query, CriteriaBuilder cb, Expression<String> column, String term) {
+        rankBySimilarity(query, cb, new RankTerm(column, term));
+    }
+
+    /**
+     * Như trên nhưng cho nhiều cột cùng lúc (vd. mã phiếu và tên nhà cung cấp): xếp theo tổng độ giống.
+     * Mỗi lần gọi orderBy ghi đè thứ tự trước, nên một truy vấn chỉ được xếp hạng bằng một lần gọi.
+     */
+    public static void rankBySimilarity(CriteriaQuery<?> query, CriteriaBuilder cb, RankTerm... terms) {
+        if (!accentInsensitive || query == null || Long.class.equals(query.getResultType())) {
+            return;
+        }
+        Expression<Double> total = null;
+        for (RankTerm rankTerm : terms) {
+            if (rankTerm.term() == null || rankTerm.term().isBlank()) {
+                continue;
+            }
+            Expression<Double> similarity = cb.function("similarity", Double.class,
+                    searchable(cb, rankTerm.column()), cb.literal(normalize(rankTerm.term())));
+            total = total == null ? similarity : cb.sum(total, similarity);
+        }
+        if (total != null) {
+            query.orderBy(cb.desc(total));
+        }
+    }
+
+    // Bỏ dấu và chuyển chữ thường giống f_unaccent(lower(...)) phía DB
+    public static String normalize(String term) {
+        String lower = term.trim().toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static Expression<String> searchable(CriteriaBuilder cb, Expression<String> column) {
+        return cb.function(UNACCENT_FUNCTION, String.class, cb.lower(column));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
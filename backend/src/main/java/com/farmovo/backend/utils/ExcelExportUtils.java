@@ -0,0 +1,69 @@
+package com.farmovo.backend.utils;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Xuất Excel dạng streaming: SXSSFWorkbook chỉ giữ ROW_ACCESS_WINDOW dòng trong heap,
+ * các dòng cũ được đẩy ra file tạm và workbook ghi thẳng vào OutputStream của response.
+ * Độ rộng cột cố định (autoSizeColumn không dùng được khi dòng đã bị flush).
+ */
+public final class ExcelExportUtils {
+    private ExcelExportUtils() {}
+
+    public static final int ROW_ACCESS_WINDOW = 100;
+
+    public static final MediaType XLSX_MEDIA_TYPE =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    @FunctionalInterface
+    public interface WorkbookWriter {
+        void write(SXSSFWorkbook workbook) throws IOException;
+    }
+
+    // Dữ liệu phải được tải xong trước khi gọi: writer chạy trên thread async, ngoài transaction của request
+    public static ResponseEntity<StreamingResponseBody> streamXlsx(String filename, WorkbookWriter writer) {
+        StreamingResponseBody body = out -> {
+            SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+            workbook.setCompressTempFiles(true);
+            try {
+                writer.write(workbook);
+                workbook.write(out);
+                out.flush();
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .contentType(XLSX_MEDIA_TYPE)
+                .body(body);
+    }
+
+    // Tạo sheet với dòng tiêu đề (in đậm) và độ rộng cột tính theo số ký tự
+    public static Sheet createSheet(SXSSFWorkbook workbook, String name, String[] columns, int[] widthsInChars) {
+        Sheet sheet = workbook.createSheet(name);
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        headerStyle.setFont(font);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < columns.length; i++) {
+            header.createCell(i).setCellValue(columns[i]);
+            header.getCell(i).setCellStyle(headerStyle);
+            sheet.setColumnWidth(i, Math.min(255, widthsInChars[i]) * 256);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+}
@@ -0,0 +1,102 @@
+package com.farmovo.backend.utils;
+
+import com.farmovo.backend.dto.request.CursorPageResponse;
+import com.farmovo.backend.exceptions.BadRequestException;
+import com.farmovo.backend.models.Base;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Phân trang theo cursor (keyset/seek) trên (created_at, id), mới nhất trước.
+ * Mỗi trang là một truy vấn "WHERE (created_at, id) &lt; cursor ORDER BY created_at DESC, id DESC LIMIT size + 1":
+ * không OFFSET và không COUNT(*), nên trang sâu nhanh như trang đầu. Dòng thừa (size + 1) chỉ để biết còn trang sau.
+ * Dùng được với mọi Specification lọc sẵn có; sort của request bị bỏ qua ở chế độ này.
+ */
+public final class KeysetPagination {
+    private KeysetPagination() {}
+
+    public static final String MODE_PARAM = "pagination";
+    public static final String CURSOR_MODE = "cursor";
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 200;
+
+    public static final Sort ORDER = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    // Vị trí của bản ghi cuối trang trước
+    public record Cursor(LocalDateTime createdAt, Long id) {
+
+        public String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Cursor không hợp lệ");
+            }
+        }
+    }
+
+    public static boolean isCursorMode(String pagination) {
+        return CURSOR_MODE.equalsIgnoreCase(pagination);
+    }
+
+    public static int clampSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    // (created_at, id) đứng sau cursor theo thứ tự ORDER.
+    // Điều kiện created_at <= cursor tách riêng để Postgres dùng làm điểm bắt đầu quét index (created_at DESC, id DESC);
+    // phần OR chỉ còn lọc các dòng trùng created_at
+    public static <E extends Base> Specification<E> after(Cursor cursor) {
+        if (cursor == null) return null;
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("createdAt"), cursor.createdAt()),
+                cb.or(cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                        cb.lessThan(root.get("id"), cursor.id())));
+    }
+
+    /**
+     * Lấy một trang sau cursor. fetchPaths là các quan hệ được nạp cùng truy vấn (entity graph)
+     * để mapper không gây N+1.
+     */
+    public static <E extends Base> CursorPageResponse<E> fetch(JpaSpecificationExecutor<E> repository,
+                                                               Specification<E> spec,
+                                                               String cursor,
+                                                               Integer size,
+                                                               Function<E, Long> idOf,
+                                                               String... fetchPaths) {
+        int pageSize = clampSize(size);
+        Specification<E> seek = Specification.where(spec).and(after(Cursor.decode(cursor)));
+        List<E> rows = repository.findBy(seek, query -> {
+            var fluent = query.sortBy(ORDER).limit(pageSize + 1);
+            return fetchPaths.length > 0 ? fluent.project(fetchPaths).all() : fluent.all();
+        });
+
+        boolean hasNext = rows.size() > pageSize;
+        List<E> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            E last = content.get(content.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), idOf.apply(last)).encode();
+        }
+        return new CursorPageResponse<>(content, pageSize, nextCursor, hasNext);
+    }
+}
@@ -0,0 +1,198 @@
+package com.farmovo.backend.utils;
+
+import com.farmovo.backend.exceptions.BadRequestException;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Xuất nhiều phiếu trong một lần tải: gộp thành một PDF hoặc nén thành ZIP gồm từng PDF.
+ * Các phiếu được render song song trên pool giới hạn, ghi ra response theo đúng thứ tự;
+ * chỉ tối đa vài phiếu đang render / chờ ghi được giữ trong bộ nhớ cùng lúc.
+ */
+@Component
+public class PdfBulkExporter {
+
+    public enum Format {
+        PDF, ZIP;
+
+        public static Format of(String value) {
+            if (value == null || value.isBlank() || "pdf".equalsIgnoreCase(value)) {
+                return PDF;
+            }
+            if ("zip".equalsIgnoreCase(value)) {
+                return ZIP;
+            }
+            throw new BadRequestException("Định dạng xuất không hợp lệ: " + value);
+        }
+    }
+
+    // Một phiếu cần xuất; fileName là tên file PDF trong ZIP (trùng tên thì được thêm hậu tố khi nén)
+    public record Entry(String fileName, PdfRenderer.Voucher voucher) {
+    }
+
+    @FunctionalInterface
+    private interface PdfSink {
+        void accept(Entry entry, byte[] pdf) throws IOException;
+    }
+
+    private final PdfRenderer pdfRenderer;
+    private final ThreadPoolTaskExecutor executor;
+
+    // Pool giới hạn cho xuất PDF hàng loạt; khi hàng đợi đầy, thread của request tự render (không bỏ việc).
+    // Giữ riêng trong component, không đăng ký làm bean TaskExecutor để không thay thế applicationTaskExecutor
+    // mà Spring MVC dùng cho StreamingResponseBody/SseEmitter
+    public PdfBulkExporter(PdfRenderer pdfRenderer,
+                           @Value("${app.export.pdf-workers:4}") int workers,
+                           @Value("${app.export.pdf-queue-capacity:64}") int queueCapacity) {
+        this.pdfRenderer = pdfRenderer;
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("pdf-export-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public ResponseEntity<StreamingResponseBody> export(List<Entry> entries, Format format, String baseName) {
+        if (entries.isEmpty()) {
+            throw new BadRequestException("Không có phiếu nào phù hợp để xuất");
+        }
+        StreamingResponseBody body = format == Format.ZIP
+                ? out -> writeZip(entries, out)
+                : out -> writeMerged(entries, out);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(format == Format.ZIP ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_PDF);
+        headers.setContentDisposition(ContentDisposition.builder("attachment")
+                .filename(baseName + (format == Format.ZIP ? ".zip" : ".pdf"))
+                .build());
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    private void writeZip(List<Entry> entries, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Set<String> usedNames = new HashSet<>();
+        renderInOrder(entries, (entry, pdf) -> {
+            zip.putNextEntry(new ZipEntry(uniqueEntryName(usedNames, entry.fileName())));
+            zip.write(pdf);
+            zip.closeEntry();
+        });
+        zip.finish();
+        zip.flush();
+    }
+
+    // ZipOutputStream ném ZipException khi trùng tên entry (response đã bắt đầu ghi); thêm hậu tố _2, _3... trước phần mở rộng
+    static String uniqueEntryName(Set<String> usedNames, String fileName) {
+        if (usedNames.add(fileName)) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = stem + "_" + i + extension;
+            if (usedNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private void writeMerged(List<Entry> entries, OutputStream out) throws IOException {
+        Document document = new Document();
+        try {
+            PdfCopy copy = new PdfCopy(document, out);
+            copy.setCloseStream(false);
+            document.open();
+            renderInOrder(entries, (entry, pdf) -> {
+                PdfReader reader = new PdfReader(pdf);
+                try {
+                    for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                        copy.addPage(copy.getImportedPage(reader, page));
+                    }
+                    copy.freeReader(reader);
+                } catch (DocumentException e) {
+                    throw new IOException("Lỗi khi gộp PDF " + entry.fileName(), e);
+                } finally {
+                    reader.close();
+                }
+            });
+        } catch (DocumentException e) {
+            throw new IOException("Lỗi khi tạo PDF: " + e.getMessage(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+        out.flush();
+    }
+
+    // Giữ tối đa (số worker * 2) phiếu đang render; lấy kết quả theo thứ tự và nạp tiếp phiếu kế
+    private void renderInOrder(List<Entry> entries, PdfSink sink) throws IOException {
+        int window = Math.max(1, executor.getMaxPoolSize() * 2);
+        Iterator<Entry> pending = entries.iterator();
+        Deque<Entry> submittedEntries = new ArrayDeque<>(window);
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>(window);
+        try {
+            while (pending.hasNext() && inFlight.size() < window) {
+                Entry entry = pending.next();
+                submittedEntries.add(entry);
+                inFlight.add(executor.submit(() -> render(entry)));
+            }
+            while (!inFlight.isEmpty()) {
+                byte[] pdf = inFlight.poll().get();
+                Entry entry = submittedEntries.poll();
+                if (pending.hasNext()) {
+                    Entry next = pending.next();
+                    submittedEntries.add(next);
+                    inFlight.add(executor.submit(() -> render(next)));
+                }
+                sink.accept(entry, pdf);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Xuất PDF bị gián đoạn", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Lỗi khi tạo PDF: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private byte[] render(Entry entry) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        pdfRenderer.render(entry.voucher(), buffer);
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,252 @@
+package com.farmovo.backend.utils;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dựng PDF phiếu nhập / phiếu bán theo cùng một bố cục.
+ * Font Roboto (Unicode tiếng Việt) được nạp và embed một lần khi khởi động; các Font,
+ * độ rộng cột và định dạng ngày dùng chung cho mọi lần xuất. PDF được ghi thẳng ra
+ * OutputStream (response), không đệm toàn bộ file trong bộ nhớ.
+ */
+@Component
+public class PdfRenderer {
+
+    private static final String FONT_PATH = "fonts/Roboto-Regular.ttf";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final Locale VI_VN = new Locale("vi", "VN");
+
+    private static final float[] HEADER_WIDTHS = {2f, 1f};
+    private static final float[] HALF_WIDTHS = {1f, 1f};
+    private static final float[] PRODUCT_WIDTHS = {0.8f, 3f, 1.5f, 2f, 1.2f, 2.5f};
+
+    // Font (và BaseFont bên trong) chỉ được đọc sau khi khởi tạo nên dùng chung giữa các thread được;
+    // trạng thái subset font của từng file nằm trong PdfWriter riêng
+    private final Font normalFont;
+    private final Font boldFont;
+    private final Font titleFont;
+
+    public PdfRenderer() {
+        this(loadBundledFont());
+    }
+
+    public PdfRenderer(BaseFont baseFont) {
+        this.normalFont = new Font(baseFont, 12);
+        this.boldFont = new Font(baseFont, 12, Font.BOLD);
+        this.titleFont = new Font(baseFont, 14, Font.BOLD);
+    }
+
+    // Đọc font từ classpath vào bộ nhớ, không cần ghi ra file tạm
+    private static BaseFont loadBundledFont() {
+        try (InputStream in = new ClassPathResource(FONT_PATH).getInputStream()) {
+            byte[] fontBytes = in.readAllBytes();
+            return BaseFont.createFont(FONT_PATH, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true, fontBytes, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không thể nạp font " + FONT_PATH, e);
+        }
+    }
+
+    /**
+     * Nội dung một phiếu. Toàn bộ dữ liệu (kể cả các bản ghi liên quan) phải được tải xong
+     * trước khi render vì render có thể chạy ngoài transaction của request.
+     */
+    public record Voucher(String title,
+                          LocalDateTime createdAt,
+                          String statusLine,
+                          String leftTitle,
+                          List<String> leftLines,
+                          String rightTitle,
+                          List<String> rightLines,
+                          String unitPriceHeader,
+                          List<Line> lines,
+                          BigDecimal totalAmount,
+                          BigDecimal paidAmount,
+                          String note) {
+    }
+
+    public record Line(String productName, String productCode, BigDecimal unitPrice, int quantity) {
+    }
+
+    public void render(Voucher voucher, OutputStream out) throws IOException {
+        Document document = new Document(PageSize.A4);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            // Container tự đóng response stream
+            writer.setCloseStream(false);
+            document.open();
+            addHeader(document, voucher);
+            if (voucher.statusLine() != null) {
+                document.add(new Paragraph(voucher.statusLine(), normalFont));
+            }
+            addInfo(document, voucher);
+            addProducts(document, voucher);
+            addSummary(document, voucher);
+            addSignature(document);
+        } catch (DocumentException e) {
+            throw new IOException("Lỗi khi tạo PDF: " + e.getMessage(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+        out.flush();
+    }
+
+    public String formatCurrency(BigDecimal amount) {
+        return NumberFormat.getCurrencyInstance(VI_VN).format(amount).replace("₫", "VND");
+    }
+
+    public static String safe(String input) {
+        return input == null ? "Chưa có" : input;
+    }
+
+    private void addHeader(Document document, Voucher voucher) throws DocumentException {
+        LocalDateTime createdAt = voucher.createdAt();
+        PdfPTable headerTable = new PdfPTable(2);
+        headerTable.setWidthPercentage(100);
+        headerTable.setWidths(HEADER_WIDTHS);
+        headerTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
+
+        PdfPCell titleCell = new PdfPCell(new Phrase(voucher.title(), titleFont));
+        titleCell.setBorder(Rectangle.NO_BORDER);
+        titleCell.setHorizontalAlignment(Element.ALIGN_LEFT);
+
+        PdfPCell dateCell = new PdfPCell();
+        dateCell.setBorder(Rectangle.NO_BORDER);
+        dateCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        dateCell.addElement(new Paragraph("Ngày lập: " + (createdAt != null ? createdAt.format(DATE_FORMAT) : ""), normalFont));
+        dateCell.addElement(new Paragraph("Giờ lập: " + (createdAt != null ? createdAt.format(TIME_FORMAT) : ""), normalFont));
+
+        headerTable.addCell(titleCell);
+        headerTable.addCell(dateCell);
+        document.add(headerTable);
+    }
+
+    private void addInfo(Document document, Voucher voucher) throws DocumentException {
+        PdfPTable infoTable = new PdfPTable(2);
+        infoTable.setWidthPercentage(100);
+        infoTable.setSpacingBefore(10f);
+        infoTable.setSpacingAfter(10f);
+        infoTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
+        infoTable.addCell(infoCell(voucher.leftTitle(), voucher.leftLines()));
+        infoTable.addCell(infoCell(voucher.rightTitle(), voucher.rightLines()));
+        document.add(infoTable);
+    }
+
+    private PdfPCell infoCell(String title, List<String> lines) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.addElement(new Paragraph(title, boldFont));
+        for (String line : lines) {
+            cell.addElement(new Paragraph(line, normalFont));
+        }
+        return cell;
+    }
+
+    private void addProducts(Document document, Voucher voucher) throws DocumentException {
+        PdfPTable productTable = new PdfPTable(6);
+        productTable.setWidthPercentage(100);
+        productTable.setSpacingBefore(10);
+        productTable.setWidths(PRODUCT_WIDTHS);
+
+        productTable.addCell(cell("STT", boldFont));
+        productTable.addCell(cell("Tên sản phẩm", boldFont));
+        productTable.addCell(cell("Mã", boldFont));
+        productTable.addCell(cell(voucher.unitPriceHeader(), boldFont));
+        productTable.addCell(cell("Số lượng", boldFont));
+        productTable.addCell(cell("Thành tiền", boldFont));
+
+        int index = 1;
+        for (Line line : voucher.lines()) {
+            BigDecimal unitPrice = line.unitPrice() != null ? line.unitPrice() : BigDecimal.ZERO;
+            BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(line.quantity()));
+            productTable.addCell(cell(String.valueOf(index++), normalFont));
+            productTable.addCell(cell(safe(line.productName()), normalFont));
+            productTable.addCell(cell(safe(line.productCode()), normalFont));
+            productTable.addCell(cell(formatCurrency(unitPrice), normalFont));
+            productTable.addCell(cell(String.valueOf(line.quantity()), normalFont));
+            productTable.addCell(cell(formatCurrency(lineTotal), normalFont));
+        }
+        document.add(productTable);
+    }
+
+    private void addSummary(Document document, Voucher voucher) throws DocumentException {
+        PdfPTable summaryTable = new PdfPTable(2);
+        summaryTable.setWidthPercentage(100);
+        summaryTable.setSpacingBefore(10);
+        summaryTable.setWidths(HALF_WIDTHS);
+
+        // Cột bên trái: Tổng tiền
+        PdfPCell totalCell = new PdfPCell();
+        totalCell.setBorder(Rectangle.NO_BORDER);
+        BigDecimal totalAmount = voucher.totalAmount() != null ? voucher.totalAmount() : BigDecimal.ZERO;
+        BigDecimal paidAmount = voucher.paidAmount() != null ? voucher.paidAmount() : BigDecimal.ZERO;
+        totalCell.addElement(new Paragraph("Tổng tiền hàng: " + formatCurrency(totalAmount), normalFont));
+        totalCell.addElement(new Paragraph("Số tiền đã trả: " + formatCurrency(paidAmount), boldFont));
+        totalCell.addElement(new Paragraph("Còn lại: " + formatCurrency(totalAmount.subtract(paidAmount)), boldFont));
+
+        // Cột bên phải: Ghi chú
+        PdfPCell noteCell = new PdfPCell();
+        noteCell.setBorder(Rectangle.NO_BORDER);
+        if (voucher.note() != null && !voucher.note().isEmpty()) {
+            noteCell.addElement(new Paragraph("Ghi chú:", boldFont));
+            noteCell.addElement(new Paragraph(voucher.note(), normalFont));
+        }
+
+        summaryTable.addCell(totalCell);
+        summaryTable.addCell(noteCell);
+        document.add(summaryTable);
+    }
+
+    private void addSignature(Document document) throws DocumentException {
+        document.add(new Paragraph(" "));
+        PdfPTable signTable = new PdfPTable(2);
+        signTable.setWidthPercentage(100);
+        signTable.setWidths(HALF_WIDTHS);
+        signTable.getDefaultCell().setBorder(Rectangle.NO_BORDER);
+
+        PdfPCell leftEmptyCell = new PdfPCell(new Phrase(""));
+        leftEmptyCell.setBorder(Rectangle.NO_BORDER);
+
+        PdfPCell rightSignCell = new PdfPCell();
+        rightSignCell.setBorder(Rectangle.NO_BORDER);
+        rightSignCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        rightSignCell.addElement(new Paragraph("Người lập phiếu", boldFont));
+        rightSignCell.addElement(new Paragraph("(Ký, ghi rõ họ tên)", normalFont));
+
+        signTable.addCell(leftEmptyCell);
+        signTable.addCell(rightSignCell);
+        document.add(signTable);
+    }
+
+    private static PdfPCell cell(String text, Font font) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, font));
+        cell.setPadding(5);
+        return cell;
+    }
+}
@@ -0,0 +1,47 @@
+-- Tìm kiếm chứa chuỗi (LIKE '%từ khóa%') không phân biệt dấu, dùng index GIN pg_trgm.
+-- Điều kiện trong code là f_unaccent(lower(cột)) LIKE ..., biểu thức index phải giống hệt (xem SearchPredicates).
+--
+-- Migration repeatable: chạy sau mọi migration có version nên không chặn chuỗi V*. Cần quyền tạo extension
+-- pg_trgm/unaccent; khi server không có extension hoặc không đủ quyền thì bỏ qua toàn bộ (chỉ ghi NOTICE)
+-- và SearchIndexCheckJob giữ cách tìm lower() LIKE. Sửa file này (đổi checksum) để Flyway chạy lại.
+
+DO $$
+BEGIN
+    IF (SELECT count(*) FROM pg_available_extensions WHERE name IN ('pg_trgm', 'unaccent')) < 2 THEN
+        RAISE NOTICE 'pg_trgm/unaccent not available, skipping trigram search indexes';
+        RETURN;
+    END IF;
+
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    CREATE EXTENSION IF NOT EXISTS unaccent;
+
+    -- unaccent() chỉ là STABLE nên không dùng trực tiếp trong index được; bọc lại với từ điển cố định
+    CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+        LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+    AS 'SELECT public.unaccent(''public.unaccent''::regdictionary, $1)';
+
+    -- ===== sale_transactions / import_transactions: mã phiếu =====
+    CREATE INDEX IF NOT EXISTS ix_sale_transactions_name_trgm
+        ON sale_transactions USING gin (f_unaccent(lower(name)) gin_trgm_ops);
+
+    CREATE INDEX IF NOT EXISTS ix_import_transactions_name_trgm
+        ON import_transactions USING gin (f_unaccent(lower(name)) gin_trgm_ops);
+
+    -- ===== customers: tên, số điện thoại =====
+    CREATE INDEX IF NOT EXISTS ix_customers_name_trgm
+        ON customers USING gin (f_unaccent(lower(customer_name)) gin_trgm_ops);
+
+    CREATE INDEX IF NOT EXISTS ix_customers_phone_trgm
+        ON customers USING gin (f_unaccent(lower(customer_phone)) gin_trgm_ops);
+
+    -- ===== products: tên, mã =====
+    CREATE INDEX IF NOT EXISTS ix_products_name_trgm
+        ON products USING gin (f_unaccent(lower(product_name)) gin_trgm_ops);
+
+    CREATE INDEX IF NOT EXISTS ix_products_code_trgm
+        ON products USING gin (f_unaccent(lower(product_code)) gin_trgm_ops);
+EXCEPTION
+    WHEN insufficient_privilege OR feature_not_supported OR undefined_file OR undefined_object THEN
+        RAISE NOTICE 'Trigram search indexes skipped: %', SQLERRM;
+END
+$$;
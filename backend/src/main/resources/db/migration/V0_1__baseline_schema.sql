@@ -0,0 +1,262 @@
+-- Schema gốc của các entity (trước đây chỉ do Hibernate ddl-auto tạo).
+-- Flyway chạy trước khi JPA khởi tạo nên DB mới phải có bảng trước V1; với DB đã có bảng
+-- (baseline-on-migrate, out-of-order) mọi lệnh đều là IF NOT EXISTS nên không thay đổi gì.
+-- Kiểu cột khớp với DDL Hibernate sinh ra để ddl-auto=validate chạy được.
+
+CREATE TABLE IF NOT EXISTS stores (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at        timestamp(6) NOT NULL,
+    created_by        bigint,
+    updated_at        timestamp(6),
+    deleted_at        timestamp(6),
+    deleted_by        bigint,
+    store_name        varchar(255) NOT NULL,
+    store_description varchar(1000),
+    store_address     varchar(500),
+    CONSTRAINT ux_stores_store_name UNIQUE (store_name)
+);
+
+CREATE TABLE IF NOT EXISTS authorities (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at timestamp(6) NOT NULL,
+    created_by bigint,
+    updated_at timestamp(6),
+    deleted_at timestamp(6),
+    deleted_by bigint,
+    role       varchar(100) NOT NULL,
+    CONSTRAINT ux_authorities_role UNIQUE (role)
+);
+
+CREATE TABLE IF NOT EXISTS categories (
+    id                   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at           timestamp(6) NOT NULL,
+    created_by           bigint,
+    updated_at           timestamp(6),
+    deleted_at           timestamp(6),
+    deleted_by           bigint,
+    category_name        varchar(255) NOT NULL,
+    category_description varchar(1000),
+    CONSTRAINT ux_categories_category_name UNIQUE (category_name)
+);
+
+CREATE TABLE IF NOT EXISTS customers (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at        timestamp(6) NOT NULL,
+    created_by        bigint,
+    updated_at        timestamp(6),
+    deleted_at        timestamp(6),
+    deleted_by        bigint,
+    customer_name     varchar(255) NOT NULL,
+    customer_email    varchar(255),
+    customer_phone    varchar(50),
+    customer_address  varchar(255),
+    is_supplier       boolean,
+    total_debt_amount numeric(38, 2)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at timestamp(6) NOT NULL,
+    created_by bigint,
+    updated_at timestamp(6),
+    deleted_at timestamp(6),
+    deleted_by bigint,
+    full_name  varchar(255) NOT NULL,
+    username   varchar(100) NOT NULL,
+    password   varchar(255) NOT NULL,
+    status     boolean      NOT NULL,
+    email      varchar(255) NOT NULL,
+    phone      varchar(255),
+    store_id   bigint,
+    CONSTRAINT ux_users_username UNIQUE (username),
+    CONSTRAINT fk_users_store FOREIGN KEY (store_id) REFERENCES stores (id)
+);
+
+CREATE TABLE IF NOT EXISTS user_authorities (
+    user_id      bigint NOT NULL,
+    authority_id bigint NOT NULL,
+    CONSTRAINT fk_user_authorities_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_user_authorities_authority FOREIGN KEY (authority_id) REFERENCES authorities (id)
+);
+
+CREATE TABLE IF NOT EXISTS forgot_password (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    otp             integer      NOT NULL,
+    expiration_time timestamp(6) NOT NULL,
+    user_id         bigint,
+    CONSTRAINT ux_forgot_password_user UNIQUE (user_id),
+    CONSTRAINT fk_forgot_password_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS zones (
+    id               bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at       timestamp(6) NOT NULL,
+    created_by       bigint,
+    updated_at       timestamp(6),
+    deleted_at       timestamp(6),
+    deleted_by       bigint,
+    zone_name        varchar(100) NOT NULL,
+    zone_description varchar(1000),
+    store_id         bigint,
+    CONSTRAINT fk_zones_store FOREIGN KEY (store_id) REFERENCES stores (id)
+);
+
+CREATE TABLE IF NOT EXISTS products (
+    id                  bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at          timestamp(6) NOT NULL,
+    created_by          bigint,
+    updated_at          timestamp(6),
+    deleted_at          timestamp(6),
+    deleted_by          bigint,
+    product_code        varchar(20),
+    product_name        varchar(100),
+    product_description varchar(100),
+    product_quantity    integer NOT NULL,
+    category_id         bigint  NOT NULL,
+    store_id            bigint  NOT NULL,
+    CONSTRAINT ux_products_product_code UNIQUE (product_code),
+    CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories (id),
+    CONSTRAINT fk_products_store FOREIGN KEY (store_id) REFERENCES stores (id)
+);
+
+CREATE TABLE IF NOT EXISTS stocktakes (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at     timestamp(6) NOT NULL,
+    created_by     bigint,
+    updated_at     timestamp(6),
+    deleted_at     timestamp(6),
+    deleted_by     bigint,
+    name           varchar(20),
+    stocktake_date timestamp(6) with time zone NOT NULL,
+    detail         text,
+    stocktake_note varchar(1000),
+    status         varchar(50),
+    store_id       bigint NOT NULL,
+    CONSTRAINT ux_stocktakes_name UNIQUE (name),
+    CONSTRAINT fk_stocktakes_store FOREIGN KEY (store_id) REFERENCES stores (id)
+);
+
+CREATE TABLE IF NOT EXISTS import_transactions (
+    id                      bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at              timestamp(6) NOT NULL,
+    created_by              bigint,
+    updated_at              timestamp(6),
+    deleted_at              timestamp(6),
+    deleted_by              bigint,
+    stocktake_id            bigint,
+    total_amount            numeric(38, 2),
+    paid_amount             numeric(38, 2),
+    status                  varchar(50),
+    import_transaction_note varchar(1000),
+    import_date             timestamp(6) NOT NULL,
+    name                    varchar(20),
+    supplier_id             bigint,
+    store_id                bigint,
+    staff_id                bigint,
+    CONSTRAINT ux_import_transactions_name UNIQUE (name),
+    CONSTRAINT fk_import_transactions_supplier FOREIGN KEY (supplier_id) REFERENCES customers (id),
+    CONSTRAINT fk_import_transactions_store FOREIGN KEY (store_id) REFERENCES stores (id),
+    CONSTRAINT fk_import_transactions_staff FOREIGN KEY (staff_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS import_transaction_details (
+    id                    bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at            timestamp(6) NOT NULL,
+    created_by            bigint,
+    updated_at            timestamp(6),
+    deleted_at            timestamp(6),
+    deleted_by            bigint,
+    import_quantity       integer,
+    remain_quantity       integer,
+    expire_date           timestamp(6),
+    unit_import_price     numeric(38, 2),
+    unit_sale_price       numeric(38, 2),
+    zones_id              varchar(255),
+    is_check              boolean,
+    name                  varchar(20),
+    import_transaction_id bigint,
+    product_id            bigint,
+    CONSTRAINT ux_import_transaction_details_name UNIQUE (name),
+    CONSTRAINT fk_import_transaction_details_import FOREIGN KEY (import_transaction_id) REFERENCES import_transactions (id),
+    CONSTRAINT fk_import_transaction_details_product FOREIGN KEY (product_id) REFERENCES products (id)
+);
+
+CREATE TABLE IF NOT EXISTS sale_transactions (
+    id                    bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at            timestamp(6) NOT NULL,
+    created_by            bigint,
+    updated_at            timestamp(6),
+    deleted_at            timestamp(6),
+    deleted_by            bigint,
+    name                  varchar(20),
+    total_amount          numeric(38, 2),
+    paid_amount           numeric(38, 2),
+    detail                text,
+    sale_transaction_note varchar(1000),
+    status                varchar(50),
+    sale_date             timestamp(6) NOT NULL,
+    customer_id           bigint,
+    store_id              bigint,
+    stocktake_id          bigint,
+    CONSTRAINT ux_sale_transactions_name UNIQUE (name),
+    CONSTRAINT ux_sale_stocktake_id UNIQUE (stocktake_id),
+    CONSTRAINT fk_sale_transactions_customer FOREIGN KEY (customer_id) REFERENCES customers (id),
+    CONSTRAINT fk_sale_transactions_store FOREIGN KEY (store_id) REFERENCES stores (id),
+    CONSTRAINT fk_sale_stocktake FOREIGN KEY (stocktake_id) REFERENCES stocktakes (id)
+);
+
+CREATE TABLE IF NOT EXISTS debt_notes (
+    id               bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at       timestamp(6) NOT NULL,
+    created_by       bigint,
+    updated_at       timestamp(6),
+    deleted_at       timestamp(6),
+    deleted_by       bigint,
+    debt_amount      numeric(38, 2),
+    debt_date        timestamp(6),
+    debt_type        varchar(50),
+    debt_description varchar(1000),
+    debt_evidences   varchar(1000),
+    from_source      varchar(255),
+    source_id        bigint,
+    customer_id      bigint,
+    store_id         bigint,
+    CONSTRAINT fk_debt_notes_customer FOREIGN KEY (customer_id) REFERENCES customers (id),
+    CONSTRAINT fk_debt_notes_store FOREIGN KEY (store_id) REFERENCES stores (id)
+);
+
+CREATE TABLE IF NOT EXISTS notifications (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at  timestamp(6) NOT NULL,
+    created_by  bigint,
+    updated_at  timestamp(6),
+    deleted_at  timestamp(6),
+    deleted_by  bigint,
+    title       varchar(255)  NOT NULL,
+    message     varchar(1000) NOT NULL,
+    type        varchar(255)  NOT NULL,
+    category    varchar(255)  NOT NULL,
+    is_read     boolean       NOT NULL,
+    action_url  varchar(500),
+    entity_id   bigint,
+    entity_type varchar(100),
+    user_id     bigint NOT NULL,
+    store_id    bigint,
+    read_at     timestamp(6),
+    CONSTRAINT fk_notifications_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_notifications_store FOREIGN KEY (store_id) REFERENCES stores (id)
+);
+
+CREATE TABLE IF NOT EXISTS changestatuslogs (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at      timestamp(6) NOT NULL,
+    created_by      bigint,
+    updated_at      timestamp(6),
+    deleted_at      timestamp(6),
+    deleted_by      bigint,
+    model_name      varchar(255),
+    model_id        bigint,
+    previous_status varchar(255),
+    next_status     varchar(255),
+    description     varchar(255)
+);
@@ -0,0 +1,92 @@
+-- Index cho các điều kiện lọc thường gặp trong SaleTransactionRepository,
+-- ImportTransactionDetailRepository và NotificationRepository.
+-- Bảng tạo ở V0_1__baseline_schema.sql, file này chỉ thêm index.
+-- CONCURRENTLY để không khóa ghi các bảng nóng khi build index; Flyway tự chạy file ngoài transaction
+-- nên mọi lệnh trong file phải là CONCURRENTLY (không trộn lệnh cần transaction).
+
+-- ===== sale_transactions =====
+-- Báo cáo/dashboard: deleted_at IS NULL AND status = 'COMPLETE' AND sale_date BETWEEN ...
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_sale_tx_complete_date
+    ON sale_transactions (sale_date)
+    WHERE deleted_at IS NULL AND status = 'COMPLETE';
+
+-- Như trên, theo kho
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_sale_tx_complete_store_date
+    ON sale_transactions (store_id, sale_date)
+    WHERE deleted_at IS NULL AND status = 'COMPLETE';
+
+-- Danh sách phiếu hoàn thành mới nhất (ORDER BY created_at DESC)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_sale_tx_complete_created
+    ON sale_transactions (created_at DESC)
+    WHERE deleted_at IS NULL AND status = 'COMPLETE';
+
+-- Danh sách/lọc phiếu theo kho và trạng thái
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_sale_tx_store_status
+    ON sale_transactions (store_id, status)
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_sale_tx_customer
+    ON sale_transactions (customer_id);
+
+-- ===== import_transactions =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_tx_complete_date
+    ON import_transactions (import_date)
+    WHERE deleted_at IS NULL AND status = 'COMPLETE';
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_tx_complete_store_date
+    ON import_transactions (store_id, import_date)
+    WHERE deleted_at IS NULL AND status = 'COMPLETE';
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_tx_supplier
+    ON import_transactions (supplier_id);
+
+-- ===== import_transaction_details =====
+-- Join từ phiếu nhập sang lô (JOIN i.importTransaction t)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_detail_import_tx
+    ON import_transaction_details (import_transaction_id);
+
+-- Lô còn tồn theo sản phẩm: product_id = ? AND remain_quantity > 0
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_detail_product_remain
+    ON import_transaction_details (product_id, import_transaction_id)
+    WHERE remain_quantity > 0;
+
+-- Lô còn tồn (stocktake, báo cáo tồn kho): remain_quantity > 0
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_detail_remain
+    ON import_transaction_details (import_transaction_id)
+    WHERE remain_quantity > 0;
+
+-- Lô sắp hết hạn: expire_date BETWEEN ...
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_detail_expire
+    ON import_transaction_details (expire_date);
+
+-- Lọc theo kho đi qua products.store_id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_products_store
+    ON products (store_id);
+
+-- ===== notifications =====
+-- Danh sách theo user/kho, mới nhất trước
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_user_store_created
+    ON notifications (user_id, store_id, created_at DESC);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_user_created
+    ON notifications (user_id, created_at DESC);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_store_created
+    ON notifications (store_id, created_at DESC);
+
+-- Danh sách cho Admin và xóa thông báo cũ (created_at < cutoff)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_created
+    ON notifications (created_at);
+
+-- Đếm chưa đọc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_unread_user_store
+    ON notifications (user_id, store_id)
+    WHERE is_read = false;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_unread_store
+    ON notifications (store_id)
+    WHERE is_read = false;
+
+-- Tra thông báo theo thực thể liên quan
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_entity
+    ON notifications (entity_type, entity_id, store_id);
@@ -0,0 +1,27 @@
+-- Index cho phân trang theo cursor (KeysetPagination): ORDER BY created_at DESC, id DESC
+-- với điều kiện created_at <= cursor, không OFFSET.
+-- CONCURRENTLY như V1: chạy ngoài transaction, không khóa ghi.
+
+-- ===== sale_transactions / import_transactions (chỉ phiếu chưa xóa) =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_sale_transactions_created_id
+    ON sale_transactions (created_at DESC, id DESC)
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_import_transactions_created_id
+    ON import_transactions (created_at DESC, id DESC)
+    WHERE deleted_at IS NULL;
+
+-- ===== changestatuslogs =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_changestatuslogs_created_id
+    ON changestatuslogs (created_at DESC, id DESC);
+
+-- ===== notifications =====
+-- Danh sách theo user (và kho): thêm id vào sau created_at của các index V1 để seek đúng khi trùng created_at
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_user_created_id
+    ON notifications (user_id, created_at DESC, id DESC);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_notifications_user_store_created_id
+    ON notifications (user_id, store_id, created_at DESC, id DESC);
+
+DROP INDEX CONCURRENTLY IF EXISTS ix_notifications_user_created;
+DROP INDEX CONCURRENTLY IF EXISTS ix_notifications_user_store_created;
@@ -0,0 +1,13 @@
+-- Outbox cho nhật ký đổi trạng thái: StatusChangeLogWriter ghi vào đây khi không ghi được changestatuslogs
+-- (lỗi DB, đang tắt ứng dụng); StatusChangeOutboxJob chuyển lại sang changestatuslogs.
+CREATE TABLE IF NOT EXISTS status_change_outbox (
+    id              BIGSERIAL PRIMARY KEY,
+    model_name      VARCHAR(255),
+    model_id        BIGINT,
+    previous_status VARCHAR(255),
+    next_status     VARCHAR(255),
+    description     VARCHAR(255),
+    created_by      BIGINT,
+    created_at      TIMESTAMP NOT NULL,
+    updated_at      TIMESTAMP
+);
@@ -0,0 +1,38 @@
+-- Bản ghi changestatuslogs mới nhất cho mỗi nguồn (model_name, model_id), thay cho
+-- WHERE id IN (SELECT MAX(id) ... GROUP BY model_name, model_id) trên toàn bảng nhật ký.
+-- Trigger cập nhật bảng này trong cùng transaction với mỗi INSERT vào changestatuslogs
+-- (JPA save, JDBC batch của StatusChangeLogWriter, chuyển từ outbox).
+CREATE TABLE IF NOT EXISTS change_status_latest (
+    model_name VARCHAR(255) NOT NULL,
+    model_id   BIGINT       NOT NULL,
+    log_id     BIGINT       NOT NULL,
+    PRIMARY KEY (model_name, model_id)
+);
+
+CREATE OR REPLACE FUNCTION f_change_status_latest_upsert() RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NEW.model_name IS NOT NULL AND NEW.model_id IS NOT NULL THEN
+        INSERT INTO change_status_latest (model_name, model_id, log_id)
+        VALUES (NEW.model_name, NEW.model_id, NEW.id)
+        ON CONFLICT (model_name, model_id) DO UPDATE SET log_id = EXCLUDED.log_id
+            WHERE change_status_latest.log_id < EXCLUDED.log_id;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_changestatuslogs_latest ON changestatuslogs;
+CREATE TRIGGER trg_changestatuslogs_latest
+    AFTER INSERT ON changestatuslogs
+    FOR EACH ROW EXECUTE FUNCTION f_change_status_latest_upsert();
+
+-- Điền từ dữ liệu hiện có
+INSERT INTO change_status_latest (model_name, model_id, log_id)
+SELECT model_name, model_id, MAX(id)
+FROM changestatuslogs
+WHERE model_name IS NOT NULL AND model_id IS NOT NULL
+GROUP BY model_name, model_id
+ON CONFLICT (model_name, model_id) DO UPDATE SET log_id = EXCLUDED.log_id
+    WHERE change_status_latest.log_id < EXCLUDED.log_id;
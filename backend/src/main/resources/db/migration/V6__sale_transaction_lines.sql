@@ -0,0 +1,19 @@
+-- Dòng chi tiết phiếu bán đã chuẩn hóa (SaleTransactionLine), một dòng cho mỗi lô trong sale_transactions.detail.
+-- Dữ liệu cũ do SaleTransactionLineBackfillJob tách từ cột JSON.
+-- lot_id không có FK: detail cũ có thể chứa id 0 (phiếu cân bằng).
+
+CREATE TABLE IF NOT EXISTS sale_transaction_lines (
+    id                  bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sale_transaction_id bigint  NOT NULL,
+    lot_id              bigint,
+    product_id          bigint,
+    quantity            integer NOT NULL,
+    unit_sale_price     numeric(38, 2),
+    CONSTRAINT fk_sale_line_sale FOREIGN KEY (sale_transaction_id) REFERENCES sale_transactions (id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_sale_line_sale
+    ON sale_transaction_lines (sale_transaction_id);
+
+CREATE INDEX IF NOT EXISTS ix_sale_line_product
+    ON sale_transaction_lines (product_id);
@@ -0,0 +1,43 @@
+-- Số liệu tổng hợp theo kho và ngày (DailyStoreRollup), chỉ tính phiếu COMPLETE chưa xóa; store_id = 0 cho phiếu không gắn kho.
+-- Backfill cùng công thức với DailyStoreRollupRepository.rebuildSales/rebuildImports.
+
+CREATE TABLE IF NOT EXISTS daily_store_rollup (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    store_id          bigint         NOT NULL,
+    day               date           NOT NULL,
+    revenue           numeric(38, 2) NOT NULL,
+    sale_count        bigint         NOT NULL,
+    sale_paid         numeric(38, 2) NOT NULL,
+    sale_debt_delta   numeric(38, 2) NOT NULL,
+    import_cost       numeric(38, 2) NOT NULL,
+    import_count      bigint         NOT NULL,
+    import_paid       numeric(38, 2) NOT NULL,
+    import_debt_delta numeric(38, 2) NOT NULL,
+    CONSTRAINT ux_daily_store_rollup_store_day UNIQUE (store_id, day)
+);
+
+-- Chỉ backfill khi bảng còn trống (DB mà Hibernate đã tạo bảng và DailyStoreRollupInitJob đã dựng thì giữ nguyên)
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM daily_store_rollup) THEN
+        INSERT INTO daily_store_rollup (store_id, day, revenue, sale_count, sale_paid, sale_debt_delta,
+                                        import_cost, import_count, import_paid, import_debt_delta)
+        SELECT COALESCE(s.store_id, 0), DATE(s.sale_date), SUM(COALESCE(s.total_amount, 0)), COUNT(*),
+               SUM(COALESCE(s.paid_amount, 0)), SUM(COALESCE(s.total_amount, 0) - COALESCE(s.paid_amount, 0)), 0, 0, 0, 0
+        FROM sale_transactions s
+        WHERE s.deleted_at IS NULL AND s.deleted_by IS NULL AND s.status = 'COMPLETE' AND s.sale_date IS NOT NULL
+        GROUP BY COALESCE(s.store_id, 0), DATE(s.sale_date);
+
+        INSERT INTO daily_store_rollup (store_id, day, revenue, sale_count, sale_paid, sale_debt_delta,
+                                        import_cost, import_count, import_paid, import_debt_delta)
+        SELECT COALESCE(i.store_id, 0), DATE(i.import_date), 0, 0, 0, 0, SUM(COALESCE(i.total_amount, 0)), COUNT(*),
+               SUM(COALESCE(i.paid_amount, 0)), SUM(COALESCE(i.total_amount, 0) - COALESCE(i.paid_amount, 0))
+        FROM import_transactions i
+        WHERE i.deleted_at IS NULL AND i.deleted_by IS NULL AND i.status = 'COMPLETE' AND i.import_date IS NOT NULL
+        GROUP BY COALESCE(i.store_id, 0), DATE(i.import_date)
+        ON CONFLICT (store_id, day) DO UPDATE SET
+            import_cost = EXCLUDED.import_cost, import_count = EXCLUDED.import_count,
+            import_paid = EXCLUDED.import_paid, import_debt_delta = EXCLUDED.import_debt_delta;
+    END IF;
+END
+$$;
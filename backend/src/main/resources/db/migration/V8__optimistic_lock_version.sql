@@ -0,0 +1,8 @@
+-- Cột @Version cho khóa lạc quan của Product và ImportTransactionDetail (trừ tồn/cập nhật lô đồng thời).
+-- DEFAULT hằng số nên Postgres 11+ chỉ sửa metadata, không ghi lại bảng; dòng cũ nhận version = 0.
+
+ALTER TABLE products
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE import_transaction_details
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
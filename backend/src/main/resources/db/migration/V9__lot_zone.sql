@@ -0,0 +1,22 @@
+-- Bản chuẩn hóa của import_transaction_details.zones_id (ElementCollection ImportTransactionDetail.zoneIds):
+-- mỗi cặp (lô, zone) một dòng để tra lô theo zone bằng index thay vì LIKE trên chuỗi.
+
+CREATE TABLE IF NOT EXISTS lot_zone (
+    lot_id  bigint NOT NULL,
+    zone_id bigint NOT NULL,
+    CONSTRAINT ux_lot_zone_lot_zone UNIQUE (lot_id, zone_id),
+    CONSTRAINT fk_lot_zone_lot FOREIGN KEY (lot_id) REFERENCES import_transaction_details (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_lot_zone_zone_lot
+    ON lot_zone (zone_id, lot_id);
+
+-- Tách zones_id của các lô chưa có dòng lot_zone, cùng cách parse với ImportTransactionDetail.parseZoneIds
+-- (LotZoneBackfillJob chạy lại câu này khi khởi động cho dữ liệu ghi bởi bản cũ)
+INSERT INTO lot_zone (lot_id, zone_id)
+SELECT DISTINCT d.id, CAST(p.part AS BIGINT)
+FROM import_transaction_details d
+CROSS JOIN LATERAL regexp_split_to_table(regexp_replace(d.zones_id, '[\[\]"]', '', 'g'), '[;,|\s]+') AS p(part)
+WHERE d.zones_id IS NOT NULL AND p.part ~ '^[0-9]+$'
+  AND NOT EXISTS (SELECT 1 FROM lot_zone lz WHERE lz.lot_id = d.id)
+ON CONFLICT (lot_id, zone_id) DO NOTHING;
@@ -6,11 +6,11 @@ import com.farmovo.backend.dto.response.ImportTransactionResponseDto;
 import com.farmovo.backend.dto.response.StoreResponseDto;
 import com.farmovo.backend.exceptions.BadRequestException;
 import com.farmovo.backend.exceptions.ImportTransactionNotFoundException;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.jwt.AuthTokenFilter;
 import com.farmovo.backend.jwt.JwtUtils;
 import com.farmovo.backend.services.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -35,6 +35,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = ImportTransationController.class, excludeAutoConfiguration = {SecurityAutoConfiguration.class})
 @AutoConfigureMockMvc(addFilters = false)
@@ -55,6 +56,8 @@ class ImportTransationControllerTest {
     @MockBean
     private JwtUtils jwtUtils;
     @MockBean
+    private AuthContext authContext;
+    @MockBean
     private AuthTokenFilter authTokenFilter;
 
     @Autowired
@@ -134,9 +137,7 @@ class ImportTransationControllerTest {
     @DisplayName("POST /api/import-transaction/save - success")
     void testCreateImportTransaction() throws Exception {
         CreateImportTransactionRequestDto dto = new CreateImportTransactionRequestDto();
-        given(jwtUtils.getJwtFromCookies(any(HttpServletRequest.class))).willReturn("token");
-        given(jwtUtils.validateJwtToken(anyString())).willReturn(true);
-        given(jwtUtils.getUserIdFromJwtToken(anyString())).willReturn(1L);
+        given(authContext.getUserId()).willReturn(1L);
         doNothing().when(importTransactionService).createImportTransaction(any(CreateImportTransactionRequestDto.class), eq(1L));
 
         mockMvc.perform(post("/api/import-transaction/save")
@@ -156,9 +157,7 @@ class ImportTransationControllerTest {
     @Test
     @DisplayName("DELETE /api/import-transaction/sort-delete/{id} - success")
     void testSoftDeleteImportTransaction() throws Exception {
-        given(jwtUtils.getJwtFromCookies(any(HttpServletRequest.class))).willReturn("token");
-        given(jwtUtils.validateJwtToken(anyString())).willReturn(true);
-        given(jwtUtils.getUserIdFromJwtToken(anyString())).willReturn(1L);
+        given(authContext.getUserId()).willReturn(1L);
         doNothing().when(importTransactionService).softDeleteImportTransaction(eq(1L), eq(1L));
 
         mockMvc.perform(delete("/api/import-transaction/sort-delete/1"))
@@ -179,7 +178,8 @@ class ImportTransationControllerTest {
     @Test
     @DisplayName("GET /api/import-transaction/{id}/export - success")
     void testExportImportTransactionPdf() throws Exception {
-        given(importTransactionService.exportImportPdf(1L)).willReturn(new byte[]{1,2,3});
+        StreamingResponseBody pdf = out -> out.write(new byte[]{1, 2, 3});
+        given(importTransactionService.exportImportPdf(1L)).willReturn(pdf);
         mockMvc.perform(get("/api/import-transaction/1/export"))
                 .andExpect(status().isOk());
     }
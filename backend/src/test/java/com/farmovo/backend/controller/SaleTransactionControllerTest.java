@@ -2,6 +2,7 @@ package com.farmovo.backend.controller;
 
 import com.farmovo.backend.dto.request.CreateSaleTransactionRequestDto;
 import com.farmovo.backend.dto.response.*;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.jwt.AuthTokenFilter;
 import com.farmovo.backend.jwt.JwtUtils;
 import com.farmovo.backend.mapper.ProductMapper;
@@ -21,6 +22,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Collections;
 import java.util.List;
@@ -63,6 +65,9 @@ class SaleTransactionControllerTest {
     @MockBean
     private JwtUtils jwtUtils;
 
+    @MockBean
+    private AuthContext authContext;
+
     @Test
     void testGetCreateFormData() throws Exception {
         Mockito.when(customerService.getAllCustomerDto()).thenReturn(List.of());
@@ -85,10 +90,7 @@ class SaleTransactionControllerTest {
 
     @Test
     void testSave() throws Exception {
-        String token = "valid.token";
-        Mockito.when(jwtUtils.getJwtFromCookies(any())).thenReturn(token);
-        Mockito.when(jwtUtils.validateJwtToken(token)).thenReturn(true);
-        Mockito.when(jwtUtils.getUserIdFromJwtToken(token)).thenReturn(1L);
+        Mockito.when(authContext.getUserId()).thenReturn(1L);
         Mockito.doNothing().when(saleTransactionService).save(any(CreateSaleTransactionRequestDto.class), eq(1L));
         mockMvc.perform(post("/api/sale-transactions/save")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -136,10 +138,7 @@ class SaleTransactionControllerTest {
 
     @Test
     void testSoftDeleteSaleTransaction() throws Exception {
-        String token = "valid.token";
-        Mockito.when(jwtUtils.getJwtFromCookies(any())).thenReturn(token);
-        Mockito.when(jwtUtils.validateJwtToken(token)).thenReturn(true);
-        Mockito.when(jwtUtils.getUserIdFromJwtToken(token)).thenReturn(1L);
+        Mockito.when(authContext.getUserId()).thenReturn(1L);
         Mockito.doNothing().when(saleTransactionService).softDeleteSaleTransaction(1L, 1L);
         mockMvc.perform(delete("/api/sale-transactions/sort-delete/1"))
                 .andExpect(status().isOk());
@@ -147,7 +146,8 @@ class SaleTransactionControllerTest {
 
     @Test
     void testExportSaleTransactionPdf() throws Exception {
-        Mockito.when(saleTransactionService.exportPdf(1L)).thenReturn(new byte[]{1, 2, 3});
+        StreamingResponseBody pdf = out -> out.write(new byte[]{1, 2, 3});
+        Mockito.when(saleTransactionService.exportPdf(1L)).thenReturn(pdf);
         mockMvc.perform(get("/api/sale-transactions/1/export-pdf"))
                 .andExpect(status().isOk())
                 .andExpect(header().string("Content-Type", "application/pdf"));
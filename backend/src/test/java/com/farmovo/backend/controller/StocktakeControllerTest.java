@@ -8,7 +8,7 @@ import com.farmovo.backend.dto.response.ProductResponseDto;
 import com.farmovo.backend.dto.response.StocktakeDetailDto;
 import com.farmovo.backend.dto.response.StocktakeResponseDto;
 import com.farmovo.backend.dto.response.ZoneResponseDto;
-import com.farmovo.backend.jwt.JwtUtils;
+import com.farmovo.backend.jwt.AuthContext;
 import com.farmovo.backend.services.ImportTransactionDetailService;
 import com.farmovo.backend.services.StocktakeService;
 import com.farmovo.backend.exceptions.ValidationException;
@@ -18,11 +18,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
@@ -47,7 +47,7 @@ class StocktakeControllerTest {
     private ImportTransactionDetailService importTransactionDetailService;
 
     @Mock
-    private JwtUtils jwtUtils;
+    private AuthContext authContext;
 
     private MockMvc mockMvc;
 
@@ -68,8 +68,7 @@ class StocktakeControllerTest {
     }
 
     private void mockJwt(HttpServletRequest request) {
-        when(jwtUtils.getJwtFromRequest(any())).thenReturn("token");
-        when(jwtUtils.getUserIdFromJwtToken(any())).thenReturn(1L);
+        when(authContext.getUserId()).thenReturn(1L);
     }
 
     private StocktakeRequestDto createSampleStocktakeRequest() {
@@ -111,8 +110,8 @@ class StocktakeControllerTest {
 
     @Test
     void exportStocktakeToExcel_success() throws Exception {
-        ByteArrayResource resource = new ByteArrayResource(new byte[]{1, 2, 3});
-        when(stocktakeService.exportStocktakeToExcel(1L)).thenReturn(ResponseEntity.ok().body(resource));
+        StreamingResponseBody body = out -> out.write(new byte[]{1, 2, 3});
+        when(stocktakeService.exportStocktakeToExcel(1L)).thenReturn(ResponseEntity.ok().body(body));
 
         mockMvc.perform(get("/api/stocktakes/1/export-excel"))
                 .andExpect(status().isOk());
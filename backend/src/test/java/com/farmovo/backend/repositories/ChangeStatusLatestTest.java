@@ -0,0 +1,100 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.dto.StatusChangeEvent;
+import com.farmovo.backend.models.ChangeStatusLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra trigger trg_changestatuslogs_latest (V5 migration) trên Postgres thật: nhật ký ghi qua outbox và
+ * JDBC batch của ChangeStatusLogBatchRepository phải cập nhật change_status_latest, và truy vấn native khớp
+ * với cách quét toàn bảng cũ.
+ *
+ * Dùng chung biến môi trường với QueryPlanIndexTest (EXPLAIN_DB_URL, EXPLAIN_DB_USER, EXPLAIN_DB_PASSWORD);
+ * mỗi test chạy trong transaction và rollback khi kết thúc.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ChangeStatusLogBatchRepository.class)
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_USER", matches = ".+")
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_PASSWORD", matches = ".*")
+class ChangeStatusLatestTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("EXPLAIN_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("EXPLAIN_DB_USER"));
+        registry.add("spring.datasource.password", () -> System.getenv("EXPLAIN_DB_PASSWORD"));
+    }
+
+    @Autowired
+    private ChangeStatusLogBatchRepository changeStatusLogBatchRepository;
+    @Autowired
+    private ChangeStatusLogRepository changeStatusLogRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // modelName riêng cho mỗi lần chạy để không lẫn với dữ liệu có sẵn trong DB
+    private final String modelName = "LatestTest" + System.nanoTime();
+
+    private StatusChangeEvent event(long modelId, String from, String to) {
+        return new StatusChangeEvent(modelName, modelId, from, to, null, LocalDateTime.now());
+    }
+
+    private void writeThroughOutbox(List<StatusChangeEvent> events) {
+        changeStatusLogBatchRepository.insertOutbox(events, 50);
+        while (changeStatusLogBatchRepository.drainOutbox(1000) == 1000) {
+            // chuyển hết outbox
+        }
+    }
+
+    @Test
+    @DisplayName("JDBC batch ghi nhiều nhật ký cho một nguồn: change_status_latest trỏ tới bản ghi mới nhất")
+    void batchInsert_updatesLatestRow() {
+        writeThroughOutbox(List.of(event(1L, "DRAFT", "WAITING_FOR_APPROVE"), event(2L, "DRAFT", "CANCEL")));
+        writeThroughOutbox(List.of(event(1L, "WAITING_FOR_APPROVE", "COMPLETE")));
+
+        Long latestId = jdbcTemplate.queryForObject(
+                "SELECT log_id FROM change_status_latest WHERE model_name = ? AND model_id = ?", Long.class, modelName, 1L);
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM changestatuslogs WHERE model_name = ? AND model_id = ?", Long.class, modelName, 1L);
+        assertEquals(maxId, latestId);
+
+        List<ChangeStatusLog> latest = changeStatusLogRepository.findLatestLogsForEachSourceByModel(modelName);
+        assertEquals(2, latest.size());
+        ChangeStatusLog first = latest.stream().filter(l -> l.getModelID() == 1L).findFirst().orElseThrow();
+        assertEquals("COMPLETE", first.getNextStatus());
+    }
+
+    @Test
+    @DisplayName("Truy vấn qua change_status_latest trả về giống cách quét toàn bảng cũ")
+    void latestTable_matchesFullScan() {
+        writeThroughOutbox(List.of(event(1L, "DRAFT", "COMPLETE"), event(2L, "DRAFT", "CANCEL"),
+                event(2L, "CANCEL", "DRAFT")));
+
+        assertTrue(changeStatusLogRepository.existsLatestTable());
+        List<Long> viaLatest = changeStatusLogRepository.findLatestLogsForEachSourceByModel(modelName)
+                .stream().map(ChangeStatusLog::getId).sorted().toList();
+        List<Long> viaScan = changeStatusLogRepository.findLatestLogsForEachSourceByModelByScan(modelName)
+                .stream().map(ChangeStatusLog::getId).sorted().toList();
+        assertEquals(viaScan, viaLatest);
+    }
+}
@@ -0,0 +1,356 @@
+package com.farmovo.backend.repositories;
+
+import com.farmovo.backend.models.ImportTransactionStatus;
+import com.farmovo.backend.models.Notification;
+import com.farmovo.backend.models.SaleTransaction;
+import com.farmovo.backend.models.SaleTransactionStatus;
+import com.farmovo.backend.specification.CustomerSpecification;
+import com.farmovo.backend.specification.ImportTransactionSpecification;
+import com.farmovo.backend.specification.NotificationSpecification;
+import com.farmovo.backend.specification.ProductSpecification;
+import com.farmovo.backend.specification.SaleTransactionSpecification;
+import com.farmovo.backend.specification.SearchPredicates;
+import com.farmovo.backend.utils.KeysetPagination;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gọi các truy vấn nóng thật của SaleTransactionRepository, ImportTransactionDetailRepository, NotificationRepository,
+ * tìm kiếm (SearchPredicates) và KeysetPagination trên một Postgres, bắt SQL cùng tham số Hibernate gửi xuống JDBC
+ * rồi EXPLAIN lại đúng câu đó; báo lỗi nếu planner chọn Seq Scan trên bảng lớn hơn ngưỡng số dòng.
+ *
+ * Chỉ chạy khi có đủ biến môi trường EXPLAIN_DB_URL (vd. jdbc:postgresql://localhost:5432/farmovo),
+ * EXPLAIN_DB_USER và EXPLAIN_DB_PASSWORD; EXPLAIN_SEQ_SCAN_MAX_ROWS (mặc định 10000) là tùy chọn.
+ * Flyway chạy db/migration như lúc khởi động ứng dụng, Hibernate chỉ validate schema.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(QueryPlanIndexTest.CaptureConfig.class)
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_USER", matches = ".+")
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_PASSWORD", matches = ".*")
+class QueryPlanIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final String OLD_CURSOR = new KeysetPagination.Cursor(NOW.minusDays(365), 1000L).encode();
+
+    @DynamicPropertySource
+    static void explainDatabase(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("EXPLAIN_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("EXPLAIN_DB_USER"));
+        registry.add("spring.datasource.password", () -> System.getenv("EXPLAIN_DB_PASSWORD"));
+    }
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private StatementCapture capture;
+    @Autowired
+    private SaleTransactionRepository saleTransactionRepository;
+    @Autowired
+    private ImportTransactionRepository importTransactionRepository;
+    @Autowired
+    private ImportTransactionDetailRepository importTransactionDetailRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private long maxSeqScanRows;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String maxRows = System.getenv("EXPLAIN_SEQ_SCAN_MAX_ROWS");
+        maxSeqScanRows = maxRows != null && !maxRows.isBlank() ? Long.parseLong(maxRows) : 10000L;
+        try (Statement st = connection().createStatement()) {
+            st.execute("ANALYZE sale_transactions, import_transactions, import_transaction_details, lot_zone, products, customers, notifications");
+        }
+        capture.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SearchPredicates.setAccentInsensitive(false);
+    }
+
+    static Stream<Arguments> hotQueries() {
+        return Stream.of(
+                // SaleTransactionRepository
+                query("sale: doanh thu theo ngày",
+                        t -> t.saleTransactionRepository.getRevenueByDay(NOW.minusDays(7), NOW)),
+                query("sale: doanh thu theo ngày và kho",
+                        t -> t.saleTransactionRepository.getRevenueByDayAndStore(NOW.minusDays(7), NOW, 1L)),
+                query("sale: tổng doanh thu theo kho",
+                        t -> t.saleTransactionRepository.sumTotalAmountByStoreId(1L)),
+                query("sale: phiếu hoàn thành mới nhất",
+                        t -> t.saleTransactionRepository.findRecentSales(PageRequest.of(0, 10))),
+                query("sale: phiếu theo kho và trạng thái",
+                        t -> t.saleTransactionRepository.findAll(Specification.allOf(
+                                SaleTransactionSpecification.isNotDeleted(),
+                                SaleTransactionSpecification.hasStoreId(1L),
+                                SaleTransactionSpecification.hasStatus(SaleTransactionStatus.DRAFT)))),
+                // ImportTransactionDetailRepository
+                query("lot: lô còn tồn của sản phẩm (phiếu nhập hoàn thành)",
+                        t -> t.importTransactionDetailRepository.findByProductIdAndRemainQuantityGreaterThanCompleted(
+                                1L, 0, ImportTransactionStatus.COMPLETE)),
+                query("lot: lô sắp hết hạn",
+                        t -> t.importTransactionDetailRepository.findExpiringLotsCompleted(
+                                NOW, NOW.plusDays(7), ImportTransactionStatus.COMPLETE)),
+                query("lot: lô theo zone",
+                        t -> t.importTransactionDetailRepository.findByZoneIdCompleted(1L, ImportTransactionStatus.COMPLETE)),
+                query("lot: lô sắp hết hạn theo kho",
+                        t -> t.importTransactionDetailRepository.findExpiringLotsCompletedByStore(
+                                1L, NOW, NOW.plusDays(7), ImportTransactionStatus.COMPLETE)),
+                // NotificationRepository
+                query("notification: danh sách theo user và kho",
+                        t -> t.notificationRepository.findByUserIdAndStoreIdOrderByCreatedAtDesc(1L, 1L, PageRequest.of(0, 20))),
+                query("notification: đếm chưa đọc theo user và kho",
+                        t -> t.notificationRepository.countByUserIdAndStoreIdAndIsReadFalse(1L, 1L)),
+                query("notification: đếm chưa đọc theo kho",
+                        t -> t.notificationRepository.countByStoreIdAndIsReadFalse(1L)),
+                // Phân trang theo cursor (KeysetPagination)
+                query("keyset: phiếu bán sau cursor",
+                        t -> KeysetPagination.fetch(t.saleTransactionRepository, SaleTransactionSpecification.isNotDeleted(),
+                                OLD_CURSOR, 20, SaleTransaction::getId)),
+                query("keyset: thông báo của user sau cursor",
+                        t -> KeysetPagination.fetch(t.notificationRepository, NotificationSpecification.forUser(1L),
+                                OLD_CURSOR, 20, Notification::getId))
+        );
+    }
+
+    // Tìm kiếm không dấu (SearchPredicates, index pg_trgm); bỏ qua nếu DB không cài được extension
+    static Stream<Arguments> searchQueries() {
+        return Stream.of(
+                query("search: mã phiếu bán",
+                        t -> t.saleTransactionRepository.findAll(SaleTransactionSpecification.hasName("pcb00012"))),
+                query("search: mã phiếu nhập",
+                        t -> t.importTransactionRepository.findAll(ImportTransactionSpecification.hasName("pcbn0001"))),
+                query("search: tên khách hàng",
+                        t -> t.customerRepository.findAll(CustomerSpecification.hasName("nguyen van"))),
+                query("search: số điện thoại khách hàng",
+                        t -> t.customerRepository.findAll(CustomerSpecification.hasPhone("09123"))),
+                query("search: tên sản phẩm",
+                        t -> t.productRepository.findAll(ProductSpecification.matchesKeyword("trung ga")))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    @DisplayName("Truy vấn nóng không Seq Scan trên bảng lớn")
+    void hotQuery_noLargeSequentialScan(String name, Consumer<QueryPlanIndexTest> call) throws Exception {
+        assertNoLargeSequentialScan(name, call);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("searchQueries")
+    @DisplayName("Tìm kiếm không dấu dùng index trigram")
+    void searchQuery_noLargeSequentialScan(String name, Consumer<QueryPlanIndexTest> call) throws Exception {
+        try (Statement st = connection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT to_regprocedure('f_unaccent(text)') IS NOT NULL")) {
+            rs.next();
+            Assumptions.assumeTrue(rs.getBoolean(1), "f_unaccent chưa được cài");
+        }
+        SearchPredicates.setAccentInsensitive(true);
+        assertNoLargeSequentialScan(name, call);
+    }
+
+    private void assertNoLargeSequentialScan(String name, Consumer<QueryPlanIndexTest> call) throws Exception {
+        call.accept(this);
+        List<CapturedQuery> queries = capture.drain();
+        assertFalse(queries.isEmpty(), name + ": không bắt được câu SQL nào");
+
+        for (CapturedQuery query : queries) {
+            JsonNode plan = explain(query);
+            List<String> seqScans = new ArrayList<>();
+            collectSeqScans(plan, seqScans);
+            List<String> offending = new ArrayList<>();
+            for (String relation : seqScans) {
+                long rows = estimatedRows(relation);
+                if (rows > maxSeqScanRows) {
+                    offending.add(relation + " (~" + rows + " rows)");
+                }
+            }
+            assertTrue(offending.isEmpty(),
+                    name + ": Seq Scan on " + offending + "\n" + query.sql() + "\n" + plan.toPrettyString());
+        }
+    }
+
+    // EXPLAIN lại đúng câu SQL và giá trị tham số đã bắt được (plan theo giá trị thật, khớp được partial index)
+    private JsonNode explain(CapturedQuery query) throws Exception {
+        try (PreparedStatement ps = connection().prepareStatement("EXPLAIN (FORMAT JSON) " + query.sql())) {
+            for (Bind bind : query.binds().values()) {
+                bind.method().invoke(ps, bind.args());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return objectMapper.readTree(rs.getString(1)).get(0).get("Plan");
+            }
+        }
+    }
+
+    private void collectSeqScans(JsonNode node, List<String> out) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            out.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, out);
+        }
+    }
+
+    private long estimatedRows(String relation) throws Exception {
+        try (PreparedStatement ps = connection().prepareStatement("SELECT reltuples::bigint FROM pg_class WHERE relname = ?")) {
+            ps.setString(1, relation);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        }
+    }
+
+    // Connection của transaction test, đóng khi transaction kết thúc
+    private Connection connection() {
+        return DataSourceUtils.getConnection(dataSource);
+    }
+
+    private static Arguments query(String name, Consumer<QueryPlanIndexTest> call) {
+        return Arguments.of(name, call);
+    }
+
+    record Bind(Method method, Object[] args) {
+    }
+
+    record CapturedQuery(String sql, Map<Integer, Bind> binds) {
+    }
+
+    @TestConfiguration
+    static class CaptureConfig {
+        @Bean
+        static StatementCapture statementCapture() {
+            return new StatementCapture();
+        }
+    }
+
+    /**
+     * Bọc DataSource để ghi lại các câu SELECT và tham số (setXxx) mà Hibernate thực thi.
+     */
+    static class StatementCapture implements BeanPostProcessor {
+
+        private final List<CapturedQuery> queries = new CopyOnWriteArrayList<>();
+
+        void clear() {
+            queries.clear();
+        }
+
+        List<CapturedQuery> drain() {
+            List<CapturedQuery> result = List.copyOf(queries);
+            queries.clear();
+            return result;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource target) {
+                return proxy(DataSource.class, (method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return result instanceof Connection connection ? wrap(connection) : result;
+                });
+            }
+            return bean;
+        }
+
+        private Connection wrap(Connection target) {
+            return proxy(Connection.class, (method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof PreparedStatement statement && "prepareStatement".equals(method.getName())
+                        && isSelect((String) args[0])) {
+                    return wrap(statement, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        private PreparedStatement wrap(PreparedStatement target, String sql) {
+            Map<Integer, Bind> binds = new TreeMap<>();
+            return proxy(PreparedStatement.class, (method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    binds.put(index, new Bind(method, args.clone()));
+                } else if ("clearParameters".equals(name)) {
+                    binds.clear();
+                } else if ("executeQuery".equals(name) || "execute".equals(name)) {
+                    queries.add(new CapturedQuery(sql, new TreeMap<>(binds)));
+                }
+                return invoke(target, method, args);
+            });
+        }
+
+        private static boolean isSelect(String sql) {
+            String trimmed = sql.stripLeading().toLowerCase();
+            return trimmed.startsWith("select") || trimmed.startsWith("with");
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return (T) Proxy.newProxyInstance(StatementCapture.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> handler.handle(method, args));
+        }
+
+        @FunctionalInterface
+        interface Handler {
+            Object handle(Method method, Object[] args) throws Throwable;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.farmovo.backend.services.impl;
 
+import com.farmovo.backend.dto.response.ImportBalanceDataDto;
 import com.farmovo.backend.dto.response.ProductSaleResponseDto;
 import com.farmovo.backend.dto.response.StocktakeDetailDto;
 import com.farmovo.backend.models.ImportTransactionDetail;
@@ -20,6 +21,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -272,4 +274,38 @@ class BalanceStockServiceImplTest {
         ProductSaleResponseDto item = result.get(0);
         assertEquals(5, item.getQuantity()); // Math.abs(-5)
     }
+
+    @Test
+    void testConvertStocktakeDetailToImportBalanceData_LoadsZonesOnceForAllLots() {
+        // Given - hai dòng thừa hàng thuộc hai lô khác nhau
+        ImportTransactionDetail secondLot = new ImportTransactionDetail();
+        secondLot.setId(101L);
+        secondLot.setProduct(product);
+        secondLot.setName("LH000002");
+
+        StocktakeDetailDto first = new StocktakeDetailDto();
+        first.setBatchCode("LH000001");
+        first.setProductId(1L);
+        first.setDiff(3);
+
+        StocktakeDetailDto second = new StocktakeDetailDto();
+        second.setBatchCode("LH000002");
+        second.setProductId(1L);
+        second.setDiff(2);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(importTransactionDetailRepository.findByName("LH000001")).thenReturn(importTransactionDetail);
+        when(importTransactionDetailRepository.findByName("LH000002")).thenReturn(secondLot);
+        when(importTransactionDetailRepository.findZoneIdsByLotIds(Set.of(100L, 101L)))
+                .thenReturn(Arrays.<Object[]>asList(new Object[]{100L, 1L}, new Object[]{100L, 2L}, new Object[]{101L, 3L}));
+
+        // When
+        List<ImportBalanceDataDto> result = balanceStockService.convertStocktakeDetailToImportBalanceData(Arrays.asList(first, second));
+
+        // Then - zone được gán đúng lô, chỉ một truy vấn lot_zone cho cả danh sách
+        assertEquals(2, result.size());
+        assertEquals(List.of(1L, 2L), result.get(0).getZones_id());
+        assertEquals(List.of(3L), result.get(1).getZones_id());
+        verify(importTransactionDetailRepository, times(1)).findZoneIdsByLotIds(any());
+    }
 }
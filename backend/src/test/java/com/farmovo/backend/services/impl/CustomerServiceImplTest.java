@@ -12,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.InjectMocks;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -98,7 +99,7 @@ class CustomerServiceImplTest {
         Customer customer = new Customer();
         customer.setId(1L);
         customer.setName("John Doe");
-        when(customerRepository.findByNameContainingIgnoreCaseAndActive("John")).thenReturn(Arrays.asList(customer));
+        when(customerRepository.findAll(any(Specification.class))).thenReturn(Arrays.asList(customer));
         List<CustomerResponseDto> result = customerService.searchCustomersByName("John");
         assertEquals(1, result.size());
         assertEquals("John Doe", result.get(0).getName());
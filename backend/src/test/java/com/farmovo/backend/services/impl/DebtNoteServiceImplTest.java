@@ -147,13 +147,13 @@ class DebtNoteServiceImplTest {
             note.setId(10L);
             return note;
         });
-        when(customerRepository.save(any(Customer.class))).thenReturn(customer);
         DebtNoteResponseDto result = debtNoteService.addDebtNote(requestDto);
         assertNotNull(result);
         assertEquals(1L, result.getCustomerId());
         assertEquals(new BigDecimal("100"), result.getDebtAmount());
         verify(debtNoteRepository).save(any(DebtNote.class));
-        verify(customerRepository).save(any(Customer.class));
+        verify(customerRepository).incrementTotalDebt(1L, new BigDecimal("100"));
+        verify(customerRepository, never()).save(any(Customer.class));
     }
 
     @Test
@@ -203,10 +203,29 @@ class DebtNoteServiceImplTest {
             note.setId(10L);
             return note;
         });
-        when(customerRepository.save(any(Customer.class))).thenReturn(customer);
         assertDoesNotThrow(() -> debtNoteService.createDebtNoteFromTransaction(customerId, new BigDecimal("100"), "source", "+", 3L, storeId));
         verify(debtNoteRepository).save(any(DebtNote.class));
-        verify(customerRepository).save(any(Customer.class));
+        verify(customerRepository).incrementTotalDebt(customerId, new BigDecimal("100"));
+        verify(customerRepository, never()).save(any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("createDebtNoteFromTransaction - phiếu bán ('-') trừ nợ bằng UPDATE nguyên tử")
+    void testCreateDebtNoteFromTransaction_SaleDecrements() {
+        Long customerId = 1L;
+        Long storeId = 2L;
+        Customer customer = new Customer();
+        customer.setId(customerId);
+        Store store = new Store();
+        store.setId(storeId);
+        when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
+        when(storeRepository.findById(storeId)).thenReturn(Optional.of(store));
+        when(debtNoteRepository.save(any(DebtNote.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(customerRepository.incrementTotalDebt(customerId, new BigDecimal("-250"))).thenReturn(1);
+
+        debtNoteService.createDebtNoteFromTransaction(customerId, new BigDecimal("250"), "SALE", "-", 3L, storeId);
+
+        verify(customerRepository).incrementTotalDebt(customerId, new BigDecimal("-250"));
     }
 
     @Test
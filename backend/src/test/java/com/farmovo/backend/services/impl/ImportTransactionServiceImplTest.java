@@ -1,5 +1,6 @@
 package com.farmovo.backend.services.impl;
 
+import com.farmovo.backend.dto.StatusChangeEvent;
 import com.farmovo.backend.dto.request.CreateImportTransactionRequestDto;
 import com.farmovo.backend.dto.request.CreateImportTransactionRequestDto.DetailDto;
 import com.farmovo.backend.exceptions.ResourceNotFoundException;
@@ -10,7 +11,9 @@ import com.farmovo.backend.mapper.ImportTransactionMapper;
 import com.farmovo.backend.dto.response.ImportTransactionResponseDto;
 import com.farmovo.backend.models.*;
 import com.farmovo.backend.repositories.*;
+import com.farmovo.backend.services.DailyStoreRollupService;
 import com.farmovo.backend.services.DebtNoteService;
+import com.farmovo.backend.services.StockMutationService;
 import com.farmovo.backend.validator.ImportTransactionDetailValidator;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -20,6 +23,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -54,6 +58,12 @@ class ImportTransactionServiceImplTest {
     private ImportTransactionDetailValidator detailValidator;
     @Mock
     private DebtNoteService debtNoteService;
+    @Mock
+    private DailyStoreRollupService dailyStoreRollupService;
+    @Mock
+    private StockMutationService stockMutationService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private ImportTransactionServiceImpl importTransactionService;
@@ -733,6 +743,13 @@ class ImportTransactionServiceImplTest {
             assertDoesNotThrow(() -> importTransactionService.cancel(1L));
             verify(importTransactionRepository).save(tx);
             assertEquals(ImportTransactionStatus.CANCEL, tx.getStatus());
+
+            ArgumentCaptor<StatusChangeEvent> event = ArgumentCaptor.forClass(StatusChangeEvent.class);
+            verify(eventPublisher).publishEvent(event.capture());
+            assertEquals("ImportTransaction", event.getValue().modelName());
+            assertEquals(1L, event.getValue().modelId());
+            assertEquals("DRAFT", event.getValue().previousStatus());
+            assertEquals("CANCEL", event.getValue().nextStatus());
         }
 
         @Test
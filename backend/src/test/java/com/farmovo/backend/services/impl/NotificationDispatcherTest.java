@@ -0,0 +1,124 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.PendingNotification;
+import com.farmovo.backend.models.Notification;
+import com.farmovo.backend.repositories.NotificationBatchRepository;
+import com.farmovo.backend.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock
+    private NotificationBatchRepository notificationBatchRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private NotificationStreamHub notificationStreamHub;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Không gọi start(): không có worker lấy khỏi queue, queue 1 chỗ sẽ đầy từ thông báo thứ hai
+        dispatcher = new NotificationDispatcher(notificationBatchRepository, userRepository, notificationStreamHub,
+                meterRegistry, 1, 200, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static PendingNotification notification(Long userId) {
+        return new PendingNotification(userId, 1L, null, "Phiếu nhập", "Đã hoàn thành",
+                Notification.NotificationType.SUCCESS, Notification.NotificationCategory.IMPORT_TRANSACTION,
+                null, 10L, "ImportTransaction");
+    }
+
+    @Test
+    @DisplayName("Queue đầy: thread gọi tự ghi thông báo, không bỏ")
+    void enqueue_queueFull_writesOnCallerThread() {
+        PendingNotification queued = notification(1L);
+        PendingNotification overflow = notification(2L);
+
+        dispatcher.enqueue(queued);
+        dispatcher.enqueue(overflow);
+
+        verify(notificationBatchRepository).insertAll(List.of(overflow), 200);
+        verify(notificationStreamHub).notificationsCreated(List.of(overflow));
+        assertEquals(1, dispatcher.getQueueDepth());
+        assertEquals(1.0, meterRegistry.counter("notifications.fanout.caller_runs").count());
+    }
+
+    @Test
+    @DisplayName("Queue đầy trong transaction: chỉ ghi sau commit")
+    void enqueue_queueFullInTransaction_writesAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        PendingNotification queued = notification(1L);
+        PendingNotification overflow = notification(2L);
+
+        dispatcher.enqueue(queued);
+        dispatcher.enqueue(overflow);
+        verifyNoInteractions(notificationBatchRepository);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(notificationBatchRepository).insertAll(List.of(overflow), 200);
+    }
+
+    @Test
+    @DisplayName("insertAll mở transaction riêng để ghi được từ afterCommit")
+    void insertAll_requiresNewTransaction() throws NoSuchMethodException {
+        Transactional transactional = NotificationBatchRepository.class
+                .getMethod("insertAll", List.class, int.class)
+                .getAnnotation(Transactional.class);
+
+        assertEquals(Propagation.REQUIRES_NEW, transactional.propagation());
+    }
+
+    @Test
+    @DisplayName("Lô ghi lỗi: chia nhỏ và ghi lại, chỉ dòng lỗi thực sự bị tính failed")
+    void write_batchFails_retriesInSmallerChunks() throws InterruptedException {
+        NotificationDispatcher batching = new NotificationDispatcher(notificationBatchRepository, userRepository,
+                notificationStreamHub, meterRegistry, 10, 200, 0);
+        doAnswer(inv -> {
+            List<PendingNotification> rows = inv.getArgument(0);
+            if (rows.stream().anyMatch(n -> n.userId() == 3L)) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return rows.size();
+        }).when(notificationBatchRepository).insertAll(anyList(), eq(200));
+        for (long userId = 1; userId <= 4; userId++) {
+            batching.enqueue(notification(userId));
+        }
+
+        batching.start();
+        verify(notificationBatchRepository, timeout(2000)).insertAll(List.of(notification(4L)), 200);
+        batching.stop();
+
+        assertEquals(3.0, meterRegistry.counter("notifications.fanout.inserted").count());
+        assertEquals(1.0, meterRegistry.counter("notifications.fanout.failed").count());
+    }
+}
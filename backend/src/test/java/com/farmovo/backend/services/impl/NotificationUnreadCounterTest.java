@@ -0,0 +1,83 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.repositories.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationUnreadCounterTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    private NotificationUnreadCounter unreadCounter;
+
+    @BeforeEach
+    void setUp() {
+        unreadCounter = new NotificationUnreadCounter(notificationRepository, 1000, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void getUserCount_seedsFromDatabaseOnce() {
+        when(notificationRepository.countByUserIdAndStoreIdAndIsReadFalse(1L, 2L)).thenReturn(5L);
+
+        assertEquals(5L, unreadCounter.getUserCount(1L, 2L));
+        assertEquals(5L, unreadCounter.getUserCount(1L, 2L));
+
+        verify(notificationRepository, times(1)).countByUserIdAndStoreIdAndIsReadFalse(1L, 2L);
+    }
+
+    @Test
+    void incrementAndDecrement_updateSeededCounters() {
+        when(notificationRepository.countByUserIdAndIsReadFalse(1L)).thenReturn(3L);
+        when(notificationRepository.countByStoreIdAndIsReadFalse(2L)).thenReturn(10L);
+        when(notificationRepository.countByIsReadFalse()).thenReturn(20L);
+        unreadCounter.getUserCount(1L, null);
+        unreadCounter.getStoreCount(2L);
+        unreadCounter.getAllStoresCount();
+
+        unreadCounter.increment(1L, 2L);
+        unreadCounter.increment(1L, 2L);
+        unreadCounter.decrement(1L, 2L);
+
+        assertEquals(4L, unreadCounter.getUserCount(1L, null));
+        assertEquals(11L, unreadCounter.getStoreCount(2L));
+        assertEquals(21L, unreadCounter.getAllStoresCount());
+    }
+
+    @Test
+    void increment_doesNotSeedMissingCounters() {
+        unreadCounter.increment(1L, 2L);
+
+        verifyNoInteractions(notificationRepository);
+    }
+
+    @Test
+    void decrement_neverGoesBelowZero() {
+        when(notificationRepository.countByUserIdAndIsReadFalse(1L)).thenReturn(0L);
+        unreadCounter.getUserCount(1L, null);
+
+        unreadCounter.decrement(1L, null);
+
+        assertEquals(0L, unreadCounter.getUserCount(1L, null));
+    }
+
+    @Test
+    void invalidateUser_reseedsFromDatabase() {
+        when(notificationRepository.countByUserIdAndIsReadFalse(1L)).thenReturn(3L, 0L);
+        unreadCounter.getUserCount(1L, null);
+
+        unreadCounter.invalidateUser(1L);
+
+        assertEquals(0L, unreadCounter.getUserCount(1L, null));
+        verify(notificationRepository, times(2)).countByUserIdAndIsReadFalse(1L);
+    }
+}
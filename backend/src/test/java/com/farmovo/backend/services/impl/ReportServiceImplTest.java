@@ -0,0 +1,114 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.response.DailyRevenueDto;
+import com.farmovo.backend.dto.response.RevenueTrendDto;
+import com.farmovo.backend.repositories.DailyStoreRollupRepository;
+import com.farmovo.backend.repositories.ImportTransactionRepository;
+import com.farmovo.backend.repositories.SaleTransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class ReportServiceImplTest {
+    @Mock
+    private DailyStoreRollupRepository dailyStoreRollupRepository;
+    @Mock
+    private SaleTransactionRepository saleTransactionRepository;
+    @Mock
+    private ImportTransactionRepository importTransactionRepository;
+
+    @InjectMocks
+    private ReportServiceImpl reportService;
+
+    private static final LocalDate FROM_DAY = LocalDate.of(2025, 7, 1);
+    private static final LocalDate TO_DAY = LocalDate.of(2025, 7, 31);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Khoảng trọn ngày: doanh thu ngày đọc từ daily_store_rollup")
+    void getDailyRevenue_wholeDays_readsRollup() {
+        given(dailyStoreRollupRepository.sumRevenueBetweenByStore(FROM_DAY, TO_DAY, 1L)).willReturn(new BigDecimal("500"));
+        given(dailyStoreRollupRepository.sumImportCostBetweenByStore(FROM_DAY, TO_DAY, 1L)).willReturn(new BigDecimal("200"));
+
+        DailyRevenueDto result = reportService.getDailyRevenue(FROM_DAY.atStartOfDay(), TO_DAY.atTime(LocalTime.MAX), 1L);
+
+        assertEquals(new BigDecimal("500"), result.getTotalSaleAmount());
+        assertEquals(new BigDecimal("200"), result.getTotalImportAmount());
+        assertEquals(new BigDecimal("300"), result.getNetRevenue());
+        verifyNoInteractions(saleTransactionRepository, importTransactionRepository);
+    }
+
+    @Test
+    @DisplayName("Khoảng lệch giờ: doanh thu ngày tính trên bảng gốc theo đúng from/to")
+    void getDailyRevenue_partialDay_readsSourceTables() {
+        LocalDateTime from = FROM_DAY.atTime(8, 0);
+        LocalDateTime to = FROM_DAY.atTime(12, 30);
+        given(saleTransactionRepository.sumTotalAmountBetweenByStore(from, to, 1L)).willReturn(new BigDecimal("120"));
+        given(importTransactionRepository.sumTotalAmountBetweenByStore(from, to, 1L)).willReturn(new BigDecimal("20"));
+
+        DailyRevenueDto result = reportService.getDailyRevenue(from, to, 1L);
+
+        assertEquals(new BigDecimal("120"), result.getTotalSaleAmount());
+        assertEquals(new BigDecimal("20"), result.getTotalImportAmount());
+        assertEquals(new BigDecimal("100"), result.getNetRevenue());
+        verifyNoInteractions(dailyStoreRollupRepository);
+    }
+
+    @Test
+    @DisplayName("Khoảng trọn ngày: xu hướng doanh thu theo ngày đọc từ daily_store_rollup")
+    void getRevenueTrend_wholeDays_readsRollup() {
+        List<Object[]> rows = Collections.singletonList(new Object[]{Date.valueOf(FROM_DAY), new BigDecimal("500")});
+        given(dailyStoreRollupRepository.getRevenueByDay(FROM_DAY, TO_DAY)).willReturn(rows);
+
+        List<RevenueTrendDto> result = reportService.getRevenueTrend("day", FROM_DAY.atStartOfDay(), TO_DAY.atTime(LocalTime.MAX));
+
+        assertEquals(1, result.size());
+        assertEquals("2025-07-01", result.get(0).getLabel());
+        assertEquals(new BigDecimal("500"), result.get(0).getRevenue());
+        verifyNoInteractions(saleTransactionRepository);
+    }
+
+    @Test
+    @DisplayName("Khoảng lệch giờ: xu hướng doanh thu theo kho tính trên sale_transactions")
+    void getRevenueTrend_partialDay_readsSaleTransactions() {
+        LocalDateTime from = FROM_DAY.atTime(8, 0);
+        LocalDateTime to = TO_DAY.atTime(17, 0);
+        List<Object[]> rows = Collections.singletonList(new Object[]{Date.valueOf(FROM_DAY), new BigDecimal("80")});
+        given(saleTransactionRepository.getRevenueByDayAndStore(from, to, 1L)).willReturn(rows);
+
+        List<RevenueTrendDto> result = reportService.getRevenueTrend("day", from, to, 1L);
+
+        assertEquals(1, result.size());
+        assertEquals(new BigDecimal("80"), result.get(0).getRevenue());
+        verify(dailyStoreRollupRepository, never()).getRevenueByDayAndStore(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("isWholeDays chỉ đúng khi from là 00:00 và to là cuối ngày")
+    void isWholeDays_checksBothBounds() {
+        assertTrue(ReportServiceImpl.isWholeDays(FROM_DAY.atStartOfDay(), TO_DAY.atTime(LocalTime.MAX)));
+        assertFalse(ReportServiceImpl.isWholeDays(FROM_DAY.atTime(0, 0, 1), TO_DAY.atTime(LocalTime.MAX)));
+        assertFalse(ReportServiceImpl.isWholeDays(FROM_DAY.atStartOfDay(), TO_DAY.atTime(23, 59, 59)));
+        assertFalse(ReportServiceImpl.isWholeDays(FROM_DAY.atStartOfDay(), TO_DAY.plusDays(1).atStartOfDay()));
+    }
+}
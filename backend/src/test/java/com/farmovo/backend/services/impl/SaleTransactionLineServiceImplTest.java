@@ -0,0 +1,76 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.models.SaleTransaction;
+import com.farmovo.backend.models.SaleTransactionLine;
+import com.farmovo.backend.repositories.SaleTransactionLineRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SaleTransactionLineServiceImplTest {
+
+    @Mock
+    private SaleTransactionLineRepository lineRepository;
+
+    @InjectMocks
+    private SaleTransactionLineServiceImpl saleTransactionLineService;
+
+    private static SaleTransaction sale(long id, String detail) {
+        SaleTransaction sale = new SaleTransaction();
+        sale.setId(id);
+        sale.setDetail(detail);
+        return sale;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SaleTransactionLine> savedLines() {
+        ArgumentCaptor<List<SaleTransactionLine>> captor = ArgumentCaptor.forClass(List.class);
+        verify(lineRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    @DisplayName("backfillBatch - detail hợp lệ tách thành từng dòng")
+    void backfillBatch_validDetail_writesLines() {
+        given(lineRepository.findSalesWithoutLines(eq(0L), any(Pageable.class))).willReturn(List.of(
+                sale(1L, "[{\"id\":10,\"proId\":100,\"quantity\":2},{\"id\":11,\"proId\":101,\"quantity\":3}]")));
+
+        assertEquals(1L, saleTransactionLineService.backfillBatch(0L, 50));
+
+        List<SaleTransactionLine> lines = savedLines();
+        assertEquals(2, lines.size());
+        assertEquals(100L, lines.get(0).getProductId());
+        assertEquals(3, lines.get(1).getQuantity());
+    }
+
+    @Test
+    @DisplayName("backfillBatch - detail lỗi hoặc rỗng ghi dòng đánh dấu để không quét lại")
+    void backfillBatch_invalidOrEmptyDetail_writesMarker() {
+        given(lineRepository.findSalesWithoutLines(eq(0L), any(Pageable.class))).willReturn(List.of(
+                sale(1L, "not json"), sale(2L, "[]")));
+
+        assertEquals(2L, saleTransactionLineService.backfillBatch(0L, 50));
+
+        List<SaleTransactionLine> lines = savedLines();
+        assertEquals(2, lines.size());
+        for (SaleTransactionLine marker : lines) {
+            assertNull(marker.getProductId());
+            assertNull(marker.getLotId());
+            assertEquals(0, marker.getQuantity());
+        }
+    }
+}
@@ -7,9 +7,13 @@ import com.farmovo.backend.mapper.ProductMapper;
 import com.farmovo.backend.mapper.SaleTransactionMapper;
 import com.farmovo.backend.models.*;
 import com.farmovo.backend.repositories.*;
+import com.farmovo.backend.services.DailyStoreRollupService;
 import com.farmovo.backend.services.DebtNoteService;
+import com.farmovo.backend.services.SaleTransactionLineService;
+import com.farmovo.backend.services.StockMutationService;
 import com.farmovo.backend.validator.SaleTransactionValidator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -18,9 +22,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -53,6 +59,14 @@ class SaleTransactionServiceImplTest {
     private ProductRepository productRepository;
     @Mock
     private StocktakeRepository stocktakeRepository;
+    @Mock
+    private SaleTransactionLineService saleTransactionLineService;
+    @Mock
+    private DailyStoreRollupService dailyStoreRollupService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private StockMutationService stockMutationService;
 
     @InjectMocks
     private SaleTransactionServiceImpl saleTransactionService;
@@ -764,4 +778,72 @@ class SaleTransactionServiceImplTest {
             verify(saleTransactionRepository).save(tx);
         }
     }
+
+    @Nested
+    @DisplayName("complete - trừ tồn kho bằng UPDATE có điều kiện")
+    class CompleteStockDeduction {
+
+        @BeforeEach
+        void runMutationDirectly() {
+            given(stockMutationService.execute(anyString(), any())).willAnswer(inv -> ((Supplier<?>) inv.getArgument(1)).get());
+        }
+
+        private SaleTransaction waitingTransaction(String detailJson) {
+            SaleTransaction tx = new SaleTransaction();
+            tx.setId(1L);
+            tx.setStatus(SaleTransactionStatus.WAITING_FOR_APPROVE);
+            tx.setDetail(detailJson);
+            return tx;
+        }
+
+        @Test
+        @DisplayName("Hai dòng cùng lô → cộng dồn, một câu UPDATE cho lô và sản phẩm")
+        void sameBatchTwice_singleAggregatedUpdate() {
+            String json = "[{\"id\":10,\"proId\":100,\"quantity\":2},{\"id\":10,\"proId\":100,\"quantity\":3}]";
+            given(saleTransactionRepository.findById(1L)).willReturn(Optional.of(waitingTransaction(json)));
+            given(importTransactionDetailRepository.findExistingIds(any())).willReturn(List.of(10L));
+            given(importTransactionDetailRepository.decrementRemainQuantity(10L, 100L, 5)).willReturn(1);
+            given(productRepository.decrementProductQuantity(100L, 5)).willReturn(1);
+
+            assertDoesNotThrow(() -> saleTransactionService.complete(1L));
+            verify(importTransactionDetailRepository).decrementRemainQuantity(10L, 100L, 5);
+            verify(productRepository).decrementProductQuantity(100L, 5);
+            verify(importTransactionDetailRepository, never()).findById(anyLong());
+        }
+
+        @Test
+        @DisplayName("Lô không đủ tồn (0 dòng cập nhật) → BadRequestException, không trừ sản phẩm")
+        void insufficientBatchStock_throwsBadRequest() {
+            String json = "[{\"id\":10,\"proId\":100,\"quantity\":5}]";
+            given(saleTransactionRepository.findById(1L)).willReturn(Optional.of(waitingTransaction(json)));
+            given(importTransactionDetailRepository.findExistingIds(any())).willReturn(List.of(10L));
+            given(importTransactionDetailRepository.decrementRemainQuantity(10L, 100L, 5)).willReturn(0);
+            Product product = new Product();
+            product.setId(100L);
+            ImportTransactionDetail lot = new ImportTransactionDetail();
+            lot.setId(10L);
+            lot.setProduct(product);
+            lot.setRemainQuantity(2);
+            given(importTransactionDetailRepository.findById(10L)).willReturn(Optional.of(lot));
+
+            assertThrows(BadRequestException.class, () -> saleTransactionService.complete(1L));
+            verify(productRepository, never()).decrementProductQuantity(anyLong(), anyInt());
+            verify(saleTransactionRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Không tìm thấy lô theo id → tra theo batchCode")
+        void missingId_fallsBackToBatchCode() {
+            String json = "[{\"id\":99,\"proId\":100,\"quantity\":1,\"batchCode\":\"LH000010\"}]";
+            given(saleTransactionRepository.findById(1L)).willReturn(Optional.of(waitingTransaction(json)));
+            given(importTransactionDetailRepository.findExistingIds(any())).willReturn(List.of());
+            given(importTransactionDetailRepository.findIdsByNameIn(List.of("LH000010")))
+                    .willReturn(List.<Object[]>of(new Object[]{"LH000010", 10L}));
+            given(importTransactionDetailRepository.decrementRemainQuantity(10L, 100L, 1)).willReturn(1);
+            given(productRepository.decrementProductQuantity(100L, 1)).willReturn(1);
+
+            assertDoesNotThrow(() -> saleTransactionService.complete(1L));
+            verify(importTransactionDetailRepository).decrementRemainQuantity(10L, 100L, 1);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.dto.StatusChangeEvent;
+import com.farmovo.backend.jwt.AuthContext;
+import com.farmovo.backend.repositories.ChangeStatusLogBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatusChangeLogWriterTest {
+
+    @Mock
+    private ChangeStatusLogBatchRepository changeStatusLogBatchRepository;
+    @Mock
+    private ObjectProvider<AuthContext> authContextProvider;
+
+    private StatusChangeLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        // Chu kỳ định kỳ dài để worker chỉ chạy khi được đánh thức
+        writer = new StatusChangeLogWriter(changeStatusLogBatchRepository, authContextProvider,
+                new SimpleMeterRegistry(), 50, 60_000);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static StatusChangeEvent event(String from, String to) {
+        return new StatusChangeEvent("SaleTransaction", 1L, from, to, 7L, LocalDateTime.now());
+    }
+
+    @Test
+    @DisplayName("Trong transaction: ghi outbox ngay, chỉ chuyển sang changestatuslogs sau khi commit")
+    void onStatusChange_inTransaction_writesOutboxThenDrainsAfterCommit() {
+        StatusChangeEvent event = event("DRAFT", "COMPLETE");
+        TransactionSynchronizationManager.initSynchronization();
+
+        writer.onStatusChange(event);
+
+        verify(changeStatusLogBatchRepository).insertOutbox(List.of(event), 50);
+        verify(changeStatusLogBatchRepository, after(200).never()).drainOutbox(anyInt());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(changeStatusLogBatchRepository, timeout(2000)).drainOutbox(50);
+    }
+
+    @Test
+    @DisplayName("Ngoài transaction: ghi outbox rồi chuyển ngay")
+    void onStatusChange_noTransaction_drainsImmediately() {
+        StatusChangeEvent event = event("DRAFT", "CANCEL");
+
+        writer.onStatusChange(event);
+
+        verify(changeStatusLogBatchRepository).insertOutbox(List.of(event), 50);
+        verify(changeStatusLogBatchRepository, timeout(2000)).drainOutbox(50);
+    }
+
+    @Test
+    @DisplayName("Ghi outbox lỗi thì ném lỗi để transaction nghiệp vụ rollback")
+    void onStatusChange_outboxFails_propagates() {
+        StatusChangeEvent event = event("DRAFT", "CANCEL");
+        doThrow(new DataAccessResourceFailureException("db down"))
+                .when(changeStatusLogBatchRepository).insertOutbox(List.of(event), 50);
+
+        assertThrows(DataAccessResourceFailureException.class, () -> writer.onStatusChange(event));
+    }
+
+    @Test
+    @DisplayName("Chuyển outbox lặp lại tới khi một lượt lấy ít hơn batch-size")
+    void drain_repeatsUntilOutboxEmpty() {
+        when(changeStatusLogBatchRepository.drainOutbox(50)).thenReturn(50, 50, 3);
+
+        writer.drain();
+
+        verify(changeStatusLogBatchRepository, times(3)).drainOutbox(50);
+    }
+
+    @Test
+    @DisplayName("Trạng thái không đổi thì không ghi nhật ký")
+    void onStatusChange_sameStatus_ignored() throws InterruptedException {
+        writer.onStatusChange(event("COMPLETE", "COMPLETE"));
+        writer.stop();
+
+        verifyNoInteractions(changeStatusLogBatchRepository);
+    }
+}
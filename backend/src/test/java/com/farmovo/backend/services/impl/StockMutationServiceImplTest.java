@@ -0,0 +1,130 @@
+package com.farmovo.backend.services.impl;
+
+import com.farmovo.backend.models.ImportTransactionDetail;
+import com.farmovo.backend.repositories.ImportTransactionDetailRepository;
+import com.farmovo.backend.repositories.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockMutationServiceImplTest {
+
+    @Mock
+    private ImportTransactionDetailRepository importTransactionDetailRepository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+    private StockMutationServiceImpl stockMutationService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        stockMutationService = new StockMutationServiceImpl(
+                importTransactionDetailRepository, productRepository, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(stockMutationService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(stockMutationService, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(stockMutationService, "maxBackoffMs", 2L);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    private double count(String name) {
+        var counter = meterRegistry.find(name).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    @Test
+    @DisplayName("Xung đột @Version lần đầu → thử lại và thành công")
+    void conflictThenSuccess_retries() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = stockMutationService.execute("test", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException(ImportTransactionDetail.class, 1L);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, calls.get());
+        assertEquals(1.0, count("stock.mutation.conflicts"));
+        assertEquals(1.0, count("stock.mutation.retries"));
+        assertEquals(0.0, count("stock.mutation.exhausted"));
+    }
+
+    @Test
+    @DisplayName("Xung đột liên tục → dừng sau maxAttempts và ném lỗi")
+    void alwaysConflict_givesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> stockMutationService.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(ImportTransactionDetail.class, 1L);
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(3.0, count("stock.mutation.conflicts"));
+        assertEquals(2.0, count("stock.mutation.retries"));
+        assertEquals(1.0, count("stock.mutation.exhausted"));
+    }
+
+    @Test
+    @DisplayName("Lỗi khác không phải xung đột → không thử lại")
+    void otherError_notRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> stockMutationService.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("boom");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, count("stock.mutation.conflicts"));
+    }
+
+    @Test
+    @DisplayName("addLotRemainQuantity cộng delta bằng UPDATE trên DB, không đọc entity")
+    void addLotRemainQuantity_updatesByDelta() {
+        given(importTransactionDetailRepository.incrementRemainQuantity(1L, 3)).willReturn(1);
+
+        stockMutationService.addLotRemainQuantity(1L, 3);
+
+        verify(importTransactionDetailRepository).incrementRemainQuantity(1L, 3);
+        verify(importTransactionDetailRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("addLotRemainQuantity không cập nhật được dòng nào (không có lô/tồn âm) → IllegalArgumentException")
+    void addLotRemainQuantity_noRowUpdated_throws() {
+        given(importTransactionDetailRepository.incrementRemainQuantity(1L, -10)).willReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> stockMutationService.addLotRemainQuantity(1L, -10));
+    }
+
+    @Test
+    @DisplayName("addProductQuantity với sản phẩm không tồn tại → trả về false")
+    void addProductQuantity_missingProduct_returnsFalse() {
+        given(productRepository.incrementProductQuantity(9L, 3)).willReturn(0);
+
+        assertFalse(stockMutationService.addProductQuantity(9L, 3));
+    }
+}
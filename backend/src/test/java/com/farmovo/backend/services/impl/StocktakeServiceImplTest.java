@@ -2,9 +2,11 @@ package com.farmovo.backend.services.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.farmovo.backend.dto.request.ProductDto;
 import com.farmovo.backend.dto.request.StocktakeRequestDto;
 import com.farmovo.backend.dto.response.StocktakeDetailDto;
 import com.farmovo.backend.dto.response.StocktakeResponseDto;
+import com.farmovo.backend.exceptions.ResourceNotFoundException;
 import com.farmovo.backend.exceptions.ValidationException;
 import com.farmovo.backend.mapper.StocktakeMapper;
 import com.farmovo.backend.models.*;
@@ -23,6 +25,7 @@ import org.mockito.quality.Strictness;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -72,6 +75,7 @@ class StocktakeServiceImplTest {
 
         // ✅ Bổ sung stub cần thiết cho product
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product));
     }
 
     private StocktakeRequestDto createSampleStocktakeRequest() {
@@ -141,6 +145,33 @@ class StocktakeServiceImplTest {
         verify(stocktakeRepository).save(any());
     }
 
+    @Test
+    void createStocktake_enrichDetails_loadsProductsAndLotsOnce() throws JsonProcessingException {
+        StocktakeDetailDto second = new StocktakeDetailDto();
+        second.setBatchCode("LOT002");
+        second.setProductId(1L);
+        second.setReal(3);
+        requestDto.setDetail(List.of(requestDto.getDetail().get(0), second));
+        importDetail.setProduct(product);
+        ImportTransactionDetail secondLot = createSampleImportDetail();
+        secondLot.setId(2L);
+        secondLot.setName("LOT002");
+        secondLot.setProduct(product);
+
+        when(importTransactionDetailRepository.findByProductIdInAndRemainQuantityGreaterThan(anyCollection(), eq(0)))
+                .thenReturn(List.of(importDetail, secondLot));
+        when(stocktakeRepository.findMaxId()).thenReturn(0L);
+        when(stocktakeRepository.save(any())).thenReturn(stocktake);
+        when(stocktakeMapper.toResponseDto(any())).thenReturn(new StocktakeResponseDto());
+        when(objectMapper.writeValueAsString(any())).thenReturn("[]");
+
+        stocktakeService.createStocktake(requestDto, 1L);
+
+        verify(productRepository).findAllById(Set.of(1L));
+        verify(importTransactionDetailRepository).findByProductIdInAndRemainQuantityGreaterThan(Set.of(1L), 0);
+        verify(importTransactionDetailRepository, never()).findByProductIdAndRemainQuantityGreaterThan(anyLong(), anyInt());
+    }
+
     @Test
     void createStocktake_missingDetail_shouldThrow() throws JsonProcessingException {
         requestDto.setDetail(null);
@@ -0,0 +1,29 @@
+package com.farmovo.backend.specification;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchPredicatesTest {
+
+    @Test
+    @DisplayName("normalize - Bỏ dấu tiếng Việt và chuyển chữ thường")
+    void testNormalize_VietnameseAccents() {
+        assertEquals("nguyen van an", SearchPredicates.normalize("Nguyễn Văn Ân"));
+        assertEquals("trung ga", SearchPredicates.normalize("Trứng Gà"));
+    }
+
+    @Test
+    @DisplayName("normalize - Chữ đ/Đ thành d")
+    void testNormalize_DStroke() {
+        assertEquals("dau do", SearchPredicates.normalize("Đậu đỏ"));
+    }
+
+    @Test
+    @DisplayName("normalize - Mã phiếu và số điện thoại giữ nguyên, bỏ khoảng trắng hai đầu")
+    void testNormalize_CodesAndPhones() {
+        assertEquals("pcb000123", SearchPredicates.normalize(" PCB000123 "));
+        assertEquals("0912345678", SearchPredicates.normalize("0912345678"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.farmovo.backend.utils;
+
+import com.farmovo.backend.exceptions.BadRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPaginationTest {
+
+    @Test
+    @DisplayName("Cursor - Mã hóa rồi giải mã giữ nguyên created_at (micro giây) và id")
+    void testCursor_RoundTrip() {
+        KeysetPagination.Cursor cursor = new KeysetPagination.Cursor(LocalDateTime.of(2024, 5, 1, 8, 30, 15, 123456000), 42L);
+
+        KeysetPagination.Cursor decoded = KeysetPagination.Cursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    @DisplayName("Cursor - Rỗng nghĩa là trang đầu")
+    void testCursor_BlankIsFirstPage() {
+        assertNull(KeysetPagination.Cursor.decode(null));
+        assertNull(KeysetPagination.Cursor.decode(""));
+    }
+
+    @Test
+    @DisplayName("Cursor - Chuỗi không hợp lệ báo BadRequest")
+    void testCursor_Invalid() {
+        assertThrows(BadRequestException.class, () -> KeysetPagination.Cursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    @DisplayName("clampSize - Mặc định 20, tối đa 200")
+    void testClampSize() {
+        assertEquals(KeysetPagination.DEFAULT_SIZE, KeysetPagination.clampSize(null));
+        assertEquals(KeysetPagination.DEFAULT_SIZE, KeysetPagination.clampSize(0));
+        assertEquals(50, KeysetPagination.clampSize(50));
+        assertEquals(KeysetPagination.MAX_SIZE, KeysetPagination.clampSize(10_000));
+    }
+
+    @Test
+    @DisplayName("isCursorMode - Chỉ bật khi pagination=cursor")
+    void testIsCursorMode() {
+        assertTrue(KeysetPagination.isCursorMode("cursor"));
+        assertTrue(KeysetPagination.isCursorMode("CURSOR"));
+        assertFalse(KeysetPagination.isCursorMode(null));
+        assertFalse(KeysetPagination.isCursorMode("offset"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.farmovo.backend.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfBulkExporterTest {
+
+    @Test
+    @DisplayName("uniqueEntryName - Tên chưa dùng giữ nguyên")
+    void testUniqueEntryName_FirstUseUnchanged() {
+        Set<String> used = new HashSet<>();
+
+        assertEquals("phieu_ban_PB001_1.pdf", PdfBulkExporter.uniqueEntryName(used, "phieu_ban_PB001_1.pdf"));
+        assertEquals("phieu_ban_PB002_2.pdf", PdfBulkExporter.uniqueEntryName(used, "phieu_ban_PB002_2.pdf"));
+    }
+
+    @Test
+    @DisplayName("uniqueEntryName - Tên trùng được thêm hậu tố trước phần mở rộng")
+    void testUniqueEntryName_DuplicateGetsSuffix() {
+        Set<String> used = new HashSet<>();
+
+        assertEquals("phieu_nhap_Chưa có.pdf", PdfBulkExporter.uniqueEntryName(used, "phieu_nhap_Chưa có.pdf"));
+        assertEquals("phieu_nhap_Chưa có_2.pdf", PdfBulkExporter.uniqueEntryName(used, "phieu_nhap_Chưa có.pdf"));
+        assertEquals("phieu_nhap_Chưa có_3.pdf", PdfBulkExporter.uniqueEntryName(used, "phieu_nhap_Chưa có.pdf"));
+        assertEquals(3, used.size());
+    }
+
+    @Test
+    @DisplayName("uniqueEntryName - Hậu tố sinh ra không đè lên tên đã có sẵn")
+    void testUniqueEntryName_SkipsTakenSuffix() {
+        Set<String> used = new HashSet<>(Set.of("a.pdf", "a_2.pdf"));
+
+        assertEquals("a_3.pdf", PdfBulkExporter.uniqueEntryName(used, "a.pdf"));
+        assertEquals("noext_2", PdfBulkExporter.uniqueEntryName(new HashSet<>(Set.of("noext")), "noext"));
+    }
+}
@@ -544,7 +544,7 @@ const ImportBalancePage = () => {
                         const newTotalQuantity = currentQuantity + additionalQuantity;
                         
                         // Cập nhật số lượng còn lại của lô hàng
-                        await updateBatchRemainQuantity(batchId, newTotalQuantity);
+                        await updateBatchRemainQuantity(batchId, newTotalQuantity, currentQuantity);
                         console.log(`Updated batch ${batchId}: ${currentQuantity} + ${additionalQuantity} = ${newTotalQuantity}`);
                     } catch (batchError) {
                         console.error(`Error updating batch ${batchId}:`, batchError);
@@ -57,8 +57,9 @@ export const updateBatchQuantities = (stocktakeId, batchUpdates) => {
 };
 
 // API để cập nhật số lượng còn lại của từng lô hàng
-export const updateBatchRemainQuantity = (batchId, remainQuantity) => {
-    return axios.patch(`/import-details/${batchId}/remain`, { remainQuantity })
+// previousRemainQuantity (tùy chọn): số lượng đã đọc, backend chỉ cộng phần chênh lệch để không ghi đè thay đổi đồng thời
+export const updateBatchRemainQuantity = (batchId, remainQuantity, previousRemainQuantity) => {
+    return axios.patch(`/import-details/${batchId}/remain`, { remainQuantity, previousRemainQuantity })
         .then(res => res.data);
 };
 